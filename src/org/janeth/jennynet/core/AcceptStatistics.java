@@ -0,0 +1,178 @@
+package org.janeth.jennynet.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counters on the acceptance of incoming connections at a <code>Server</code>.
+ * All values count from the start of the server. Instances are updated
+ * by the server's accept and handshake threads and can be read at any time
+ * from any thread.
+ *
+ * @see Server#getAcceptStatistics()
+ */
+public class AcceptStatistics {
+
+   private final LongAdder accepted = new LongAdder();
+   private final LongAdder verified = new LongAdder();
+   private final LongAdder failed = new LongAdder();
+   private final LongAdder expired = new LongAdder();
+   private final LongAdder discarded = new LongAdder();
+   private final LongAdder overflows = new LongAdder();
+   private final LongAdder pending = new LongAdder();
+
+   // accept rate measurement (written by accept threads under lock)
+   private long windowStart = System.currentTimeMillis();
+   private long windowCount;
+   private volatile long lastWindowEnd = windowStart;
+   private volatile int acceptRate;
+
+   AcceptStatistics () {
+   }
+
+   /** Returns the number of sockets accepted from the server sockets.
+    *
+    * @return long number of accepted sockets
+    */
+   public long getAccepted () {
+      return accepted.sum();
+   }
+
+   /** Returns the number of incoming sockets which passed the layer
+    * handshake and were rendered as server connections.
+    *
+    * @return long number of verified handshakes
+    */
+   public long getVerified () {
+      return verified.sum();
+   }
+
+   /** Returns the number of incoming sockets which failed the layer
+    * handshake, including remote closures and handshake timeouts.
+    *
+    * @return long number of failed handshakes
+    */
+   public long getFailed () {
+      return failed.sum();
+   }
+
+   /** Returns the number of incoming sockets which were dropped because
+    * their handshake deadline expired before a handshake thread became
+    * available.
+    *
+    * @return long number of expired handshakes
+    */
+   public long getExpired () {
+      return expired.sum();
+   }
+
+   /** Returns the number of incoming sockets which were dropped without
+    * handshake because the server was closed.
+    *
+    * @return long number of discarded handshakes
+    */
+   public long getDiscarded () {
+      return discarded.sum();
+   }
+
+   /** Returns the number of incoming sockets which were dropped because
+    * the handshake queue was full.
+    *
+    * @return long number of rejected sockets
+    */
+   public long getOverflows () {
+      return overflows.sum();
+   }
+
+   /** Returns the number of handshakes currently queued or in progress.
+    *
+    * @return long number of pending handshakes
+    */
+   public long getPending () {
+      return pending.sum();
+   }
+
+   /** Returns the number of sockets accepted during the last full second
+    * of operation. The value is 0 if there were no accepts in the last
+    * two seconds.
+    *
+    * @return int accepted sockets per second
+    */
+   public int getAcceptRate () {
+      if (System.currentTimeMillis() - lastWindowEnd > 2000) {
+         return 0;
+      }
+      return acceptRate;
+   }
+
+   /** Counts an accepted socket and updates the accept rate.
+    */
+   synchronized void socketAccepted () {
+      accepted.increment();
+      long now = System.currentTimeMillis();
+      if (now - windowStart >= 1000) {
+         // the completed window is reported, a gap is counted as zero
+         acceptRate = now - windowStart < 2000 ? (int)windowCount : 0;
+         lastWindowEnd = now;
+         windowStart = now;
+         windowCount = 0;
+      }
+      windowCount++;
+   }
+
+   void handshakeQueued () {
+      pending.increment();
+   }
+
+   void handshakeVerified () {
+      pending.decrement();
+      verified.increment();
+   }
+
+   void handshakeFailed () {
+      pending.decrement();
+      failed.increment();
+   }
+
+   void handshakeExpired () {
+      pending.decrement();
+      expired.increment();
+   }
+
+   void handshakeDiscarded () {
+      pending.decrement();
+      discarded.increment();
+   }
+
+   void handshakeOverflow () {
+      pending.decrement();
+      overflows.increment();
+   }
+
+   /** Returns all values of this instance under stable names prefixed
+    * with "accept.".
+    *
+    * @return <code>Map&lt;String, Long&gt;</code> sorted by name
+    */
+   public Map<String, Long> snapshot () {
+      Map<String, Long> map = new TreeMap<String, Long>();
+      map.put("accept.accepted", getAccepted());
+      map.put("accept.verified", getVerified());
+      map.put("accept.failed", getFailed());
+      map.put("accept.expired", getExpired());
+      map.put("accept.discarded", getDiscarded());
+      map.put("accept.overflows", getOverflows());
+      map.put("accept.pending", getPending());
+      map.put("accept.rate", (long)getAcceptRate());
+      return map;
+   }
+
+   @Override
+   public String toString () {
+      return "accepted=" + getAccepted() + ", verified=" + getVerified()
+            + ", failed=" + getFailed() + ", expired=" + getExpired()
+            + ", discarded=" + getDiscarded()
+            + ", overflows=" + getOverflows() + ", pending=" + getPending()
+            + ", rate=" + getAcceptRate() + "/s";
+   }
+}
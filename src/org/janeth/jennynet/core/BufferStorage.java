@@ -0,0 +1,102 @@
+package org.janeth.jennynet.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+import org.janeth.jennynet.intfa.Connection;
+import org.janeth.jennynet.intfa.ReceiveStorage;
+
+/** A receive storage which keeps incoming files up to a size threshold in
+ * memory (heap or direct <code>ByteBuffer</code>). Larger files and files
+ * of unknown length are received into TEMP files. The data of a file kept
+ * in memory is available at its FILE_RECEIVED event with
+ * <code>TransmissionEvent.getBuffer()</code>.
+ *
+ * @see org.janeth.jennynet.intfa.ConnectionParameters#setReceiveStorage(ReceiveStorage)
+ */
+public class BufferStorage implements ReceiveStorage {
+
+   private final int threshold;
+   private final boolean direct;
+
+   /** Creates a new buffer storage for files up to the given length.
+    *
+    * @param threshold int maximum file length kept in memory
+    * @param direct boolean true == direct buffers, false == heap buffers
+    * @throws IllegalArgumentException if threshold is negative
+    */
+   public BufferStorage (int threshold, boolean direct) {
+      if (threshold < 0)
+         throw new IllegalArgumentException("threshold < 0");
+      this.threshold = threshold;
+      this.direct = direct;
+   }
+
+   /** Returns the maximum length of files kept in memory.
+    *
+    * @return int bytes
+    */
+   public int getThreshold () {
+      return threshold;
+   }
+
+   /** Whether files are kept in direct buffers.
+    *
+    * @return boolean
+    */
+   public boolean isDirect () {
+      return direct;
+   }
+
+   @Override
+   public WritableByteChannel openChannel (Connection connection, long fileID,
+         String path, long length) {
+      if (length < 0 || length > threshold) return null;
+      int size = (int)length;
+      return new BufferChannel(direct ? ByteBuffer.allocateDirect(size)
+            : ByteBuffer.allocate(size));
+   }
+
+   /** A channel which writes into a fixed-size buffer. */
+   static class BufferChannel implements WritableByteChannel {
+      private final ByteBuffer buffer;
+      private boolean open = true;
+
+      BufferChannel (ByteBuffer buffer) {
+         this.buffer = buffer;
+      }
+
+      @Override
+      public synchronized int write (ByteBuffer src) throws IOException {
+         if (!open)
+            throw new ClosedChannelException();
+         int len = src.remaining();
+         if (len > buffer.remaining())
+            throw new IOException("BUFFER STORAGE: data exceeds file length");
+         buffer.put(src);
+         return len;
+      }
+
+      @Override
+      public synchronized boolean isOpen () {
+         return open;
+      }
+
+      @Override
+      public synchronized void close () {
+         open = false;
+      }
+
+      /** Returns a read-only view of the written data.
+       *
+       * @return ByteBuffer
+       */
+      public synchronized ByteBuffer getBuffer () {
+         ByteBuffer b = buffer.duplicate();
+         b.flip();
+         return b.asReadOnlyBuffer();
+      }
+   }
+}
@@ -0,0 +1,469 @@
+package org.janeth.jennynet.core;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.janeth.jennynet.exception.IllegalFileLengthException;
+import org.janeth.jennynet.intfa.Connection;
+import org.janeth.jennynet.intfa.ConnectionListener;
+import org.janeth.jennynet.intfa.ConnectionParameters;
+import org.janeth.jennynet.intfa.PingEcho;
+import org.janeth.jennynet.intfa.TransmissionEvent;
+import org.janeth.jennynet.util.ListenerRegistry;
+
+/** A pool of <code>Client</code> connections to the same server which
+ * stripes outgoing transmissions across its members. Each member is a
+ * separate TCP connection with its own send and receive threads, so the
+ * pool can exceed the throughput of a single connection.
+ *
+ * <p>Objects and files are distributed to members according to the
+ * pool's striping policy. Note that the order of transmissions is only
+ * guaranteed among transmissions which are sent through the same member;
+ * with policy <i>KeyHash</i> all transmissions with equal keys are
+ * sent through the same member. The object or file ID returned by sending
+ * methods is the ID assigned by the sending member.
+ *
+ * <p>Listeners added to the pool receive the events of all members.
+ * Events state the member connection from which they originate.
+ *
+ * <p>After connecting, members announce the pool identifier to the
+ * server, where they can be obtained as a group with <code>
+ * IServer.getConnectionGroup()</code>.
+ *
+ * @see Client
+ */
+public class ClientPool {
+
+   /** Policy for the distribution of transmissions to pool members. */
+   public enum Striping {
+      /** Each send priority is assigned to a fixed member. */
+      Priority,
+      /** Transmissions are assigned to members by hash value of a key
+       * object; without key the transmission object is used as key. */
+      KeyHash,
+      /** Transmissions are assigned to the member with the smallest
+       * send queue. */
+      LeastLoaded
+   }
+
+   private final Client[] members;
+   private final UUID poolId = UUID.randomUUID();
+   private final ListenerRegistry<ConnectionListener> listeners =
+         new ListenerRegistry<ConnectionListener>(new ConnectionListener[0]);
+   private final MemberListener memberListener = new MemberListener();
+   private final AtomicInteger cursor = new AtomicInteger();
+   private ConnectionParameters parameters = JennyNet.getParameters();
+   private volatile Striping striping = Striping.LeastLoaded;
+   private boolean connected;
+   private boolean closed;
+
+   /** Creates a new unconnected client pool with the given number of
+    * members.
+    *
+    * @param size int number of connections (minimum 1)
+    * @throws IllegalArgumentException if size is below 1
+    */
+   public ClientPool (int size) {
+      if (size < 1)
+         throw new IllegalArgumentException("illegal pool size; minimum = 1");
+
+      members = new Client[size];
+      for (int i = 0; i < size; i++) {
+         members[i] = new Client();
+         members[i].addListener(memberListener);
+      }
+   }
+
+   /** Connects all members of this pool to the given server address.
+    * If a member fails to connect, all members are closed and the
+    * exception of the failing member is thrown.
+    *
+    * @param timeout int milliseconds for each member to wait for a
+    *        connection; 0 for unlimited
+    * @param host InetSocketAddress server address
+    * @throws IllegalStateException if this pool is connected or closed
+    * @throws IOException
+    */
+   public synchronized void connect (int timeout, InetSocketAddress host) throws IOException {
+      if (connected | closed)
+         throw new IllegalStateException("pool is connected or closed");
+
+      try {
+         for (int i = 0; i < members.length; i++) {
+            Client cl = members[i];
+            cl.setParameters(parameters);
+            cl.connect(timeout, host);
+            cl.setPoolId(poolId);
+            cl.sendSignal(Signal.newPoolSignal(poolId, i));
+         }
+         connected = true;
+      } catch (IOException e) {
+         close();
+         throw e;
+      } catch (RuntimeException e) {
+         close();
+         throw e;
+      }
+   }
+
+   /** Returns the identifier of this pool which is announced to the
+    * server.
+    *
+    * @return UUID pool identifier
+    */
+   public UUID getPoolId () {
+      return poolId;
+   }
+
+   /** Returns the number of members of this pool.
+    *
+    * @return int pool size
+    */
+   public int getSize () {
+      return members.length;
+   }
+
+   /** Returns the member connection with the given index.
+    *
+    * @param index int member index (0 .. size-1)
+    * @return <code>Client</code>
+    */
+   public Client getMember (int index) {
+      return members[index];
+   }
+
+   /** Returns an array with the member connections of this pool.
+    *
+    * @return <code>Client[]</code>
+    */
+   public Client[] getMembers () {
+      return members.clone();
+   }
+
+   /** Returns the connection parameters which are given to the members
+    * of this pool when they connect. Modifications on the returned
+    * instance become effective for members when connecting.
+    *
+    * @return <code>ConnectionParameters</code>
+    */
+   public ConnectionParameters getParameters () {
+      return parameters;
+   }
+
+   /** Sets the connection parameters which are given to the members of
+    * this pool when they connect.
+    *
+    * @param par <code>ConnectionParameters</code>
+    * @throws NullPointerException if parameter is null
+    * @throws IllegalStateException if this pool is connected
+    */
+   public synchronized void setParameters (ConnectionParameters par) {
+      if (par == null)
+         throw new NullPointerException();
+      if (connected)
+         throw new IllegalStateException("pool is connected");
+
+      parameters = (ConnectionParameters)par.clone();
+   }
+
+   /** Returns the policy by which transmissions are distributed to
+    * members. Defaults to <i>LeastLoaded</i>.
+    *
+    * @return <code>ClientPool.Striping</code>
+    */
+   public Striping getStriping () {
+      return striping;
+   }
+
+   /** Sets the policy by which transmissions are distributed to
+    * members.
+    *
+    * @param striping <code>ClientPool.Striping</code>
+    * @throws NullPointerException if parameter is null
+    */
+   public void setStriping (Striping striping) {
+      if (striping == null)
+         throw new NullPointerException();
+      this.striping = striping;
+   }
+
+   /** Whether all members of this pool are connected.
+    *
+    * @return boolean
+    */
+   public boolean isConnected () {
+      for (Client cl : members) {
+         if (!cl.isConnected()) return false;
+      }
+      return true;
+   }
+
+   /** Whether this pool has been closed.
+    *
+    * @return boolean
+    */
+   public synchronized boolean isClosed () {
+      return closed;
+   }
+
+   /** Sends an object with "Normal" priority through a member of this
+    * pool.
+    *
+    * @param object Object transmission object
+    * @return long object ID at the sending member
+    * @see Connection#sendObject(Object)
+    */
+   public long sendObject (Object object) {
+      return sendObject(null, object, SendPriority.Normal);
+   }
+
+   /** Sends an object with the given priority through a member of this
+    * pool.
+    *
+    * @param object Object transmission object
+    * @param priority <code>SendPriority</code>
+    * @return long object ID at the sending member
+    * @see Connection#sendObject(Object, SendPriority)
+    */
+   public long sendObject (Object object, SendPriority priority) {
+      return sendObject(null, object, priority);
+   }
+
+   /** Sends an object with the given priority through a member of this
+    * pool. With striping policy <i>KeyHash</i> all objects with equal keys
+    * are sent through the same member and hence arrive in the order of
+    * sending.
+    *
+    * @param key Object striping key, may be null
+    * @param object Object transmission object
+    * @param priority <code>SendPriority</code>
+    * @return long object ID at the sending member
+    * @see Connection#sendObject(Object, SendPriority)
+    */
+   public long sendObject (Object key, Object object, SendPriority priority) {
+      return selectMember(key == null ? object : key, priority).sendObject(object, priority);
+   }
+
+   /** Sends a file with the given priority through a member of this pool.
+    * With striping policy <i>KeyHash</i> the remote path is used as key.
+    *
+    * @param file File file to transmit
+    * @param remotePath String destination parameter for remote system
+    * @param priority <code>SendPriority</code>
+    * @return long file ID at the sending member
+    * @throws IOException
+    * @see Connection#sendFile(File, String, SendPriority)
+    */
+   public long sendFile (File file, String remotePath, SendPriority priority) throws IOException {
+      return selectMember(remotePath, priority).sendFile(file, remotePath, priority);
+   }
+
+   /** Sends a file to the server as a parallel transfer over all members
+    * of this pool. The file is split into consecutive ranges, one per member,
+    * which are transmitted concurrently and assembled into a single file by 
+    * the server. This can exceed the throughput of a single TCP connection 
+    * on networks with a high bandwidth-delay product.
+    * 
+    * <p>Each member reports the transmission of its range with the regular 
+    * file transmission events. The server reports the file to its 
+    * listeners with a single FILE_RECEIVED event when all ranges have been 
+    * received. If a member fails to start its range, the ranges already
+    * started are broken and the exception is thrown.
+    *
+    * @param file File file to transmit
+    * @param remotePath String destination parameter for remote system
+    * @param priority <code>SendPriority</code>
+    * @return UUID identifier of the parallel transfer
+    * @throws IllegalFileLengthException if a range exceeds the maximum 
+    *         file length of its connection
+    * @throws IOException
+    */
+   public UUID sendFileParallel (File file, String remotePath, SendPriority priority) 
+         throws IOException {
+      if (file == null | priority == null)
+         throw new NullPointerException();
+      if (!file.isFile())
+         throw new FileNotFoundException(file.getPath());
+      
+      // determine ranges aligned to the parcel size (at least one parcel each)
+      long length = file.length();
+      int parcelSize = parameters.getTransmissionParcelSize();
+      long parcels = Math.max(1, (length + parcelSize - 1) / parcelSize);
+      long rangeParcels = (parcels + members.length - 1) / members.length;
+      long rangeSize = rangeParcels * parcelSize;
+      int count = (int)((parcels + rangeParcels - 1) / rangeParcels);
+      
+      // start range transmissions on members
+      UUID transferId = UUID.randomUUID();
+      long[] fileIds = new long[count];
+      int started = 0;
+      try {
+         for (int i = 0; i < count; i++) {
+            long offset = i * rangeSize;
+            long rangeLength = Math.min(rangeSize, length - offset);
+            FileRange range = new FileRange(transferId, length, offset, rangeLength, i, count);
+            fileIds[i] = members[i].sendFileRange(file, remotePath, priority, range);
+            started++;
+         }
+      } catch (IOException e) {
+         breakRanges(fileIds, started);
+         throw e;
+      } catch (RuntimeException e) {
+         breakRanges(fileIds, started);
+         throw e;
+      }
+      return transferId;
+   }
+   
+   private void breakRanges (long[] fileIds, int started) {
+      for (int i = 0; i < started; i++) {
+         try {
+            members[i].breakTransfer(fileIds[i], 1);
+         } catch (Exception e) {
+         }
+      }
+   }
+
+   /** Returns the member which shall transmit the next object.
+    *
+    * @param key Object striping key, may be null
+    * @param priority <code>SendPriority</code>
+    * @return <code>Client</code>
+    */
+   protected Client selectMember (Object key, SendPriority priority) {
+      int size = members.length;
+      if (size == 1) return members[0];
+
+      switch (striping) {
+      case Priority:
+         return members[priority.ordinal() % size];
+      case KeyHash:
+         if (key != null) {
+            int h = key.hashCode();
+            h ^= h >>> 16;
+            return members[(h & 0x7fffffff) % size];
+         }
+         return members[(cursor.getAndIncrement() & 0x7fffffff) % size];
+      default:
+         // least loaded member, starting at a rotating position
+         int start = cursor.getAndIncrement() & 0x7fffffff;
+         Client best = null;
+         int bestLoad = Integer.MAX_VALUE;
+         for (int i = 0; i < size; i++) {
+            Client cl = members[(start + i) % size];
+            if (!cl.isConnected()) continue;
+            int load = cl.getSendLoad();
+            if (load < bestLoad) {
+               best = cl;
+               bestLoad = load;
+               if (load == 0) break;
+            }
+         }
+         return best == null ? members[start % size] : best;
+      }
+   }
+
+   /** Sends a PING to each member of this pool.
+    */
+   public void sendPing () {
+      for (Client cl : members) {
+         cl.sendPing();
+      }
+   }
+
+   /** Closes all members of this pool.
+    */
+   public synchronized void close () {
+      closed = true;
+      for (Client cl : members) {
+         cl.close();
+      }
+   }
+
+   /** Waits until all members of this pool are disconnected or the
+    * given time has elapsed.
+    *
+    * @param time long milliseconds; 0 for unlimited
+    * @throws InterruptedException
+    */
+   public void waitForDisconnect (long time) throws InterruptedException {
+      long limit = System.currentTimeMillis() + time;
+      for (Client cl : members) {
+         long rest = time == 0 ? 0 : Math.max(1, limit - System.currentTimeMillis());
+         cl.waitForDisconnect(rest);
+      }
+   }
+
+   /** Adds a connection listener which receives the events of all members.
+    *
+    * @param listener <code>ConnectionListener</code>
+    */
+   public void addListener (ConnectionListener listener) {
+      if (listener != null) {
+         listeners.add(listener);
+      }
+   }
+
+   /** Removes a connection listener from this pool.
+    *
+    * @param listener <code>ConnectionListener</code>
+    */
+   public void removeListener (ConnectionListener listener) {
+      listeners.remove(listener);
+   }
+
+   @Override
+   public String toString () {
+      return "ClientPool " + poolId + " (" + members.length + " members)";
+   }
+
+   /** Forwards the events of all members to the pool listeners. */
+   private class MemberListener implements ConnectionListener {
+
+      @Override
+      public void connected (Connection connection) {
+         for (ConnectionListener li : listeners.getSnapshot()) {
+            li.connected(connection);
+         }
+      }
+
+      @Override
+      public void idle (Connection connection, boolean idle) {
+         for (ConnectionListener li : listeners.getSnapshot()) {
+            li.idle(connection, idle);
+         }
+      }
+
+      @Override
+      public void disconnected (Connection connection, int cause, String message) {
+         for (ConnectionListener li : listeners.getSnapshot()) {
+            li.disconnected(connection, cause, message);
+         }
+      }
+
+      @Override
+      public void objectReceived (Connection connection, long objectNr, Object object) {
+         for (ConnectionListener li : listeners.getSnapshot()) {
+            li.objectReceived(connection, objectNr, object);
+         }
+      }
+
+      @Override
+      public void pingEchoReceived (PingEcho pingEcho) {
+         for (ConnectionListener li : listeners.getSnapshot()) {
+            li.pingEchoReceived(pingEcho);
+         }
+      }
+
+      @Override
+      public void transmissionEventOccurred (TransmissionEvent event) {
+         for (ConnectionListener li : listeners.getSnapshot()) {
+            li.transmissionEventOccurred(event);
+         }
+      }
+   }
+}
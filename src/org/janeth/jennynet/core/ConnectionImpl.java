@@ -5,27 +5,34 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
 import java.util.Collection;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
 
 import org.janeth.jennynet.exception.ClosedConnectionException;
 import org.janeth.jennynet.exception.ConnectionTimeoutException;
@@ -41,9 +48,13 @@ import org.janeth.jennynet.intfa.PingEcho;
 import org.janeth.jennynet.intfa.Serialization;
 import org.janeth.jennynet.intfa.TransmissionEvent;
 import org.janeth.jennynet.intfa.TransmissionEvent.TransmissionEventType;
-import org.janeth.jennynet.util.ArraySet;
+import org.janeth.jennynet.util.ListenerRegistry;
 import org.janeth.jennynet.util.SchedulableTimerTask;
+import org.janeth.jennynet.util.SerialExecutor;
 import org.janeth.jennynet.util.Util;
+import org.janeth.jennynet.util.WheelTimer;
+import org.janeth.jennynet.util.WheelTimerTask;
+import org.janeth.jennynet.util.WorkerThreads;
 
 /** Implementation of JennyNet <code>Connection</code> interface, building 
  * the common part of both <code>Client</code> and <code>ServerConnection</code>.
@@ -58,16 +69,23 @@ class ConnectionImpl implements Connection {
    }
    
    /** Internal static Timer for time-control tasks. */
-   protected static Timer timer = new Timer();
+   protected static WheelTimer timer = JennyNet.getTimer();
+   
+   /** Maximum number of file lookups (delta signatures, content lookups)
+    * which are performed concurrently for requests of remote. */
+   private static final int MAX_FILE_LOOKUPS = 4;
    
    // parametric
    private UUID uuid = UUID.randomUUID();
+   /** Identifier of the client pool this connection is member of, or null. */
+   private volatile UUID poolId;
    private byte[] shortId = Util.makeShortId(uuid);
    private String connectionName;
    private OurParameters parameters = new OurParameters();
 
    // objects
-   private Set<ConnectionListener> listeners = new ArraySet<ConnectionListener>();
+   private ListenerRegistry<ConnectionListener> listeners = 
+         new ListenerRegistry<ConnectionListener>(new ConnectionListener[0]);
    private Serialization inputSerialisation = JennyNet.getGlobalSerialisation().copyFor(this);
    private Serialization outputSerialisation = JennyNet.getGlobalSerialisation().copyFor(this);
    private Properties properties;
@@ -77,12 +95,15 @@ class ConnectionImpl implements Connection {
    private InputStream socketInput;
    private Map<Long, Long> pingSentMap; // maps ping-id -> time sent
    private Map<Object, SendFileProcessor> fileSenderMap; 
+   private FileSendScheduler fileScheduler;
    private Map<Long, FileAgglomeration> fileReceptorMap; 
    private Map<Long, ObjectAgglomeration> objectReceptorMap; 
+   private Map<Long, PartialFileStore.Entry> resumeMap; 
+   private Map<Long, ContentOffer> contentOfferMap; 
+   private Set<Long> fileLookups = ConcurrentHashMap.newKeySet(); 
 
    // processors
    private InputProcessor inputProcessor;
-   private OutputProcessor outputProcessor;
    private ReceiveProcessor receiveProcessor;
    
    // data queues sending
@@ -97,11 +118,13 @@ class ConnectionImpl implements Connection {
    private AliveSignalTimerTask aliveSignalTask;
    private AliveEchoControlTask aliveTimeoutTask;
    private CheckIdleTimerTask checkIdleTask;
-   private Object listenerDispatchLock = new Object();
+   private SerialExecutor eventDispatcher = new SerialExecutor(
+         JennyNet.getDispatchExecutor(), SerialExecutor.DEFAULT_BATCH_SIZE);
    private Object waitForDisconnectLock = new Object();
    private long objectSerialCounter;
    private long pingSerialCounter;
-   private long exchangedDataVolume;
+   private final ConnectionMetrics metrics = new ConnectionMetrics(this);
+   private ObjectName mbeanName;
    private int transmitSpeed = -1;
    private boolean isCheckIdleState;
    protected boolean fixedTransmissionSpeed;
@@ -254,7 +277,30 @@ class ConnectionImpl implements Connection {
    public long sendObject(Object object, SendPriority priority) {
       checkConnected();
       checkObjectRegisteredForSending(object);
-      
+      return putToInputQueue(object, null, priority);
+   }
+
+   /** Sends an object which has been serialised in advance with a 
+    * serialisation equivalent to the send serialisation of this connection
+    * (same method and class registrations). The given instance may be shared
+    * by multiple connections, e.g. for a broadcast; the object is not 
+    * serialised again by this connection.
+    * 
+    * @param serObj <code>SerialisedObject</code> shared object serialisation
+    * @param priority <code>SendPriority</code>
+    * @return long object ID or -1 if the connection is terminating
+    * @throws IllegalArgumentException if the parcel size of the serialisation
+    *         does not match TRANSMISSION_PARCEL_SIZE of this connection
+    * @throws IllegalStateException if the send queue is full
+    */
+   protected long sendSerialisedObject (SerialisedObject serObj, SendPriority priority) {
+      checkConnected();
+      if (serObj.getParcelSize() != parameters.getTransmissionParcelSize())
+         throw new IllegalArgumentException("parcel size mismatch");
+      return putToInputQueue(null, serObj, priority);
+   }
+
+   private long putToInputQueue (Object object, SerialisedObject serObj, SendPriority priority) {
       long objNr = -1; 
       if (inputProcessor != null && !inputProcessor.isTerminated()) {
           // throw exception if input queue is at maximum
@@ -265,7 +311,9 @@ class ConnectionImpl implements Connection {
 
     	  // assign object number and add to input queue
     	  objNr = getNextObjectNr();
-    	  inputQueue.add(new UserObject(object, objNr, priority));
+    	  UserObject uo = new UserObject(object, objNr, priority);
+    	  uo.serialisation = serObj;
+    	  inputQueue.add(uo);
       }
       return objNr;
    }
@@ -293,7 +341,7 @@ class ConnectionImpl implements Connection {
    @Override
    public long sendFile (File file, String remotePath, SendPriority priority) throws IOException {
       checkConnected();
-      return new SendFileProcessor(file, remotePath, priority).getFileID();
+      return new SendFileProcessor(file, remotePath, priority, FileMode.REGULAR).getFileID();
    }
    
    @Override
@@ -301,6 +349,261 @@ class ConnectionImpl implements Connection {
       return sendFile(file, remotePath, SendPriority.Normal);
    }
    
+   @Override
+   public long resumeFile (File file, String remotePath, SendPriority priority, 
+                           UUID transferId) throws IOException {
+      if (transferId == null)
+         throw new NullPointerException("transferId == null");
+      checkConnected();
+      return new SendFileProcessor(file, remotePath, priority, 
+                                   FileMode.forResume(transferId)).getFileID();
+   }
+   
+   @Override
+   public long sendFileDelta (File file, String remotePath, SendPriority priority) 
+         throws IOException {
+      if (remotePath == null)
+         throw new NullPointerException("remotePath == null");
+      checkConnected();
+      return new SendFileProcessor(file, remotePath, priority, FileMode.DELTA).getFileID();
+   }
+   
+   @Override
+   public long sendDirectory (File dir, String remotePath, FileFilter filter, 
+                              SendPriority priority) throws IOException {
+      checkConnected();
+      return new SendFileProcessor(new FileBatch(dir, filter), remotePath, priority).getFileID();
+   }
+   
+   @Override
+   public long sendStream (InputStream in, String remotePath, SendPriority priority) 
+         throws IOException {
+      checkConnected();
+      return new SendFileProcessor(in, in, remotePath, priority).getFileID();
+   }
+   
+   @Override
+   public long sendStream (ReadableByteChannel channel, String remotePath, 
+                           SendPriority priority) throws IOException {
+      if (channel == null)
+         throw new NullPointerException("channel == null");
+      checkConnected();
+      return new SendFileProcessor(channel, Channels.newInputStream(channel), 
+            remotePath, priority).getFileID();
+   }
+   
+   /** Sends a file to remote whose data is read by the given shared file
+    * source. This is used to transmit the same file to multiple connections
+    * while reading it only once. The source must not have been started.
+    * 
+    * @param file File file to transmit
+    * @param remotePath String destination parameter for remote system
+    * @param priority <code>SendPriority</code>
+    * @param source <code>FileFanOut</code> shared file source
+    * @return long file transmission ID
+    * @throws IllegalArgumentException if the source's parcel size does not
+    *         match the parcel size of this connection
+    * @throws IOException
+    */
+   protected long sendFile (File file, String remotePath, SendPriority priority, 
+                            FileFanOut source) throws IOException {
+      checkConnected();
+      if (source.getParcelSize() != parameters.getTransmissionParcelSize()) {
+         throw new IllegalArgumentException("parcel size mismatch");
+      }
+      return new SendFileProcessor(file, remotePath, priority, 
+                                   FileMode.forFanOut(source)).getFileID();
+   }
+   
+   /** Sends a range of a file to remote as part of a parallel file transfer.
+    * The remote station assembles all ranges with the same transfer 
+    * identifier into a single file, regardless of the connections over
+    * which they arrive. 
+    * 
+    * @param file File file to transmit
+    * @param remotePath String destination parameter for remote system
+    * @param priority <code>SendPriority</code>
+    * @param range <code>FileRange</code> range of the file to transmit
+    * @return long file transmission ID
+    * @throws IllegalArgumentException if the range does not match the file
+    * @throws IOException
+    */
+   protected long sendFileRange (File file, String remotePath, SendPriority priority, 
+                                 FileRange range) throws IOException {
+      checkConnected();
+      if (range.getFileLength() != file.length()) {
+         throw new IllegalArgumentException("file range does not match file length");
+      }
+      return new SendFileProcessor(file, remotePath, priority, 
+                                   FileMode.forRange(range)).getFileID();
+   }
+   
+   /** Handles the announcement of the content hash of an incoming file
+    * transfer (first phase of a content negotiation). If the content is 
+    * available in the layer's content cache, the cached file is pinned and
+    * remote is answered that the content was found; the file is realised 
+    * only when remote commits. Otherwise the hash is remembered for the 
+    * transfer so that the received file can be added to the cache. 
+    * Announcements which are neither committed nor followed by file data 
+    * expire.
+    * 
+    * @param fileID long file transmission ID
+    * @param text String signal text: hash, file length and remote path
+    * @return int DEDUP answer code (1 = found, 2 = not available)
+    */
+   private int contentAnnounced (long fileID, String text) {
+      int i = text == null ? -1 : text.indexOf(':');
+      int j = i < 0 ? -1 : text.indexOf(':', i+1);
+      if (j < 0) return 2;
+      
+      final ContentOffer offer = new ContentOffer();
+      offer.hash = text.substring(0, i);
+      offer.path = j+1 == text.length() ? null : text.substring(j+1);
+      try {
+         offer.length = Long.parseLong(text.substring(i+1, j));
+      } catch (NumberFormatException e) {
+         return 2;
+      }
+      
+      // pin the cached content if the destination is valid
+      ContentCache cache = JennyNet.getContentCache();
+      if (cache != null && (offer.path == null || 
+          FileAgglomeration.resolveDestination(this, offer.path) != null)) {
+         offer.cached = cache.pin(offer.hash, offer.length);
+         offer.cache = cache;
+      }
+      
+      registerContentOffer(fileID, offer);
+      return offer.cached == null ? 2 : 1;
+   }
+   
+   /** Registers a content announcement for an incoming file transfer. The
+    * announcement expires if it is not taken by the transfer in due time.
+    * 
+    * @param fileID long file transmission ID
+    * @param offer <code>ContentOffer</code>
+    */
+   private void registerContentOffer (final long fileID, final ContentOffer offer) {
+      offer.expiry = new WheelTimerTask() {
+         @Override
+         public void run() {
+            if (contentOfferMap.remove(fileID, offer)) {
+               offer.release();
+            }
+         }
+      };
+      ContentOffer old = contentOfferMap.put(fileID, offer);
+      if (old != null) {
+         old.expiry.cancel();
+         old.release();
+      }
+      timer.schedule(offer.expiry, Math.max(60000, 4L * parameters.getConfirmTimeout()));
+   }
+   
+   /** Handles the commit of remote to a content announcement which was 
+    * answered as found (second phase of a content negotiation). The file
+    * is realised from the cache and reported to the user as received. 
+    * If the file cannot be realised, the transfer continues with the 
+    * transmission of file data.
+    * 
+    * @param fileID long file transmission ID
+    * @return int DEDUP answer code (2 = not available, 3 = realised)
+    */
+   private int contentCommitted (long fileID) {
+      ContentOffer offer = contentOfferMap.remove(fileID);
+      if (offer == null) return 2;
+      offer.expiry.cancel();
+
+      // realise the destination from the cache
+      // (TEMP file if no destination path is given)
+      File destination = null;
+      boolean realised = false;
+      try {
+         if (offer.cached != null) {
+            destination = offer.path == null ? Util.getTempFile(parameters.getTempDirectory())
+                  : FileAgglomeration.resolveDestination(this, offer.path);
+            if (destination != null) {
+               ContentCache.materialise(offer.cached, destination);
+               realised = true;
+            }
+         }
+      } catch (IOException e) {
+         e.printStackTrace();
+      } finally {
+         offer.release();
+      }
+      
+      if (!realised) {
+         if (offer.path == null && destination != null) {
+            destination.delete();
+         }
+         
+         // keep the hash for caching the transmitted file 
+         registerContentOffer(fileID, offer);
+         return 2;
+      }
+
+      // inform the user about the received file
+      TransmissionEventImpl event = new TransmissionEventImpl(this,
+            TransmissionEventType.FILE_INCOMING, fileID);
+      event.setExpectedLength(offer.length);
+      event.setPath(offer.path);
+      event.setFile(destination);
+      fireTransmissionEvent(event);
+
+      event = new TransmissionEventImpl(this, 
+            TransmissionEventType.FILE_RECEIVED, fileID, destination, offer.path);
+      event.setExpectedLength(offer.length);
+      fireTransmissionEvent(event);
+      return 3;
+   }
+   
+   /** Executes a lookup task for a file related request of remote on the
+    * layer's file lookup pool. A request is dropped if a lookup for the 
+    * same file ID is in progress; it is refused if MAX_FILE_LOOKUPS 
+    * lookups of this connection are in progress. The task has to remove
+    * the file ID from <code>fileLookups</code> before it answers remote.
+    * 
+    * @param fileID long file transmission ID
+    * @param task Runnable lookup task
+    * @return int 0 = started, 1 = dropped, 2 = refused
+    */
+   private int startFileLookup (final long fileID, final Runnable task) {
+      if (fileLookups.size() >= MAX_FILE_LOOKUPS) return 2;
+      if (!fileLookups.add(fileID)) return 1;
+      
+      JennyNet.getFileLookupExecutor().execute(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               task.run();
+            } finally {
+               fileLookups.remove(fileID);
+            }
+         }
+      });
+      return 0;
+   }
+   
+   /** Returns the serialised delta signature of the file which is the
+    * destination of the given remote path parameter for incoming file
+    * transfers, or an empty array if there is no such file.
+    * 
+    * @param remotePath String destination parameter
+    * @return byte[] serialised signature
+    */
+   private byte[] deltaSignature (String remotePath) {
+      File base = FileAgglomeration.resolveDestination(this, remotePath);
+      if (base != null && base.isFile() && base.length() > 0) {
+         try {
+            return FileDelta.signature(base);
+         } catch (IOException e) {
+            e.printStackTrace();
+         }
+      }
+      return new byte[0];
+   }
+   
    /** Sends a signal to remote. This queues the signal object for sending
     * but does not check for connection readiness.
     * 
@@ -331,15 +634,24 @@ class ConnectionImpl implements Connection {
    private void putObjectToReceiveQueue (UserObject object) {
 		// naive blocking behaviour depending on queue size
 	   int topSize = getParameters().getObjectQueueCapacity();
+	   long stallStart = 0;
 		do {
 			if (objectReceiveQueue.size() < topSize) {
 				break;
 			}
+			if (stallStart == 0) {
+				stallStart = System.nanoTime();
+			}
 			Util.sleep(25);
 		} while (true);
+		if (stallStart != 0) {
+			metrics.receiveStalled(System.nanoTime() - stallStart);
+		}
 
-		// put parcel into sorting queue
+		// put parcel into sorting queue and schedule its delivery
+		metrics.deliveryLoad.add(object.length);
 		objectReceiveQueue.put(object);
+		eventDispatcher.execute(objectDelivery);
    }
    
    @Override
@@ -531,13 +843,15 @@ class ConnectionImpl implements Connection {
       // data inits
       objectSerialCounter = 0;
       pingSerialCounter = 0;
-      exchangedDataVolume = 0;
       transmitSpeed = par.getTransmissionSpeed();
       
       // create hashtables and services
       fileSenderMap = new Hashtable<Object, SendFileProcessor>(); 
+      fileScheduler = new FileSendScheduler(this);
       fileReceptorMap = new Hashtable<Long, FileAgglomeration>(); 
       objectReceptorMap = new Hashtable<Long, ObjectAgglomeration>(); 
+      resumeMap = new Hashtable<Long, PartialFileStore.Entry>(); 
+      contentOfferMap = new ConcurrentHashMap<Long, ContentOffer>(); 
       pingSentMap = new Hashtable<Long, Long>();
 
       // create data queues
@@ -555,11 +869,19 @@ class ConnectionImpl implements Connection {
       
       // create and start data processors
       inputProcessor = new InputProcessor();
-      outputProcessor = new OutputProcessor();
       receiveProcessor = new ReceiveProcessor();
       receiveProcessor.start();
-      outputProcessor.start();
       inputProcessor.start();
+      
+      // expose metrics to JMX if opted
+      if (JennyNet.isJmxEnabled()) {
+         mbeanName = MetricsMBean.register(new MetricsMBean("JennyNet connection " + this) {
+            @Override
+            protected Map<String, Long> snapshot() {
+               return metrics.snapshot();
+            }
+         }, "type=Connection,id=" + getUUID());
+      }
    }
    
    @Override
@@ -579,8 +901,12 @@ class ConnectionImpl implements Connection {
          aliveTimeoutTask.cancel();
       }
       setCheckIdleState(false);
+      MetricsMBean.unregister(mbeanName);
       
       // shutdown send file threads (including signalling)
+      if (fileScheduler != null) {
+         fileScheduler.shutdown();
+      }
       if (fileSenderMap != null) {
     	  for (SendFileProcessor pro : getSendFileAgents()) {
     		  pro.breakTransfer(113, 6, null);
@@ -594,15 +920,27 @@ class ConnectionImpl implements Connection {
     	  }
       }
       
+      // release content announcements of transfers which did not start
+      if (contentOfferMap != null) {
+         for (Long fileID : contentOfferMap.keySet()) {
+            takeContentHash(fileID);
+         }
+      }
+      
+      // return claimed but unused partial files of resumed transfers
+      if (resumeMap != null) {
+         for (PartialFileStore.Entry entry : resumeMap.values()) {
+            PartialFileStore.retain(entry.getTransferId(), entry.getFile(), entry.getLength(), 
+                  entry.getPath(), Math.max(1, parameters.getTransferRetention()));
+         }
+         resumeMap.clear();
+      }
+      
       // terminate our processing threads
       if (inputProcessor != null) {
           inputProcessor.terminate();
        }
        
-      if (outputProcessor != null) {
-          outputProcessor.terminate();
-       }
-       
       if (receiveProcessor != null) {
           receiveProcessor.terminate();
        }
@@ -638,10 +976,15 @@ class ConnectionImpl implements Connection {
              int info = error == null ? 0 : error.info;
              fireConnectionEvent(ConnectionEventType.disconnect, info, message);
              
-             // release any waiting threads
-             synchronized (waitForDisconnectLock) {
-            	 waitForDisconnectLock.notifyAll();
-             }
+             // release any waiting threads (after the event was dispatched)
+             eventDispatcher.execute(new Runnable() {
+            	 @Override
+            	 public void run() {
+            		 synchronized (waitForDisconnectLock) {
+            			 waitForDisconnectLock.notifyAll();
+            		 }
+            	 }
+             });
              
              // report
              if (debug) {
@@ -669,6 +1012,31 @@ class ConnectionImpl implements Connection {
 	   return new CopyOnWriteArraySet<SendFileProcessor>(values);
    }
    
+   /** Removes and returns the partial file which was claimed for the 
+    * resumption of an incoming file transfer.
+    * 
+    * @param fileID long file transmission ID
+    * @return <code>PartialFileStore.Entry</code> or null
+    */
+   protected PartialFileStore.Entry takeResumption (long fileID) {
+      return resumeMap == null ? null : resumeMap.remove(fileID);
+   }
+   
+   /** Removes and returns the content hash which remote announced for an
+    * incoming file transfer. A cached file pinned for the transfer is
+    * released.
+    * 
+    * @param fileID long file transmission ID
+    * @return String hexadecimal SHA-256 value or null
+    */
+   protected String takeContentHash (long fileID) {
+      ContentOffer offer = contentOfferMap == null ? null : contentOfferMap.remove(fileID);
+      if (offer == null) return null;
+      offer.expiry.cancel();
+      offer.release();
+      return offer.hash;
+   }
+   
    /** Returns the set of FileAgglomeration instances currently active
     * for receiving file transmissions.
     * 
@@ -682,18 +1050,14 @@ class ConnectionImpl implements Connection {
    @Override
    public void addListener (ConnectionListener listener) {
       if (listener != null) {
-         synchronized (listeners) {
-            listeners.add(listener);
-         }
+         listeners.add(listener);
       }
    }
 
    @Override
    public void removeListener (ConnectionListener listener) {
       if (listener != null) {
-         synchronized (listeners) {
-            listeners.remove(listener);
-         }
+         listeners.remove(listener);
       }
    }
    
@@ -704,80 +1068,89 @@ class ConnectionImpl implements Connection {
     * @return array of <code>ConnectionListener</code>
     */
    protected ConnectionListener[] getListeners () {
-      synchronized (listeners) {
-         ConnectionListener[] array = new ConnectionListener[listeners.size()];
-         listeners.toArray(array);
-         return array;
-      }
+      return listeners.toArray();
    }
    
-   protected void fireTransmissionEvent (TransmissionEvent event) {
+   /* Events are dispatched through the connection's serial event dispatcher, 
+    * which executes on the layer's shared dispatch pool and guarantees that 
+    * listeners receive the events of this connection one at a time and in 
+    * the order they were issued. The listener snapshot is read at the time 
+    * of delivery.
+    */
+   
+   protected void fireTransmissionEvent (final TransmissionEvent event) {
       if (event == null)
          throw new NullPointerException();
       
-      synchronized (listenerDispatchLock) {
-         ConnectionListener[] array = getListeners();
-         for (ConnectionListener i : array) {
-            i.transmissionEventOccurred(event);
-         }
-      }
-   }
-
-   protected void fireObjectEvent (UserObject object) {
-      if (object == null)
-         throw new NullPointerException();
-      
-      synchronized (listenerDispatchLock) {
-         // dispatch object receive event to listeners
-         ConnectionListener[] array = getListeners();
-         for (ConnectionListener i : array) {
-            i.objectReceived(this, object.getObjectNr(), object.getObject());
+      eventDispatcher.execute(new Runnable() {
+         @Override
+         public void run() {
+            for (ConnectionListener i : listeners.getSnapshot()) {
+               i.transmissionEventOccurred(event);
+            }
          }
-      }
+      });
    }
 
-   protected void firePingEchoEvent (PingEcho pingEcho) {
-      if (pingEcho == null)
-         throw new NullPointerException();
-      
-      synchronized (listenerDispatchLock ) {
-         // dispatch PING-ECHO event to listeners
-         ConnectionListener[] array = getListeners();
-         for (ConnectionListener i : array) {
-            i.pingEchoReceived(pingEcho);
+   /** Delivers the most prioritised object of the object-receive-queue to 
+    * the listeners. This task is scheduled once for each object put into 
+    * the queue, so delivery order follows <code>UserObject</code> ordering 
+    * (PING-ECHOs first, then priority class and object number).
+    */
+   private final Runnable objectDelivery = new Runnable() {
+      @Override
+      public void run() {
+         UserObject object = objectReceiveQueue.poll();
+         if (object == null) return;
+         metrics.deliveryLoad.add(-object.length);
+         
+         // dispatch PING-ECHO or object receive event to listeners
+         if (object.getObject() instanceof PingEcho) {
+            PingEcho pingEcho = (PingEcho)object.getObject();
+            for (ConnectionListener i : listeners.getSnapshot()) {
+               i.pingEchoReceived(pingEcho);
+            }
+         } else {
+            for (ConnectionListener i : listeners.getSnapshot()) {
+               i.objectReceived(ConnectionImpl.this, object.getObjectNr(), object.getObject());
+            }
          }
       }
-   }
+   };
 
-   protected void fireConnectionEvent (ConnectionEventType type, 
-         int info, String message) {
+   protected void fireConnectionEvent (final ConnectionEventType type, 
+         final int info, final String message) {
       if (type == null)
          throw new NullPointerException();
+      if (type == ConnectionEventType.object)
+         throw new UnsupportedOperationException("not ready for type: ".concat(type.toString()));
       
-      synchronized (listenerDispatchLock ) {
-         // dispatch event to registered listeners
-         ConnectionListener[] array = getListeners();
-         
-         switch (type) {
-         case connect:
-            for (ConnectionListener i : array) {
-               i.connected(this);
-            }
-            break;
-         case disconnect:
-            for (ConnectionListener i : array) {
-               i.disconnected(this, info, message);
-            }
-            break;
-         case idle:
-            for (ConnectionListener i : array) {
-               i.idle(this, isIdle);
+      eventDispatcher.execute(new Runnable() {
+         @Override
+         public void run() {
+            // dispatch event to registered listeners
+            ConnectionListener[] array = listeners.getSnapshot();
+            
+            switch (type) {
+            case connect:
+               for (ConnectionListener i : array) {
+                  i.connected(ConnectionImpl.this);
+               }
+               break;
+            case disconnect:
+               for (ConnectionListener i : array) {
+                  i.disconnected(ConnectionImpl.this, info, message);
+               }
+               break;
+            case idle:
+               for (ConnectionListener i : array) {
+                  i.idle(ConnectionImpl.this, isIdle);
+               }
+               break;
+            default:
             }
-            break;
-         default:
-            throw new UnsupportedOperationException("not ready for type: ".concat(type.toString()));
          }
-      }
+      });
    }
 
    @Override
@@ -809,13 +1182,74 @@ class ConnectionImpl implements Connection {
 
 	@Override
 	public long getTransmissionVolume() {
-		return exchangedDataVolume;
+		return metrics.getTransmissionVolume();
+	}
+
+	@Override
+	public ConnectionMetrics getMetrics() {
+		return metrics;
 	}
 
 	@Override
 	public int getTransmissionSpeed() {
 		return transmitSpeed;
 	}
+
+   /** Returns the identifier of the client pool this connection is a
+    * member of, or null if this connection is not pooled. On the server
+    * side the value is known after the POOL signal from the client has 
+    * been received.
+    * 
+    * @return UUID pool identifier or null
+    * @see ClientPool
+    */
+   public UUID getPoolId () {
+      return poolId;
+   }
+   
+   void setPoolId (UUID poolId) {
+      this.poolId = poolId;
+   }
+   
+   /** Returns the number of outgoing objects and parcels which are 
+    * currently queued for sending.
+    * 
+    * @return int send queue load
+    */
+   int getSendLoad () {
+      int load = inputQueue == null ? 0 : inputQueue.size();
+      return coreSend == null ? load : load + coreSend.size();
+   }
+
+   // gauges of the connection metrics
+   
+   int getInputQueueDepth () {
+      return inputQueue == null ? 0 : inputQueue.size();
+   }
+
+   int getSendQueueDepth () {
+      return coreSend == null ? 0 : coreSend.size();
+   }
+
+   long getSendQueueLoad () {
+      return coreSend == null ? 0 : coreSend.getCurrentLoad();
+   }
+
+   int getReceiveQueueDepth () {
+      return coreReceive == null ? 0 : coreReceive.size();
+   }
+
+   int getDeliveryQueueDepth () {
+      return objectReceiveQueue == null ? 0 : objectReceiveQueue.size();
+   }
+
+   int getOutgoingTransferCount () {
+      return fileSenderMap == null ? 0 : fileSenderMap.size();
+   }
+
+   int getIncomingTransferCount () {
+      return fileReceptorMap == null ? 0 : fileReceptorMap.size();
+   }
      
    protected void writeToSocket (TransmissionParcel parcel) throws IOException {
       if (debug) {
@@ -886,6 +1320,19 @@ class ConnectionImpl implements Connection {
       return socket;
    }
    
+   /** Creates an unstarted worker thread for this connection. Depending on
+    * the connection's parameters this is a virtual thread, in which case
+    * the given priority is ignored.
+    * 
+    * @param name String thread name
+    * @param task Runnable thread task
+    * @param priority int thread priority (platform threads only)
+    * @return Thread
+    */
+   protected Thread createWorkerThread (String name, Runnable task, int priority) {
+      return WorkerThreads.create(name, task, parameters.isVirtualThreads(), priority);
+   }
+   
 	@Override
 	public void waitForDisconnect (long time) throws InterruptedException {
 		synchronized (waitForDisconnectLock) {
@@ -914,18 +1361,26 @@ class ConnectionImpl implements Connection {
    /** This thread performs serialisation of user input objects and puts them
     * into the core-send parcel queue.
     */
-   private class InputProcessor extends Thread {
+   private class InputProcessor implements Runnable {
+      private final Thread thread;
       boolean operating, terminated;
       
       InputProcessor () {
-         super("Input Processor ".concat(String.valueOf(getLocalAddress())));
-         setDaemon(true);
+         thread = createWorkerThread("Input Processor ".concat(String.valueOf(getLocalAddress())),
+               this, parameters.getBaseThreadPriority());
+      }
+      
+      public void start () {
+         thread.start();
+      }
+      
+      public void setPriority (int p) {
+         thread.setPriority(p);
       }
       
       @Override
       public void run() {
          operating = true;
-         setPriority(parameters.getBaseThreadPriority());
          
          while (operating) {
             try {
@@ -938,30 +1393,46 @@ class ConnectionImpl implements Connection {
                long objectNr = object.objectID; 
                SendPriority priority = object.priority;
                
-               // serialise the input object
-               byte[] serObj;
-               try {
-            	   serObj = getSendSerialization().serialiseObject(object.getObject());
-               } catch (Exception e) {
-            	   throw new IllegalStateException("send serialisation error (" +
-            			   getLocalAddress() + ") object-id " + objectNr, e);
-               }
-            		   
-               if (serObj.length > parameters.getMaxSerialisationSize()) {
-            	   throw new IllegalStateException("send serialisation size overflow for object " + 
-            			   objectNr + ", size " + serObj.length);
+               TransmissionParcel[] parcelBundle;
+               if (object.serialisation != null) {
+                  // use shared serialisation (serialised in advance)
+                  SerialisedObject serObj = object.serialisation;
+                  if (serObj.getLength() > parameters.getMaxSerialisationSize()) {
+                     throw new IllegalStateException("send serialisation size overflow for object " + 
+                           objectNr + ", size " + serObj.getLength());
+                  }
+                  
+                  // create send parcels referring to shared data segments
+                  parcelBundle = TransmissionParcel.createParcelArray(serObj, objectNr, priority);
+
+               } else {
+                  // serialise the input object
+                  byte[] serObj;
+                  long time = System.nanoTime();
+                  try {
+               	   serObj = getSendSerialization().serialiseObject(object.getObject());
+               	   metrics.objectSerialised(System.nanoTime() - time);
+                  } catch (Exception e) {
+               	   throw new IllegalStateException("send serialisation error (" +
+               			   getLocalAddress() + ") object-id " + objectNr, e);
+                  }
+               		   
+                  if (serObj.length > parameters.getMaxSerialisationSize()) {
+               	   throw new IllegalStateException("send serialisation size overflow for object " + 
+               			   objectNr + ", size " + serObj.length);
+                  }
+                  
+                  // split serialisation into send parcels
+                  parcelBundle = TransmissionParcel.createParcelArray(
+                           TransmissionChannel.OBJECT, serObj, objectNr, priority,
+                           parameters.getTransmissionParcelSize());
                }
-               
-               // split serialisation into send parcels
-               TransmissionParcel[] parcelBundle = 
-                  TransmissionParcel.createParcelArray(
-                        TransmissionChannel.OBJECT, serObj, objectNr, priority,
-                        parameters.getTransmissionParcelSize());
 
                // store parcels in send-queue
                for (TransmissionParcel parcel : parcelBundle) {
                   coreSend.put(parcel);
                }
+               metrics.objectSent();
             } catch (InterruptedException e) {
             } catch (Throwable e) {
             	e.printStackTrace();
@@ -975,7 +1446,7 @@ class ConnectionImpl implements Connection {
        */
       public void terminate () {
          terminated = true;
-         interrupt();
+         thread.interrupt();
       }
 
       /** Whether this thread has been terminated. Thread may continue
@@ -988,60 +1459,75 @@ class ConnectionImpl implements Connection {
       }
    }
    
-   /** Handles delivery of output objects (de-serialised net-received objects)
-    * to the application.
+   /** Transmission mode of a single file transfer. The modes are exclusive;
+    * each is created by its own factory method.
     */
-   private class OutputProcessor extends Thread {
-      boolean operating;
-
-      public OutputProcessor () {
-         super("Output Processor ".concat(String.valueOf(getLocalAddress())));
-         setDaemon(true);
+   private static final class FileMode {
+      /** The entire file read by the transfer. */
+      static final FileMode REGULAR = new FileMode(null, null, null, false);
+      /** The difference against the version of the file held by remote. */
+      static final FileMode DELTA = new FileMode(null, null, null, true);
+
+      final FileFanOut source;
+      final FileRange range;
+      final UUID resumeId;
+      final boolean delta;
+      
+      private FileMode (FileFanOut source, FileRange range, UUID resumeId, boolean delta) {
+         this.source = source;
+         this.range = range;
+         this.resumeId = resumeId;
+         this.delta = delta;
       }
       
-      @Override
-      public synchronized void run() {
-         operating = true;
-         setPriority(parameters.getBaseThreadPriority());
-         
-         while (operating) {
-            UserObject object;
-            try {
-
-               // read from object-receive-queue and deliver to application
-               while ((object = objectReceiveQueue.take()) != null) {
-                  // dispatch event to connection listeners
-            	  if (object.getObject() instanceof PingEcho) {
-                      firePingEchoEvent((PingEcho)object);
-            	  } else {
-            		  fireObjectEvent(object);
-            	  }
-               }
-               
-            } catch (InterruptedException e) {
-            	
-            } catch (Throwable e) {
-               System.out.println("********  UNCAUGHT APPLICATION EXCEPTION  ******** : \n" + e);
-               e.printStackTrace();
-            }
-         }
+      /** The entire file obtained from a shared file source. */
+      static FileMode forFanOut (FileFanOut source) {
+         return new FileMode(source, null, null, false);
       }
       
-      public void terminate() {
-         operating = false;
-         interrupt();
+      /** The given range of the file. */
+      static FileMode forRange (FileRange range) {
+         return new FileMode(null, range, null, false);
+      }
+      
+      /** The rest of the interrupted transfer of the given ID, from the file
+       * position reported by remote. */
+      static FileMode forResume (UUID transferId) {
+         return new FileMode(null, null, transferId, false);
       }
    }
    
-   /** Thread to send a single file over the net.
-    * 
+   /** Thread to send a single file over the net. The thread is started by
+    * the file send scheduler of the connection when the transfer becomes
+    * active (FILE_SEND_CONCURRENCY).
     */
-   private class SendFileProcessor extends Thread 
+   private class SendFileProcessor implements Runnable, FileSendScheduler.Transfer 
    {
+      private volatile Thread thread;
       private boolean terminate;
       private File file;
       private String remotePath;
       private InputStream fileIn;
+      private FileFanOut source;
+      private FileBatch batch;
+      private Object stream;  // source object of a stream transfer
+      private boolean streamEnded;
+      private FileRange range;
+      private UUID transferId;
+      private boolean resume;
+      private long resumeOffset = -1;
+      private boolean delta;
+      private boolean dedup;
+      private int dedupAnswer;
+      private long sendRound;
+      private MessageDigest digest;
+      private String digestValue;
+      private boolean sparse;
+      private byte[] deltaSignature;
+      private File deltaFile;
+      private FileDelta.Signature deltaBase;
+      private long deltaTargetLength;
+      private int deltaTargetCrc;
       private SendPriority priority;
       private long fileID;  // transmission object number
       private long fileLength;
@@ -1052,32 +1538,87 @@ class ConnectionImpl implements Connection {
       private boolean ongoing;
 
       /** Creates a new file send processor (Thread) for a given file
-       * and remote destination parameter
+       * and remote destination parameter which is transmitted in the given
+       * mode (regular, shared source, range, resumption or delta).
        * 
        * @param file File file to transmit
        * @param remotePath String destination parameter for remote system (may be null)
        * @param priority <code>SendPriority</code>
+       * @param mode <code>FileMode</code> transmission mode
        * @throws FileInTransmissionException if there is already a transmission for that file
-       * @throws IllegalFileLengthException if file length exceeds limit of 2.1 GB
+       * @throws IllegalFileLengthException if file length exceeds Integer.MAX_VALUE 
+       *         times TRANSMISSION_PARCEL_SIZE
        * @throws FileNotFoundException if opening the file was impossible
        * @throws IllegalStateException if sender limitation is exceeded (rejected order)
        * @throws IOException
        */
-      public SendFileProcessor (File file, String remotePath, SendPriority priority) 
-            throws IOException {
-         super("Send File Processor ".concat(String.valueOf(getLocalAddress())));
+      public SendFileProcessor (File file, String remotePath, SendPriority priority, 
+                                FileMode mode) throws IOException {
          if (file == null)
             throw new NullPointerException("file == null");
          
+         this.delta = mode.delta;
+         this.dedup = parameters.isDeduplication() & mode == FileMode.REGULAR;
+         this.source = mode.source;
+         this.range = mode.range;
+         this.resume = mode.resumeId != null;
+         
+         // parallel transfers are identified by their range,
+         // other transfers carry an ID if they are resumable
+         this.transferId = range != null ? null : resume ? mode.resumeId : 
+                           parameters.isResumableTransfers() ? UUID.randomUUID() : null;
          this.remotePath = remotePath;
          this.file = file.getCanonicalFile();
          this.priority = priority;
          init();
-         start();
+         fileScheduler.submit(this);
       }
       
-      private void init () throws FileNotFoundException {
-          if (coreSend == null | fileSenderMap == null) {
+      /** Creates a new file send processor (Thread) for a batch of files
+       * which is transmitted as a single transfer into the remote directory
+       * given by the destination parameter. Batches are not resumable.
+       * 
+       * @param batch <code>FileBatch</code> files to transmit
+       * @param remotePath String destination directory for remote system (may be null)
+       * @param priority <code>SendPriority</code>
+       * @throws IOException
+       */
+      public SendFileProcessor (FileBatch batch, String remotePath, SendPriority priority) 
+            throws IOException {
+         this.batch = batch;
+         this.remotePath = remotePath;
+         this.file = batch.getDirectory();
+         this.priority = priority;
+         init();
+         fileScheduler.submit(this);
+      }
+      
+      /** Creates a new file send processor (Thread) for data of unknown
+       * length which is read from the given stream until its end. The end
+       * of data is indicated to remote by an empty parcel. Stream transfers
+       * are not resumable. The stream is closed when the transfer ends.
+       * 
+       * @param source Object source object of the stream (identifies the
+       *        transmission)
+       * @param in <code>InputStream</code> stream to transmit
+       * @param remotePath String destination parameter for remote system (may be null)
+       * @param priority <code>SendPriority</code>
+       * @throws IOException
+       */
+      public SendFileProcessor (Object source, InputStream in, String remotePath, 
+                                SendPriority priority) throws IOException {
+         if (in == null)
+            throw new NullPointerException("stream == null");
+         this.stream = source;
+         this.fileIn = in;
+         this.remotePath = remotePath;
+         this.priority = priority;
+         init();
+         fileScheduler.submit(this);
+      }
+      
+      private void init () throws IOException {
+          if (coreSend == null | fileSenderMap == null | fileScheduler == null) {
               throw new IllegalStateException("initialisation error");
           }
           if (fileSenderMap.size()+1 > getParameters().getObjectQueueCapacity()) {
@@ -1085,27 +1626,52 @@ class ConnectionImpl implements Connection {
           }
 
          // check if file is not already in transmission
-         if (fileSenderMap.containsKey(file)) {
+         if (fileSenderMap.containsKey(getKey())) {
             throw new FileInTransmissionException();
          }
          
          // check if file input stream can be obtained
-         fileIn = new BufferedInputStream(new FileInputStream(file), JennyNet.STREAM_BUFFER_SIZE);
-         fileLength = file.length();
+         if (stream != null) {
+            // stream given by the user
+         } else if (batch != null) {
+            fileIn = new BufferedInputStream(batch.openStream(), JennyNet.STREAM_BUFFER_SIZE);
+         } else if (source == null) {
+            fileIn = new BufferedInputStream(new FileInputStream(file), JennyNet.STREAM_BUFFER_SIZE);
+         } else if (!file.canRead()) {
+            throw new FileNotFoundException(file.getPath());
+         }
+         fileLength = stream != null ? 0 : batch != null ? batch.getLength() : file.length();
          
-         // check if filelength is legal
-         if (fileLength > Integer.MAX_VALUE) {
-            throw new IllegalFileLengthException("maximum file length is 2.1 GB");
+         // position the file stream to the start of a file range
+         if (range != null) {
+            fileLength = range.getLength();
+            long skip = range.getOffset();
+            while (skip > 0) {
+               long n = fileIn.skip(skip);
+               if (n <= 0) {
+                  fileIn.close();
+                  throw new EOFException("unable to position file stream");
+               }
+               skip -= n;
+            }
          }
-
+         
          // calculate operation values
+         // check if the file length is legal (number of parcels is limited)
          parcelBufferSize = parameters.getTransmissionParcelSize();
-         nrOfParcels = (int)(fileLength / parcelBufferSize);
-         if (fileLength % parcelBufferSize > 0) {
-            nrOfParcels++;
+         long parcels = Math.max(1, (fileLength + parcelBufferSize - 1) / parcelBufferSize);
+         if (parcels > Integer.MAX_VALUE - 1) {
+            if (fileIn != null) {
+               fileIn.close();
+            }
+            throw new IllegalFileLengthException("maximum file length is " + 
+                  (long)(Integer.MAX_VALUE - 1) * parcelBufferSize + " for parcel size " + parcelBufferSize);
          }
-         nrOfParcels = Math.max(1, nrOfParcels);
+         // a stream has an unknown number of parcels
+         nrOfParcels = stream != null ? Integer.MAX_VALUE : (int)parcels;
+         sparse = parameters.isSparseTransfer() & stream == null;
          fileID = getNextObjectNr();
+         startTime = System.currentTimeMillis();
          ongoing = true;
          if (debug) {
         	 System.out.println("--- created FileSendProcessor ID " + fileID + ", length " + fileLength 
@@ -1113,30 +1679,170 @@ class ConnectionImpl implements Connection {
          }
          
          // register transmission
-         fileSenderMap.put(file, this);
+         fileSenderMap.put(getKey(), this);
          fileSenderMap.put(fileID, this);
+         if (source != null) {
+            source.attach(this);
+         }
+      }
+      
+      /** Returns the key of the source of this transmission in the sender
+       * map (file or stream).
+       */
+      private Object getKey () {
+         return stream != null ? stream : file;
+      }
+      
+      /** Starts the transmission thread of this processor. Called by the
+       * file send scheduler.
+       */
+      @Override
+      public void start () {
+         thread = createWorkerThread("Send File Processor ".concat(String.valueOf(getLocalAddress())),
+               this, Math.max(parameters.getBaseThreadPriority()-2, Thread.MIN_PRIORITY));
+         thread.start();
       }
       
       @Override
       public void run() {
-         setPriority(Math.max(parameters.getBaseThreadPriority()-2, Thread.MIN_PRIORITY));
+         try {
+            if (!terminate) {
+               transmit();
+            }
+         } finally {
+            // make room for the next waiting transfer
+            fileScheduler.finished(this);
+         }
+      }
+      
+      private void transmit () {
          startTime = System.currentTimeMillis();
          byte[] buffer = new byte[parcelBufferSize];
          int parcelNr = 0;
+         long offset = 0;
+         
+         // negotiate the file position to continue an interrupted transfer 
+         if (resume) {
+            try {
+               offset = negotiateResume();
+            } catch (Exception e) {
+               if (!terminate) {
+                  e.printStackTrace();
+                  breakTransfer(111, 2, e);
+               }
+               return;
+            }
+         }
+         
+         // announce the file content to remote, which may realise
+         // the file from its content cache
+         if (dedup) {
+            try {
+               if (negotiateDedup()) {
+                  fileIn.close();
+                  finishTransfer(true);
+                  return;
+               }
+            } catch (Exception e) {
+               if (!terminate) {
+                  e.printStackTrace();
+                  breakTransfer(111, 2, e);
+               }
+               return;
+            }
+         }
+         
+         // compute the digest of transmitted data
+         if (parameters.isFileDigest()) {
+            digest = ContentCache.newDigest();
+         }
+         
+         // encode the file as difference to remote's version of the file
+         if (delta) {
+            try {
+               negotiateDelta();
+            } catch (Exception e) {
+               if (!terminate) {
+                  e.printStackTrace();
+                  breakTransfer(111, 2, e);
+               }
+               return;
+            }
+         }
           
          while (!terminate) {
             try {
-               // read from file (blocking) 
-               int readLen = fileIn.read(buffer);
-               if (parcelNr > 0 & readLen == -1) {
-                  parcelsSent();
-                  break;
+               TransmissionParcel parcel;
+               int dataLength;
+               if (source != null) {
+                  if (parcelNr == nrOfParcels) {
+                     dataSent(parcelNr, offset);
+                     break;
+                  }
+                  
+                  // take next data segment from shared source (blocking)
+                  FileFanOut.Chunk chunk = source.take(this, parcelNr);
+                  if (chunk == null) {
+                     if (!ongoing) break;
+                     
+                     // detached from source: continue reading the file ourselves
+                     source = null;
+                     fileIn = new BufferedInputStream(new FileInputStream(file), JennyNet.STREAM_BUFFER_SIZE);
+                     long skip = (long)parcelNr * parcelBufferSize;
+                     while (skip > 0) {
+                        long n = fileIn.skip(skip);
+                        if (n <= 0) throw new EOFException("unable to position file stream");
+                        skip -= n;
+                     }
+                     continue;
+                  }
+                  if (digest != null) {
+                     digest.update(chunk.data);
+                  }
+                  dataLength = chunk.data.length;
+                  if (isZeroBlock(parcelNr, chunk.data, dataLength)) {
+                     parcel = new TransmissionParcel(fileID, parcelNr, chunk.data, 0, 0);
+                     parcel.setChannel(TransmissionChannel.FILE);
+                  } else {
+                     parcel = new TransmissionParcel(TransmissionChannel.FILE, 
+                           fileID, parcelNr, chunk.data, chunk.crc);
+                  }
+                  
+               } else {
+                  // read from file (blocking), limited to the file range if defined
+                  int readLen;
+                  if (stream != null) {
+                     // an empty parcel terminates a stream
+                     if (streamEnded) {
+                        dataSent(parcelNr, offset);
+                        break;
+                     }
+                     if (parcelNr == Integer.MAX_VALUE - 1) {
+                        throw new IllegalFileLengthException("maximum number of parcels exceeded");
+                     }
+                     readLen = readStream(buffer);
+                     streamEnded = readLen == 0;
+                  } else if (range == null) {
+                     readLen = fileIn.read(buffer);
+                  } else {
+                     int want = (int)Math.min(buffer.length, fileLength - transmittedLength);
+                     readLen = want == 0 ? -1 : fileIn.read(buffer, 0, want);
+                  }
+                  if (parcelNr > 0 & readLen == -1) {
+                     dataSent(parcelNr, offset);
+                     break;
+                  }
+                  if (digest != null & readLen > 0) {
+                     digest.update(buffer, 0, readLen);
+                  }
+                  
+                  // construct next parcel
+                  // (a zero block is sent as empty parcel)
+                  dataLength = Math.max(readLen, 0);
+                  parcel = new TransmissionParcel(fileID, parcelNr, buffer, 0, 
+                        isZeroBlock(parcelNr, buffer, dataLength) ? 0 : dataLength);
+                  parcel.setChannel(TransmissionChannel.FILE);
                }
-               
-               // construct next parcel
-               TransmissionParcel parcel = new TransmissionParcel(
-                     fileID, parcelNr, buffer, 0, Math.max(readLen, 0));
-               parcel.setChannel(TransmissionChannel.FILE);
                parcel.setPriority(priority);
                if (debug) {
             	   System.out.println("--- created FILE PARCEL: file-ID " + fileID + ", ser " + parcelNr);
@@ -1145,21 +1851,33 @@ class ConnectionImpl implements Connection {
                // construct an object header in parcel number 0
                if (parcelNr == 0) {
                   ObjectHeader header = parcel.getObjectHeader();
-                  header.setTransmissionSize((int)fileLength);
+                  header.setTransmissionSize(fileLength);
                   header.setPath(remotePath);
-                  header.setNrOfParcels(nrOfParcels);
+                  header.setNrOfParcels(digest != null & stream == null ? nrOfParcels + 1 : nrOfParcels);
+                  header.setRange(range);
+                  header.setBatch(batch != null);
+                  header.setStream(stream != null);
+                  header.setDigest(digest != null);
+                  if (transferId != null) {
+                     header.setTransfer(transferId, offset);
+                  }
+                  if (deltaFile != null) {
+                     header.setDelta(deltaBase.blockSize, deltaBase.length, 
+                           deltaTargetLength, deltaTargetCrc);
+                  }
                }
 
                // add a timer task for TRANSFER CONFIRM on last parcel
-               if (parcelNr+1 == nrOfParcels) {
+               // (the digest parcel if a digest is transmitted)
+               if (digest == null && (stream != null ? streamEnded : parcelNr+1 == nrOfParcels)) {
                   AbortFileTimeoutTask timeoutTask = new AbortFileTimeoutTask(
                       ConnectionImpl.this, fileID, parameters.getConfirmTimeout());
                   parcel.setTimerTask(timeoutTask);
                }
 
                // queue file parcel for sending (blocking)
-               coreSend.put(parcel);
-               transmittedLength += parcel.getLength();
+               queueParcel(parcel);
+               transmittedLength += dataLength;
                parcelNr++;
                
             } catch (Exception e) {
@@ -1170,10 +1888,277 @@ class ConnectionImpl implements Connection {
          }
       }
 
+      /** Reads the next data segment of a stream into the given buffer.
+       * Reads until the buffer is full, the end of the stream is reached or
+       * no more data is available without blocking.
+       * 
+       * @param buffer byte[] parcel buffer
+       * @return int length of data, 0 at the end of the stream
+       * @throws IOException
+       */
+      private int readStream (byte[] buffer) throws IOException {
+         int len = 0;
+         do {
+            int n = fileIn.read(buffer, len, buffer.length - len);
+            if (n == -1) break;
+            len += n;
+         } while (len < buffer.length && (len == 0 || fileIn.available() > 0));
+         return len;
+      }
+
+      /** Requests the file position from remote from where the resumed 
+       * transfer continues and positions the file stream accordingly. 
+       * Continues from the start of the file if remote does not answer 
+       * within CONFIRM_TIMEOUT or the answer does not match the file.
+       * 
+       * @return long file position
+       * @throws IOException
+       * @throws InterruptedException
+       */
+      private long negotiateResume () throws IOException, InterruptedException {
+         sendSignal(Signal.newResumeSignal(fileID, transferId));
+         
+         long offset;
+         synchronized (this) {
+            long limit = System.currentTimeMillis() + parameters.getConfirmTimeout();
+            long time;
+            while (resumeOffset < 0 && !terminate && 
+                   (time = limit - System.currentTimeMillis()) > 0) {
+               wait(time);
+            }
+            offset = resumeOffset < 0 || resumeOffset > fileLength ? 0 : resumeOffset;
+         }
+         if (debug) {
+        	 System.out.println("--- resuming file transfer ID " + fileID + " at " + offset 
+        			 + ", transfer " + transferId);
+         }
+         if (offset == 0) return 0;
+
+         // position file stream and re-calculate operation values
+         long skip = offset;
+         while (skip > 0) {
+            long n = fileIn.skip(skip);
+            if (n <= 0) throw new EOFException("unable to position file stream");
+            skip -= n;
+         }
+         long rest = fileLength - offset;
+         nrOfParcels = (int)Math.max(1, (rest + parcelBufferSize - 1) / parcelBufferSize);
+         return offset;
+      }
+      
+      /** Requests the signature of remote's version of the file and encodes
+       * the difference of the file against it into a TEMP file, which then
+       * replaces the file as data source of the transmission. The file is 
+       * transmitted entirely if remote does not answer within CONFIRM_TIMEOUT,
+       * has no version of the file, or the difference is not smaller than 
+       * the file.
+       * 
+       * @throws IOException
+       * @throws InterruptedException
+       */
+      private void negotiateDelta () throws IOException, InterruptedException {
+         sendSignal(Signal.newDeltaSignal(fileID, remotePath));
+         
+         byte[] signature;
+         synchronized (this) {
+            long limit = System.currentTimeMillis() + parameters.getConfirmTimeout();
+            long time;
+            while (deltaSignature == null && !terminate && 
+                   (time = limit - System.currentTimeMillis()) > 0) {
+               wait(time);
+            }
+            signature = deltaSignature;
+         }
+         if (signature == null || signature.length == 0 || terminate) return;
+         
+         // an invalid signature leads to full transmission
+         try {
+            deltaBase = new FileDelta.Signature(signature);
+         } catch (IOException e) {
+            if (debug) {
+               System.out.println("--- invalid delta signature for file transfer ID " + fileID);
+            }
+            return;
+         }
+         
+         // encode the difference into a TEMP file
+         File temp = Util.getTempFile(parameters.getTempDirectory());
+         OutputStream out = new BufferedOutputStream(new FileOutputStream(temp), 
+               JennyNet.STREAM_BUFFER_SIZE);
+         try {
+            deltaTargetCrc = FileDelta.encode(file, deltaBase, out);
+         } catch (IOException e) {
+            temp.delete();
+            throw e;
+         } finally {
+            out.close();
+         }
+         if (debug) {
+        	 System.out.println("--- delta encoded for file transfer ID " + fileID + ": " 
+        			 + temp.length() + " of " + fileLength + " bytes");
+         }
+         if (temp.length() >= fileLength) {
+            temp.delete();
+            return;
+         }
+         
+         // replace data source and re-calculate operation values
+         synchronized (this) {
+            if (!ongoing) {
+               temp.delete();
+               return;
+            }
+            deltaFile = temp;
+         }
+         fileIn.close();
+         fileIn = new BufferedInputStream(new FileInputStream(deltaFile), JennyNet.STREAM_BUFFER_SIZE);
+         deltaTargetLength = fileLength;
+         fileLength = deltaFile.length();
+         nrOfParcels = (int)Math.max(1, (fileLength + parcelBufferSize - 1) / parcelBufferSize);
+      }
+      
+      /** Announces the content hash of the file to remote and returns
+       * whether remote has realised the file from its content cache. If
+       * remote holds the content, the transfer is committed to realisation
+       * by remote. The file data has to be sent if remote doesn't hold the
+       * content or does not answer the announcement within CONFIRM_TIMEOUT
+       * (remote then discards the announcement when file data arrives).
+       * 
+       * @return boolean true == transfer complete
+       * @throws IOException if remote does not answer the commit within
+       *         CONFIRM_TIMEOUT
+       * @throws InterruptedException
+       */
+      private boolean negotiateDedup () throws IOException, InterruptedException {
+         String hash = ContentCache.hashFile(file);
+         sendSignal(Signal.newDedupSignal(fileID, hash, fileLength, remotePath));
+         int answer = awaitDedupAnswer();
+         if (debug) {
+        	 System.out.println("--- content announced for file transfer ID " + fileID 
+        			 + ", answer " + answer + ", hash " + hash);
+         }
+         if (answer != 1 || !ongoing) return false;
+         
+         // commit the transfer to realisation from remote's cache
+         sendSignal(Signal.newDedupCommitSignal(fileID));
+         answer = awaitDedupAnswer();
+         if (answer == 0 && ongoing)
+            throw new IOException("no answer on content commit");
+         return answer == 3 && ongoing;
+      }
+      
+      /** Waits for an answer of remote in content negotiation and resets 
+       * the answer. Returns 0 if there was no answer within CONFIRM_TIMEOUT.
+       * 
+       * @return int DEDUP answer code
+       * @throws InterruptedException
+       */
+      private synchronized int awaitDedupAnswer () throws InterruptedException {
+         long limit = System.currentTimeMillis() + parameters.getConfirmTimeout();
+         long time;
+         while (dedupAnswer == 0 && !terminate && 
+                (time = limit - System.currentTimeMillis()) > 0) {
+            wait(time);
+         }
+         int answer = dedupAnswer;
+         dedupAnswer = 0;
+         return answer;
+      }
+      
+      /** Upon reception of an answer in content negotiation from remote.
+       * 
+       * @param answer int DEDUP answer code (1 = found, 2 = not available,
+       *        3 = realised)
+       */
+      public synchronized void dedupAnswered (int answer) {
+         dedupAnswer = answer;
+         notifyAll();
+      }
+      
+      /** Upon reception of the answer to a delta request from remote.
+       * 
+       * @param signature byte[] serialised signature of remote's file,
+       *        empty if remote has no version of the file
+       */
+      public synchronized void deltaAnswered (byte[] signature) {
+         deltaSignature = signature;
+         notifyAll();
+      }
+      
+      /** Deletes the TEMP file of an encoded delta. */
+      private synchronized void discardDelta () {
+         if (deltaFile != null) {
+            deltaFile.delete();
+            deltaFile = null;
+         }
+      }
+      
+      /** Upon reception of the answer to a resumption request from remote.
+       * 
+       * @param offset long length of file data retained by remote
+       */
+      public synchronized void resumeAnswered (long offset) {
+         resumeOffset = Math.max(0, offset);
+         notifyAll();
+      }
+
+      /** Whether the given parcel data is a zero block which is sent as
+       * empty parcel (SPARSE_TRANSFER). Parcel 0 is always sent with data.
+       * 
+       * @param parcelNr int parcel number
+       * @param data byte[] parcel data
+       * @param length int data length
+       * @return boolean
+       */
+      private boolean isZeroBlock (int parcelNr, byte[] data, int length) {
+         return sparse & parcelNr > 0 & length > 0 && Util.isZero(data, 0, length);
+      }
+
+      /** Upon finishing queueing the data parcels for sending. Queues the
+       * parcel with the digest of transmitted data if a digest is computed.
+       * 
+       * @param parcelNr int number of the digest parcel
+       * @param offset long file position of the transmission start
+       * @throws IOException
+       * @throws InterruptedException
+       */
+      private void dataSent (int parcelNr, long offset) throws IOException, InterruptedException {
+         if (digest != null) {
+            byte[] value = digest.digest();
+            if (range == null & deltaFile == null & batch == null & offset == 0) {
+               digestValue = Util.bytesToHex(value);
+            }
+            TransmissionParcel parcel = new TransmissionParcel(
+                  fileID, parcelNr, value, 0, value.length);
+            parcel.setChannel(TransmissionChannel.FILE);
+            parcel.setPriority(priority);
+            parcel.setTimerTask(new AbortFileTimeoutTask(
+                  ConnectionImpl.this, fileID, parameters.getConfirmTimeout()));
+            queueParcel(parcel);
+         }
+         parcelsSent();
+      }
+
+      /** Queues a parcel of this transfer for sending (blocking). The parcel
+       * is assigned the next send round of this transfer; a transfer which 
+       * is new or has fallen behind joins the round after the one currently
+       * being sent. Concurrent transfers thus send one parcel per round.
+       * 
+       * @param parcel <code>TransmissionParcel</code>
+       */
+      private void queueParcel (TransmissionParcel parcel) {
+         sendRound = Math.max(sendRound + 1, coreSend.getSendRound() + 1);
+         parcel.setSendRound(sendRound);
+         coreSend.put(parcel);
+      }
+
       /** Upon finishing queueing file parcels for sending. 
        * @throws IOException */
       private void parcelsSent () throws IOException {
-         fileIn.close();
+         if (fileIn != null) {
+            fileIn.close();
+         }
+         discardDelta();
          if (debug) {
         	 System.out.println("--- parcels queued for sending, source = " + file);
          }
@@ -1184,16 +2169,23 @@ class ConnectionImpl implements Connection {
          duration = getTransmitTime();
          ongoing = false;
          fileSenderMap.remove(fileID);
-         fileSenderMap.remove(file);
+         fileSenderMap.remove(getKey());
+         fileScheduler.finished(this);
 
          // purge outgoing parcels
 //         purgeSendFileQueue(fileID);
 // was not successful because of collisions of iterator remove with peek+poll (send-processor)   
          
-         try { fileIn.close(); } 
-         catch (IOException e) {
-            e.printStackTrace();
+         if (source != null) {
+            source.release(this);
          }
+         if (fileIn != null) {
+            try { fileIn.close(); } 
+            catch (IOException e) {
+               e.printStackTrace();
+            }
+         }
+         discardDelta();
       }
       
       /** Upon reception of a CONFIRM or a FAIL signal from remote. 
@@ -1218,6 +2210,10 @@ class ConnectionImpl implements Connection {
          event.setTransmissionLength(transmittedLength);
          event.setPath(remotePath);
          event.setFile(file);
+         event.setTransferId(transferId);
+         if (success) {
+            event.setDigest(digestValue);
+         }
          fireTransmissionEvent(event);
       }
 
@@ -1258,6 +2254,7 @@ class ConnectionImpl implements Connection {
             event.setFile(file);
             event.setTransmissionLength(transmittedLength);
             event.setExpectedLength(fileLength);
+            event.setTransferId(transferId);
             fireTransmissionEvent(event);
          }
          
@@ -1287,6 +2284,7 @@ class ConnectionImpl implements Connection {
          event.setFile(file);
          event.setTransmissionLength(transmittedLength);
          event.setExpectedLength(fileLength);
+         event.setTransferId(transferId);
          fireTransmissionEvent(event);
          
          // trigger thread termination
@@ -1294,10 +2292,23 @@ class ConnectionImpl implements Connection {
          interrupt();
       }
 
+      /** Interrupts the transmission thread if it is started. */
+      private void interrupt () {
+         Thread t = thread;
+         if (t != null) {
+            t.interrupt();
+         }
+      }
+
       public long getFileID() {
          return fileID;
       }
 
+      @Override
+      public SendPriority getPriority() {
+         return priority;
+      }
+
       @SuppressWarnings("unused")
 	public long getTransmittedLength() {
          return transmittedLength;
@@ -1328,7 +2339,8 @@ class ConnectionImpl implements Connection {
    {
       boolean terminate, working;
       long lastTransmitTime;
-      long currentLoad;
+      volatile long sendRound;
+      final LongAdder currentLoad = new LongAdder();
       long loadLimit;
       boolean sendingOff;
       ErrorObject error;
@@ -1340,18 +2352,15 @@ class ConnectionImpl implements Connection {
         		 	parameters.getTransmissionParcelSize(), 16*1024);
          sendingOff = getTransmissionSpeed() == 0;
          
-         send = new Thread("CoreSend ".concat(String.valueOf(getLocalAddress())))
-         {
+         Runnable task = new Runnable() {
             @Override
-            public synchronized void run() {
-               setPriority(Thread.MAX_PRIORITY);
-               
+            public void run() {
                while (working) {
                   try {
                 	 // determine whether thread has to stop 
                 	 working = !terminate || (!isEmpty() & !sendingOff);
                 	 if (!working) continue;
-            		 interrupted();
+            		 Thread.interrupted();
                 	  
                 	 // enter waiting if sending switched off
             		 // we send only SIGNAL parcels in sending-off state
@@ -1375,15 +2384,19 @@ class ConnectionImpl implements Connection {
                     	 continue;
                      }
                      
+                     // advance the round of interleaved file parcels
+                     if (parcel.getChannel() == TransmissionChannel.FILE && 
+                         parcel.getSendRound() > sendRound) {
+                        sendRound = parcel.getSendRound();
+                     }
+                     
                      // send parcel over network socket
-                     currentLoad -= parcel.getSerialisedLength();
+                     currentLoad.add(-parcel.getSerialisedLength());
                      writeToSocket(parcel);
                      lastTransmitTime = System.currentTimeMillis();
                      
                      // sum up exchanged data (e.g. for IDLE state control)
-                     if (!parcel.isSignal()) {
-                        exchangedDataVolume += parcel.getSerialisedLength();
-                     }
+                     metrics.parcelSent(parcel);
                      
                      // schedule a timer-task that may be defined on the parcel
                      SchedulableTimerTask task = parcel.getTimerTask();
@@ -1405,8 +2418,9 @@ class ConnectionImpl implements Connection {
                clear();
             }
          };
+         send = createWorkerThread("CoreSend ".concat(String.valueOf(getLocalAddress())),
+               task, Thread.MAX_PRIORITY);
          working = true;
-         send.setDaemon(true);
          send.start();
       }
       
@@ -1437,16 +2451,23 @@ class ConnectionImpl implements Connection {
     @Override
 	public void put (TransmissionParcel parcel) {
 		// naive blocking behaviour depending on data load
+		long stallStart = 0;
 		do {
-			if (currentLoad < loadLimit) {
+			if (currentLoad.sum() < loadLimit) {
 				break;
 			}
+			if (stallStart == 0) {
+				stallStart = System.nanoTime();
+			}
 			Util.sleep(25);
 		} while (true);
+		if (stallStart != 0) {
+			metrics.sendStalled(System.nanoTime() - stallStart);
+		}
 
 		// put parcel into sorting queue
 		super.put(parcel);
-		currentLoad += parcel.getSerialisedLength();
+		currentLoad.add(parcel.getSerialisedLength());
 		if (debug) {
 			System.out.println("-- (coreSend) putting PARCEL w/ priority " + parcel.getPriority().ordinal() 
 					+ ", " + parcel.getPriority());
@@ -1457,7 +2478,7 @@ class ConnectionImpl implements Connection {
 	public boolean add (TransmissionParcel parcel) {
 		// unconditional parcel add
 		boolean b = super.add(parcel);
-		currentLoad += parcel.getSerialisedLength();
+		currentLoad.add(parcel.getSerialisedLength());
 		return b;
 	}
 
@@ -1499,10 +2520,17 @@ class ConnectionImpl implements Connection {
          send.setPriority(p);
       }
 
-//    public long getCurrentLoad () {
-//  	return currentLoad;
-//  }
-//    
+      public long getCurrentLoad () {
+         return currentLoad.sum();
+      }
+
+      /** Returns the send round of the last FILE parcel sent.
+       * 
+       * @return long round
+       */
+      public long getSendRound () {
+         return sendRound;
+      }
    }
    
    /** A BlockingQueue that contains transmission parcels received from
@@ -1518,22 +2546,24 @@ class ConnectionImpl implements Connection {
       public CoreReceive () {
     	  super(getParameters().getParcelQueueCapacity());
     	  operating = true;
-    	  receive.setDaemon(true);
+    	  receive = createWorkerThread("CoreReceive ".concat(String.valueOf(getLocalAddress())),
+    			  receiveTask, parameters.getTransmitThreadPriority());
     	  receive.start();
       }
       
-      Thread receive = new Thread("CoreReceive ".concat(String.valueOf(getLocalAddress())))
-      {
+      private final Thread receive;
+      
+      private final Runnable receiveTask = new Runnable() {
 	      @Override
 	      public void run() {
 	         operating = true;
-	         setPriority(parameters.getTransmitThreadPriority());
 	         
 	         while (operating) {
 	            try {
 	               // read next incoming parcel from remote (blocking)
 	               TransmissionParcel parcel = readParcelFromSocket();
 	               lastTransmitTime = System.currentTimeMillis();
+	               metrics.parcelReceived(parcel);
 	
 	               // branch parcel path into SIGNAL, FILE and OBJECT digestion
 	               switch (parcel.getChannel()) {
@@ -1541,13 +2571,14 @@ class ConnectionImpl implements Connection {
 	                  signalReceiveDigestion(parcel);
 	               break;
 	               case OBJECT: 
-		              // sum up exchanged data for IDLE state control (if opted)
-		              exchangedDataVolume += parcel.getSerialisedLength();
-		              CoreReceive.this.put(parcel);
+		              metrics.receiveLoad.add(parcel.getSerialisedLength());
+		              if (!CoreReceive.this.offer(parcel)) {
+		                 long stallStart = System.nanoTime();
+		                 CoreReceive.this.put(parcel);
+		                 metrics.receiveStalled(System.nanoTime() - stallStart);
+		              }
 	               break;
 	               case FILE: 
-	                  // sum up exchanged data for IDLE state control (if opted)
-	                  exchangedDataVolume += parcel.getSerialisedLength();
 	                  fileReceiveDigestion(parcel);
 	               break;
 	               default: throw new IllegalStateException("SOCKET-RECEIVE: unknown parcel channel");
@@ -1655,6 +2686,7 @@ class ConnectionImpl implements Connection {
                 if (debug) {
              	   System.out.println("-- (signal digestion) dropping INCOMING FILE TRANSFER (BREAK) " + objectID);
                 }
+	            takeContentHash(objectID);
 	            FileAgglomeration fileQueue = fileReceptorMap.get(objectID);
 	            if (fileQueue != null) {
 	               int eventInfo = info == 2 ? 112 : info == 4 ? 106 : 114;
@@ -1702,6 +2734,99 @@ class ConnectionImpl implements Connection {
                }
             }
          break;
+         case POOL:
+            // remote is member of a client pool
+            try {
+               poolId = UUID.fromString(signal.getText());
+            } catch (Exception e) {
+               e.printStackTrace();
+            }
+         break;
+         case RESUME:
+            if (info == 0) {
+               // remote requests resumption of a file transfer: claim the
+               // partial file and answer with the length of retained data
+               long offset = 0;
+               try {
+                  PartialFileStore.Entry entry = PartialFileStore.claim(
+                        UUID.fromString(signal.getText()));
+                  if (entry != null) {
+                     resumeMap.put(objectID, entry);
+                     offset = entry.getLength();
+                  }
+               } catch (Exception e) {
+                  e.printStackTrace();
+               }
+               sendSignal(Signal.newResumeAnswerSignal(objectID, offset));
+               
+            } else {
+               // remote answers our resumption request
+               fileSender = fileSenderMap.get(objectID);
+               if (fileSender != null) {
+                  try {
+                     fileSender.resumeAnswered(Long.parseLong(signal.getText()));
+                  } catch (NumberFormatException e) {
+                     fileSender.resumeAnswered(0);
+                  }
+               }
+            }
+         break;
+         case DELTA:
+            if (info == 0) {
+               // remote requests the signature of our version of a file;
+               // computed on the layer's file lookup pool, a refused 
+               // request is answered with an empty signature
+               final long fileID = objectID;
+               final String path = signal.getText();
+               int accept = startFileLookup(fileID, new Runnable() {
+                  @Override
+                  public void run() {
+                     byte[] signature = deltaSignature(path);
+                     fileLookups.remove(fileID);
+                     sendSignal(Signal.newDeltaAnswerSignal(fileID, signature));
+                  }
+               });
+               if (accept == 2) {
+                  sendSignal(Signal.newDeltaAnswerSignal(fileID, new byte[0]));
+               }
+               
+            } else {
+               // remote answers our delta request
+               fileSender = fileSenderMap.get(objectID);
+               if (fileSender != null) {
+                  fileSender.deltaAnswered(signal.getPayload());
+               }
+            }
+         break;
+         case DEDUP:
+            if (info == 0 || info == 4) {
+               // remote announces the content hash of a file or commits to
+               // a found content; the content cache is consulted on the 
+               // layer's file lookup pool, a refused request is answered 
+               // as not available
+               final long fileID = objectID;
+               final String text = signal.getText();
+               final boolean commit = info == 4;
+               int accept = startFileLookup(fileID, new Runnable() {
+                  @Override
+                  public void run() {
+                     int answer = commit ? contentCommitted(fileID) : contentAnnounced(fileID, text);
+                     fileLookups.remove(fileID);
+                     sendSignal(Signal.newDedupAnswerSignal(fileID, answer));
+                  }
+               });
+               if (accept == 2) {
+                  sendSignal(Signal.newDedupAnswerSignal(fileID, 2));
+               }
+               
+            } else {
+               // remote answers our content announcement or commit
+               fileSender = fileSenderMap.get(objectID);
+               if (fileSender != null) {
+                  fileSender.dedupAnswered(info);
+               }
+            }
+         break;
          case TEMPO:
         	if (getTransmissionSpeed() != info) {
 	        	if (!fixedTransmissionSpeed) {
@@ -1774,13 +2899,13 @@ class ConnectionImpl implements Connection {
       }
    }
    
-   private class CheckIdleTimerTask extends TimerTask {
+   private class CheckIdleTimerTask extends WheelTimerTask {
       private long volumeMarker;
       private int period;
       
       public CheckIdleTimerTask (int period) {
          this.period = period;
-         this.volumeMarker = exchangedDataVolume;
+         this.volumeMarker = metrics.getTransmissionVolume();
          
          // log output
      	 if (debug) {
@@ -1811,8 +2936,9 @@ class ConnectionImpl implements Connection {
       @Override
       public void run () {
          // determine data exchanged since last investigation
-         long delta = exchangedDataVolume - volumeMarker;
-         volumeMarker = exchangedDataVolume;
+         long volume = metrics.getTransmissionVolume();
+         long delta = volume - volumeMarker;
+         volumeMarker = volume;
          
          if (isCheckIdleState) {
             // calculate the current threshold in a complicated manner
@@ -1831,7 +2957,7 @@ class ConnectionImpl implements Connection {
    /** Timer Task to send periodic ALIVE signals to remote station.
     * 
     */
-   private static class AliveSignalTimerTask extends TimerTask {
+   private static class AliveSignalTimerTask extends WheelTimerTask {
       private ConnectionImpl connection;
       private long sendTime;
       
@@ -1948,7 +3074,16 @@ class ConnectionImpl implements Connection {
          setTransmissionParcelSize(p.getTransmissionParcelSize());
          setTransmitThreadPriority(p.getTransmitThreadPriority());
          setIdleThreshold(p.getIdleThreshold());
+         setVirtualThreads(p.isVirtualThreads());
          setTransmissionSpeed(p.getTransmissionSpeed());
+         setTransferRetention(p.getTransferRetention());
+         setResumableTransfers(p.isResumableTransfers());
+         setDeduplication(p.isDeduplication());
+         setFileSyncPeriod(p.getFileSyncPeriod());
+         setFileSendConcurrency(p.getFileSendConcurrency());
+         setReceiveStorage(p.getReceiveStorage());
+         setFileDigest(p.isFileDigest());
+         setSparseTransfer(p.isSparseTransfer());
       }
       
       @Override
@@ -1956,8 +3091,6 @@ class ConnectionImpl implements Connection {
          super.setBaseThreadPriority(p);
          if (inputProcessor != null)  
             inputProcessor.setPriority(p);
-         if (outputProcessor != null)  
-            outputProcessor.setPriority(p);
          if (receiveProcessor != null)  
             receiveProcessor.setPriority(p);
          setTransmitThreadPriority(getTransmitThreadPriority());
@@ -2036,6 +3169,13 @@ class ConnectionImpl implements Connection {
             throw new IllegalStateException(rejectMsg);
          super.setCodingCharset(charset);
       }
+
+      @Override
+      public void setVirtualThreads (boolean virtual) {
+         if (isConnected()) 
+            throw new IllegalStateException(rejectMsg);
+         super.setVirtualThreads(virtual);
+      }
    }
    
    // --------------- inner classes ----------------   
@@ -2044,23 +3184,32 @@ class ConnectionImpl implements Connection {
        * and puts the resulting objects into the objectReceiveQueue. 
        * It services solely the OBJECT channel.
        */
-      private class ReceiveProcessor extends Thread {
+      private class ReceiveProcessor implements Runnable {
+         private final Thread thread;
          boolean operating;
          
          ReceiveProcessor () {
-            super("Receive Processor ".concat(String.valueOf(getLocalAddress())));
-            setDaemon(true);
+            thread = createWorkerThread("Receive Processor ".concat(String.valueOf(getLocalAddress())),
+                  this, parameters.getBaseThreadPriority());
+         }
+         
+         public void start () {
+            thread.start();
+         }
+         
+         public void setPriority (int p) {
+            thread.setPriority(p);
          }
          
          @Override
          public void run() {
             operating = true;
-            setPriority(parameters.getBaseThreadPriority());
             
             while (operating) {
                try {
                   // get next received parcel (blocking)
                   TransmissionParcel parcel = coreReceive.take();
+                  metrics.receiveLoad.add(-parcel.getSerialisedLength());
                   long objectNr = parcel.getObjectID();
 
                   // look for the relevant parcel agglomeration from registry
@@ -2078,7 +3227,10 @@ class ConnectionImpl implements Connection {
                   // if object is finished
                   if (agglom.objectReady()) {
                      // put result it into output queue 
-                     putObjectToReceiveQueue(new UserObject(agglom.getObject(), objectNr, agglom.getPriority()));
+                     UserObject object = new UserObject(agglom.getObject(), objectNr, agglom.getPriority());
+                     object.length = agglom.getSerialSize();
+                     metrics.objectReceived();
+                     putObjectToReceiveQueue(object);
                      if (debug) {
                     	 System.out.println("--- OBJECT received (deserialised) to Queue: " + objectNr);
                      }
@@ -2111,7 +3263,7 @@ class ConnectionImpl implements Connection {
          
          public void terminate () {
             operating = false;
-            interrupt();
+            thread.interrupt();
          }
       }
 
@@ -2125,10 +3277,32 @@ class ConnectionImpl implements Connection {
     	  }
       }
       
+      /** A content hash announced by remote for an incoming file transfer,
+       * possibly with a pinned file of the content cache.
+       */
+      private static class ContentOffer {
+         String hash;
+         String path;
+         long length;
+         File cached;
+         ContentCache cache;
+         WheelTimerTask expiry;
+         
+         /** Releases the pinned cache file, if any. */
+         void release () {
+            if (cached != null) {
+               cache.unpin(hash);
+               cached = null;
+            }
+         }
+      }
+
       private static class UserObject implements Comparable<UserObject> {
     	  long objectID;
     	  Object object;
+    	  SerialisedObject serialisation;
     	  SendPriority priority;
+    	  int length;  // serialisation length (received objects)
     	  
     	  public UserObject (Object object, long id, SendPriority priority) {
     		  objectID = id;
@@ -2193,7 +3367,7 @@ class ConnectionImpl implements Connection {
 		}
       }
 
-	private static class AliveEchoControlTask extends TimerTask {
+	private static class AliveEchoControlTask extends WheelTimerTask {
 	      private ConnectionImpl connection;
 	      private long confirmedTime;
 	      private int period;
@@ -0,0 +1,424 @@
+package org.janeth.jennynet.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counters and gauges on the operation of a single <code>Connection</code>.
+ * Counters are striped (<code>LongAdder</code>) so that they can be updated
+ * by the connection's worker threads without contention; they count from the
+ * creation of the connection. Gauges (queue depths and loads, file transfers
+ * in flight) are read from the connection at the time of the request. All
+ * values can be read at any time from any thread; values read together are
+ * not guaranteed to be mutually consistent.
+ *
+ * <p>If JMX is enabled for the layer (<code>JennyNet.setJmxEnabled()</code>),
+ * the values of <code>snapshot()</code> are also exposed by an MBean of the
+ * platform MBean server while the connection is operating.
+ *
+ * @see org.janeth.jennynet.intfa.Connection#getMetrics()
+ */
+public class ConnectionMetrics {
+
+   private static final int CHANNELS = TransmissionChannel.values().length;
+
+   private final ConnectionImpl connection;
+   private final LongAdder[] bytesIn = newAdders(CHANNELS);
+   private final LongAdder[] bytesOut = newAdders(CHANNELS);
+   private final LongAdder[] parcelsIn = newAdders(CHANNELS);
+   private final LongAdder[] parcelsOut = newAdders(CHANNELS);
+   private final LongAdder objectsIn = new LongAdder();
+   private final LongAdder objectsOut = new LongAdder();
+   private final LongAdder sendStallTime = new LongAdder();
+   private final LongAdder sendStalls = new LongAdder();
+   private final LongAdder receiveStallTime = new LongAdder();
+   private final LongAdder receiveStalls = new LongAdder();
+   private final Histogram serialisation = new Histogram();
+   private final Histogram deserialisation = new Histogram();
+
+   // data load of the receive queues (maintained by the connection)
+   final LongAdder receiveLoad = new LongAdder();
+   final LongAdder deliveryLoad = new LongAdder();
+
+   ConnectionMetrics (ConnectionImpl connection) {
+      this.connection = connection;
+   }
+
+   private static LongAdder[] newAdders (int size) {
+      LongAdder[] a = new LongAdder[size];
+      for (int i = 0; i < size; i++) {
+         a[i] = new LongAdder();
+      }
+      return a;
+   }
+
+   /** Returns the number of bytes received on the given channel, including
+    * parcel headers.
+    *
+    * @param channel <code>TransmissionChannel</code>
+    * @return long bytes
+    */
+   public long getBytesIn (TransmissionChannel channel) {
+      return bytesIn[channel.ordinal()].sum();
+   }
+
+   /** Returns the number of bytes sent on the given channel, including
+    * parcel headers.
+    *
+    * @param channel <code>TransmissionChannel</code>
+    * @return long bytes
+    */
+   public long getBytesOut (TransmissionChannel channel) {
+      return bytesOut[channel.ordinal()].sum();
+   }
+
+   /** Returns the number of parcels received on the given channel.
+    *
+    * @param channel <code>TransmissionChannel</code>
+    * @return long parcels
+    */
+   public long getParcelsIn (TransmissionChannel channel) {
+      return parcelsIn[channel.ordinal()].sum();
+   }
+
+   /** Returns the number of parcels sent on the given channel.
+    *
+    * @param channel <code>TransmissionChannel</code>
+    * @return long parcels
+    */
+   public long getParcelsOut (TransmissionChannel channel) {
+      return parcelsOut[channel.ordinal()].sum();
+   }
+
+   /** Returns the number of objects received and de-serialised.
+    *
+    * @return long objects
+    */
+   public long getObjectsIn () {
+      return objectsIn.sum();
+   }
+
+   /** Returns the number of objects serialised and queued for sending.
+    *
+    * @return long objects
+    */
+   public long getObjectsOut () {
+      return objectsOut.sum();
+   }
+
+   /** Returns the number of bytes exchanged on the OBJECT and FILE channels,
+    * both directions. This is the value of
+    * <code>Connection.getTransmissionVolume()</code>.
+    *
+    * @return long bytes
+    */
+   public long getTransmissionVolume () {
+      int obj = TransmissionChannel.OBJECT.ordinal();
+      int file = TransmissionChannel.FILE.ordinal();
+      return bytesIn[obj].sum() + bytesOut[obj].sum()
+            + bytesIn[file].sum() + bytesOut[file].sum();
+   }
+
+   /** Returns the total time senders were blocked because the send queue
+    * was at its load limit (backpressure).
+    *
+    * @return long nanoseconds
+    */
+   public long getSendStallTime () {
+      return sendStallTime.sum();
+   }
+
+   /** Returns the number of times a sender was blocked because the send
+    * queue was at its load limit.
+    *
+    * @return long stalls
+    */
+   public long getSendStalls () {
+      return sendStalls.sum();
+   }
+
+   /** Returns the total time the socket receiver was blocked because
+    * a receive queue or the FILE_BUFFER_LIMIT was exhausted (backpressure).
+    *
+    * @return long nanoseconds
+    */
+   public long getReceiveStallTime () {
+      return receiveStallTime.sum();
+   }
+
+   /** Returns the number of times the receiving side was blocked because
+    * a receive queue or the FILE_BUFFER_LIMIT was exhausted.
+    *
+    * @return long stalls
+    */
+   public long getReceiveStalls () {
+      return receiveStalls.sum();
+   }
+
+   /** Returns the distribution of object serialisation times.
+    *
+    * @return <code>Histogram</code>
+    */
+   public Histogram getSerialisation () {
+      return serialisation;
+   }
+
+   /** Returns the distribution of object de-serialisation times.
+    *
+    * @return <code>Histogram</code>
+    */
+   public Histogram getDeserialisation () {
+      return deserialisation;
+   }
+
+   /** Returns the number of objects waiting for serialisation (input queue).
+    *
+    * @return int objects
+    */
+   public int getInputQueueDepth () {
+      return connection.getInputQueueDepth();
+   }
+
+   /** Returns the number of parcels waiting in the send queue.
+    *
+    * @return int parcels
+    */
+   public int getSendQueueDepth () {
+      return connection.getSendQueueDepth();
+   }
+
+   /** Returns the serialised length of parcels waiting in the send queue.
+    *
+    * @return long bytes
+    */
+   public long getSendQueueLoad () {
+      return connection.getSendQueueLoad();
+   }
+
+   /** Returns the number of OBJECT parcels waiting for de-serialisation
+    * (receive queue).
+    *
+    * @return int parcels
+    */
+   public int getReceiveQueueDepth () {
+      return connection.getReceiveQueueDepth();
+   }
+
+   /** Returns the serialised length of parcels waiting in the receive queue.
+    *
+    * @return long bytes
+    */
+   public long getReceiveQueueLoad () {
+      return receiveLoad.sum();
+   }
+
+   /** Returns the number of received objects waiting for delivery to the
+    * listeners.
+    *
+    * @return int objects
+    */
+   public int getDeliveryQueueDepth () {
+      return connection.getDeliveryQueueDepth();
+   }
+
+   /** Returns the serialisation length of received objects waiting for
+    * delivery to the listeners.
+    *
+    * @return long bytes
+    */
+   public long getDeliveryQueueLoad () {
+      return deliveryLoad.sum();
+   }
+
+   /** Returns the number of outgoing file transfers in flight (active and
+    * waiting).
+    *
+    * @return int transfers
+    */
+   public int getOutgoingTransfers () {
+      return connection.getOutgoingTransferCount();
+   }
+
+   /** Returns the number of incoming file transfers in flight.
+    *
+    * @return int transfers
+    */
+   public int getIncomingTransfers () {
+      return connection.getIncomingTransferCount();
+   }
+
+   /** Returns all values of this instance under stable names. Byte and
+    * parcel counters are named by direction and channel (e.g.
+    * "bytes.out.file"), histograms by their name and bucket (e.g.
+    * "serialisation.lt1ms"), times are in nanoseconds.
+    *
+    * @return <code>Map&lt;String, Long&gt;</code> sorted by name
+    */
+   public Map<String, Long> snapshot () {
+      Map<String, Long> map = new TreeMap<String, Long>();
+      for (TransmissionChannel c : TransmissionChannel.values()) {
+         String ch = c.name().toLowerCase();
+         map.put("bytes.in." + ch, getBytesIn(c));
+         map.put("bytes.out." + ch, getBytesOut(c));
+         map.put("parcels.in." + ch, getParcelsIn(c));
+         map.put("parcels.out." + ch, getParcelsOut(c));
+      }
+      map.put("objects.in", getObjectsIn());
+      map.put("objects.out", getObjectsOut());
+      map.put("queue.input.depth", (long)getInputQueueDepth());
+      map.put("queue.send.depth", (long)getSendQueueDepth());
+      map.put("queue.send.bytes", getSendQueueLoad());
+      map.put("queue.receive.depth", (long)getReceiveQueueDepth());
+      map.put("queue.receive.bytes", getReceiveQueueLoad());
+      map.put("queue.delivery.depth", (long)getDeliveryQueueDepth());
+      map.put("queue.delivery.bytes", getDeliveryQueueLoad());
+      map.put("stall.send.count", getSendStalls());
+      map.put("stall.send.nanos", getSendStallTime());
+      map.put("stall.receive.count", getReceiveStalls());
+      map.put("stall.receive.nanos", getReceiveStallTime());
+      map.put("transfers.in", (long)getIncomingTransfers());
+      map.put("transfers.out", (long)getOutgoingTransfers());
+      serialisation.putTo(map, "serialisation.");
+      deserialisation.putTo(map, "deserialisation.");
+      return map;
+   }
+
+   void parcelSent (TransmissionParcel parcel) {
+      int c = parcel.getChannel().ordinal();
+      bytesOut[c].add(parcel.getSerialisedLength());
+      parcelsOut[c].increment();
+   }
+
+   void parcelReceived (TransmissionParcel parcel) {
+      int c = parcel.getChannel().ordinal();
+      bytesIn[c].add(parcel.getSerialisedLength());
+      parcelsIn[c].increment();
+   }
+
+   void objectSerialised (long nanos) {
+      serialisation.record(nanos);
+   }
+
+   void objectSent () {
+      objectsOut.increment();
+   }
+
+   void objectDeserialised (long nanos) {
+      deserialisation.record(nanos);
+   }
+
+   void objectReceived () {
+      objectsIn.increment();
+   }
+
+   void sendStalled (long nanos) {
+      sendStallTime.add(nanos);
+      sendStalls.increment();
+   }
+
+   void receiveStalled (long nanos) {
+      receiveStallTime.add(nanos);
+      receiveStalls.increment();
+   }
+
+   @Override
+   public String toString () {
+      return "bytes in/out=" + sumIn() + "/" + sumOut()
+            + ", objects in/out=" + getObjectsIn() + "/" + getObjectsOut()
+            + ", queues input/send/receive/delivery=" + getInputQueueDepth() + "/"
+            + getSendQueueDepth() + "/" + getReceiveQueueDepth() + "/" + getDeliveryQueueDepth()
+            + ", stalls send/receive=" + getSendStalls() + "/" + getReceiveStalls()
+            + ", transfers in/out=" + getIncomingTransfers() + "/" + getOutgoingTransfers();
+   }
+
+   private long sumIn () {
+      long s = 0;
+      for (LongAdder a : bytesIn) {
+         s += a.sum();
+      }
+      return s;
+   }
+
+   private long sumOut () {
+      long s = 0;
+      for (LongAdder a : bytesOut) {
+         s += a.sum();
+      }
+      return s;
+   }
+
+   /** A distribution of operation times in decimal buckets from below
+    * 10 microseconds to 100 milliseconds and above.
+    */
+   public static class Histogram {
+      private static final long[] BOUNDS = {10000, 100000, 1000000, 10000000, 100000000};
+      private static final String[] NAMES = {"lt10us", "lt100us", "lt1ms", "lt10ms",
+            "lt100ms", "ge100ms"};
+
+      private final LongAdder[] buckets = newAdders(NAMES.length);
+      private final LongAdder total = new LongAdder();
+
+      Histogram () {
+      }
+
+      void record (long nanos) {
+         int i = 0;
+         while (i < BOUNDS.length && nanos >= BOUNDS[i]) {
+            i++;
+         }
+         buckets[i].increment();
+         total.add(nanos);
+      }
+
+      /** Returns the number of recorded operations.
+       *
+       * @return long operations
+       */
+      public long getCount () {
+         long s = 0;
+         for (LongAdder a : buckets) {
+            s += a.sum();
+         }
+         return s;
+      }
+
+      /** Returns the summed time of recorded operations.
+       *
+       * @return long nanoseconds
+       */
+      public long getTotalTime () {
+         return total.sum();
+      }
+
+      /** Returns the number of recorded operations per bucket. The upper
+       * bounds of the buckets are 10, 100, 1000, 10000 and 100000
+       * microseconds; the last bucket is unbounded.
+       *
+       * @return long[] operations per bucket
+       */
+      public long[] getBuckets () {
+         long[] a = new long[buckets.length];
+         for (int i = 0; i < a.length; i++) {
+            a[i] = buckets[i].sum();
+         }
+         return a;
+      }
+
+      void putTo (Map<String, Long> map, String prefix) {
+         long count = 0;
+         for (int i = 0; i < NAMES.length; i++) {
+            long v = buckets[i].sum();
+            map.put(prefix + NAMES[i], v);
+            count += v;
+         }
+         map.put(prefix + "count", count);
+         map.put(prefix + "nanos", getTotalTime());
+      }
+
+      @Override
+      public String toString () {
+         long count = getCount();
+         return "count=" + count + ", mean=" + (count == 0 ? 0 : getTotalTime() / count / 1000) + " us";
+      }
+   }
+}
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 
 import org.janeth.jennynet.intfa.ConnectionParameters;
+import org.janeth.jennynet.intfa.ReceiveStorage;
 
 /**
  * This class serves as a means to set, retrieve and administer a set of parameters
@@ -33,6 +34,15 @@ class ConnectionParametersImpl implements Cloneable, ConnectionParameters {
    private int idleCheckPeriod = JennyNet.getDefaultIdleCheckPeriod();
    private int transmissionTempo = JennyNet.getDefaultTransmissionTempo();
    private int maxSerialiseSize = JennyNet.getDefaultMaxSerialiseSize();
+   private boolean virtualThreads = JennyNet.isVirtualThreads();
+   private int transferRetention = JennyNet.getDefaultTransferRetention();
+   private boolean resumableTransfers = JennyNet.isDefaultResumableTransfers();
+   private boolean deduplication = JennyNet.isDefaultDeduplication();
+   private int fileSyncPeriod = JennyNet.getDefaultFileSyncPeriod();
+   private int fileSendConcurrency = JennyNet.getDefaultFileSendConcurrency();
+   private ReceiveStorage receiveStorage = JennyNet.getDefaultReceiveStorage();
+   private boolean fileDigest = JennyNet.isDefaultFileDigest();
+   private boolean sparseTransfer = JennyNet.isDefaultSparseTransfer();
 
    public ConnectionParametersImpl() {
    }
@@ -235,4 +245,94 @@ class ConnectionParametersImpl implements Cloneable, ConnectionParameters {
 		maxSerialiseSize = Math.max(size, JennyNet.MIN_SERIALISE_SIZE);
 	}
 
+	@Override
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	@Override
+	public void setVirtualThreads(boolean virtual) {
+		virtualThreads = virtual;
+	}
+
+	@Override
+	public int getTransferRetention() {
+		return transferRetention;
+	}
+
+	@Override
+	public void setTransferRetention(int time) {
+		transferRetention = Math.max(time, 0);
+	}
+
+	@Override
+	public boolean isResumableTransfers() {
+		return resumableTransfers;
+	}
+
+	@Override
+	public void setResumableTransfers(boolean resumable) {
+		resumableTransfers = resumable;
+	}
+
+	@Override
+	public boolean isDeduplication() {
+		return deduplication;
+	}
+
+	@Override
+	public void setDeduplication(boolean dedup) {
+		deduplication = dedup;
+	}
+
+	@Override
+	public int getFileSyncPeriod() {
+		return fileSyncPeriod;
+	}
+
+	@Override
+	public void setFileSyncPeriod(int period) {
+		fileSyncPeriod = Math.max(period, -1);
+	}
+
+	@Override
+	public int getFileSendConcurrency() {
+		return fileSendConcurrency;
+	}
+
+	@Override
+	public void setFileSendConcurrency(int transfers) {
+		fileSendConcurrency = Math.max(transfers, 1);
+	}
+
+	@Override
+	public ReceiveStorage getReceiveStorage() {
+		return receiveStorage;
+	}
+
+	@Override
+	public void setReceiveStorage(ReceiveStorage storage) {
+		receiveStorage = storage;
+	}
+
+	@Override
+	public boolean isFileDigest() {
+		return fileDigest;
+	}
+
+	@Override
+	public void setFileDigest(boolean digest) {
+		fileDigest = digest;
+	}
+
+	@Override
+	public boolean isSparseTransfer() {
+		return sparseTransfer;
+	}
+
+	@Override
+	public void setSparseTransfer(boolean sparse) {
+		sparseTransfer = sparse;
+	}
+
 }
@@ -0,0 +1,366 @@
+package org.janeth.jennynet.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.janeth.jennynet.util.Util;
+
+/** A content-addressed cache of received files which allows to skip the
+ * transmission of files the receiver already holds. Files are stored in the
+ * cache directory under the hexadecimal SHA-256 value of their content.
+ *
+ * <p>If a sender connection has DEDUPLICATION enabled, the content hash of
+ * a file is announced to remote before the file is transmitted. If the
+ * remote station holds the content in its cache, the file destination is
+ * realised from the cache (by hard link or copy) and the transfer is
+ * confirmed without transmission of file data. Otherwise the file is
+ * transmitted regularly and stored in the cache of the receiver.
+ *
+ * <p>The cache is bounded by the total size of its files; the least recently
+ * used files are evicted when a new file exceeds the bound. Files present in
+ * the cache directory are indexed when the cache is created. The cache is
+ * activated for the network layer by <code>JennyNet.setContentCache()</code>.
+ */
+public class ContentCache {
+
+   private final File directory;
+   private final long maxSize;
+   private final LinkedHashMap<String, Entry> entries =
+         new LinkedHashMap<String, Entry>(64, 0.75f, true);
+   private long size;
+   private long hits, misses, evictions;
+
+   /** Creates a new content cache in the given directory.
+    *
+    * @param directory File cache directory; is created if it doesn't exist
+    * @param maxSize long maximum total size of cached files in bytes
+    * @throws IllegalArgumentException if maxSize is negative
+    * @throws IOException if the directory cannot be created
+    */
+   public ContentCache (File directory, long maxSize) throws IOException {
+      if (maxSize < 0)
+         throw new IllegalArgumentException("maxSize < 0");
+
+      this.directory = directory.getCanonicalFile();
+      this.maxSize = maxSize;
+      if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+         throw new IOException("cannot create cache directory: " + directory);
+      }
+      index();
+   }
+
+   /** Indexes the files of the cache directory, least recently modified
+    * first.
+    */
+   private void index () {
+      File[] files = directory.listFiles();
+      if (files == null) return;
+      Arrays.sort(files, new Comparator<File>() {
+         @Override
+         public int compare (File f1, File f2) {
+            long t1 = f1.lastModified(), t2 = f2.lastModified();
+            return t1 < t2 ? -1 : t1 > t2 ? 1 : 0;
+         }
+      });
+
+      synchronized (this) {
+         for (File f : files) {
+            String name = f.getName();
+            if (f.isFile() && name.length() == 64 && name.matches("[0-9A-Fa-f]+")) {
+               entries.put(name.toUpperCase(), new Entry(f));
+               size += f.length();
+            }
+         }
+         evict(0);
+      }
+   }
+
+   /** Returns the cache directory.
+    *
+    * @return File
+    */
+   public File getDirectory () {
+      return directory;
+   }
+
+   /** Returns the maximum total size of cached files.
+    *
+    * @return long bytes
+    */
+   public long getMaxSize () {
+      return maxSize;
+   }
+
+   /** Returns the current total size of cached files.
+    *
+    * @return long bytes
+    */
+   public synchronized long getSize () {
+      return size;
+   }
+
+   /** Returns the number of cached files.
+    *
+    * @return int
+    */
+   public synchronized int getEntryCount () {
+      return entries.size();
+   }
+
+   /** Returns the number of lookups which found the content in the cache.
+    *
+    * @return long
+    */
+   public synchronized long getHitCount () {
+      return hits;
+   }
+
+   /** Returns the number of lookups which did not find the content in the
+    * cache.
+    *
+    * @return long
+    */
+   public synchronized long getMissCount () {
+      return misses;
+   }
+
+   /** Returns the number of files which were evicted from the cache.
+    *
+    * @return long
+    */
+   public synchronized long getEvictionCount () {
+      return evictions;
+   }
+
+   /** Returns the ratio of hits to all lookups, or 0 if there were no
+    * lookups.
+    *
+    * @return double hit rate (0.0 .. 1.0)
+    */
+   public synchronized double getHitRate () {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double)hits / total;
+   }
+
+   /** Returns the cached file of the given content, or null if the content
+    * is not cached. Cached files which were modified since they were
+    * stored are removed.
+    *
+    * @param hash String hexadecimal SHA-256 value of the content
+    * @param length long length of the content
+    * @return File cached file or null
+    */
+   public synchronized File lookup (String hash, long length) {
+      String key = hash.toUpperCase();
+      Entry entry = entries.get(key);
+      if (entry != null && !entry.isValid()) {
+         remove(key);
+         entry = null;
+      }
+      if (entry == null || entry.length != length) {
+         misses++;
+         return null;
+      }
+      hits++;
+      return entry.file;
+   }
+
+   /** Returns the cached file of the given content and protects it from
+    * eviction until it is released with <code>unpin()</code>. Returns null
+    * if the content is not cached.
+    *
+    * @param hash String hexadecimal SHA-256 value of the content
+    * @param length long length of the content
+    * @return File cached file or null
+    */
+   synchronized File pin (String hash, long length) {
+      File file = lookup(hash, length);
+      if (file != null) {
+         entries.get(hash.toUpperCase()).pins++;
+      }
+      return file;
+   }
+
+   /** Releases a cached file which was protected by <code>pin()</code>.
+    *
+    * @param hash String hexadecimal SHA-256 value of the content
+    */
+   synchronized void unpin (String hash) {
+      Entry entry = entries.get(hash.toUpperCase());
+      if (entry != null && entry.pins > 0) {
+         entry.pins--;
+      }
+   }
+
+   /** Stores a copy of the given file under the given content hash. Does
+    * nothing if the content is already cached or the file exceeds the
+    * maximum cache size. The caller is responsible for the correctness of
+    * the hash value.
+    *
+    * @param hash String hexadecimal SHA-256 value of the file content
+    * @param file File file to store
+    * @throws IOException
+    */
+   public void store (String hash, File file) throws IOException {
+      String key = hash.toUpperCase();
+      long length = file.length();
+      synchronized (this) {
+         if (length > maxSize || entries.containsKey(key)) return;
+      }
+
+      // copy to a TEMP file in the cache directory and rename
+      File temp = Util.getTempFile(directory);
+      File target = new File(directory, key);
+      try {
+         copy(file, temp);
+         synchronized (this) {
+            if (entries.containsKey(key)) return;
+            target.delete();
+            if (!temp.renameTo(target)) {
+               throw new IOException("cannot create cache file: " + target);
+            }
+            evict(length);
+            entries.put(key, new Entry(target));
+            size += length;
+         }
+      } finally {
+         temp.delete();
+      }
+   }
+
+   /** Realises the given destination file from a cached file, by hard link
+    * if possible, otherwise by copy. An existing destination file is
+    * replaced.
+    *
+    * @param cached File cached file
+    * @param destination File destination file
+    * @throws IOException
+    */
+   public static void materialise (File cached, File destination) throws IOException {
+      destination.getParentFile().mkdirs();
+      destination.delete();
+      try {
+         Files.createLink(destination.toPath(), cached.toPath());
+      } catch (Exception e) {
+         copy(cached, destination);
+      }
+   }
+
+   /** Removes all files from the cache, except files which are being
+    * realised at a destination.
+    */
+   public synchronized void clear () {
+      Iterator<Entry> it = entries.values().iterator();
+      while (it.hasNext()) {
+         Entry e = it.next();
+         if (e.pins == 0) {
+            it.remove();
+            size -= e.length;
+            e.file.delete();
+         }
+      }
+   }
+
+   /** Removes least recently used files until the given length fits
+    * into the maximum cache size. Pinned files are not removed.
+    *
+    * @param length long length of a file to be added
+    */
+   private void evict (long length) {
+      Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+      while (size + length > maxSize && it.hasNext()) {
+         Entry e = it.next().getValue();
+         if (e.pins > 0) continue;
+         it.remove();
+         size -= e.length;
+         e.file.delete();
+         evictions++;
+      }
+   }
+
+   private void remove (String key) {
+      Entry e = entries.remove(key);
+      if (e != null) {
+         size -= e.length;
+         e.file.delete();
+      }
+   }
+
+   private static void copy (File source, File target) throws IOException {
+      InputStream in = new FileInputStream(source);
+      try {
+         OutputStream out = new FileOutputStream(target);
+         try {
+            Util.transferData(in, out, JennyNet.STREAM_BUFFER_SIZE);
+         } finally {
+            out.close();
+         }
+      } finally {
+         in.close();
+      }
+   }
+
+   /** Returns the hexadecimal SHA-256 value of the given file's content.
+    *
+    * @param file File
+    * @return String hash value
+    * @throws IOException
+    */
+   public static String hashFile (File file) throws IOException {
+      MessageDigest md = newDigest();
+      InputStream in = new FileInputStream(file);
+      try {
+         byte[] buffer = new byte[JennyNet.STREAM_BUFFER_SIZE];
+         int len;
+         while ((len = in.read(buffer)) > -1) {
+            md.update(buffer, 0, len);
+         }
+      } finally {
+         in.close();
+      }
+      return Util.bytesToHex(md.digest());
+   }
+
+   /** Returns a new SHA-256 message digest.
+    *
+    * @return MessageDigest
+    */
+   static MessageDigest newDigest () {
+      try {
+         return MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException("SHA-256 unavailable", e);
+      }
+   }
+
+   /** A cached file with the attributes it had when it was stored. */
+   private static class Entry {
+      final File file;
+      final long length;
+      final long modified;
+      int pins;  // realisations in progress
+
+      Entry (File file) {
+         this.file = file;
+         length = file.length();
+         modified = file.lastModified();
+      }
+
+      /** Whether the file is unmodified since it was stored. */
+      boolean isValid () {
+         return file.length() == length && file.lastModified() == modified;
+      }
+   }
+}
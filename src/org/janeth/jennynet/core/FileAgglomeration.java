@@ -1,15 +1,23 @@
 package org.janeth.jennynet.core;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.UUID;
 
 import org.janeth.jennynet.exception.InsufficientFileSpaceException;
 import org.janeth.jennynet.exception.ParcelOutOfSyncException;
 import org.janeth.jennynet.exception.ParcelProtocolErrorException;
+import org.janeth.jennynet.intfa.ReceiveStorage;
 import org.janeth.jennynet.intfa.TransmissionEvent.TransmissionEventType;
 import org.janeth.jennynet.util.Util;
 
@@ -19,7 +27,7 @@ import org.janeth.jennynet.util.Util;
  * IObjectHeader</code>, which gives the required technical parameters for the
  * transmission. These parameters are:
  * <p><b>Object-ID (=File-ID)</b> - a long integer identifying the transmission
- * <br><b>expected file length</b> - an integer for the file length (Integer.MAX_VALUE)
+ * <br><b>expected file length</b> - a long integer for the file length
  * <br><b>expected number of parcels</b> - integer
  * <br><b>target filepath (=PATH)</b> - String to identify an output path and name for the 
  * transmitted file. See the special convention for this variable below.
@@ -39,15 +47,109 @@ import org.janeth.jennynet.util.Util;
  * is valid if its canonical path starts with the FILE ROOT DIRECTORY and does not name a
  * directory. A DESTINATION path may contain path elements which don't exist and which are
  * realised when the file is created.
+ * 
+ * <p><b>Allocation and Durability</b>
+ * <p>The reception file is allocated to the full transmission length before
+ * data is received. The connection parameter FILE_SYNC_PERIOD defines
+ * whether the reception file is synchronised with the storage device 
+ * periodically during reception and whether the received file is 
+ * synchronised on completion.
+ * 
+ * <p><b>Parallel Transfers</b>
+ * <p>If the object header contains a FILE RANGE, the transmission is a range of
+ * a parallel file transfer. Range data is then written into a reception file
+ * shared with the other ranges of the transfer (<code>FileRangeAssembly</code>).
+ * Each completed range is confirmed to remote; the FILE_INCOMING and 
+ * FILE_RECEIVED events are issued only once for the entire file, by the
+ * agglomerations of the first arriving and the last completing range.
+ * 
+ * <p><b>Resumable Transfers</b>
+ * <p>Regular file transfers carry a TRANSFER ID which persists across connections.
+ * If a transfer is interrupted by the loss of the connection and the connection
+ * defines a TRANSFER_RETENTION time, the reception file is retained in the 
+ * <code>PartialFileStore</code>. The sender may then resume the transfer over 
+ * a new connection: after a RESUME signal exchange which claims the retained 
+ * file and reports its length, the new transmission header states the resume
+ * offset and received data is appended to the retained file.
+ * 
+ * <p><b>Delta Transfers</b>
+ * <p>If the object header contains DELTA information, the transmitted data is
+ * the difference of the sender's file against the DESTINATION file (base file),
+ * as encoded by <code>FileDelta</code>. The difference is collected in the TEMP 
+ * file; when transmission completes, the new version of the file is reconstructed
+ * from the difference and the base file into another TEMP file, which is then
+ * verified and copied to the DESTINATION as usual. Delta transfers are not
+ * retained for resumption.
+ * 
+ * <p><b>Streaming Reception</b>
+ * <p>The FILE_INCOMING event of a regular file transfer (not a range, delta 
+ * or batch) offers input streams which read the reception file while data
+ * arrives; they block at the length of received data (<code>ReceptionFrontier
+ * </code>).
+ * 
+ * <p><b>File Batches</b>
+ * <p>If the object header is marked as BATCH, the transmitted data is a file
+ * batch as defined by <code>FileBatch</code>. No reception file is used; the
+ * files of the batch are written directly into the destination directory 
+ * (the PATH relative to the FILE ROOT DIRECTORY, or the root directory itself
+ * if PATH is null) while data arrives. The batch is confirmed as a whole.
+ * 
+ * <p><b>Stream Transfers</b>
+ * <p>If the object header is marked as STREAM, the length of the transmitted
+ * data is unknown in advance. The reception file grows with arriving data and
+ * the transmission ends with an empty parcel. The expected length of the 
+ * FILE_INCOMING event is -1 then.
+ * 
+ * <p><b>Receive Storage</b>
+ * <p>If the connection defines a RECEIVE_STORAGE, a regular transfer (not a
+ * range, delta, batch or resumed transfer) may be received into a channel 
+ * supplied by the storage instead of a reception file. There is no 
+ * destination file then; the channel is reported with the transfer events.
+ * 
+ * <p><b>Zero Blocks</b>
+ * <p>The sender of a file may replace a zero-filled parcel by an empty parcel
+ * (SPARSE_TRANSFER); parcel 0 is always sent with data. An empty parcel after
+ * parcel 0 of a transfer which is not a stream stands for a zero block of the
+ * length of parcel 0, or the remaining data if less. Zero blocks are not 
+ * written into the reception file, which remains sparse in these regions if
+ * the file system supports it.
+ * 
+ * <p><b>Integrity Digest</b>
+ * <p>If the object header is marked as DIGEST, the data parcels are followed
+ * by a parcel which holds the SHA-256 digest of the transmitted data. The 
+ * digest of arriving data is computed incrementally and compared with the 
+ * transmitted value before the transfer is finished; a mismatch aborts the 
+ * transfer. The digest of the file is reported with the FILE_RECEIVED event
+ * if it covers the entire file content.
+ * 
+ * <p><b>Content Cache</b>
+ * <p>If remote announced the content hash of the file before transmission and
+ * the content was not found in the layer's <code>ContentCache</code>, the hash
+ * of received data is computed and the received file is added to the cache 
+ * if the hash values match.
  */
 
 class FileAgglomeration extends ParcelAgglomeration {
+   private static final byte[] EMPTY = new byte[0];
+   
    // init data
    private long fileID;
    private String path;
    private long expectedFileLength;
    private long receivedFileLength;
    private int expectedNrOfParcels;
+   private boolean stream;  // data of unknown length, ends with an empty parcel
+   private FileRange range;
+   private UUID transferId;
+   private ObjectHeader deltaHeader;
+   private String contentHash;
+   private MessageDigest digest;  // digest of received data
+   private boolean digestTrailer;  // transmitted digest follows data parcels
+   private boolean digestContent;  // digest covers the file content
+   private String digestValue;
+   private boolean dataComplete;  // awaiting the digest parcel
+   private int blockSize;  // parcel size of the transfer (length of parcel 0)
+   private byte[] zeroBlock;  // data of elided zero blocks
 
    // operational
    private ConnectionImpl connection;
@@ -56,7 +158,14 @@ class FileAgglomeration extends ParcelAgglomeration {
    private File file;  // output file during data collection
    
    private File destination;  // remote indicated output file after transmission (may be null)
-   private OutputStream fileOutput;
+   private RandomAccessFile fileOutput;
+   private long unsyncedLength;
+   private int syncPeriod;
+   private FileRangeAssembly assembly;  // shared reception file of parallel transfer
+   private FileBatch.Unpacker batch;  // file writer of a file batch
+   private ReceptionFrontier frontier;  // readers of arriving data (regular transfer)
+   private WritableByteChannel target;  // channel of the RECEIVE_STORAGE (regular transfer)
+   private Exception destinationError;
    
    /**
     * Creates a new parcel agglomeration device for an incoming file transmission.
@@ -84,49 +193,169 @@ class FileAgglomeration extends ParcelAgglomeration {
       path = header.getPath();
       expectedNrOfParcels = header.getNumberOfParcels();
       expectedFileLength = header.getTransmissionSize();
+      syncPeriod = connection.getParameters().getFileSyncPeriod();
+      range = header.getRange();
+      transferId = header.getTransferId();
+      deltaHeader = header.isDelta() ? header : null;
+      stream = header.isStream();
+      digestTrailer = header.isDigest();
       startTime = System.currentTimeMillis();
       
+      // verify a retained partial file if this transfer is resumed
+      long offset = header.getResumeOffset();
+      PartialFileStore.Entry resumed = connection.takeResumption(fileID);
+      if (resumed != null && (transferId == null || offset != resumed.getLength() ||
+          !transferId.equals(resumed.getTransferId()) || 
+          !(path == null ? resumed.getPath() == null : path.equals(resumed.getPath())))) {
+         resumed.discard();
+         resumed = null;
+      }
+      if (offset > 0 && resumed == null) {
+         throw new ParcelProtocolErrorException("FILE RESUME: no retained data for transfer " 
+               + transferId);
+      }
+      
+      if (header.isBatch() && (range != null | deltaHeader != null | resumed != null)) {
+         throw new ParcelProtocolErrorException("FILE BATCH: illegal transfer options");
+      }
+      if (stream && (header.isBatch() | range != null | deltaHeader != null | resumed != null)) {
+         throw new ParcelProtocolErrorException("FILE STREAM: illegal transfer options");
+      }
+      if (digestTrailer && !stream && expectedNrOfParcels < 2) {
+         throw new ParcelProtocolErrorException("FILE DIGEST: no digest parcel");
+      }
+      
+      // compute the digest of arriving data
+      digestContent = range == null & deltaHeader == null & !header.isBatch() & offset == 0;
+      if (digestTrailer) {
+         digest = ContentCache.newDigest();
+      }
+      
+      // a regular transfer may be received into a storage channel
+      ReceiveStorage storage = connection.getParameters().getReceiveStorage();
+      if (storage != null && !header.isBatch() && resumed == null && 
+          range == null && deltaHeader == null) {
+         target = storage.openChannel(connection, fileID, path, 
+               stream ? -1 : expectedFileLength);
+      }
+      
       // create operational output file (temporary)
-      file = Util.getTempFile(connection.getParameters().getTempDirectory());
+      // or write into the channel of the receive storage
+      // or continue a retained partial file
+      // or join the shared reception file of a parallel transfer
+      // or write a file batch into its destination directory
+      if (header.isBatch()) {
+         file = batchDirectory();
+      } else if (resumed != null) {
+         file = resumed.getFile();
+      } else if (target != null) {
+         file = null;
+      } else if (range == null) {
+         file = Util.getTempFile(connection.getParameters().getTempDirectory());
+      } else {
+         assembly = FileRangeAssembly.obtain(this, connection, range);
+         file = assembly.getFile();
+      }
       
-      // set up a thread name 
-      String name = "FILE: " + file.getAbsolutePath();
+      // set up a receptor name 
+      String name = "FILE: " + (file == null ? "storage channel" : file.getAbsolutePath());
+      if (range != null) {
+         name += " (" + range.getIndex() + ")";
+      }
       setName(name);
+      
+      // prepare writing the files of a batch
+      if (header.isBatch()) {
+         File root = connection.getParameters().getFileRootDir();
+         if (root.getFreeSpace() < expectedFileLength + 32000) {
+            throw new InsufficientFileSpaceException("demanded bytes: " + 
+                  expectedFileLength + " on " + root);
+         }
+         batch = new FileBatch.Unpacker(file, syncPeriod > -1);
+         
+         TransmissionEventImpl event = new TransmissionEventImpl(connection,
+               TransmissionEventType.FILE_INCOMING, fileID);
+         event.setExpectedLength(expectedFileLength);
+         event.setPath(path);
+         event.setFile(file);
+         connection.fireTransmissionEvent(event);
+         return;
+      }
+
+      // inform user about NEW FILE INCOMING into the storage channel
+      if (target != null) {
+         connection.takeContentHash(fileID);
+         TransmissionEventImpl event = new TransmissionEventImpl(connection,
+               TransmissionEventType.FILE_INCOMING, fileID);
+         event.setExpectedLength(stream ? -1 : expectedFileLength);
+         event.setPath(path);
+         event.setTransferId(transferId);
+         event.setChannel(target);
+         connection.fireTransmissionEvent(event);
+         return;
+      }
 
       // verify ultimate storage path for transmitted file
-      // only valid if connection has a file root path defined
-      File conRootDir = connection.getParameters().getFileRootDir();
-      try {
-         if (path != null & conRootDir != null && conRootDir.isDirectory()) {
-            // create file path for the destination file
-            File test = new File(conRootDir, path).getCanonicalFile();
+      destination = resolveDestination(connection, path);
+      
+      // verify the base file of a delta transfer
+      if (deltaHeader != null && (destination == null || !destination.isFile() ||
+          destination.length() != deltaHeader.getDeltaBaseLength())) {
+         throw new ParcelProtocolErrorException("FILE DELTA: base file unavailable for " + path);
+      }
 
-            // accept remote indicated destination path only if it 
-            // falls under connection's file root directory
-            // (must do this because ".." elements in PATH can lead to irritating results!)
-            if (test.getPath().startsWith(conRootDir.getPath())) {
-               destination = test;
-            }
+      // the first arriving range of a parallel transfer informs the user
+      if (range != null) {
+         if (assembly.announce()) {
+            TransmissionEventImpl event = new TransmissionEventImpl(connection,
+                  TransmissionEventType.FILE_INCOMING, fileID);
+            event.setExpectedLength(range.getFileLength());
+            event.setPath(path);
+            event.setFile(file);
+            connection.fireTransmissionEvent(event);
          }
-      } catch (IOException e) {
-         e.printStackTrace();
+         return;
       }
-
+      
       // verify storage space
-      if (file.getFreeSpace() < expectedFileLength + 32000) {
-         throw new InsufficientFileSpaceException("demanded bytes: " + expectedFileLength + 
-               " on " + file.getParent());
+      long demand = expectedFileLength - offset + 
+            (deltaHeader == null ? 0 : deltaHeader.getDeltaTargetLength());
+      if (file.getFreeSpace() < demand + 32000) {
+         throw new InsufficientFileSpaceException("demanded bytes: " + 
+               demand + " on " + file.getParent());
       }
       
-      // create output stream
-      fileOutput = new FileOutputStream(file);
+      // compute the content hash of a file announced for the content cache
+      contentHash = connection.takeContentHash(fileID);
+      if (contentHash != null && digestContent && digest == null) {
+         digest = ContentCache.newDigest();
+      }
+      
+      // create output file allocated to the transmission length
+      // (continue a resumed file at the resume offset)
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+         raf.setLength(expectedFileLength);
+         raf.seek(offset);
+      } catch (IOException e) {
+         raf.close();
+         throw e;
+      }
+      fileOutput = raf;
+      receivedFileLength = offset;
+      if (deltaHeader == null) {
+         frontier = new ReceptionFrontier(file, offset);
+      }
 
       // inform user about NEW FILE INCOMING
       TransmissionEventImpl event = new TransmissionEventImpl(connection,
             TransmissionEventType.FILE_INCOMING, fileID);
-      event.setExpectedLength(expectedFileLength);
+      event.setExpectedLength(stream ? -1 : expectedFileLength);
+      event.setTransmissionLength(offset);
       event.setPath(path);
       event.setFile(file);
+      event.setTransferId(transferId);
+      event.setFrontier(frontier);
       connection.fireTransmissionEvent(event);
    }
    
@@ -167,19 +396,108 @@ class FileAgglomeration extends ParcelAgglomeration {
          init(header);
       }
       
+      // verify the transmitted digest and finish
+      if (dataComplete) {
+         nextParcelNr++;
+         verifyDigest(parcel.getData());
+         finishFileOutput();
+         return;
+      }
+      
+      // an empty parcel after parcel 0 stands for a zero-filled block of the
+      // parcel size (sparse transfer), except in a stream
+      byte[] data = parcel.getLength() == 0 ? EMPTY : parcel.getData();
+      boolean hole = false;
+      if (nextParcelNr == 0) {
+         blockSize = data.length;
+      } else if (data.length == 0 && !stream) {
+         int length = (int)Math.min(blockSize, expectedFileLength - receivedFileLength);
+         if (length > 0) {
+            if (zeroBlock == null || zeroBlock.length != length) {
+               zeroBlock = new byte[length];
+            }
+            data = zeroBlock;
+            hole = true;
+         }
+      }
+      
+      if (data.length > 0 && digest != null) {
+         digest.update(data);
+      }
+      
+      // write parcel data to the shared file at the range position
+      // (a zero block remains unwritten in the allocated file)
+      if (data.length > 0 && assembly != null) {
+         if (!hole) {
+            assembly.write(range.getOffset() + receivedFileLength, data);
+         }
+         receivedFileLength += data.length;
+      }
+      
+      // write parcel data into the files of a batch
+      if (data.length > 0 && batch != null) {
+         batch.write(data, 0, data.length);
+         receivedFileLength += data.length;
+      }
+      
+      // write parcel data into the storage channel
+      if (data.length > 0 && target != null) {
+         ByteBuffer buf = ByteBuffer.wrap(data);
+         while (buf.hasRemaining()) {
+            receivedFileLength += target.write(buf);
+         }
+      }
+      
       // write parcel data to file
-      if (parcel.getLength() > 0 && fileOutput != null) {
+      // (a zero block is skipped and remains a hole in the allocated file)
+      if (data.length > 0 && fileOutput != null) {
     	 synchronized(fileOutput) {
-    		 byte[] data = parcel.getData();
-    		 fileOutput.write(data);
+    		 if (hole) {
+    		    fileOutput.seek(fileOutput.getFilePointer() + data.length);
+    		 } else {
+    		    fileOutput.write(data);
+    		 }
     		 receivedFileLength += data.length;
+    		 if (frontier != null) {
+    		    frontier.advance(receivedFileLength);
+    		 }
+    		 
+    		 // periodically synchronise the file with the storage device
+    		 unsyncedLength += data.length;
+    		 if (syncPeriod > 0 && unsyncedLength >= syncPeriod * 1048576L) {
+    		    fileOutput.getChannel().force(false);
+    		    unsyncedLength = 0;
+    		 }
     	 }
       }
       
       // promote expected parcel number
+      // (a stream ends with an empty parcel, a digest parcel may follow)
       nextParcelNr++;
-      if (nextParcelNr == expectedNrOfParcels) {
-         finishFileOutput();
+      if (stream ? parcel.getLength() == 0 : 
+          nextParcelNr == expectedNrOfParcels - (digestTrailer ? 1 : 0)) {
+         if (digestTrailer) {
+            dataComplete = true;
+         } else {
+            finishFileOutput();
+         }
+      }
+   }
+   
+   /** Compares the digest of received data with the given transmitted
+    * digest.
+    * 
+    * @param value byte[] transmitted digest
+    * @throws IOException if the values do not match
+    */
+   private void verifyDigest (byte[] value) throws IOException {
+      byte[] computed = digest.digest();
+      if (!MessageDigest.isEqual(computed, value)) {
+         throw new IOException("FILE DIGEST mismatch: transfer " + fileID + 
+               ", received " + Util.bytesToHex(computed));
+      }
+      if (digestContent) {
+         digestValue = Util.bytesToHex(computed);
       }
    }
 
@@ -189,58 +507,55 @@ class FileAgglomeration extends ParcelAgglomeration {
     * @throws IOException
     */
    private void finishFileOutput() throws IOException {
+      if (assembly != null) {
+         finishRange();
+         return;
+      }
+      if (batch != null) {
+         finishBatch();
+         return;
+      }
+      if (target != null) {
+         finishStorage();
+         return;
+      }
       if (fileOutput == null) return;
       cancelTransfer();
+      if (stream) {
+         expectedFileLength = receivedFileLength;
+      }
       boolean success = true;
-      Exception exception = null;
       
   	  synchronized(fileOutput) {
+  	     // synchronise the reception file if it is the final file
+  	     if (fileOutput.length() != receivedFileLength) {
+  	        fileOutput.setLength(receivedFileLength);
+  	     }
+  	     if (syncPeriod > -1 & path == null) {
+  	        fileOutput.getFD().sync();
+  	     }
 	      fileOutput.close();
 	      fileOutput = null;
+	      if (frontier != null) {
+	         frontier.complete();
+	      }
+	      
+	      // reconstruct the file from a received delta
+	      if (deltaHeader != null) {
+	         success = reconstructDelta();
+	      }
 	      
 	      // if we have a destination path defined for the transmission
 	      // attempt copy from temp-file to the destination
-	      if (path != null) {
-	         
-	         // verify destination file and destination drive space
-	         if (destination == null || destination.isDirectory() || 
-	             connection.getParameters().getFileRootDir().getFreeSpace() < file.length() + 32000
-	             ) {
-	            // cannot realise destination file (environment reasons)
-                success = false;
-	            
-	         } else {
-	            try {
-		            // create destination file (copy from TEMP-file)
-		            destination.getParentFile().mkdirs();
-		            OutputStream out = new FileOutputStream(destination);
-		            InputStream in = null;
-
-		            try {
-		               in = new FileInputStream(file);
-		               Util.transferData(in, out, JennyNet.STREAM_BUFFER_SIZE);
-		            } finally {
-		               if (in != null) {
-		                  in.close();
-		               }
-		               out.close();
-		            }
-
-		        // failed creating destination file (IO error)     
-	            } catch (Exception e) {
-	            	success = false;
-	            	exception = e;
-	            }
-	         }
-	         
-		      // remove the TEMP file 
-		      // re-define file as destination if copy successful
-	          file.delete();
-		      if (success) {
-		         file = destination;
-		      }
+	      if (path != null & success) {
+	         success = realiseDestination();
 	      }
   	  }
+  	  
+      // add the received file to the content cache
+      if (success && contentHash != null && digestContent) {
+         storeContent();
+      }
 
       // signal transfer success or failure to remote station
       // (failure prevails if a file destination could not be realised)
@@ -249,16 +564,267 @@ class FileAgglomeration extends ParcelAgglomeration {
       connection.sendSignal(signal);
       
       // inform the user about file-received or transmission failed (event)
+      fireFinishEvent(success, receivedFileLength, expectedFileLength, getDuration());
+   }
+
+   /** Terminates the reception of a range of a parallel file transfer after
+    * the last parcel was received. The range is confirmed to remote. If this
+    * range completes the transfer, the assembled file is realised like a 
+    * regular file transmission.
+    * 
+    * @throws IOException if the parallel transfer has failed
+    */
+   private void finishRange () throws IOException {
+      cancelTransfer();
+      if (receivedFileLength != range.getLength()) {
+         throw new ParcelProtocolErrorException("FILE RANGE incomplete: " + range);
+      }
+      
+      boolean complete = assembly.rangeCompleted(this, range.getIndex(), 
+            syncPeriod > -1 & path == null);
+      boolean success = true;
+      if (complete && path != null) {
+         success = realiseDestination();
+      }
+      
+      // signal range success or failure to remote station
+      Signal signal = success ? Signal.newConfirmSignal(fileID) : 
+                      Signal.newFailSignal(fileID, 1, null);
+      connection.sendSignal(signal);
+
+      if (complete) {
+         long length = assembly.getFileLength();
+         fireFinishEvent(success, length, length, assembly.getDuration());
+      }
+   }
+   
+   /** Terminates the reception of a file batch after the last parcel was
+    * received. The batch is confirmed to remote if all its files have been
+    * written.
+    */
+   private void finishBatch () {
+      cancelTransfer();
+      boolean success = true;
+      try {
+         batch.finish();
+      } catch (IOException e) {
+         success = false;
+         destinationError = e;
+      }
+      
+      // signal batch success or failure to remote station
+      Signal signal = success ? Signal.newConfirmSignal(fileID) : 
+                      Signal.newFailSignal(fileID, 1, null);
+      connection.sendSignal(signal);
+      fireFinishEvent(success, receivedFileLength, expectedFileLength, getDuration());
+   }
+   
+   /** Terminates the reception into a storage channel after the last parcel
+    * was received. The transfer is confirmed to remote if the channel closes
+    * without error.
+    */
+   private void finishStorage () {
+      cancelTransfer();
+      if (stream) {
+         expectedFileLength = receivedFileLength;
+      }
+      boolean success = receivedFileLength == expectedFileLength;
+      try {
+         target.close();
+      } catch (IOException e) {
+         success = false;
+         destinationError = e;
+      }
+      
+      // signal success or failure to remote station
+      Signal signal = success ? Signal.newConfirmSignal(fileID) : 
+                      Signal.newFailSignal(fileID, 1, null);
+      connection.sendSignal(signal);
+      fireFinishEvent(success, receivedFileLength, expectedFileLength, getDuration());
+   }
+   
+   /** Returns the destination directory of a file batch, which is the 
+    * PATH under the FILE ROOT DIRECTORY or the root directory itself.
+    * 
+    * @return File destination directory
+    * @throws ParcelProtocolErrorException if the directory is unavailable
+    * @throws IOException
+    */
+   private File batchDirectory () throws IOException {
+      File root = connection.getParameters().getFileRootDir();
+      File dir = path == null ? root : resolveDestination(connection, path);
+      if (root == null || !root.isDirectory() || dir == null || dir.isFile()) {
+         throw new ParcelProtocolErrorException("FILE BATCH: destination directory unavailable: " 
+               + path);
+      }
+      return dir.getCanonicalFile();
+   }
+   
+   /** Reconstructs the transmitted file from the received delta (reception
+    * file) and the destination file into a new TEMP file, which replaces
+    * the reception file. The result is verified against the length and CRC
+    * stated in the DELTA information. On failure the reception file is
+    * removed.
+    * 
+    * @return boolean true == file reconstructed
+    */
+   private boolean reconstructDelta () {
+      File target = null;
+      try {
+         target = Util.getTempFile(connection.getParameters().getTempDirectory());
+         InputStream in = new BufferedInputStream(new FileInputStream(file), 
+               JennyNet.STREAM_BUFFER_SIZE);
+         OutputStream out = null;
+         int crc;
+         try {
+            out = new BufferedOutputStream(new FileOutputStream(target), 
+                  JennyNet.STREAM_BUFFER_SIZE);
+            crc = FileDelta.decode(in, destination, deltaHeader.getDeltaBlockSize(), out);
+         } finally {
+            in.close();
+            if (out != null) {
+               out.close();
+            }
+         }
+         
+         if (target.length() != deltaHeader.getDeltaTargetLength() || 
+             crc != deltaHeader.getDeltaTargetCrc()) {
+            throw new IOException("FILE DELTA: reconstructed file mismatch");
+         }
+      } catch (Exception e) {
+         destinationError = e;
+         if (target != null) {
+            target.delete();
+         }
+         file.delete();
+         return false;
+      }
+
+      file.delete();
+      file = target;
+      return true;
+   }
+   
+   /** Adds the received file to the layer's content cache if the announced
+    * content hash matches the received data.
+    */
+   private void storeContent () {
+      ContentCache cache = JennyNet.getContentCache();
+      String hash = digestValue != null ? digestValue : Util.bytesToHex(digest.digest());
+      if (cache != null && hash.equalsIgnoreCase(contentHash)) {
+         try {
+            cache.store(hash, file);
+         } catch (IOException e) {
+            e.printStackTrace();
+         }
+      }
+   }
+   
+   /** Returns the destination file for the given remote path parameter
+    * of an incoming file transfer on the given connection. The path is
+    * resolved relative to the connection's FILE ROOT DIRECTORY; the
+    * destination is only valid if it falls under this directory.
+    * 
+    * @param connection <code>ConnectionImpl</code> receiving connection
+    * @param path String remote path parameter (may be null)
+    * @return File destination file or null if unavailable
+    */
+   static File resolveDestination (ConnectionImpl connection, String path) {
+      // only valid if connection has a file root path defined
+      File conRootDir = connection.getParameters().getFileRootDir();
+      try {
+         if (path != null & conRootDir != null && conRootDir.isDirectory()) {
+            // create file path for the destination file
+            File test = new File(conRootDir, path).getCanonicalFile();
+
+            // accept remote indicated destination path only if it 
+            // falls under connection's file root directory
+            // (must do this because ".." elements in PATH can lead to irritating results!)
+            if (test.getPath().startsWith(conRootDir.getPath())) {
+               return test;
+            }
+         }
+      } catch (IOException e) {
+         e.printStackTrace();
+      }
+      return null;
+   }
+   
+   /** Copies the reception file to the destination file if possible and
+    * removes the reception file. On success the destination becomes the 
+    * reception file.
+    * 
+    * @return boolean true == destination realised
+    */
+   private boolean realiseDestination () {
+      boolean success = true;
+      
+      // verify destination file and destination drive space
+      if (destination == null || destination.isDirectory() || 
+          connection.getParameters().getFileRootDir().getFreeSpace() < file.length() + 32000
+          ) {
+         // cannot realise destination file (environment reasons)
+         success = false;
+         
+      } else {
+         try {
+            // create destination file (copy from TEMP-file)
+            // an existing file is removed as it may be linked to the content cache
+            destination.getParentFile().mkdirs();
+            destination.delete();
+            FileOutputStream out = new FileOutputStream(destination);
+            InputStream in = null;
+
+            try {
+               in = new FileInputStream(file);
+               Util.transferData(in, out, JennyNet.STREAM_BUFFER_SIZE);
+               if (syncPeriod > -1) {
+                  out.getFD().sync();
+               }
+            } finally {
+               if (in != null) {
+                  in.close();
+               }
+               out.close();
+            }
+
+         // failed creating destination file (IO error)     
+         } catch (Exception e) {
+            success = false;
+            destinationError = e;
+         }
+      }
+      
+      // remove the TEMP file 
+      // re-define file as destination if copy successful
+      if (success && frontier != null) {
+         frontier.relocate(destination);
+      }
+      file.delete();
+      if (success) {
+         file = destination;
+      }
+      return success;
+   }
+   
+   /** Informs the user about file-received or transmission failed.
+    */
+   private void fireFinishEvent (boolean success, long length, long expected, long time) {
       TransmissionEventImpl event = new TransmissionEventImpl(connection, 
             success ? TransmissionEventType.FILE_RECEIVED : TransmissionEventType.FILE_FAILED, 
-            fileID, file, path);
-      event.setTransmissionLength(receivedFileLength);
-      event.setExpectedLength(expectedFileLength);
-      event.setDuration(getDuration());
+            fileID);
+      event.setFile(file);
+      event.setPath(path);
+      event.setChannel(target);
+      event.setDigest(success ? digestValue : null);
+      event.setTransmissionLength(length);
+      event.setExpectedLength(expected);
+      event.setDuration(time);
+      event.setTransferId(transferId);
       
       if (!success) {
     	  event.setInfo(102);
-    	  event.setException(exception);
+    	  event.setException(destinationError);
       }
       connection.fireTransmissionEvent(event);
    }
@@ -297,16 +863,53 @@ class FileAgglomeration extends ParcelAgglomeration {
          System.out.println("   FILE_ABORTED event " + eventInfo);
       }
       
-      // erase reception file
+      // fail a parallel transfer (reports only once to the user)
+      if (assembly != null && !assembly.fail(this)) {
+         eventInfo = 0;
+      }
+      
+      // remove an incompletely written file of a batch
+      if (batch != null) {
+         batch.abort();
+      }
+      
+      // fail streams reading the arriving data
+      if (frontier != null) {
+         frontier.fail(e);
+      }
+      
+      // release the storage channel
+      if (target != null) {
+         try {
+            target.close();
+         } catch (IOException e1) {
+            e1.printStackTrace();
+         }
+      }
+      
+      // erase reception file or retain it for resumption if the 
+      // transfer was interrupted by loss of the connection
+      int retention = connection.getParameters().getTransferRetention();
+      boolean retain = eventInfo == 114 && retention > 0 && transferId != null &&
+                       deltaHeader == null;
       if (fileOutput != null) {
 	  	  synchronized(fileOutput) {
 		      try {
+		         // cut off the allocated remainder of a retained file
+		         if (retain) {
+		            fileOutput.setLength(receivedFileLength);
+		         }
 		         fileOutput.close();
 		         fileOutput = null;
 		      } catch (IOException e1) {
 		         e1.printStackTrace();
+		         retain = false;
+		      }
+		      if (retain) {
+		         PartialFileStore.retain(transferId, file, receivedFileLength, path, retention);
+		      } else {
+		         file.delete();
 		      }
-		      file.delete();
 	  	  }
       }
          
@@ -326,7 +929,9 @@ class FileAgglomeration extends ParcelAgglomeration {
          event.setPath(path);
          event.setFile(file);
          event.setTransmissionLength(receivedFileLength);
-         event.setExpectedLength(expectedFileLength);
+         event.setExpectedLength(stream ? -1 : expectedFileLength);
+         event.setTransferId(transferId);
+         event.setChannel(target);
          connection.fireTransmissionEvent(event);
       }
    }
@@ -0,0 +1,365 @@
+package org.janeth.jennynet.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.janeth.jennynet.util.Util;
+
+/** A batch of files of a directory tree which is transmitted as a single
+ * file transfer (directory transfer). The transmitted data consists of a
+ * manifest, which lists the relative path and length of each file, followed
+ * by the data of all files in manifest order.
+ *
+ * <p>Batch format: int length of the manifest, followed by the manifest
+ * (int number of files, then for each file its relative path in modified
+ * UTF-8 with '/' separators and its long length), followed by the file data.
+ *
+ * <p>The sender reads the files sequentially through <code>openStream()
+ * </code>. The receiver writes the files directly into the destination
+ * directory through an <code>Unpacker</code>, while data arrives.
+ */
+class FileBatch {
+   /** Maximum length of a manifest accepted by the receiver. */
+   public static final int MAX_MANIFEST_LENGTH = 64 * 1024 * 1024;
+
+   private final File directory;
+   private final List<Entry> entries = new ArrayList<Entry>();
+   private final byte[] manifest;  // including length
+   private long length;
+
+   /** Creates a batch of the regular files in the given directory and its
+    * sub-directories. The filter applies to files only; all sub-directories
+    * are included. Symbolic links are not followed and linked files are 
+    * not included.
+    *
+    * @param directory File root directory of the batch
+    * @param filter FileFilter selection of files, may be null for all files
+    * @throws FileNotFoundException if directory is not a readable directory
+    * @throws IOException
+    */
+   public FileBatch (File directory, FileFilter filter) throws IOException {
+      if (directory == null)
+         throw new NullPointerException("directory == null");
+
+      this.directory = directory.getCanonicalFile();
+      if (!this.directory.isDirectory() || !this.directory.canRead())
+         throw new FileNotFoundException("not a readable directory: " + directory);
+
+      collect(this.directory, "", filter);
+      ByteArrayOutputStream bout = new ByteArrayOutputStream(16 + entries.size() * 64);
+      DataOutputStream out = new DataOutputStream(bout);
+      out.writeInt(entries.size());
+      for (Entry e : entries) {
+         out.writeUTF(e.path);
+         out.writeLong(e.length);
+      }
+      byte[] list = bout.toByteArray();
+      manifest = new byte[4 + list.length];
+      Util.writeInt(manifest, 0, list.length);
+      System.arraycopy(list, 0, manifest, 4, list.length);
+      length += manifest.length;
+   }
+
+   private void collect (File dir, String prefix, FileFilter filter) {
+      File[] files = dir.listFiles();
+      if (files == null) return;
+      Arrays.sort(files);
+      for (File f : files) {
+         if (Files.isSymbolicLink(f.toPath())) {
+            continue;
+         }
+         if (f.isDirectory()) {
+            collect(f, prefix + f.getName() + "/", filter);
+         } else if (f.isFile() && (filter == null || filter.accept(f))) {
+            Entry e = new Entry(prefix + f.getName(), f.length());
+            e.file = f;
+            entries.add(e);
+            length += e.length;
+         }
+      }
+   }
+
+   public File getDirectory () {
+      return directory;
+   }
+
+   /** Returns the number of files in this batch.
+    *
+    * @return int
+    */
+   public int getFileCount () {
+      return entries.size();
+   }
+
+   /** Returns the transmission length of this batch (manifest and file
+    * data).
+    *
+    * @return long bytes
+    */
+   public long getLength () {
+      return length;
+   }
+
+   /** Returns a new stream of the batch data. A file whose length has
+    * changed since the batch was created causes an IOException.
+    *
+    * @return InputStream
+    */
+   public InputStream openStream () {
+      return new BatchInputStream();
+   }
+
+   /** Streams the manifest and then the data of all files. */
+   private class BatchInputStream extends InputStream {
+      private InputStream current;
+      private long remaining;
+      private int index = -1;
+      private long position;
+
+      BatchInputStream () {
+         current = new ByteArrayInputStream(manifest);
+         remaining = manifest.length;
+      }
+
+      @Override
+      public int read () throws IOException {
+         byte[] b = new byte[1];
+         return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+      }
+
+      /** Reads data across file boundaries; returns less than the 
+       * requested length only at the end of the batch.
+       */
+      @Override
+      public int read (byte[] b, int off, int len) throws IOException {
+         int done = 0;
+         while (done < len) {
+            if (remaining == 0) {
+               if (!next()) break;
+               continue;
+            }
+            int n = current.read(b, off + done, (int)Math.min(len - done, remaining));
+            if (n < 0)
+               throw new IOException("FILE BATCH: file shortened: " + entries.get(index).file);
+            remaining -= n;
+            done += n;
+         }
+         position += done;
+         return done == 0 && len > 0 ? -1 : done;
+      }
+
+      @Override
+      public int available () {
+         return (int)Math.min(length - position, Integer.MAX_VALUE);
+      }
+
+      /** Opens the next file of the batch. Returns false at the end of
+       * the batch.
+       */
+      private boolean next () throws IOException {
+         current.close();
+         if (index + 1 >= entries.size()) return false;
+
+         Entry e = entries.get(++index);
+         if (e.file.length() != e.length)
+            throw new IOException("FILE BATCH: file modified: " + e.file);
+         current = new FileInputStream(e.file);
+         remaining = e.length;
+         return true;
+      }
+
+      @Override
+      public void close () throws IOException {
+         current.close();
+      }
+   }
+
+   /** Writes the files of received batch data into a destination directory.
+    * Data is fed in arbitrary segments with <code>write()</code>. A file
+    * which already exists in the destination directory is replaced.
+    */
+   static class Unpacker {
+      private final File directory;
+      private final String directoryPath;
+      private final boolean sync;
+      private final byte[] head = new byte[4];
+      private int headLength;
+      private byte[] manifest;
+      private int manifestLength;
+      private List<Entry> entries;
+      private int index;
+      private File current;
+      private FileOutputStream out;
+      private long remaining;
+      private boolean aborted;
+
+      /** Creates a new unpacker for the given destination directory.
+       *
+       * @param directory File destination directory (created if missing)
+       * @param sync boolean whether files are synchronised with the storage
+       *        device when they are complete
+       * @throws IOException
+       */
+      Unpacker (File directory, boolean sync) throws IOException {
+         this.directory = directory.getCanonicalFile();
+         this.sync = sync;
+         directoryPath = this.directory.getPath() + File.separator;
+      }
+
+      /** Writes a segment of batch data.
+       *
+       * @param data byte[] data buffer
+       * @param offset int start offset in data
+       * @param length int length of data
+       * @throws IOException if the data is corrupted or a file cannot be
+       *         written
+       */
+      public synchronized void write (byte[] data, int offset, int length) 
+            throws IOException {
+         if (aborted) return;
+         while (length > 0) {
+            int n;
+            if (manifest == null) {
+               // collect the manifest length
+               n = Math.min(4 - headLength, length);
+               System.arraycopy(data, offset, head, headLength, n);
+               headLength += n;
+               if (headLength == 4) {
+                  int len = Util.readInt(head, 0);
+                  if (len < 4 | len > MAX_MANIFEST_LENGTH)
+                     throw new IOException("FILE BATCH: bad manifest length " + len);
+                  manifest = new byte[len];
+               }
+
+            } else if (entries == null) {
+               // collect the manifest
+               n = Math.min(manifest.length - manifestLength, length);
+               System.arraycopy(data, offset, manifest, manifestLength, n);
+               manifestLength += n;
+               if (manifestLength == manifest.length) {
+                  entries = readManifest(manifest);
+                  manifest = new byte[0];
+                  openNext();
+               }
+
+            } else {
+               // write file data
+               if (out == null)
+                  throw new IOException("FILE BATCH: data exceeds manifest");
+               n = (int)Math.min(remaining, length);
+               out.write(data, offset, n);
+               remaining -= n;
+               if (remaining == 0) {
+                  closeCurrent();
+                  openNext();
+               }
+            }
+            offset += n;
+            length -= n;
+         }
+      }
+
+      /** Verifies that all files of the batch have been written.
+       *
+       * @throws IOException if batch data is incomplete
+       */
+      public synchronized void finish () throws IOException {
+         if (entries == null || out != null || index < entries.size()) {
+            abort();
+            throw new IOException("FILE BATCH: incomplete data");
+         }
+      }
+
+      /** Closes and removes an incompletely written file. Completed files
+       * of the batch remain. Further data is ignored.
+       */
+      public synchronized void abort () {
+         aborted = true;
+         if (out != null) {
+            try {
+               out.close();
+            } catch (IOException e) {
+            }
+            out = null;
+            current.delete();
+         }
+      }
+
+      /** Opens the next file with data, creating empty files on the way. */
+      private void openNext () throws IOException {
+         while (index < entries.size()) {
+            Entry e = entries.get(index++);
+            current = resolve(e.path);
+            current.getParentFile().mkdirs();
+            current.delete();
+            out = new FileOutputStream(current);
+            if (e.length > 0) {
+               remaining = e.length;
+               return;
+            }
+            closeCurrent();
+         }
+      }
+
+      private void closeCurrent () throws IOException {
+         try {
+            if (sync) {
+               out.getFD().sync();
+            }
+         } finally {
+            out.close();
+            out = null;
+         }
+      }
+
+      /** Returns the destination file for a relative manifest path; the
+       * file must fall under the destination directory.
+       */
+      private File resolve (String path) throws IOException {
+         File f = new File(directory, path).getCanonicalFile();
+         if (path.length() == 0 || path.startsWith("/") || !f.getPath().startsWith(directoryPath))
+            throw new IOException("FILE BATCH: illegal path: " + path);
+         return f;
+      }
+
+      private static List<Entry> readManifest (byte[] manifest) throws IOException {
+         DataInputStream in = new DataInputStream(new ByteArrayInputStream(manifest));
+         int count = in.readInt();
+         if (count < 0)
+            throw new IOException("FILE BATCH: bad manifest");
+         List<Entry> list = new ArrayList<Entry>(Math.min(count, 1024));
+         for (int i = 0; i < count; i++) {
+            Entry e = new Entry(in.readUTF(), in.readLong());
+            if (e.length < 0)
+               throw new IOException("FILE BATCH: bad manifest");
+            list.add(e);
+         }
+         return list;
+      }
+   }
+
+   /** A file of the batch manifest. */
+   private static class Entry {
+      final String path;
+      final long length;
+      File file;  // source file (sender only)
+
+      Entry (String path, long length) {
+         this.path = path;
+         this.length = length;
+      }
+   }
+}
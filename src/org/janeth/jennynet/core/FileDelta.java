@@ -0,0 +1,393 @@
+package org.janeth.jennynet.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.janeth.jennynet.util.CRC32;
+
+/** Rsync-style delta encoding of files for the delta file transfer.
+ *
+ * <p>The receiver of a file computes a <i>signature</i> of its existing
+ * version of the file (base file), consisting of a weak rolling checksum and
+ * a strong hash (MD5) for each block of the base file. The sender scans its
+ * version of the file against the signature at every byte position and
+ * encodes a <i>delta</i>: a sequence of COPY instructions, which refer to
+ * blocks of the base file, and LITERAL instructions, which carry data not
+ * found in the base file. The receiver reconstructs the file from the delta
+ * and its base file.
+ *
+ * <p>Delta format: a sequence of instructions, each starting with an
+ * operation byte. 'C' is followed by int block index and int number of
+ * consecutive blocks; 'L' is followed by int length and the literal data;
+ * 'E' terminates the delta.
+ */
+class FileDelta {
+   /** Minimum block size of a signature. */
+   public static final int MIN_BLOCK_SIZE = 2048;
+   /** Maximum block size of a signature. */
+   public static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+   /** Maximum number of blocks of a signature. */
+   public static final int MAX_BLOCKS = 8192;
+
+   private static final int OP_COPY = 'C';
+   private static final int OP_LITERAL = 'L';
+   private static final int OP_END = 'E';
+   private static final int MAX_LITERAL = 64 * 1024;
+   private static final int HASH_SIZE = 16;
+
+   private FileDelta () {
+   }
+
+   /** Returns the signature block size for a base file of the given length.
+    * This is the square root of the length, bounded by <code>MIN_BLOCK_SIZE
+    * </code> and 64 KB, and increased so that there are not more than
+    * <code>MAX_BLOCKS</code> blocks, up to <code>MAX_BLOCK_SIZE</code>.
+    *
+    * @param length long base file length
+    * @return int block size
+    */
+   public static int blockSizeFor (long length) {
+      long size = Math.max(MIN_BLOCK_SIZE, Math.min(65536, (long)Math.sqrt(length)));
+      size = Math.max(size, (length + MAX_BLOCKS - 1) / MAX_BLOCKS);
+      return (int)Math.min(size, MAX_BLOCK_SIZE);
+   }
+
+   /** Computes the serialised signature of the given base file. An empty
+    * array is returned if the file is too large for a signature.
+    *
+    * @param base File base file
+    * @return byte[] serialised signature
+    * @throws IOException
+    */
+   public static byte[] signature (File base) throws IOException {
+      long length = base.length();
+      int blockSize = blockSizeFor(length);
+      long blocks = (length + blockSize - 1) / blockSize;
+      if (blocks > MAX_BLOCKS) {
+         return new byte[0];
+      }
+      int count = (int)blocks;
+      ByteArrayOutputStream bout = new ByteArrayOutputStream(16 + count * (4 + HASH_SIZE));
+      DataOutputStream out = new DataOutputStream(bout);
+      out.writeInt(blockSize);
+      out.writeLong(length);
+      out.writeInt(count);
+
+      MessageDigest md = md5();
+      InputStream in = new BufferedInputStream(new FileInputStream(base), JennyNet.STREAM_BUFFER_SIZE);
+      try {
+         DataInputStream din = new DataInputStream(in);
+         byte[] block = new byte[blockSize];
+         for (int i = 0; i < count; i++) {
+            int len = (int)Math.min(blockSize, length - (long)i * blockSize);
+            din.readFully(block, 0, len);
+            out.writeInt(checksum(block, 0, len));
+            md.update(block, 0, len);
+            out.write(md.digest());
+         }
+      } finally {
+         in.close();
+      }
+      return bout.toByteArray();
+   }
+
+   /** Encodes the delta of the source file against the given signature
+    * and writes it to the output stream.
+    *
+    * @param source File file to encode
+    * @param sig <code>FileDelta.Signature</code> signature of the base file
+    * @param output OutputStream delta sink
+    * @return int CRC32 value of the source file
+    * @throws IOException
+    */
+   public static int encode (File source, Signature sig, OutputStream output) throws IOException {
+      DataOutputStream out = new DataOutputStream(output);
+      Encoder enc = new Encoder(out);
+      int blockSize = sig.blockSize;
+      byte[] buf = new byte[(int)Math.max(4L * blockSize, 1024 * 1024)];
+      MessageDigest md = md5();
+      int crc = 0;
+      int len = 0;      // valid data in buffer
+      int pos = 0;      // start of checksum window
+      int lit = 0;      // start of pending literal data
+      int weak = 0;
+      boolean rolling = false, eof = false;
+
+      InputStream in = new FileInputStream(source);
+      try {
+         while (true) {
+            // ensure a full window is buffered
+            if (pos + blockSize > len && !eof) {
+               System.arraycopy(buf, lit, buf, 0, len - lit);
+               pos -= lit;
+               len -= lit;
+               lit = 0;
+               while (len < buf.length) {
+                  int n = in.read(buf, len, buf.length - len);
+                  if (n < 0) {
+                     eof = true;
+                     break;
+                  }
+                  crc = CRC32.extend(crc, buf, len, n);
+                  len += n;
+               }
+               continue;
+            }
+            if (pos + blockSize > len) break;
+
+            if (!rolling) {
+               weak = checksum(buf, pos, blockSize);
+               rolling = true;
+            }
+            int match = sig.find(weak, buf, pos, blockSize, md);
+            if (match > -1) {
+               enc.literal(buf, lit, pos - lit);
+               enc.copy(match);
+               pos += blockSize;
+               lit = pos;
+               rolling = false;
+            } else {
+               if (pos + blockSize < len) {
+                  weak = roll(weak, buf[pos], buf[pos + blockSize], blockSize);
+               } else {
+                  rolling = false;
+               }
+               pos++;
+               if (pos - lit >= MAX_LITERAL) {
+                  enc.literal(buf, lit, pos - lit);
+                  lit = pos;
+               }
+            }
+         }
+
+         // the tail may match the short last block of the base file
+         int tail = len - pos;
+         int match = tail > 0 ? sig.find(checksum(buf, pos, tail), buf, pos, tail, md) : -1;
+         if (match > -1) {
+            enc.literal(buf, lit, pos - lit);
+            enc.copy(match);
+         } else {
+            enc.literal(buf, lit, len - lit);
+         }
+         enc.finish();
+      } finally {
+         in.close();
+      }
+      return crc;
+   }
+
+   /** Reconstructs a file from the given delta and base file and writes
+    * it to the output stream.
+    *
+    * @param delta InputStream delta source
+    * @param base File base file of the signature
+    * @param blockSize int signature block size
+    * @param output OutputStream sink for the reconstructed file
+    * @return int CRC32 value of the reconstructed file
+    * @throws IOException if the delta is corrupted or refers to data beyond
+    *         the base file
+    */
+   public static int decode (InputStream delta, File base, int blockSize, OutputStream output)
+         throws IOException {
+      DataInputStream in = new DataInputStream(delta);
+      RandomAccessFile raf = new RandomAccessFile(base, "r");
+      byte[] buf = new byte[Math.max(blockSize, 8192)];
+      int crc = 0;
+      try {
+         long baseLength = raf.length();
+         int op;
+         while ((op = in.read()) != OP_END) {
+            if (op == OP_COPY) {
+               long position = (long)in.readInt() * blockSize;
+               long length = (long)in.readInt() * blockSize;
+               length = Math.min(length, baseLength - position);
+               if (position < 0 | length <= 0)
+                  throw new IOException("delta refers beyond base file");
+               raf.seek(position);
+               while (length > 0) {
+                  int n = (int)Math.min(buf.length, length);
+                  raf.readFully(buf, 0, n);
+                  output.write(buf, 0, n);
+                  crc = CRC32.extend(crc, buf, 0, n);
+                  length -= n;
+               }
+
+            } else if (op == OP_LITERAL) {
+               int length = in.readInt();
+               while (length > 0) {
+                  int n = Math.min(buf.length, length);
+                  in.readFully(buf, 0, n);
+                  output.write(buf, 0, n);
+                  crc = CRC32.extend(crc, buf, 0, n);
+                  length -= n;
+               }
+
+            } else if (op == -1) {
+               throw new EOFException("unterminated delta");
+            } else {
+               throw new IOException("bad delta instruction: " + op);
+            }
+         }
+      } finally {
+         raf.close();
+      }
+      return crc;
+   }
+
+   /** Returns the weak checksum of a data block (rsync rolling checksum).
+    */
+   static int checksum (byte[] data, int start, int length) {
+      int a = 0, b = 0;
+      for (int i = 0; i < length; i++) {
+         int x = data[start + i] & 0xFF;
+         a += x;
+         b += (length - i) * x;
+      }
+      return (a & 0xFFFF) | (b << 16);
+   }
+
+   /** Rolls the weak checksum of a window by one byte.
+    */
+   static int roll (int weak, byte out, byte in, int length) {
+      int a = weak & 0xFFFF;
+      int b = weak >>> 16;
+      a = (a - (out & 0xFF) + (in & 0xFF)) & 0xFFFF;
+      b = (b - length * (out & 0xFF) + a) & 0xFFFF;
+      return a | (b << 16);
+   }
+
+   private static MessageDigest md5 () {
+      try {
+         return MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException("MD5 unavailable", e);
+      }
+   }
+
+   /** The signature of a base file, indexed by weak checksum. */
+   static class Signature {
+      final int blockSize;
+      final long length;
+      private final int[] weak;
+      private final byte[][] strong;
+      private final Map<Integer, List<Integer>> index = new HashMap<Integer, List<Integer>>();
+      private byte[] windowHash;
+
+      /** Reads a signature from its serialisation.
+       *
+       * @param data byte[] serialised signature
+       * @throws IOException if the data is corrupted
+       */
+      Signature (byte[] data) throws IOException {
+         DataInputStream in = new DataInputStream(new java.io.ByteArrayInputStream(data));
+         blockSize = in.readInt();
+         length = in.readLong();
+         int count = in.readInt();
+         if (length < 0 | count < 0 | count > MAX_BLOCKS + 1 || 
+             blockSize < MIN_BLOCK_SIZE || blockSize > blockSizeFor(length) ||
+             (long)count * blockSize < length)
+            throw new IOException("bad delta signature");
+
+         weak = new int[count];
+         strong = new byte[count][HASH_SIZE];
+         for (int i = 0; i < count; i++) {
+            weak[i] = in.readInt();
+            in.readFully(strong[i]);
+            List<Integer> list = index.get(weak[i]);
+            if (list == null) {
+               list = new ArrayList<Integer>(1);
+               index.put(weak[i], list);
+            }
+            list.add(i);
+         }
+      }
+
+      public int getBlockCount () {
+         return weak.length;
+      }
+
+      /** Returns the index of a block of the base file which equals the
+       * given window, or -1 if there is none.
+       */
+      int find (int checksum, byte[] data, int start, int length, MessageDigest md) {
+         List<Integer> list = index.get(checksum);
+         if (list == null) return -1;
+
+         windowHash = null;
+         for (Integer i : list) {
+            if (blockLength(i) != length) continue;
+            if (windowHash == null) {
+               md.update(data, start, length);
+               windowHash = md.digest();
+            }
+            if (Arrays.equals(windowHash, strong[i])) {
+               return i;
+            }
+         }
+         return -1;
+      }
+
+      private int blockLength (int i) {
+         return (int)Math.min(blockSize, length - (long)i * blockSize);
+      }
+   }
+
+   /** Writes delta instructions, merging consecutive block copies. */
+   private static class Encoder {
+      private final DataOutputStream out;
+      private int copyStart = -1, copyCount;
+
+      Encoder (DataOutputStream out) {
+         this.out = out;
+      }
+
+      void copy (int block) throws IOException {
+         if (copyStart > -1 && copyStart + copyCount == block) {
+            copyCount++;
+            return;
+         }
+         flushCopy();
+         copyStart = block;
+         copyCount = 1;
+      }
+
+      void literal (byte[] data, int start, int length) throws IOException {
+         if (length == 0) return;
+         flushCopy();
+         out.write(OP_LITERAL);
+         out.writeInt(length);
+         out.write(data, start, length);
+      }
+
+      void finish () throws IOException {
+         flushCopy();
+         out.write(OP_END);
+         out.flush();
+      }
+
+      private void flushCopy () throws IOException {
+         if (copyStart > -1) {
+            out.write(OP_COPY);
+            out.writeInt(copyStart);
+            out.writeInt(copyCount);
+            copyStart = -1;
+         }
+      }
+   }
+}
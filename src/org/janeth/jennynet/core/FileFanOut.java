@@ -0,0 +1,210 @@
+package org.janeth.jennynet.core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.janeth.jennynet.util.CRC32;
+import org.janeth.jennynet.util.WorkerThreads;
+
+/** A shared source of file data for the transmission of a single file to
+ * a set of connections with equal parcel size. A single reader thread reads
+ * the file once and makes its data segments (chunks) available to all
+ * attached consumers (file send processors) through a ring of recent chunks.
+ *
+ * <p>The reader stays at most <code>LAG_WINDOW</code> chunks ahead of the
+ * slowest attached consumer. If a consumer lags beyond this window for more
+ * than <code>LAG_TIMEOUT</code> milliseconds, it is detached and has to
+ * continue by reading the file itself. A detached consumer receives null
+ * from <code>take()</code>.
+ */
+class FileFanOut implements Runnable {
+   /** Number of chunks kept available for consumers. */
+   public static final int LAG_WINDOW = 32;
+   /** Maximum time in milliseconds the reader waits for a lagging consumer. */
+   public static final int LAG_TIMEOUT = 2000;
+
+   private final File file;
+   private final int parcelSize;
+   private final long fileLength;
+   private final int nrOfParcels;
+   private final Chunk[] ring = new Chunk[LAG_WINDOW];
+   private final Map<Object, Integer> positions = new HashMap<Object, Integer>();
+   private int head = -1;
+   private boolean failed;
+
+   /** Creates a new file fan-out for the given file and parcel size.
+    *
+    * @param file File file to transmit
+    * @param parcelSize int data size of a transmission parcel
+    * @throws IOException if the file path cannot be verified
+    */
+   public FileFanOut (File file, int parcelSize) throws IOException {
+      this.file = file.getCanonicalFile();
+      this.parcelSize = parcelSize;
+      fileLength = this.file.length();
+      long n = fileLength / parcelSize;
+      if (fileLength % parcelSize > 0) {
+         n++;
+      }
+      nrOfParcels = (int)Math.max(1, Math.min(n, Integer.MAX_VALUE));
+   }
+
+   public File getFile () {
+      return file;
+   }
+
+   public int getParcelSize () {
+      return parcelSize;
+   }
+
+   /** Attaches a consumer to this source. Consumers must be attached
+    * before the source is started.
+    *
+    * @param consumer Object consumer identity
+    */
+   public synchronized void attach (Object consumer) {
+      positions.put(consumer, 0);
+   }
+
+   /** Detaches a consumer from this source, e.g. when its transfer is
+    * cancelled.
+    *
+    * @param consumer Object consumer identity
+    */
+   public synchronized void release (Object consumer) {
+      if (positions.remove(consumer) != null) {
+         notifyAll();
+      }
+   }
+
+   /** Whether there are consumers attached to this source.
+    *
+    * @return boolean
+    */
+   public synchronized boolean hasConsumers () {
+      return !positions.isEmpty();
+   }
+
+   /** Starts the reader thread of this source.
+    */
+   public void start () {
+      Thread t = WorkerThreads.create("File Fan-Out ".concat(file.getName()), this,
+            JennyNet.isVirtualThreads(),
+            Math.max(JennyNet.getBaseThreadPriority()-2, Thread.MIN_PRIORITY));
+      t.start();
+   }
+
+   /** Returns the chunk with the given parcel number for the given consumer,
+    * blocking until it is available. Consumers must take chunks in
+    * sequence. Returns null if the consumer is detached from this source,
+    * in which case it has to read the file itself.
+    *
+    * @param consumer Object consumer identity
+    * @param parcelNr int parcel number
+    * @return <code>Chunk</code> or null
+    * @throws InterruptedException
+    */
+   public synchronized Chunk take (Object consumer, int parcelNr) throws InterruptedException {
+      while (head < parcelNr && !failed && positions.containsKey(consumer)) {
+         wait();
+      }
+      if (failed || !positions.containsKey(consumer) || parcelNr <= head - LAG_WINDOW) {
+         release(consumer);
+         return null;
+      }
+
+      Chunk chunk = ring[parcelNr % LAG_WINDOW];
+      if (parcelNr + 1 < nrOfParcels) {
+         positions.put(consumer, parcelNr + 1);
+      } else {
+         positions.remove(consumer);
+      }
+      notifyAll();
+      return chunk;
+   }
+
+   @Override
+   public void run () {
+      DataInputStream in = null;
+      try {
+         in = new DataInputStream(new BufferedInputStream(
+               new FileInputStream(file), JennyNet.STREAM_BUFFER_SIZE));
+
+         for (int n = 0; n < nrOfParcels; n++) {
+            // read next chunk from file
+            int length = (int)Math.max(0, Math.min(parcelSize, fileLength - (long)n * parcelSize));
+            byte[] data = new byte[length];
+            in.readFully(data);
+            Chunk chunk = new Chunk(data, CRC32.extend(0, data, 0, length));
+
+            synchronized (this) {
+               // wait for slow consumers within the lag window
+               long deadline = System.currentTimeMillis() + LAG_TIMEOUT;
+               while (!positions.isEmpty() && n - minPosition() >= LAG_WINDOW) {
+                  long time = deadline - System.currentTimeMillis();
+                  if (time <= 0) {
+                     detachLaggards(n);
+                     break;
+                  }
+                  wait(time);
+               }
+               if (positions.isEmpty()) break;
+
+               // publish chunk
+               ring[n % LAG_WINDOW] = chunk;
+               head = n;
+               notifyAll();
+            }
+         }
+      } catch (Exception e) {
+         e.printStackTrace();
+         synchronized (this) {
+            failed = true;
+            notifyAll();
+         }
+      } finally {
+         if (in != null) {
+            try { in.close(); }
+            catch (IOException e) {
+            }
+         }
+      }
+   }
+
+   private int minPosition () {
+      int min = Integer.MAX_VALUE;
+      for (Integer pos : positions.values()) {
+         min = Math.min(min, pos);
+      }
+      return min;
+   }
+
+   /** Detaches all consumers which would lose data by storing the given
+    * chunk number.
+    */
+   private void detachLaggards (int n) {
+      for (Iterator<Integer> it = positions.values().iterator(); it.hasNext();) {
+         if (n - it.next() >= LAG_WINDOW) {
+            it.remove();
+         }
+      }
+      notifyAll();
+   }
+
+   /** An immutable data segment of the file together with its CRC value. */
+   static class Chunk {
+      final byte[] data;
+      final int crc;
+
+      Chunk (byte[] data, int crc) {
+         this.data = data;
+         this.crc = crc;
+      }
+   }
+}
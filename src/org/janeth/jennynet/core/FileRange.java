@@ -0,0 +1,107 @@
+package org.janeth.jennynet.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+/** Describes a byte range of a file which is transmitted as part of a
+ * parallel file transfer. A parallel transfer splits a single file into
+ * ranges which are sent concurrently as separate file transmissions,
+ * usually over different connections. All ranges of a transfer share the
+ * same transfer identifier and are assembled into a single file by the
+ * receiver. Package internal only.
+ *
+ * <p>The serialisation size of this class is 48 bytes.
+ */
+class FileRange {
+   /** Serialisation size of a file range in bytes. */
+   public static final int SERIAL_SIZE = 48;
+
+   private final UUID transferId;
+   private final long fileLength;
+   private final long offset;
+   private final long length;
+   private final int index;
+   private final int count;
+
+   /** Creates a new file range.
+    *
+    * @param transferId UUID identifier of the parallel transfer
+    * @param fileLength long total length of the file
+    * @param offset long file position of the range
+    * @param length long length of the range
+    * @param index int number of the range (0 .. count-1)
+    * @param count int number of ranges of the transfer
+    * @throws IllegalArgumentException if values are out of bounds
+    */
+   public FileRange (UUID transferId, long fileLength, long offset, long length,
+                     int index, int count) {
+      if (transferId == null)
+         throw new NullPointerException("transferId == null");
+      if (offset < 0 | length < 0 | offset + length > fileLength | count < 1 |
+          index < 0 | index >= count)
+         throw new IllegalArgumentException("illegal file range");
+
+      this.transferId = transferId;
+      this.fileLength = fileLength;
+      this.offset = offset;
+      this.length = length;
+      this.index = index;
+      this.count = count;
+   }
+
+   public UUID getTransferId () {
+      return transferId;
+   }
+
+   public long getFileLength () {
+      return fileLength;
+   }
+
+   public long getOffset () {
+      return offset;
+   }
+
+   public long getLength () {
+      return length;
+   }
+
+   public int getIndex () {
+      return index;
+   }
+
+   public int getCount () {
+      return count;
+   }
+
+   public void writeObject (DataOutputStream out) throws IOException {
+      out.writeLong(transferId.getMostSignificantBits());
+      out.writeLong(transferId.getLeastSignificantBits());
+      out.writeLong(fileLength);
+      out.writeLong(offset);
+      out.writeLong(length);
+      out.writeInt(index);
+      out.writeInt(count);
+   }
+
+   public static FileRange readObject (DataInputStream in) throws IOException {
+      UUID id = new UUID(in.readLong(), in.readLong());
+      long fileLength = in.readLong();
+      long offset = in.readLong();
+      long length = in.readLong();
+      int index = in.readInt();
+      int count = in.readInt();
+      try {
+         return new FileRange(id, fileLength, offset, length, index, count);
+      } catch (IllegalArgumentException e) {
+         throw new IOException("bad file range header");
+      }
+   }
+
+   @Override
+   public String toString () {
+      return "range " + index + "/" + count + " of " + transferId + " (" + offset
+            + ", " + length + ")";
+   }
+}
@@ -0,0 +1,281 @@
+package org.janeth.jennynet.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.janeth.jennynet.exception.InsufficientFileSpaceException;
+import org.janeth.jennynet.exception.ParcelProtocolErrorException;
+import org.janeth.jennynet.util.Util;
+import org.janeth.jennynet.util.WheelTimerTask;
+
+/** The reception file of a parallel file transfer which is shared by the
+ * file agglomerations of all ranges of the transfer. Ranges may arrive
+ * over different connections of this JVM; they are identified by their
+ * common transfer identifier. Range data is written positionally into a
+ * TEMP file which is allocated to the full file length. Completion of the
+ * transfer is tracked by a bitmap of completed ranges.
+ *
+ * <p>If a single range fails, the entire transfer fails and all other
+ * participating file agglomerations are dropped. An assembly which has no
+ * participating agglomeration for the EXPIRY time (a multiple of the
+ * CONFIRM_TIMEOUT of the connection which created it) is discarded; this
+ * is the case when a range is never started by the sender.
+ */
+class FileRangeAssembly {
+
+   private static final Map<UUID, FileRangeAssembly> assemblies =
+         new HashMap<UUID, FileRangeAssembly>();
+   private static final int EXPIRY_FACTOR = 6;
+
+   private final UUID transferId;
+   private final long fileLength;
+   private final int rangeCount;
+   private final File file;
+   private final RandomAccessFile raf;
+   private final FileChannel channel;
+   private final BitSet completed;
+   private final BitSet attached;
+   private final List<FileAgglomeration> participants = new ArrayList<FileAgglomeration>();
+   private final long startTime = System.currentTimeMillis();
+   private final int expiryTime;
+   private WheelTimerTask expiry;
+   private long duration;
+   private boolean announced, finished, failed;
+
+   private FileRangeAssembly (ConnectionImpl connection, FileRange range) throws IOException {
+      transferId = range.getTransferId();
+      fileLength = range.getFileLength();
+      rangeCount = range.getCount();
+      if (rangeCount > fileLength / JennyNet.MIN_TRANSMISSION_PARCEL_SIZE + 1) {
+         throw new ParcelProtocolErrorException("FILE RANGE count out of bounds: " + range);
+      }
+      completed = new BitSet(rangeCount);
+      attached = new BitSet(rangeCount);
+      expiryTime = connection.getParameters().getConfirmTimeout() * EXPIRY_FACTOR;
+
+      // create operational output file (temporary)
+      file = Util.getTempFile(connection.getParameters().getTempDirectory());
+
+      // verify storage space
+      if (file.getFreeSpace() < fileLength + 32000) {
+         file.delete();
+         throw new InsufficientFileSpaceException("demanded bytes: " + fileLength +
+               " on " + file.getParent());
+      }
+
+      raf = new RandomAccessFile(file, "rw");
+      try {
+         raf.setLength(fileLength);
+      } catch (IOException e) {
+         raf.close();
+         file.delete();
+         throw e;
+      }
+      channel = raf.getChannel();
+   }
+
+   /** Returns the assembly for the transfer of the given file range and
+    * registers the given agglomeration as participant. The assembly is
+    * created if it does not exist.
+    *
+    * @param agglom <code>FileAgglomeration</code> receptor of the range
+    * @param connection <code>ConnectionImpl</code> receiving connection
+    * @param range <code>FileRange</code>
+    * @return <code>FileRangeAssembly</code>
+    * @throws ParcelProtocolErrorException if the range does not match
+    *         the transfer
+    * @throws IOException if the reception file cannot be allocated
+    */
+   public static FileRangeAssembly obtain (FileAgglomeration agglom, ConnectionImpl connection,
+                                           FileRange range) throws IOException {
+      synchronized (assemblies) {
+         FileRangeAssembly assembly = assemblies.get(range.getTransferId());
+         if (assembly == null) {
+            assembly = new FileRangeAssembly(connection, range);
+            assemblies.put(assembly.transferId, assembly);
+         }
+         assembly.attach(agglom, range);
+         return assembly;
+      }
+   }
+
+   private synchronized void attach (FileAgglomeration agglom, FileRange range)
+         throws ParcelProtocolErrorException {
+      if (range.getFileLength() != fileLength | range.getCount() != rangeCount ||
+          completed.get(range.getIndex()) || attached.get(range.getIndex())) {
+         throw new ParcelProtocolErrorException("FILE RANGE mismatch: " + range);
+      }
+      attached.set(range.getIndex());
+      participants.add(agglom);
+      scheduleExpiry();
+   }
+
+   /** Schedules the expiry of this assembly, replacing a previous schedule.
+    * To be called in synchronisation on this assembly. 
+    */
+   private void scheduleExpiry () {
+      if (expiry != null) {
+         expiry.cancel();
+      }
+      expiry = new WheelTimerTask() {
+         @Override
+         public void run () {
+            expire(this);
+         }
+      };
+      JennyNet.getTimer().schedule(expiry, expiryTime);
+   }
+
+   /** Discards this assembly if the given expiry task is current and the
+    * assembly has no participants. Otherwise the expiry is rescheduled if
+    * the assembly is still active.
+    * 
+    * @param task <code>WheelTimerTask</code> expiring task
+    */
+   private void expire (WheelTimerTask task) {
+      synchronized (this) {
+         if (task != expiry | failed | finished) return;
+         if (!participants.isEmpty()) {
+            scheduleExpiry();
+            return;
+         }
+         failed = true;
+         expiry = null;
+      }
+
+      remove();
+      try {
+         raf.close();
+      } catch (IOException e) {
+         e.printStackTrace();
+      }
+      file.delete();
+   }
+
+   /** Returns true exactly once for the transfer, to the agglomeration
+    * which shall report the incoming file to the user.
+    *
+    * @return boolean
+    */
+   public synchronized boolean announce () {
+      boolean first = !announced;
+      announced = true;
+      return first;
+   }
+
+   /** Writes a segment of file data at the given file position.
+    *
+    * @param position long file position
+    * @param data byte[] data segment
+    * @throws IOException
+    */
+   public void write (long position, byte[] data) throws IOException {
+      if (position + data.length > fileLength)
+         throw new ParcelProtocolErrorException("FILE RANGE data beyond file length");
+
+      ByteBuffer buf = ByteBuffer.wrap(data);
+      while (buf.hasRemaining()) {
+         position += channel.write(buf, position);
+      }
+   }
+
+   /** Marks the given range as completed. Returns true if the transfer is
+    * complete after this call, in which case the reception file is closed
+    * and the caller is responsible for it.
+    *
+    * @param agglom <code>FileAgglomeration</code> receptor of the range
+    * @param index int range number
+    * @param sync boolean whether a completed file is synchronised with the
+    *        storage device
+    * @return boolean true == transfer complete
+    * @throws IOException if the transfer has failed
+    */
+   public boolean rangeCompleted (FileAgglomeration agglom, int index, boolean sync) 
+         throws IOException {
+      synchronized (this) {
+         if (failed)
+            throw new IOException("parallel file transfer failed: " + transferId);
+
+         participants.remove(agglom);
+         attached.clear(index);
+         completed.set(index);
+         if (completed.cardinality() < rangeCount) {
+            scheduleExpiry();
+            return false;
+         }
+         finished = true;
+         expiry.cancel();
+         duration = System.currentTimeMillis() - startTime;
+      }
+
+      remove();
+      if (sync) {
+         channel.force(true);
+      }
+      raf.close();
+      return true;
+   }
+
+   /** Fails the transfer for the given agglomeration. The reception file is
+    * deleted and all other participating agglomerations are dropped with a
+    * BREAK signal to remote. Returns true only for the first call on an
+    * active assembly.
+    *
+    * @param agglom <code>FileAgglomeration</code> failing receptor
+    * @return boolean true == assembly failed by this call
+    */
+   public boolean fail (FileAgglomeration agglom) {
+      FileAgglomeration[] others;
+      synchronized (this) {
+         if (failed | finished) return false;
+         failed = true;
+         duration = System.currentTimeMillis() - startTime;
+         if (expiry != null) {
+            expiry.cancel();
+         }
+         participants.remove(agglom);
+         others = participants.toArray(new FileAgglomeration[participants.size()]);
+         participants.clear();
+      }
+
+      remove();
+      try {
+         raf.close();
+      } catch (IOException e) {
+         e.printStackTrace();
+      }
+      file.delete();
+
+      for (FileAgglomeration agg : others) {
+         agg.dropTransfer(0, 1, new IOException("parallel file transfer failed: " + transferId));
+      }
+      return true;
+   }
+
+   private void remove () {
+      synchronized (assemblies) {
+         assemblies.remove(transferId);
+      }
+   }
+
+   public File getFile () {
+      return file;
+   }
+
+   public long getFileLength () {
+      return fileLength;
+   }
+
+   public long getDuration () {
+      return duration;
+   }
+}
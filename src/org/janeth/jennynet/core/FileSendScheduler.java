@@ -0,0 +1,114 @@
+package org.janeth.jennynet.core;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.janeth.jennynet.intfa.Connection;
+
+/** Schedules the outgoing file transfers of a connection. Not more than
+ * FILE_SEND_CONCURRENCY transfers of the connection are active at a time;
+ * further transfers wait in a queue and are started, in the order of their
+ * send priority and then of their order numbers, when an active transfer
+ * has queued its last parcel or is cancelled.
+ */
+class FileSendScheduler {
+
+   /** A file transfer which is controlled by the scheduler. */
+   interface Transfer {
+
+      /** Returns the send priority of the transfer. */
+      SendPriority getPriority ();
+
+      /** Returns the order number (file ID) of the transfer. */
+      long getFileID ();
+
+      /** Starts the transfer. */
+      void start ();
+   }
+
+   private static final Comparator<Transfer> ORDER = new Comparator<Transfer>() {
+      @Override
+      public int compare (Transfer t1, Transfer t2) {
+         int p1 = t1.getPriority().ordinal(), p2 = t2.getPriority().ordinal();
+         if (p1 != p2) return p1 > p2 ? -1 : 1;
+         long id1 = t1.getFileID(), id2 = t2.getFileID();
+         return id1 < id2 ? -1 : id1 > id2 ? 1 : 0;
+      }
+   };
+
+   private final Connection connection;
+   private final PriorityQueue<Transfer> waiting = new PriorityQueue<Transfer>(16, ORDER);
+   private final Set<Transfer> active = new HashSet<Transfer>();
+   private boolean shutdown;
+
+   /** Creates a new scheduler which obtains its concurrency limit from the
+    * parameters of the given connection.
+    *
+    * @param connection <code>Connection</code>
+    */
+   public FileSendScheduler (Connection connection) {
+      this.connection = connection;
+   }
+
+   /** Orders the given transfer. The transfer is started immediately if the
+    * concurrency limit allows, otherwise it is queued.
+    *
+    * @param transfer <code>FileSendScheduler.Transfer</code>
+    */
+   public void submit (Transfer transfer) {
+      synchronized (this) {
+         if (shutdown) return;
+         if (active.size() >= limit()) {
+            waiting.add(transfer);
+            return;
+         }
+         active.add(transfer);
+      }
+      transfer.start();
+   }
+
+   /** Removes the given transfer from the scheduler, whether active or
+    * waiting, and starts the next waiting transfer if there is room.
+    * Repeated calls are without effect.
+    *
+    * @param transfer <code>FileSendScheduler.Transfer</code>
+    */
+   public void finished (Transfer transfer) {
+      Transfer next;
+      synchronized (this) {
+         if (waiting.remove(transfer) || !active.remove(transfer)) return;
+         if (shutdown || waiting.isEmpty() ||
+             active.size() >= limit()) return;
+         next = waiting.poll();
+         active.add(next);
+      }
+      next.start();
+   }
+
+   private int limit () {
+      return connection.getParameters().getFileSendConcurrency();
+   }
+
+   /** Terminates scheduling; waiting transfers are no longer started. */
+   public synchronized void shutdown () {
+      shutdown = true;
+   }
+
+   /** Returns the number of active transfers.
+    *
+    * @return int
+    */
+   public synchronized int getActiveCount () {
+      return active.size();
+   }
+
+   /** Returns the number of transfers waiting to be started.
+    *
+    * @return int
+    */
+   public synchronized int getWaitingCount () {
+      return waiting.size();
+   }
+}
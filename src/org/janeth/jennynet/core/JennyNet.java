@@ -12,9 +12,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.Vector;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.janeth.jennynet.exception.ConnectionRejectedException;
 import org.janeth.jennynet.exception.ConnectionTimeoutException;
@@ -23,8 +27,11 @@ import org.janeth.jennynet.intfa.Connection;
 import org.janeth.jennynet.intfa.ConnectionParameters;
 import org.janeth.jennynet.intfa.IClient;
 import org.janeth.jennynet.intfa.IServer;
+import org.janeth.jennynet.intfa.ReceiveStorage;
 import org.janeth.jennynet.intfa.Serialization;
 import org.janeth.jennynet.util.Util;
+import org.janeth.jennynet.util.WheelTimer;
+import org.janeth.jennynet.util.WheelTimerTask;
 
 /** Class for global settings of the JennyNet networking service.
  * 
@@ -57,12 +64,54 @@ public class JennyNet {
    public static final int DEFAULT_CONFIRM_TIMEOUT = 10000; 
    public static final int DEFAULT_IDLE_CHECK_PERIOD = 60000; 
    public static final int DEFAULT_TRANSMISSION_TEMPO = -1; 
+   /** Default retention time of partial files of interrupted incoming 
+    * file transfers (0 = no retention). */
+   public static final int DEFAULT_TRANSFER_RETENTION = 0; 
+   /** Default setting whether outgoing file transfers carry a transfer ID
+    * which allows their resumption. */
+   public static final boolean DEFAULT_RESUMABLE_TRANSFERS = false; 
+   /** Default setting whether outgoing file transfers announce their
+    * content hash to remote (content cache). */
+   public static final boolean DEFAULT_DEDUPLICATION = false; 
+   /** Default durability policy of incoming files (-1 = no synchronisation). */
+   public static final int DEFAULT_FILE_SYNC_PERIOD = -1; 
+   /** Default maximum number of active outgoing file transfers per connection. */
+   public static final int DEFAULT_FILE_SEND_CONCURRENCY = 4; 
+   /** Default setting for integrity digests of outgoing file transfers. */
+   public static final boolean DEFAULT_FILE_DIGEST = false; 
+   /** Default setting for zero block elision of outgoing file transfers. */
+   public static final boolean DEFAULT_SPARSE_TRANSFER = false; 
+   /** Default number of threads of the shared event dispatch pool. */
+   public static final int DEFAULT_DISPATCH_THREADS = 
+         Math.max(4, 2 * Runtime.getRuntime().availableProcessors()); 
+   /** Default number of threads of the shared file writer pool. */
+   public static final int DEFAULT_FILE_WRITER_THREADS = 
+         Math.max(2, Runtime.getRuntime().availableProcessors()); 
+   /** Default maximum of data bytes of incoming file parcels which are 
+    * buffered for writing, summed over all connections. */
+   public static final long DEFAULT_FILE_BUFFER_LIMIT = 64 * 1024 * 1024; 
+   /** Default length of the incoming connection queue of server sockets. */
+   public static final int DEFAULT_SOCKET_BACKLOG = 128; 
+   /** Default number of handshake threads of a server. */
+   public static final int DEFAULT_HANDSHAKE_THREADS = 
+         Math.max(8, 4 * Runtime.getRuntime().availableProcessors()); 
    
    // global structures
    private static Vector<IClient> globalClientList = new Vector<>(16, 32);
    private static Vector<IServer> globalServerList = new Vector<>(16, 32);
    private static Serialization globalSerialisation = new KryoSerialisation();
    private static Charset defaultCodingCharset;
+   private static WheelTimer timer = new WheelTimer("JennyNet Timer", 10, 512, 
+         Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+   private static ThreadPoolExecutor dispatchExecutor;
+   private static int dispatchThreads = DEFAULT_DISPATCH_THREADS;
+   private static ThreadPoolExecutor fileWriterExecutor;
+   private static int fileWriterThreads = DEFAULT_FILE_WRITER_THREADS;
+   private static ThreadPoolExecutor fileLookupExecutor;
+   private static long fileBufferLimit = DEFAULT_FILE_BUFFER_LIMIT;
+   private static int socketBacklog = DEFAULT_SOCKET_BACKLOG;
+   private static ContentCache contentCache;
+   private static volatile boolean jmxEnabled;
 
    /** The layer parameters in a shell. Carries default values if not modified by
     * the application. */
@@ -407,6 +456,217 @@ public class JennyNet {
       parameters.setConfirmTimeout(timeout);
    }
 
+   /** Returns the number of threads of the shared event dispatch pool.
+    * This pool delivers received objects and other connection events to
+    * the listeners of all connections; events of a single connection 
+    * are always delivered one at a time and in their order of occurrence.
+    * Defaults to twice the number of available processors (minimum 4).
+    * 
+    * @return int maximum number of dispatch threads
+    */
+   public static int getDispatchThreads () {
+      return dispatchThreads;
+   }
+
+   /** Sets the number of threads of the shared event dispatch pool.
+    * This pool delivers received objects and other connection events to
+    * the listeners of all connections. Idle threads of the pool terminate
+    * after a while and are re-created on demand.
+    * <p><small>Listeners which block for long times occupy a thread of this
+    * pool. Applications with blocking listener code should increase
+    * this value accordingly.</small>
+    * 
+    * @param threads int maximum number of dispatch threads (minimum 1)
+    * @throws IllegalArgumentException if value is below 1
+    */
+   public static synchronized void setDispatchThreads (int threads) {
+      if (threads < 1)
+         throw new IllegalArgumentException("illegal thread number; minimum = 1");
+      
+      dispatchThreads = threads;
+      if (dispatchExecutor != null) {
+         if (threads > dispatchExecutor.getMaximumPoolSize()) {
+            dispatchExecutor.setMaximumPoolSize(threads);
+            dispatchExecutor.setCorePoolSize(threads);
+         } else {
+            dispatchExecutor.setCorePoolSize(threads);
+            dispatchExecutor.setMaximumPoolSize(threads);
+         }
+      }
+   }
+   
+   /** Returns the number of threads of the shared file writer pool.
+    * This pool writes the data of incoming file transmissions of all
+    * connections to disk; the parcels of a single file are always 
+    * written one at a time and in their order of reception.
+    * Defaults to the number of available processors (minimum 2).
+    * 
+    * @return int maximum number of file writer threads
+    */
+   public static int getFileWriterThreads () {
+      return fileWriterThreads;
+   }
+
+   /** Sets the number of threads of the shared file writer pool.
+    * This pool writes the data of incoming file transmissions of all
+    * connections to disk. Idle threads of the pool terminate after a 
+    * while and are re-created on demand.
+    * 
+    * @param threads int maximum number of file writer threads (minimum 1)
+    * @throws IllegalArgumentException if value is below 1
+    */
+   public static synchronized void setFileWriterThreads (int threads) {
+      if (threads < 1)
+         throw new IllegalArgumentException("illegal thread number; minimum = 1");
+      
+      fileWriterThreads = threads;
+      if (fileWriterExecutor != null) {
+         if (threads > fileWriterExecutor.getMaximumPoolSize()) {
+            fileWriterExecutor.setMaximumPoolSize(threads);
+            fileWriterExecutor.setCorePoolSize(threads);
+         } else {
+            fileWriterExecutor.setCorePoolSize(threads);
+            fileWriterExecutor.setMaximumPoolSize(threads);
+         }
+      }
+   }
+   
+   /** Returns the maximum amount of data of incoming file parcels which 
+    * is buffered for writing to disk, summed over all connections of this
+    * layer. Defaults to 64 MB.
+    * 
+    * @return long maximum bytes
+    */
+   public static long getFileBufferLimit () {
+      return fileBufferLimit;
+   }
+
+   /** Sets the maximum amount of data of incoming file parcels which is
+    * buffered for writing to disk, summed over all connections of this
+    * layer. When the limit is reached, connections stop reading from
+    * their sockets until buffered data has been written.
+    * 
+    * @param limit long maximum bytes (minimum 1 parcel, i.e. 
+    *        MAX_TRANSMISSION_PARCEL_SIZE)
+    * @throws IllegalArgumentException if value is below 
+    *         MAX_TRANSMISSION_PARCEL_SIZE
+    */
+   public static void setFileBufferLimit (long limit) {
+      if (limit < MAX_TRANSMISSION_PARCEL_SIZE)
+         throw new IllegalArgumentException("illegal buffer limit; minimum = " 
+               + MAX_TRANSMISSION_PARCEL_SIZE);
+      
+      fileBufferLimit = limit;
+      ParcelAgglomeration.limitChanged();
+   }
+   
+   /** Returns the default length of the incoming connection queue 
+    * (backlog) of server sockets. Defaults to 128.
+    * 
+    * @return int socket backlog
+    */
+   public static int getSocketBacklog () {
+      return socketBacklog;
+   }
+
+   /** Sets the default length of the incoming connection queue (backlog)
+    * of server sockets. This setting becomes active for servers which are
+    * bound <u>after</u> it is given.
+    * <p><small>The operating system may limit the effective value.</small>
+    * 
+    * @param backlog int socket backlog (minimum 1)
+    * @throws IllegalArgumentException if value is below 1
+    * @see IServer#setSocketBacklog(int)
+    */
+   public static void setSocketBacklog (int backlog) {
+      if (backlog < 1)
+         throw new IllegalArgumentException("illegal backlog value; minimum = 1");
+      
+      socketBacklog = backlog;
+   }
+   
+   /** Whether connection and server metrics are exposed as MBeans of the
+    * platform MBean server. Defaults to false.
+    * 
+    * @return boolean true == JMX enabled
+    */
+   public static boolean isJmxEnabled () {
+      return jmxEnabled;
+   }
+
+   /** Sets whether connection and server metrics are exposed as MBeans of
+    * the platform MBean server (domain "org.janeth.jennynet"). An MBean is
+    * registered when a connection or server starts operating and removed
+    * when it is closed. This setting becomes active for connections and
+    * servers which are started <u>after</u> it is given.
+    * 
+    * @param enabled boolean true == JMX enabled
+    * @see org.janeth.jennynet.intfa.Connection#getMetrics()
+    * @see IServer#getMetricsSnapshot()
+    */
+   public static void setJmxEnabled (boolean enabled) {
+      jmxEnabled = enabled;
+   }
+   
+   /** Returns the layer's shared timer service which executes the 
+    * time-control tasks of all connections and servers (e.g. ALIVE signalling,
+    * confirm timeouts and handshake timeouts).
+    * 
+    * @return <code>WheelTimer</code>
+    */
+   static WheelTimer getTimer () {
+      return timer;
+   }
+   
+   /** Returns the shared thread pool which executes event dispatching
+    * for all connections of this layer. The pool is created on first
+    * demand.
+    * 
+    * @return <code>Executor</code>
+    */
+   static synchronized Executor getDispatchExecutor () {
+      if (dispatchExecutor == null) {
+         dispatchExecutor = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 
+               60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+               new LayerThreadFactory("JennyNet Dispatch-"));
+         dispatchExecutor.allowCoreThreadTimeOut(true);
+      }
+      return dispatchExecutor;
+   }
+   
+   /** Returns the shared thread pool which writes the data of incoming
+    * file transmissions for all connections of this layer. The pool is 
+    * created on first demand.
+    * 
+    * @return <code>Executor</code>
+    */
+   static synchronized Executor getFileWriterExecutor () {
+      if (fileWriterExecutor == null) {
+         fileWriterExecutor = new ThreadPoolExecutor(fileWriterThreads, fileWriterThreads, 
+               60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+               new LayerThreadFactory("JennyNet File-Writer-"));
+         fileWriterExecutor.allowCoreThreadTimeOut(true);
+      }
+      return fileWriterExecutor;
+   }
+   
+   /** Returns the shared thread pool which answers file related requests
+    * of remote stations (delta signatures and content lookups) for all 
+    * connections of this layer. The pool is created on first demand.
+    * 
+    * @return <code>Executor</code>
+    */
+   static synchronized Executor getFileLookupExecutor () {
+      if (fileLookupExecutor == null) {
+         int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+         fileLookupExecutor = new ThreadPoolExecutor(threads, threads, 
+               60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+               new LayerThreadFactory("JennyNet File-Lookup-"));
+         fileLookupExecutor.allowCoreThreadTimeOut(true);
+      }
+      return fileLookupExecutor;
+   }
+   
    /** Verifies the JennyNet network layer on the remote end of the connection.
     * Blocks for a maximum of ? milliseconds to read data from remote.
     * The socket must be connected. If false is returned or an IO exception is
@@ -414,14 +674,14 @@ public class JennyNet {
     *
     * @param agent int controlling agent: 0 = server, 1 = client
     * @param socket Socket connected socket
-    * @param timer Timer the timer thread to use for the timer task
+    * @param timer <code>WheelTimer</code> the timer to use for the timer task
     * @param time int milliseconds to wait for a remote signal
 
     * @return boolean true == JennyNet confirmed, false == invalid endpoint or timeout
     * @throws IllegalArgumentException if socket is unconnected
     * @throws IOException 
     */
-   static boolean verifyNetworkLayer (int agent, final Socket socket, Timer timer, int time) 
+   static boolean verifyNetworkLayer (int agent, final Socket socket, WheelTimer timer, int time) 
          throws IOException {
       // check for conditions
       if (!socket.isConnected())
@@ -437,7 +697,7 @@ public class JennyNet {
       try {
          // file in for the socket shutdown timer
          // which covers the case that remote doesn't send enough bytes
-         TimerTask task = new TimerTask() {
+         WheelTimerTask task = new WheelTimerTask() {
 
             @Override
             public void run() {
@@ -589,7 +849,7 @@ public class JennyNet {
     * gets closed.
     * 
     * @param socket Socket connected socket
-    * @param timer Timer the timer thread to use for the timer task
+    * @param timer <code>WheelTimer</code> the timer to use for the timer task
     * @param time int milliseconds to wait for a remote signal
     * @return int ALIVE period as requested by remote
     * 
@@ -601,7 +861,7 @@ public class JennyNet {
     * @throws IllegalArgumentException if socket is unconnected
     *  
     */
-   static int waitForConnection (final Socket socket, Timer timer, int time) 
+   static int waitForConnection (final Socket socket, WheelTimer timer, int time) 
          throws IOException {
       // check for conditions
       if (!socket.isConnected())
@@ -611,7 +871,7 @@ public class JennyNet {
       
       // file in for the socket shutdown timer
       // which covers the case that remote doesn't send enough bytes
-      class WaitTimerTask extends TimerTask {
+      class WaitTimerTask extends WheelTimerTask {
          boolean expired = false;
 
          @Override
@@ -684,6 +944,226 @@ public class JennyNet {
       ((ConnectionImpl)connection).getSocket().getOutputStream().write(signal);
    }
 
+   /** Whether the worker threads of new connections run as virtual threads.
+    * Defaults to false.
+    * 
+    * @return boolean true == virtual threads
+    */
+   public static boolean isVirtualThreads () {
+      return parameters == null ? false : parameters.isVirtualThreads();
+   }
+   
+   /** Sets whether the worker threads of new connections run as virtual
+    * threads. This setting becomes active for connections which are created
+    * <u>after</u> it is given.
+    * <p><small>Virtual threads require a Java runtime of version 21 or 
+    * higher; on older runtimes platform threads are used. For virtual threads
+    * BASE_THREAD_PRIORITY and TRANSMIT_THREAD_PRIORITY are ignored.</small>
+    * 
+    * @param virtual boolean true == virtual threads
+    * @see ConnectionParameters#setVirtualThreads(boolean)
+    */
+   public static void setVirtualThreads (boolean virtual) {
+      parameters.setVirtualThreads(virtual);
+   }
+
+   /** Returns the default TRANSFER_RETENTION time of new connections.
+    * This is the time in milliseconds for which the reception file of an
+    * incoming file transfer is retained after the transfer was interrupted
+    * by the loss of its connection. Defaults to 0 (no retention).
+    * 
+    * @return int milliseconds
+    * @see ConnectionParameters#setTransferRetention(int)
+    */
+   public static int getDefaultTransferRetention () {
+      return parameters == null ? DEFAULT_TRANSFER_RETENTION : parameters.getTransferRetention();
+   }
+   
+   /** Sets the default TRANSFER_RETENTION time of new connections.
+    * 
+    * @param time int milliseconds (0 = no retention)
+    * @see ConnectionParameters#setTransferRetention(int)
+    */
+   public static void setDefaultTransferRetention (int time) {
+      parameters.setTransferRetention(time);
+   }
+
+   /** Whether outgoing file transfers of new connections carry a transfer
+    * ID which allows their resumption (RESUMABLE_TRANSFERS). 
+    * Defaults to false.
+    * 
+    * @return boolean true == resumable transfers
+    * @see ConnectionParameters#setResumableTransfers(boolean)
+    */
+   public static boolean isDefaultResumableTransfers () {
+      return parameters == null ? DEFAULT_RESUMABLE_TRANSFERS : parameters.isResumableTransfers();
+   }
+   
+   /** Sets whether outgoing file transfers of new connections carry a 
+    * transfer ID which allows their resumption (RESUMABLE_TRANSFERS).
+    * 
+    * @param resumable boolean true == resumable transfers
+    * @see ConnectionParameters#setResumableTransfers(boolean)
+    */
+   public static void setDefaultResumableTransfers (boolean resumable) {
+      parameters.setResumableTransfers(resumable);
+   }
+
+   /** Whether outgoing file transfers of new connections announce the 
+    * content hash of their file to remote. Defaults to false.
+    * 
+    * @return boolean true == deduplication
+    * @see ConnectionParameters#setDeduplication(boolean)
+    */
+   public static boolean isDefaultDeduplication () {
+      return parameters == null ? DEFAULT_DEDUPLICATION : parameters.isDeduplication();
+   }
+   
+   /** Sets whether outgoing file transfers of new connections announce the
+    * content hash of their file to remote.
+    * 
+    * @param dedup boolean true == deduplication
+    * @see ConnectionParameters#setDeduplication(boolean)
+    */
+   public static void setDefaultDeduplication (boolean dedup) {
+      parameters.setDeduplication(dedup);
+   }
+   
+   /** Returns the default FILE_SYNC_PERIOD of new connections, which 
+    * defines the durability policy of incoming files. Defaults to -1
+    * (no synchronisation).
+    * 
+    * @return int megabytes; -1 = no sync, 0 = sync on completion
+    * @see ConnectionParameters#setFileSyncPeriod(int)
+    */
+   public static int getDefaultFileSyncPeriod () {
+      return parameters == null ? DEFAULT_FILE_SYNC_PERIOD : parameters.getFileSyncPeriod();
+   }
+   
+   /** Sets the default FILE_SYNC_PERIOD of new connections, which defines 
+    * the durability policy of incoming files.
+    * 
+    * @param period int megabytes; -1 = no sync, 0 = sync on completion
+    * @see ConnectionParameters#setFileSyncPeriod(int)
+    */
+   public static void setDefaultFileSyncPeriod (int period) {
+      parameters.setFileSyncPeriod(period);
+   }
+   
+   /** Returns the default FILE_SEND_CONCURRENCY of new connections, which 
+    * is the maximum number of active outgoing file transfers per 
+    * connection. Defaults to 4.
+    * 
+    * @return int number of transfers
+    * @see ConnectionParameters#setFileSendConcurrency(int)
+    */
+   public static int getDefaultFileSendConcurrency () {
+      return parameters == null ? DEFAULT_FILE_SEND_CONCURRENCY : parameters.getFileSendConcurrency();
+   }
+   
+   /** Sets the default FILE_SEND_CONCURRENCY of new connections, which 
+    * is the maximum number of active outgoing file transfers per 
+    * connection.
+    * 
+    * @param transfers int number of transfers (minimum 1)
+    * @see ConnectionParameters#setFileSendConcurrency(int)
+    */
+   public static void setDefaultFileSendConcurrency (int transfers) {
+      parameters.setFileSendConcurrency(transfers);
+   }
+   
+   /** Whether outgoing file transfers of new connections transmit an
+    * integrity digest (SHA-256) of their data (FILE_DIGEST). 
+    * Defaults to false.
+    * 
+    * @return boolean true == file digest
+    * @see ConnectionParameters#setFileDigest(boolean)
+    */
+   public static boolean isDefaultFileDigest () {
+      return parameters == null ? DEFAULT_FILE_DIGEST : parameters.isFileDigest();
+   }
+   
+   /** Sets whether outgoing file transfers of new connections transmit an
+    * integrity digest of their data.
+    * 
+    * @param digest boolean true == file digest
+    * @see ConnectionParameters#setFileDigest(boolean)
+    */
+   public static void setDefaultFileDigest (boolean digest) {
+      parameters.setFileDigest(digest);
+   }
+   
+   /** Whether outgoing file transfers of new connections send zero-filled
+    * blocks as empty parcels (SPARSE_TRANSFER). Defaults to false.
+    * 
+    * @return boolean true == sparse transfer
+    * @see ConnectionParameters#setSparseTransfer(boolean)
+    */
+   public static boolean isDefaultSparseTransfer () {
+      return parameters == null ? DEFAULT_SPARSE_TRANSFER : parameters.isSparseTransfer();
+   }
+   
+   /** Sets whether outgoing file transfers of new connections send 
+    * zero-filled blocks as empty parcels.
+    * 
+    * @param sparse boolean true == sparse transfer
+    * @see ConnectionParameters#setSparseTransfer(boolean)
+    */
+   public static void setDefaultSparseTransfer (boolean sparse) {
+      parameters.setSparseTransfer(sparse);
+   }
+   
+   /** Returns the default RECEIVE_STORAGE of new connections, which 
+    * determines the storage target of incoming file transfers. Defaults 
+    * to null (TEMP files).
+    * 
+    * @return <code>ReceiveStorage</code> or null
+    * @see ConnectionParameters#setReceiveStorage(ReceiveStorage)
+    */
+   public static ReceiveStorage getDefaultReceiveStorage () {
+      return parameters == null ? null : parameters.getReceiveStorage();
+   }
+   
+   /** Sets the default RECEIVE_STORAGE of new connections, which 
+    * determines the storage target of incoming file transfers.
+    * 
+    * @param storage <code>ReceiveStorage</code>, may be null
+    * @see ConnectionParameters#setReceiveStorage(ReceiveStorage)
+    */
+   public static void setDefaultReceiveStorage (ReceiveStorage storage) {
+      parameters.setReceiveStorage(storage);
+   }
+   
+   /** Returns the content cache of the network layer for incoming file
+    * transfers, or null if no cache is active.
+    * 
+    * @return <code>ContentCache</code> or null
+    */
+   public static ContentCache getContentCache () {
+      return contentCache;
+   }
+
+   /** Sets the content cache of the network layer for incoming file 
+    * transfers. Files which remote announces with a content hash are 
+    * realised from this cache if available; otherwise they are added to 
+    * the cache after reception. Null deactivates the cache. 
+    * 
+    * <p><b>Trust boundary:</b> the cache is shared by all connections of
+    * the layer and is consulted for any remote station which announces a
+    * content hash. A remote station can therefore learn whether content 
+    * with a given SHA-256 value was ever received by this layer, over any
+    * connection and from any station, and can have that content realised
+    * in the FILE_ROOT_DIRECTORY of its own connection. Activate a cache 
+    * only if all remote stations of the layer are trusted to share the
+    * files they send to this layer.
+    * 
+    * @param cache <code>ContentCache</code>, may be null
+    * @see ConnectionParameters#setDeduplication(boolean)
+    */
+   public static void setContentCache (ContentCache cache) {
+      contentCache = cache;
+   }
+
    public static int getDefaultIdleCheckPeriod () {
       return parameters == null ? DEFAULT_IDLE_CHECK_PERIOD : parameters.getIdleCheckPeriod();
    }
@@ -709,5 +1189,24 @@ public class JennyNet {
 		parameters.setMaxSerialisationSize(size);
 	}
 
+   /** Thread factory for the layer's shared thread pools. Threads are
+    * daemons and run with the global BASE_THREAD_PRIORITY.
+    */
+   private static class LayerThreadFactory implements ThreadFactory {
+      private final AtomicInteger counter = new AtomicInteger();
+      private final String baseName;
+      
+      LayerThreadFactory (String baseName) {
+         this.baseName = baseName;
+      }
+      
+      @Override
+      public Thread newThread (Runnable r) {
+         Thread t = new Thread(r, baseName + counter.incrementAndGet());
+         t.setDaemon(true);
+         t.setPriority(getBaseThreadPriority());
+         return t;
+      }
+   }
 
 }
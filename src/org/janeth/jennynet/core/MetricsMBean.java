@@ -0,0 +1,123 @@
+package org.janeth.jennynet.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/** A read-only MBean which exposes the values of a metrics snapshot as
+ * attributes of type Long. Each attribute read and each request for the
+ * MBean info takes a new snapshot.
+ */
+abstract class MetricsMBean implements DynamicMBean {
+   /** JMX domain of the MBeans of this layer. */
+   static final String DOMAIN = "org.janeth.jennynet";
+
+   private final String description;
+
+   MetricsMBean (String description) {
+      this.description = description;
+   }
+
+   /** Returns the current values of the exposed metrics.
+    *
+    * @return <code>Map&lt;String, Long&gt;</code>
+    */
+   protected abstract Map<String, Long> snapshot ();
+
+   @Override
+   public Object getAttribute (String attribute) throws AttributeNotFoundException {
+      Long value = snapshot().get(attribute);
+      if (value == null)
+         throw new AttributeNotFoundException(attribute);
+      return value;
+   }
+
+   @Override
+   public void setAttribute (Attribute attribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("read-only attribute: " + attribute.getName());
+   }
+
+   @Override
+   public AttributeList getAttributes (String[] attributes) {
+      Map<String, Long> map = snapshot();
+      AttributeList list = new AttributeList();
+      for (String name : attributes) {
+         Long value = map.get(name);
+         if (value != null) {
+            list.add(new Attribute(name, value));
+         }
+      }
+      return list;
+   }
+
+   @Override
+   public AttributeList setAttributes (AttributeList attributes) {
+      return new AttributeList();
+   }
+
+   @Override
+   public Object invoke (String actionName, Object[] params, String[] signature)
+         throws ReflectionException {
+      throw new ReflectionException(new NoSuchMethodException(actionName));
+   }
+
+   @Override
+   public MBeanInfo getMBeanInfo () {
+      Map<String, Long> map = snapshot();
+      MBeanAttributeInfo[] attrs = new MBeanAttributeInfo[map.size()];
+      int i = 0;
+      for (String name : map.keySet()) {
+         attrs[i++] = new MBeanAttributeInfo(name, Long.class.getName(), name,
+               true, false, false);
+      }
+      return new MBeanInfo(MetricsMBean.class.getName(), description, attrs, null,
+            new MBeanOperationInfo[0], new MBeanNotificationInfo[0]);
+   }
+
+   /** Registers the given MBean with the platform MBean server under the
+    * given name properties. Failures are reported to the console.
+    *
+    * @param bean <code>MetricsMBean</code>
+    * @param properties String key properties of the object name
+    * @return <code>ObjectName</code> registered name or null if failed
+    */
+   static ObjectName register (MetricsMBean bean, String properties) {
+      try {
+         ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+         ManagementFactory.getPlatformMBeanServer().registerMBean(bean, name);
+         return name;
+      } catch (JMException e) {
+         e.printStackTrace();
+         return null;
+      }
+   }
+
+   /** Removes the MBean of the given name from the platform MBean server,
+    * if it is registered.
+    *
+    * @param name <code>ObjectName</code>, may be null
+    */
+   static void unregister (ObjectName name) {
+      if (name == null) return;
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      try {
+         if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+         }
+      } catch (JMException e) {
+         e.printStackTrace();
+      }
+   }
+}
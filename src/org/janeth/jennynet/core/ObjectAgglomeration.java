@@ -41,6 +41,14 @@ class ObjectAgglomeration {
 	   return priority;
    }
    
+   /** Returns the length of the object serialisation.
+    * 
+    * @return int bytes
+    */
+   public int getSerialSize () {
+      return serialSize;
+   }
+   
    /** Digest a single data parcel into the agglomeration.
     * 
     * @param parcel <code>TransmissionParcel</code>
@@ -65,7 +73,11 @@ class ObjectAgglomeration {
       if (parcel.getParcelSequencelNr() == 0) {
          ObjectHeader header = parcel.getObjectHeader();
          numberOfParcels = header.getNumberOfParcels();
-         serialSize = header.getTransmissionSize();
+         long size = header.getTransmissionSize();
+         if (size > Integer.MAX_VALUE) {
+        	 throw new IllegalStateException("object data length exceeds limit: " + size);
+         }
+         serialSize = (int)size;
 
          // check correctness of indicated object data size 
          if (numberOfParcels < 0 | serialSize < 0) {
@@ -99,7 +111,9 @@ class ObjectAgglomeration {
       // if last parcel arrived, perform object de-serialisation
       if (nextParcelNr+1 == numberOfParcels) {
          Serialization ser = connection.getReceiveSerialization(); 
+         long time = System.nanoTime();
          object = ser.deserialiseObject(byteStore);
+         connection.getMetrics().objectDeserialised(System.nanoTime() - time);
       } else {
          nextParcelNr++;
       }
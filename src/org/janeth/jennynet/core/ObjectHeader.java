@@ -3,6 +3,7 @@ package org.janeth.jennynet.core;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.UUID;
 
 /**
  * Object Header Data is available on the first parcel
@@ -11,17 +12,55 @@ import java.io.IOException;
  * parcels for sending. Package internal only.
  *
  * The serialisation size of this class is minimum 12 bytes,
- * plus what may be necessary for optional PATH information.
+ * plus what may be necessary for optional PATH information,
+ * an optional FILE RANGE, an optional TRANSFER ID, optional
+ * DELTA information and a 64-bit transmission size if the size
+ * exceeds Integer.MAX_VALUE. A BATCH flag marks the transmission of
+ * a file batch (directory transfer). A STREAM flag marks the transmission
+ * of data of unknown length, which ends with an empty parcel; transmission
+ * size and number of parcels are without meaning then. A DIGEST flag 
+ * indicates that the data parcels of a file are followed by a trailing
+ * parcel which holds the SHA-256 digest of the data.
  */
 
 class ObjectHeader {
+   /** Flag in the method byte which indicates a following file range. */
+   private static final int RANGE_FLAG = 0x80;
+   /** Flag in the method byte which indicates a following transfer ID. */
+   private static final int TRANSFER_FLAG = 0x40;
+   /** Flag in the method byte which indicates following delta information. */
+   private static final int DELTA_FLAG = 0x20;
+   /** Flag in the method byte which indicates a following 64-bit 
+    * transmission size. */
+   private static final int LONG_SIZE_FLAG = 0x10;
+   /** Flag in the method byte which indicates a file batch. */
+   private static final int BATCH_FLAG = 0x08;
+   /** Flag in the method byte which indicates data of unknown length. */
+   private static final int STREAM_FLAG = 0x04;
+   /** Flag in the method byte which indicates a trailing digest parcel. 
+    * (Serialisation methods are limited to codes 0 and 1.) */
+   private static final int DIGEST_FLAG = 0x02;
+   private static final int EXTENSION_FLAGS = RANGE_FLAG | TRANSFER_FLAG | 
+         DELTA_FLAG | LONG_SIZE_FLAG | BATCH_FLAG | STREAM_FLAG | DIGEST_FLAG;
    
+
    private long objectID;
    private int method = JennyNet.getDefaultSerialisationMethod(); 
-   private int bufferSize;
+   private long bufferSize;
    private int nrParcels;
    private String path; // * setting required (optional)
    private byte[] serialisedPath; // * setting required (optional)
+   private FileRange range; // * setting required (optional)
+   private UUID transferId; // * setting required (optional)
+   private long resumeOffset;
+   private boolean delta; // * setting required (optional)
+   private int deltaBlockSize;
+   private long deltaBaseLength;
+   private long deltaTargetLength;
+   private int deltaTargetCrc;
+   private boolean batch; // * setting required (optional)
+   private boolean stream; // * setting required (optional)
+   private boolean digest; // * setting required (optional)
    
    public ObjectHeader (long objectID) {
       this.objectID = objectID;
@@ -39,7 +78,7 @@ class ObjectHeader {
       return method;
    }
 
-   public int getTransmissionSize() {
+   public long getTransmissionSize() {
       return bufferSize;
    }
 
@@ -50,8 +89,12 @@ class ObjectHeader {
    public void writeObject (DataOutputStream output) throws IOException {
       DataOutputStream out = output;
       
-      out.write(method);
-      out.writeInt(bufferSize);
+      boolean longSize = bufferSize > Integer.MAX_VALUE;
+      out.write(method | (range == null ? 0 : RANGE_FLAG) | 
+            (transferId == null ? 0 : TRANSFER_FLAG) | (delta ? DELTA_FLAG : 0) |
+            (longSize ? LONG_SIZE_FLAG : 0) | (batch ? BATCH_FLAG : 0) |
+            (stream ? STREAM_FLAG : 0) | (digest ? DIGEST_FLAG : 0));
+      out.writeInt((int)Math.min(bufferSize, Integer.MAX_VALUE));
       out.writeInt(nrParcels);
       
       // write path string if available
@@ -61,6 +104,31 @@ class ObjectHeader {
       } else {
          out.writeShort(0);
       }
+      
+      // write file range if available
+      if (range != null) {
+         range.writeObject(out);
+      }
+      
+      // write transfer ID and resume offset if available
+      if (transferId != null) {
+         out.writeLong(transferId.getMostSignificantBits());
+         out.writeLong(transferId.getLeastSignificantBits());
+         out.writeLong(resumeOffset);
+      }
+      
+      // write delta information if available
+      if (delta) {
+         out.writeInt(deltaBlockSize);
+         out.writeLong(deltaBaseLength);
+         out.writeLong(deltaTargetLength);
+         out.writeInt(deltaTargetCrc);
+      }
+      
+      // write 64-bit transmission size if required
+      if (longSize) {
+         out.writeLong(bufferSize);
+      }
    }
    
    /** Returns the length required to write this header to serialisation.
@@ -68,7 +136,10 @@ class ObjectHeader {
     * @return int length in bytes
     */
    public int getSerialisedLength () {
-      return 5 + (path != null ? serialisedPath.length+2 : 0);
+      return 5 + (path != null ? serialisedPath.length+2 : 0) + 
+            (range != null ? FileRange.SERIAL_SIZE : 0) + 
+            (transferId != null ? 24 : 0) + (delta ? 24 : 0) + 
+            (bufferSize > Integer.MAX_VALUE ? 8 : 0);
    }
    
    public void readObject (DataInputStream input) throws IOException {
@@ -87,13 +158,44 @@ class ObjectHeader {
       } else {
          path = null;
       }
+      
+      // read file range if indicated
+      int flags = method == -1 ? 0 : method & EXTENSION_FLAGS;
+      method &= ~flags;
+      batch = (flags & BATCH_FLAG) != 0;
+      stream = (flags & STREAM_FLAG) != 0;
+      digest = (flags & DIGEST_FLAG) != 0;
+      range = (flags & RANGE_FLAG) != 0 ? FileRange.readObject(in) : null;
+      
+      // read transfer ID and resume offset if indicated
+      if ((flags & TRANSFER_FLAG) != 0) {
+         transferId = new UUID(in.readLong(), in.readLong());
+         resumeOffset = in.readLong();
+      } else {
+         transferId = null;
+         resumeOffset = 0;
+      }
+      
+      // read delta information if indicated
+      delta = (flags & DELTA_FLAG) != 0;
+      if (delta) {
+         deltaBlockSize = in.readInt();
+         deltaBaseLength = in.readLong();
+         deltaTargetLength = in.readLong();
+         deltaTargetCrc = in.readInt();
+      }
+      
+      // read 64-bit transmission size if indicated
+      if ((flags & LONG_SIZE_FLAG) != 0) {
+         bufferSize = in.readLong();
+      }
    }
 
    public boolean verify() {
       return objectID > 0 & bufferSize > -1 & method > -1 & nrParcels > 0; 
    }
 
-   public void setTransmissionSize (int length) {
+   public void setTransmissionSize (long length) {
 	   if (length < 0) 
 		   throw new IllegalArgumentException();
       bufferSize = length;
@@ -105,6 +207,136 @@ class ObjectHeader {
       nrParcels = nrOfParcels;
    }
 
+   /** Returns the file range if this header belongs to a range of a 
+    * parallel file transfer.
+    * 
+    * @return <code>FileRange</code> or null
+    */
+   public FileRange getRange() {
+      return range;
+   }
+
+   public void setRange (FileRange range) {
+      this.range = range;
+   }
+
+   /** Returns the identifier of a file transfer which persists across
+    * connections, if available.
+    * 
+    * @return UUID transfer ID or null
+    */
+   public UUID getTransferId() {
+      return transferId;
+   }
+
+   /** Returns the file position from where a resumed file transfer
+    * continues; 0 for a transfer from the start of the file.
+    * 
+    * @return long file position
+    */
+   public long getResumeOffset() {
+      return resumeOffset;
+   }
+
+   public void setTransfer (UUID transferId, long resumeOffset) {
+      if (resumeOffset < 0) 
+         throw new IllegalArgumentException();
+      this.transferId = transferId;
+      this.resumeOffset = resumeOffset;
+   }
+
+   /** Whether the transmitted file is a delta against the receiver's
+    * version of the file (delta file transfer).
+    * 
+    * @return boolean
+    */
+   public boolean isDelta() {
+      return delta;
+   }
+
+   /** Returns the block size of the signature on which the delta is based. 
+    * 
+    * @return int block size
+    */
+   public int getDeltaBlockSize() {
+      return deltaBlockSize;
+   }
+
+   /** Returns the length of the receiver's file on which the delta 
+    * is based.
+    * 
+    * @return long file length
+    */
+   public long getDeltaBaseLength() {
+      return deltaBaseLength;
+   }
+
+   /** Returns the length of the file reconstructed from the delta.
+    * 
+    * @return long file length
+    */
+   public long getDeltaTargetLength() {
+      return deltaTargetLength;
+   }
+
+   /** Returns the CRC32 value of the file reconstructed from the delta.
+    * 
+    * @return int CRC value
+    */
+   public int getDeltaTargetCrc() {
+      return deltaTargetCrc;
+   }
+
+   public void setDelta (int blockSize, long baseLength, long targetLength, int targetCrc) {
+      if (blockSize < 1 | baseLength < 0 | targetLength < 0) 
+         throw new IllegalArgumentException();
+      delta = true;
+      deltaBlockSize = blockSize;
+      deltaBaseLength = baseLength;
+      deltaTargetLength = targetLength;
+      deltaTargetCrc = targetCrc;
+   }
+
+   /** Whether the transmitted file is a file batch (directory transfer).
+    * 
+    * @return boolean
+    */
+   public boolean isBatch() {
+      return batch;
+   }
+
+   public void setBatch (boolean batch) {
+      this.batch = batch;
+   }
+
+   /** Whether the transmitted file is data of unknown length which ends 
+    * with an empty parcel (stream transfer).
+    * 
+    * @return boolean
+    */
+   public boolean isStream() {
+      return stream;
+   }
+
+   public void setStream (boolean stream) {
+      this.stream = stream;
+   }
+
+   /** Whether the data parcels of the transmitted file are followed by a
+    * parcel which holds the SHA-256 digest of the data. The number of 
+    * parcels includes the digest parcel; a stream is followed by the 
+    * digest parcel after its empty end parcel.
+    * 
+    * @return boolean
+    */
+   public boolean isDigest() {
+      return digest;
+   }
+
+   public void setDigest (boolean digest) {
+      this.digest = digest;
+   }
+
    public void setMethod (int method) {
       this.method = method;
    }
@@ -1,89 +1,147 @@
 package org.janeth.jennynet.core;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.janeth.jennynet.intfa.Connection;
+import org.janeth.jennynet.util.SerialExecutor;
 
-abstract class ParcelAgglomeration extends LinkedBlockingQueue<TransmissionParcel> {
+/** Base class of receptors which process the incoming parcels of a single
+ * transmission. Parcels are processed by the layer's shared file writer
+ * pool (<code>JennyNet.getFileWriterExecutor()</code>), one at a time and in
+ * their order of reception, so that a receptor does not own a thread.
+ *
+ * <p>Buffering of parcels is bounded twofold: by the PARCEL_QUEUE_CAPACITY
+ * of the connection per receptor, and by the layer's FILE_BUFFER_LIMIT for
+ * the data of all receptors. <code>put()</code> blocks the receiving thread
+ * while a bound is exceeded.
+ */
+abstract class ParcelAgglomeration {
 
-   public static final String THREAD_BASENAME = "Parcel-Receptor at ";
-   private Thread worker;
+   // global account of buffered parcel data (a j.u.c. lock does not pin 
+   // the carrier of a waiting virtual thread)
+   private static final ReentrantLock bufferLock = new ReentrantLock();
+   private static final Condition bufferReleased = bufferLock.newCondition();
+   private static long bufferedBytes;
+
+   private final SerialExecutor executor;
+   private final Semaphore capacity;
+   private final ConnectionMetrics metrics;
    private String name;
-   private boolean terminate;
-   
+   private volatile boolean terminate;
+
    public ParcelAgglomeration (Connection connection) {
-      super(connection.getParameters().getParcelQueueCapacity());
-      
-      worker = new Thread(THREAD_BASENAME + connection.getLocalAddress().getPort()) {
+      capacity = new Semaphore(Math.max(1, connection.getParameters().getParcelQueueCapacity()));
+      metrics = connection.getMetrics();
+      executor = new SerialExecutor(JennyNet.getFileWriterExecutor(),
+            SerialExecutor.DEFAULT_BATCH_SIZE);
+   }
+
+   /** Queues a parcel for processing. Blocks while the capacity of this
+    * receptor or the layer's FILE_BUFFER_LIMIT is exhausted.
+    *
+    * @param parcel <code>TransmissionParcel</code>
+    * @throws InterruptedException
+    */
+   public void put (final TransmissionParcel parcel) throws InterruptedException {
+      final int length = parcel.getLength();
+      long time = System.nanoTime();
+      boolean stalled = !capacity.tryAcquire();
+      if (stalled) {
+         capacity.acquire();
+      }
+      try {
+         stalled |= acquireBuffer(length);
+      } catch (InterruptedException e) {
+         capacity.release();
+         throw e;
+      }
+      if (stalled && metrics != null) {
+         metrics.receiveStalled(System.nanoTime() - time);
+      }
+
+      executor.execute(new Runnable() {
          @Override
          public void run() {
-            setPriority(JennyNet.getBaseThreadPriority());
-             
-            while (!terminate) {
-               try {
-                  TransmissionParcel parcel = take();
+            try {
+               if (!terminate) {
                   processReceivedParcel(parcel);
-                  
-               } catch (InterruptedException e) {
-                  ParcelAgglomeration.this.interrupted(e);
-               } catch (Throwable e) {
-                  exceptionThrown(e);
-               } 
+               }
+            } catch (Throwable e) {
+               exceptionThrown(e);
+            } finally {
+               releaseBuffer(length);
+               capacity.release();
             }
          }
-       };
-       worker.start();
+      });
    }
 
    abstract protected void processReceivedParcel(TransmissionParcel parcel) throws Exception;
 
-   /** Called when the receptor thread received an exception 
-    * from the working method (<code>processReceivedParcel()</code>).
-    * 
-    * @param e InterruptedException
+   /** Called when the working method (<code>processReceivedParcel()</code>)
+    * throws an exception.
+    *
+    * @param e Throwable
     */
    abstract protected void exceptionThrown (Throwable e);
 
-   /** Called when the receptor thread has been interrupted.
-    * 
-    * @param e InterruptedException
-    */
-   protected void interrupted (InterruptedException e) {
-   }
-   
    public String getName() {
       return name;
    }
 
    /** Sets a name for this agglomeration.
-    * Also serves for the thread name if a thread is activated.
-    * 
-    * @param name String 
+    *
+    * @param name String
     */
    public void setName(String name) {
       this.name = name;
-      if (name != null) {
-         worker.setName(THREAD_BASENAME.concat(name));
-      }
    }
 
-   public int getThreadPriority() {
-      return worker.getPriority();
+   /** Terminates processing of parcels. Parcels which are queued are
+    * discarded.
+    */
+   public void terminate () {
+      terminate = true;
    }
 
-   public void setThreadPriority(int threadPriority) {
-      worker.setPriority(threadPriority);
+   /** Informs waiting receptors about a changed FILE_BUFFER_LIMIT. */
+   static void limitChanged () {
+      bufferLock.lock();
+      try {
+         bufferReleased.signalAll();
+      } finally {
+         bufferLock.unlock();
+      }
    }
 
-   public void terminate () {
-      terminate = true;
-      worker.interrupt();
+   /** Accounts the given amount of buffered data. Blocks while the
+    * FILE_BUFFER_LIMIT would be exceeded; a single parcel is always admitted
+    * if no other data is buffered. Returns whether the caller was blocked.
+    */
+   private static boolean acquireBuffer (int length) throws InterruptedException {
+      boolean blocked = false;
+      bufferLock.lockInterruptibly();
+      try {
+         while (bufferedBytes > 0 && bufferedBytes + length > JennyNet.getFileBufferLimit()) {
+            blocked = true;
+            bufferReleased.await();
+         }
+         bufferedBytes += length;
+      } finally {
+         bufferLock.unlock();
+      }
+      return blocked;
    }
 
-   @Override
-   protected void finalize() throws Throwable {
-      terminate();
-      super.finalize();
+   private static void releaseBuffer (int length) {
+      bufferLock.lock();
+      try {
+         bufferedBytes -= length;
+         bufferReleased.signalAll();
+      } finally {
+         bufferLock.unlock();
+      }
    }
-   
 }
@@ -0,0 +1,116 @@
+package org.janeth.jennynet.core;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.janeth.jennynet.util.WheelTimerTask;
+
+/** Retains the reception files of incoming file transfers which were
+ * interrupted by the loss of their connection, so that the transfers can
+ * be resumed by the sender over a new connection. Partial files are kept
+ * for the TRANSFER_RETENTION time of the receiving connection and are
+ * identified by the transfer ID of the interrupted transfer. A partial file
+ * which is not claimed within this time is deleted.
+ */
+class PartialFileStore {
+
+   private static final Map<UUID, Entry> entries = new HashMap<UUID, Entry>();
+
+   private PartialFileStore () {
+   }
+
+   /** Retains a partial reception file for the given time.
+    *
+    * @param transferId UUID identifier of the interrupted transfer
+    * @param file File partial reception file
+    * @param length long length of received data
+    * @param path String remote path parameter of the transfer (may be null)
+    * @param time int retention time in milliseconds
+    */
+   public static void retain (UUID transferId, File file, long length, String path, int time) {
+      Entry entry = new Entry(transferId, file, length, path);
+      synchronized (entries) {
+         Entry old = entries.put(transferId, entry);
+         if (old != null) {
+            old.discard();
+         }
+      }
+      JennyNet.getTimer().schedule(entry.expiry, time);
+   }
+
+   /** Removes and returns the retained partial file of the given transfer.
+    * The caller takes responsibility for the file.
+    *
+    * @param transferId UUID transfer identifier
+    * @return <code>PartialFileStore.Entry</code> or null if unavailable
+    */
+   public static Entry claim (UUID transferId) {
+      synchronized (entries) {
+         Entry entry = entries.remove(transferId);
+         if (entry != null) {
+            entry.expiry.cancel();
+         }
+         return entry;
+      }
+   }
+
+   /** Returns the number of retained partial files.
+    *
+    * @return int
+    */
+   public static int size () {
+      synchronized (entries) {
+         return entries.size();
+      }
+   }
+
+   /** A retained partial reception file. */
+   static class Entry {
+      private final UUID transferId;
+      private final File file;
+      private final long length;
+      private final String path;
+      private final WheelTimerTask expiry;
+
+      Entry (UUID transferId, File file, long length, String path) {
+         this.transferId = transferId;
+         this.file = file;
+         this.length = length;
+         this.path = path;
+         expiry = new WheelTimerTask() {
+            @Override
+            public void run () {
+               synchronized (entries) {
+                  if (entries.get(Entry.this.transferId) != Entry.this) return;
+                  entries.remove(Entry.this.transferId);
+               }
+               discard();
+            }
+         };
+      }
+
+      public UUID getTransferId () {
+         return transferId;
+      }
+
+      public File getFile () {
+         return file;
+      }
+
+      public long getLength () {
+         return length;
+      }
+
+      public String getPath () {
+         return path;
+      }
+
+      /** Deletes the partial file. */
+      public void discard () {
+         expiry.cancel();
+         file.delete();
+      }
+   }
+}
@@ -0,0 +1,162 @@
+package org.janeth.jennynet.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+
+/** The write frontier of the reception file of an incoming file transfer.
+ * It allows to read the file while data is still arriving: streams obtained
+ * by <code>openStream()</code> read the reception file up to the length of
+ * received data and block at this frontier until more data arrives. The
+ * streams end when the transfer is complete and fail when the transfer is
+ * aborted.
+ *
+ * <p>Streams read the data which the receptor has written to the reception
+ * file. If the reception file is relocated to its destination after the
+ * transfer, streams opened before continue on the reception file while it
+ * remains accessible to them (open file handle).
+ */
+class ReceptionFrontier {
+
+   private File file;
+   private long length;
+   private boolean complete;
+   private Throwable failure;
+
+   /** Creates a new frontier for the given reception file.
+    *
+    * @param file File reception file
+    * @param length long length of data already received (resumed transfer)
+    */
+   public ReceptionFrontier (File file, long length) {
+      this.file = file;
+      this.length = length;
+   }
+
+   /** Sets the length of received data and releases waiting streams.
+    *
+    * @param length long data length
+    */
+   public synchronized void advance (long length) {
+      this.length = length;
+      notifyAll();
+   }
+
+   /** Marks the reception as complete. Streams end at the current length.
+    */
+   public synchronized void complete () {
+      complete = true;
+      notifyAll();
+   }
+
+   /** Marks the reception as failed. Streams throw an IOException.
+    *
+    * @param e Throwable cause, may be null
+    */
+   public synchronized void fail (Throwable e) {
+      if (complete) return;
+      failure = e == null ? new IOException("file transfer aborted") : e;
+      notifyAll();
+   }
+
+   /** Sets a new location of the received file; subsequently opened
+    * streams read from this location.
+    *
+    * @param file File received file
+    */
+   public synchronized void relocate (File file) {
+      this.file = file;
+   }
+
+   /** Returns a new stream which reads the file from its start.
+    *
+    * @return InputStream
+    * @throws IOException if the transfer has failed or the file is
+    *         inaccessible
+    */
+   public synchronized InputStream openStream () throws IOException {
+      checkFailure();
+      return new FrontierStream(new RandomAccessFile(file, "r"));
+   }
+
+   private void checkFailure () throws IOException {
+      if (failure != null) {
+         throw failure instanceof IOException ? (IOException)failure :
+               new IOException("file transfer aborted", failure);
+      }
+   }
+
+   /** Returns the number of bytes readable at the given position without
+    * blocking, or -1 at the end of the completed file. Blocks while no data
+    * is available.
+    */
+   private synchronized long await (long position) throws IOException {
+      try {
+         while (position >= length && !complete) {
+            checkFailure();
+            wait();
+         }
+      } catch (InterruptedException e) {
+         throw new InterruptedIOException();
+      }
+      checkFailure();
+      return position < length ? length - position : -1;
+   }
+
+   private synchronized long readable (long position) {
+      return Math.max(0, length - position);
+   }
+
+   /** A stream which reads the reception file up to the frontier. */
+   private class FrontierStream extends InputStream {
+      private final RandomAccessFile raf;
+      private long position;
+      private boolean closed;
+
+      FrontierStream (RandomAccessFile raf) {
+         this.raf = raf;
+      }
+
+      @Override
+      public int read () throws IOException {
+         byte[] b = new byte[1];
+         return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+      }
+
+      @Override
+      public int read (byte[] b, int off, int len) throws IOException {
+         if (closed)
+            throw new IOException("stream closed");
+         if (len == 0) return 0;
+
+         long avail = await(position);
+         if (avail < 0) return -1;
+         raf.seek(position);
+         int n = raf.read(b, off, (int)Math.min(len, avail));
+         if (n < 0)
+            throw new IOException("reception file truncated");
+         position += n;
+         return n;
+      }
+
+      @Override
+      public long skip (long n) throws IOException {
+         long k = Math.min(Math.max(0, n), readable(position));
+         position += k;
+         return k;
+      }
+
+      @Override
+      public int available () {
+         return (int)Math.min(readable(position), Integer.MAX_VALUE);
+      }
+
+      @Override
+      public void close () throws IOException {
+         closed = true;
+         raf.close();
+      }
+   }
+}
@@ -0,0 +1,83 @@
+package org.janeth.jennynet.core;
+
+import org.janeth.jennynet.util.CRC32;
+
+/** The serialisation of a transmission object split into the data segments
+ * of its transmission parcels. Instances are immutable and can be shared by
+ * all connections which apply the same serialisation method, class
+ * registrations and parcel size, e.g. for the broadcast of an object to
+ * many connections. The CRC value of each segment is calculated once.
+ */
+class SerialisedObject {
+   private final byte[][] segments;
+   private final int[] crcs;
+   private final int length;
+   private final int parcelSize;
+
+   /** Creates a new shared serialisation from the given serialisation data.
+    *
+    * @param serObj byte[] serialisation data of an object (complete)
+    * @param parcelSize int data segment size transmittable in a single parcel
+    */
+   public SerialisedObject (byte[] serObj, int parcelSize) {
+      int nrOfParcels = serObj.length / parcelSize;
+      int lastBit = serObj.length % parcelSize;
+      if (lastBit > 0) nrOfParcels++;
+
+      segments = new byte[nrOfParcels][];
+      crcs = new int[nrOfParcels];
+      for (int i = 0; i < nrOfParcels; i++) {
+         int segmentSize = i < nrOfParcels-1 ? parcelSize :
+                           lastBit > 0 ? lastBit : parcelSize;
+         byte[] segment = new byte[segmentSize];
+         System.arraycopy(serObj, i*parcelSize, segment, 0, segmentSize);
+         segments[i] = segment;
+         crcs[i] = CRC32.extend(0, segment, 0, segmentSize);
+      }
+      length = serObj.length;
+      this.parcelSize = parcelSize;
+   }
+
+   /** Returns the total length of the serialisation.
+    *
+    * @return int serialisation size
+    */
+   public int getLength () {
+      return length;
+   }
+
+   /** Returns the data segment size of the parcels.
+    *
+    * @return int parcel size
+    */
+   public int getParcelSize () {
+      return parcelSize;
+   }
+
+   /** Returns the number of parcels required to transmit the serialisation.
+    *
+    * @return int number of parcels
+    */
+   public int getNrOfParcels () {
+      return segments.length;
+   }
+
+   /** Returns the shared data segment of the given parcel.
+    * The returned array must not be modified!
+    *
+    * @param parcelNr int parcel number
+    * @return byte[] data segment
+    */
+   public byte[] getSegment (int parcelNr) {
+      return segments[parcelNr];
+   }
+
+   /** Returns the CRC32 value of the data segment of the given parcel.
+    *
+    * @param parcelNr int parcel number
+    * @return int CRC32 value
+    */
+   public int getSegmentCrc (int parcelNr) {
+      return crcs[parcelNr];
+   }
+}
@@ -8,23 +8,31 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
 
 import org.janeth.jennynet.intfa.Connection;
 import org.janeth.jennynet.intfa.ConnectionParameters;
 import org.janeth.jennynet.intfa.IServer;
+import org.janeth.jennynet.intfa.Serialization;
 import org.janeth.jennynet.intfa.ServerConnection;
 import org.janeth.jennynet.intfa.ServerListener;
-import org.janeth.jennynet.util.ArraySet;
+import org.janeth.jennynet.util.ListenerRegistry;
+import org.janeth.jennynet.util.ReusePort;
+import org.janeth.jennynet.util.WheelTimer;
+import org.janeth.jennynet.util.WheelTimerTask;
 
 /**
  *  <p>A server object can be allocated, either bound to a local socket port
@@ -43,8 +51,10 @@ import org.janeth.jennynet.util.ArraySet;
  *  are automatically removed.
  *  
  *  <p>Server event <code>connectionAvailable()</code> is issued in a thread
- *  owned by the Server instance and appear asynchronously. All other events
- *  appear synchronous with the user's calling thread.
+ *  owned by the Server instance and appear asynchronously. As the layer 
+ *  handshake with incoming sockets is performed by a pool of handshake 
+ *  threads, this event may be issued concurrently for different connections. 
+ *  All other events appear synchronous with the user's calling thread.
  *  
  *  @see ServerListener
  *  @see ServerConnection
@@ -55,8 +65,7 @@ public class Server implements IServer {
    
    protected static boolean debug = false;
    
-   private static final int SOCKET_BACKLOG = 10;
-   private static Timer timer = new Timer();
+   private static WheelTimer timer = JennyNet.getTimer();
    private static int nextTransActionNumber = 1;
    
    private static synchronized int nextTransactionNumber () {
@@ -67,17 +76,29 @@ public class Server implements IServer {
     * by the user. Only valid if SignalMethod == ACCEPT. */
    private BlockingQueue<ServerConnection> incoming;
    /** List of all operative connections of this server (remove on close). */
-   private Hashtable<UUID, ServerConnection> connectionMap = new Hashtable<UUID, ServerConnection>();
+   private ConcurrentHashMap<UUID, ServerConnection> connectionMap = 
+         new ConcurrentHashMap<UUID, ServerConnection>();
+   /** Immutable array of the connections in connectionMap; replaced on each
+    * modification of the map. */
+   private volatile ServerConnection[] connectionSnapshot = new ServerConnection[0];
    /** The set of listeners to this server. */
-   private Set<ServerListener> listeners = new ArraySet<ServerListener>();
+   private ListenerRegistry<ServerListener> listeners = 
+         new ListenerRegistry<ServerListener>(new ServerListener[0]);
    
    private ClientListener clientListener = new ClientListener();
    private ConnectionParameters parameters = JennyNet.getParameters();
    private ServerSocket serverSocket;
    private AcceptThread acceptThread;
+   private List<AcceptThread> shardAcceptors = new ArrayList<AcceptThread>();
+   private ThreadPoolExecutor handshakeExecutor;
+   private AcceptStatistics statistics = new AcceptStatistics();
+   private ObjectName mbeanName;
    private SignalMethod signalMethod = SignalMethod.Listener;
    private int queueCapacity = JennyNet.getObjectQueueCapacity();
    private int acceptThreadPriority = Thread.MAX_PRIORITY;
+   private int socketBacklog = JennyNet.getSocketBacklog();
+   private int handshakeThreads = JennyNet.DEFAULT_HANDSHAKE_THREADS;
+   private int acceptors = 1;
    private boolean tempoPrimacy;
    private boolean closed;
 
@@ -134,12 +155,12 @@ public class Server implements IServer {
    @Override
    public void bind (int port) throws IOException {
       SocketAddress addr = new InetSocketAddress(port);
-      serverSocket.bind(addr, SOCKET_BACKLOG);
+      serverSocket.bind(addr, socketBacklog);
    }
 
    @Override
    public void bind (SocketAddress address) throws IOException {
-      serverSocket.bind(address, SOCKET_BACKLOG);
+      serverSocket.bind(address, socketBacklog);
    }
 
    @Override
@@ -170,8 +191,62 @@ public class Server implements IServer {
       if (signalMethod == SignalMethod.Accept) {
          incoming = new LinkedBlockingQueue<ServerConnection>(queueCapacity);
       }
-      acceptThread = new AcceptThread();
+      
+      // create the handshake thread pool (queue bounded to socket backlog)
+      handshakeExecutor = new ThreadPoolExecutor(handshakeThreads, handshakeThreads, 
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(socketBacklog),
+            new ThreadFactory() {
+               private final AtomicInteger counter = new AtomicInteger();
+         
+               @Override
+               public Thread newThread (Runnable r) {
+                  Thread t = new Thread(r, "JN-SERVER Handshake-" + counter.incrementAndGet());
+                  t.setDaemon(true);
+                  t.setPriority(getThreadPriority());
+                  return t;
+               }
+            });
+      handshakeExecutor.allowCoreThreadTimeOut(true);
+      
+      acceptThread = new AcceptThread(serverSocket, "JN-SERVER Connection Acception");
       acceptThread.start();
+      
+      // expose metrics to JMX if opted
+      if (JennyNet.isJmxEnabled()) {
+         mbeanName = MetricsMBean.register(new MetricsMBean("JennyNet server " + 
+               getSocketAddress()) {
+            @Override
+            protected Map<String, Long> snapshot() {
+               return getMetricsSnapshot();
+            }
+         }, "type=Server,address=" + ObjectName.quote(String.valueOf(getSocketAddress())));
+      }
+      
+      // open additional sockets on the same port (SO_REUSEPORT)
+      for (int i = 2; i <= acceptors; i++) {
+         ServerSocket socket = null;
+         try {
+            socket = new ServerSocket();
+            socket.setReuseAddress(true);
+            if (!ReusePort.enable(socket)) {
+               socket.close();
+               break;
+            }
+            socket.bind(serverSocket.getLocalSocketAddress(), socketBacklog);
+            AcceptThread shard = new AcceptThread(socket, 
+                  "JN-SERVER Connection Acception-" + i);
+            shardAcceptors.add(shard);
+            shard.start();
+         } catch (IOException e) {
+            e.printStackTrace();
+            if (socket != null) {
+               try { socket.close(); } 
+               catch (IOException e1) {
+               }
+            }
+            break;
+         }
+      }
       Thread.yield();
    }
 
@@ -198,8 +273,13 @@ public class Server implements IServer {
       // shutdown daemon if server has been started
       // (this also closes the server-socket)   
       } else {
-         // terminate the ACCEPT thread (daemon)
+         // terminate the ACCEPT threads (daemon)
          acceptThread.terminate();
+         for (AcceptThread shard : shardAcceptors) {
+            shard.terminate();
+         }
+         shutdownHandshakes();
+         MetricsMBean.unregister(mbeanName);
          if (incoming != null) {
             incoming.clear();
          }
@@ -240,7 +320,7 @@ public class Server implements IServer {
 
    @Override
    public void closeAllConnections() {
-      for (Connection con : getConnections()) {
+      for (Connection con : connectionSnapshot) {
          try { 
             con.close(); 
          } catch (Throwable e) {
@@ -255,7 +335,7 @@ public class Server implements IServer {
 	   close();
 	   closeAllConnections();
 	   long mark = System.currentTimeMillis();
-       for (Connection con : getConnections()) {
+       for (Connection con : connectionSnapshot) {
     	   long diff = System.currentTimeMillis() - mark;
     	   long arg = time == 0 ? 0 : Math.max(10, time - diff);
    		   con.waitForDisconnect(arg);
@@ -269,38 +349,76 @@ public class Server implements IServer {
    
    @Override
    public int sendObjectToAll (Object object, SendPriority priority) {
-      TransmissionErrorCollector collector = null;
-      int transActionId = nextTransactionNumber();
-
-      for (Connection con : getConnections()) {
-         try { 
-            if (con.isConnected()) { 
-               con.sendObject(object, priority); 
-            }
-         } catch (Throwable e) {
-            if (collector == null) {
-               collector = new TransmissionErrorCollector(transActionId);
-            }
-            collector.addError(con, e);
-         }
-      }
-      // report any occurred error conditions
-      if (collector != null) {
-         collector.reportErrors();
-      }
-      return transActionId;
+      return broadcastObject(object, priority, null);
    }
 
    @Override
    public int sendObjectToAllExcept (UUID id, Object object, SendPriority priority) {
+      return broadcastObject(object, priority, id);
+   }
+
+   /** Sends an object to all connected connections of this server, 
+    * optionally except one. The object is serialised only once for each
+    * group of connections which have equivalent send serialisations
+    * (method and ordered class registrations) and the same parcel size.
+    * The resulting parcel data is shared among the members of a group.
+    * Other connections serialise the object individually.
+    * 
+    * @param object Object object to send
+    * @param priority <code>SendPriority</code>
+    * @param except UUID connection excluded from sending; may be null
+    * @return int transaction number
+    */
+   private int broadcastObject (Object object, SendPriority priority, UUID except) {
       TransmissionErrorCollector collector = null;
       int transActionId = nextTransactionNumber();
       
-      for (Connection con : getConnections()) {
-         try { 
-            if (con.isConnected() && !id.equals(con.getUUID())) { 
-               con.sendObject(object); 
+      // sort target connections into serialisation compatible groups
+      Map<SerialisationKey, List<Connection>> groups = 
+            new HashMap<SerialisationKey, List<Connection>>();
+      List<Connection> singles = new ArrayList<Connection>();
+      for (Connection con : connectionSnapshot) {
+         if (!con.isConnected() || (except != null && except.equals(con.getUUID()))) {
+            continue;
+         }
+         if (con instanceof ConnectionImpl && object != null) {
+            SerialisationKey key = new SerialisationKey(con);
+            List<Connection> group = groups.get(key);
+            if (group == null) {
+               group = new ArrayList<Connection>();
+               groups.put(key, group);
             }
+            group.add(con);
+         } else {
+            singles.add(con);
+         }
+      }
+
+      // send to groups with a shared serialisation
+      for (List<Connection> group : groups.values()) {
+         SerialisedObject serObj = group.size() > 1 ? 
+               serialiseShared(object, group.get(0)) : null;
+         if (serObj == null) {
+            singles.addAll(group);
+            continue;
+         }
+         
+         for (Connection con : group) {
+            try { 
+               ((ConnectionImpl)con).sendSerialisedObject(serObj, priority); 
+            } catch (Throwable e) {
+               if (collector == null) {
+                  collector = new TransmissionErrorCollector(transActionId);
+               }
+               collector.addError(con, e);
+            }
+         }
+      }
+
+      // send to remaining connections individually
+      for (Connection con : singles) {
+         try { 
+            con.sendObject(object, priority); 
          } catch (Throwable e) {
             if (collector == null) {
                collector = new TransmissionErrorCollector(transActionId);
@@ -308,6 +426,7 @@ public class Server implements IServer {
             collector.addError(con, e);
          }
       }
+      
       // report any occurred error conditions
       if (collector != null) {
          collector.reportErrors();
@@ -315,39 +434,112 @@ public class Server implements IServer {
       return transActionId;
    }
 
+   /** Serialises the given object for sending over the given connection
+    * and all connections with an equivalent send serialisation. 
+    * A private copy of the connection's send serialisation is used.
+    * 
+    * @param object Object object to send
+    * @param con <code>Connection</code> representative connection
+    * @return <code>SerialisedObject</code> or null if the object cannot be 
+    *         serialised
+    */
+   private static SerialisedObject serialiseShared (Object object, Connection con) {
+      Serialization ser = con.getSendSerialization();
+      if (!ser.isRegisteredClass(object.getClass())) {
+         return null;
+      }
+      
+      try {
+         byte[] data = ser.copyFor(con).serialiseObject(object);
+         return new SerialisedObject(data, con.getParameters().getTransmissionParcelSize());
+      } catch (Exception e) {
+         // leave error handling to individual serialisation
+         return null;
+      }
+   }
+
    @Override
    public int sendFileToAll (File file, String pathInfo, SendPriority priority) {
+      return broadcastFile(file, pathInfo, priority, null);
+   }
+
+   @Override
+   public int sendFileToAllExcept (UUID id, File file, String pathInfo, SendPriority priority) {
+      return broadcastFile(file, pathInfo, priority, id);
+   }
+
+   /** Sends a file to all connected connections, optionally except one.
+    * Connections with equal parcel size share a single reader of the file
+    * (<code>FileFanOut</code>), so the file is read only once per group. 
+    * Connections which lag behind the shared reader continue by reading
+    * the file individually. 
+    * 
+    * @param file File file to transmit
+    * @param pathInfo String destination parameter for remote system
+    * @param priority <code>SendPriority</code>
+    * @param except UUID connection to exclude, may be null
+    * @return int transaction ID
+    */
+   private int broadcastFile (File file, String pathInfo, SendPriority priority, UUID except) {
       TransmissionErrorCollector collector = null;
       int transActionId = nextTransactionNumber();
       
-      for (Connection con : getConnections()) {
-         try { 
-            if (con.isConnected()) { 
-               con.sendFile(file, pathInfo, priority); 
-            }
-         } catch (Throwable e) {
-            if (collector == null) {
-               collector = new TransmissionErrorCollector(transActionId);
+      // sort target connections into groups of equal parcel size
+      Map<Integer, List<Connection>> groups = new HashMap<Integer, List<Connection>>();
+      List<Connection> singles = new ArrayList<Connection>();
+      for (Connection con : connectionSnapshot) {
+         if (!con.isConnected() || (except != null && except.equals(con.getUUID()))) {
+            continue;
+         }
+         if (con instanceof ConnectionImpl && file != null) {
+            Integer key = con.getParameters().getTransmissionParcelSize();
+            List<Connection> group = groups.get(key);
+            if (group == null) {
+               group = new ArrayList<Connection>();
+               groups.put(key, group);
             }
-            collector.addError(con, e);
+            group.add(con);
+         } else {
+            singles.add(con);
          }
       }
-      // report any occurred error conditions
-      if (collector != null) {
-         collector.reportErrors();
+
+      // send to groups with a shared file reader
+      for (Map.Entry<Integer, List<Connection>> entry : groups.entrySet()) {
+         List<Connection> group = entry.getValue();
+         FileFanOut source = null;
+         if (group.size() > 1) {
+            try {
+               source = new FileFanOut(file, entry.getKey());
+            } catch (IOException e) {
+            }
+         }
+         if (source == null) {
+            singles.addAll(group);
+            continue;
+         }
+         
+         for (Connection con : group) {
+            try { 
+               ((ConnectionImpl)con).sendFile(file, pathInfo, priority, source); 
+            } catch (Throwable e) {
+               if (collector == null) {
+                  collector = new TransmissionErrorCollector(transActionId);
+               }
+               collector.addError(con, e);
+            }
+         }
+         
+         // start reading when all transmissions are attached
+         if (source.hasConsumers()) {
+            source.start();
+         }
       }
-      return transActionId;
-   }
 
-   @Override
-   public int sendFileToAllExcept (UUID id, File file, String pathInfo, SendPriority priority) {
-      TransmissionErrorCollector collector = null;
-      int transActionId = nextTransactionNumber();
-      for (Connection con : getConnections()) {
+      // send to remaining connections individually
+      for (Connection con : singles) {
          try { 
-            if (con.isConnected() && !id.equals(con.getUUID())) { 
-               con.sendFile(file, pathInfo, priority); 
-            }
+            con.sendFile(file, pathInfo, priority); 
          } catch (Throwable e) {
             if (collector == null) {
                collector = new TransmissionErrorCollector(transActionId);
@@ -355,6 +547,7 @@ public class Server implements IServer {
             collector.addError(con, e);
          }
       }
+      
       // report any occurred error conditions
       if (collector != null) {
          collector.reportErrors();
@@ -366,7 +559,7 @@ public class Server implements IServer {
    public int sendPingToAll() {
       TransmissionErrorCollector collector = null;
       int transActionId = nextTransactionNumber();
-      for (Connection con : getConnections()) {
+      for (Connection con : connectionSnapshot) {
          try { 
             if (con.isConnected()) { 
                con.sendPing(); 
@@ -389,7 +582,7 @@ public class Server implements IServer {
    public int sendTempoToAll (int baud) {
       TransmissionErrorCollector collector = null;
       int transActionId = nextTransactionNumber();
-      for (Connection con : getConnections()) {
+      for (Connection con : connectionSnapshot) {
          try { 
             if (con.isConnected()) { 
                con.setTempo(baud); 
@@ -415,17 +608,44 @@ public class Server implements IServer {
 
    @Override
    public ServerConnection[] getConnections() {
-	  synchronized (connectionMap) {
-	      ServerConnection[] a = new ServerConnection[connectionMap.size()];
-	      int i = 0;
-	      for (Enumeration<ServerConnection> en = connectionMap.elements();
-	           en.hasMoreElements(); i++) {
-	         a[i] = en.nextElement();
-	      }
-      return a;
-	  }
+      return connectionSnapshot.clone();
    }
 
+   @Override
+   public ServerConnection[] getConnectionGroup (UUID poolId) {
+      List<ServerConnection> group = new ArrayList<ServerConnection>();
+      if (poolId != null) {
+         for (ServerConnection con : connectionSnapshot) {
+            if (poolId.equals(con.getPoolId())) {
+               group.add(con);
+            }
+         }
+      }
+      return group.toArray(new ServerConnection[group.size()]);
+   }
+
+   @Override
+   public int forEachConnection (ConnectionVisitor visitor) {
+      if (visitor == null)
+         throw new NullPointerException();
+      
+      ServerConnection[] snapshot = connectionSnapshot;
+      int i = 0;
+      while (i < snapshot.length) {
+         if (!visitor.visit(snapshot[i++])) break;
+      }
+      return i;
+   }
+   
+   /** Replaces the connection snapshot with the current content of the
+    * connection map. Must be called after each modification of the map.
+    */
+   private void renewSnapshot () {
+      synchronized (connectionMap) {
+         connectionSnapshot = connectionMap.values().toArray(new ServerConnection[0]);
+      }
+   }
+   
    @Override
    public void removeConnection (ServerConnection connection) {
       if (connection == null)
@@ -433,6 +653,7 @@ public class Server implements IServer {
       
       // fire event if connection was present before removing
       if (connectionMap.remove(connection.getUUID()) != null) {
+         renewSnapshot();
          connection.removeListener(clientListener);
          fireServerEvent(3, connection);
       }
@@ -445,6 +666,7 @@ public class Server implements IServer {
       
       // put parameter connection into map and link our listener
       Connection oldEntry = connectionMap.put(connection.getUUID(), connection);
+      renewSnapshot();
       connection.addListener(clientListener);
       
       // fire removal event if connection with UUID was present
@@ -462,17 +684,13 @@ public class Server implements IServer {
       if (listener == null)
          throw new NullPointerException();
       
-      synchronized (listeners) {
-         listeners.add(listener);
-      }
+      listeners.add(listener);
    }
 
    @Override
    public void removeListener (ServerListener listener) {
       if (listener != null) {
-         synchronized (listeners) {
-            listeners.remove(listener);
-         }
+         listeners.remove(listener);
       }
    }
 
@@ -492,6 +710,73 @@ public class Server implements IServer {
       return signalMethod;
    }
 
+   @Override
+   public void setSocketBacklog (int backlog) {
+      if (backlog < 1)
+         throw new IllegalArgumentException("illegal backlog value; minimum = 1");
+      if (isBound())
+         throw new IllegalStateException("server is bound");
+      
+      socketBacklog = backlog;
+   }
+
+   @Override
+   public int getSocketBacklog () {
+      return socketBacklog;
+   }
+
+   @Override
+   public void setHandshakeThreads (int threads) {
+      if (threads < 1)
+         throw new IllegalArgumentException("illegal thread number; minimum = 1");
+      if (acceptThread != null)
+         throw new IllegalStateException("server has been started");
+      
+      handshakeThreads = threads;
+   }
+
+   @Override
+   public int getHandshakeThreads () {
+      return handshakeThreads;
+   }
+
+   @Override
+   public void setAcceptors (int acceptors) {
+      if (acceptors < 1)
+         throw new IllegalArgumentException("illegal acceptor number; minimum = 1");
+      if (isBound())
+         throw new IllegalStateException("server is bound");
+      
+      if (acceptors > 1 && !ReusePort.enable(serverSocket)) {
+         acceptors = 1;
+      }
+      this.acceptors = acceptors;
+   }
+
+   @Override
+   public int getAcceptors () {
+      return acceptors;
+   }
+
+   @Override
+   public AcceptStatistics getAcceptStatistics () {
+      return statistics;
+   }
+
+   @Override
+   public Map<String, Long> getMetricsSnapshot () {
+      Map<String, Long> map = statistics.snapshot();
+      ServerConnection[] snapshot = connectionSnapshot;
+      map.put("connections", (long)snapshot.length);
+      for (ServerConnection con : snapshot) {
+         for (Map.Entry<String, Long> e : con.getMetrics().snapshot().entrySet()) {
+            Long value = map.get(e.getKey());
+            map.put(e.getKey(), value == null ? e.getValue() : value + e.getValue());
+         }
+      }
+      return map;
+   }
+
    @Override
    public void setAcceptQueueCapacity(int capacity) {
       if (acceptThread != null)
@@ -508,7 +793,7 @@ public class Server implements IServer {
    @Override
    public void setTempoPrimacy (boolean prime) {
 	  tempoPrimacy = prime;
-      for (ServerConnection con : getConnections()) {
+      for (ServerConnection con : connectionSnapshot) {
           try { 
              if (con.isConnected()) { 
                 con.setTempoFixed(prime); 
@@ -530,12 +815,7 @@ public class Server implements IServer {
     * @return array of ServerListener
     */
    protected ServerListener[] getListeners () {
-      ServerListener[] array;
-      synchronized (listeners) {
-          array = new ServerListener[listeners.size()];
-          listeners.toArray(array);
-      }
-      return array;
+      return listeners.toArray();
    }
    
    /** Fire a server event to all listeners.
@@ -548,8 +828,8 @@ public class Server implements IServer {
     * @param con
     */
    protected void fireServerEvent (int event, Connection con) {
-      // we cycle all listeners on a copy of the listener list
-      for (ServerListener i : getListeners()) {
+      // we cycle all listeners on the current (immutable) listener snapshot
+      for (ServerListener i : listeners.getSnapshot()) {
          try {
             switch (event) {
             case 0: i.serverClosed(this); break;
@@ -564,8 +844,8 @@ public class Server implements IServer {
    }
 
    protected void fireTransactionError (Connection connection, Throwable e, int transActionId) {
-      // we cycle all listeners on a copy of the listener list
-      for (ServerListener i : getListeners()) {
+      // we cycle all listeners on the current (immutable) listener snapshot
+      for (ServerListener i : listeners.getSnapshot()) {
          try {
             i.errorOccurred(this, connection, transActionId, e);
          } catch (Throwable e1) {
@@ -585,9 +865,9 @@ public class Server implements IServer {
 
    /** Returns the server owned timer instance for executing timer-tasks.
     *    
-    * @return Timer
+    * @return <code>WheelTimer</code>
     */
-   protected Timer getTimer () {
+   protected WheelTimer getTimer () {
       return timer;
    }
    
@@ -607,6 +887,9 @@ public class Server implements IServer {
          acceptThread.setPriority(threadPriority);
          acceptThreadPriority = acceptThread.getPriority();
       }
+      for (AcceptThread shard : shardAcceptors) {
+         shard.setPriority(threadPriority);
+      }
    }
 
    @Override
@@ -627,14 +910,16 @@ public class Server implements IServer {
 // ----------- INNER CLASSES  ------------   
    
    /** Daemon thread dealing with accepting new incoming connections
-    *  for the server and dispatching them to user application.
-    *  This thread will close the serverSocket when terminated.
+    *  at one of the server's sockets and dispatching them to user application.
+    *  This thread will close its serverSocket when terminated.
     */
    private class AcceptThread extends Thread {
+      private final ServerSocket serverSocket;
       private boolean terminate;
       
-   AcceptThread () {
-      super("JN-SERVER Connection Acception");
+   AcceptThread (ServerSocket socket, String name) {
+      super(name);
+      serverSocket = socket;
       setDaemon(true);
       setPriority(getThreadPriority());
       setThreadPriority(getPriority());
@@ -649,37 +934,20 @@ public class Server implements IServer {
          
       while (!terminate) {
          try {
-            // accept a connection and initialise
+            // accept a connection and hand it over to a handshake thread
             Socket socket = serverSocket.accept();
-
-            // verify network layer
-            int time = getParameters().getConfirmTimeout() / 2;
-            boolean verified = JennyNet.verifyNetworkLayer(0, socket, timer, time);
-            if (!verified) {
-               continue;
-            }
-            
-            // once nature is verified, create the server connection (unstarted)
-            ServerConnection connection = new ServerConnectionImpl(Server.this, socket);
-            connection.setParameters(getParameters());
-            connection.setTempoFixed(tempoPrimacy);
-            connection.addListener(clientListener);
-            
-            // create and schedule timer task to shutdown socket in case
-            // application doesn't decide on acceptance
-            timer.schedule(new SocketShutdownTask(connection), 
-                  getParameters().getConfirmTimeout());
-
-            // signal connection event to user (various methods)
-            if (signalMethod == SignalMethod.Listener) {
-               // issue connection available event (LISTENER method)
-               fireServerEvent(1, connection);
-            } else {
-               // put connection into incoming connections queue (ACCEPT method)
-               // immediately close connection if list is full
-               if (!incoming.offer(connection)) {
-                  connection.close();
+            statistics.socketAccepted();
+            statistics.handshakeQueued();
+            try {
+               handshakeExecutor.execute(new HandshakeTask(socket));
+            } catch (RejectedExecutionException e) {
+               // handshake queue overflow
+               statistics.handshakeOverflow();
+               if (debug) {
+                  System.out.println("-- HANDSHAKE QUEUE OVERFLOW: closing socket " 
+                        + socket.getRemoteSocketAddress());
                }
+               closeSocket(socket);
             }
          
          } catch (SocketException e) {
@@ -713,6 +981,119 @@ public class Server implements IServer {
    }
    } // AcceptThread
 
+   /** Drops queued handshakes and shuts down the handshake thread pool.
+    * Running handshakes terminate by their deadline.
+    */
+   private void shutdownHandshakes () {
+      List<Runnable> queued = new ArrayList<Runnable>();
+      handshakeExecutor.getQueue().drainTo(queued);
+      handshakeExecutor.shutdown();
+      for (Runnable r : queued) {
+         ((HandshakeTask)r).discard();
+      }
+   }
+
+   /** Performs the layer handshake with an incoming socket and, if 
+    * successful, renders the server connection to the application.
+    * The handshake must complete within half of the CONFIRM_TIMEOUT
+    * counted from the acceptance of the socket, including the time the 
+    * task waits for execution.
+    */
+   private class HandshakeTask implements Runnable {
+      private final Socket socket;
+      private final long deadline;
+      
+      HandshakeTask (Socket socket) {
+         this.socket = socket;
+         deadline = System.currentTimeMillis() + getParameters().getConfirmTimeout() / 2;
+      }
+      
+      @Override
+      public void run () {
+         // verify network layer within remaining time
+         int time = (int)(deadline - System.currentTimeMillis());
+         if (closed) {
+            discard();
+            return;
+         }
+         if (time <= 0) {
+            expire();
+            return;
+         }
+         
+         boolean verified;
+         try {
+            verified = JennyNet.verifyNetworkLayer(0, socket, timer, time);
+         } catch (IOException e) {
+            if (debug) {
+               e.printStackTrace();
+            }
+            verified = false;
+         }
+         if (!verified) {
+            statistics.handshakeFailed();
+            closeSocket(socket);
+            return;
+         }
+         statistics.handshakeVerified();
+         
+         try {
+            // once nature is verified, create the server connection (unstarted)
+            ServerConnection connection = new ServerConnectionImpl(Server.this, socket);
+            connection.setParameters(getParameters());
+            connection.setTempoFixed(tempoPrimacy);
+            connection.addListener(clientListener);
+            
+            // create and schedule timer task to shutdown socket in case
+            // application doesn't decide on acceptance
+            timer.schedule(new SocketShutdownTask(connection), 
+                  getParameters().getConfirmTimeout());
+
+            // signal connection event to user (various methods)
+            if (signalMethod == SignalMethod.Listener) {
+               // issue connection available event (LISTENER method)
+               fireServerEvent(1, connection);
+            } else {
+               // put connection into incoming connections queue (ACCEPT method)
+               // immediately close connection if list is full
+               if (!incoming.offer(connection)) {
+                  connection.close();
+               }
+            }
+         } catch (Throwable e) {
+            e.printStackTrace();
+            closeSocket(socket);
+         }
+      }
+      
+      /** Drops this handshake without execution after its deadline. */
+      void expire () {
+         statistics.handshakeExpired();
+         if (debug) {
+            System.out.println("-- HANDSHAKE EXPIRED: closing socket " 
+                  + socket.getRemoteSocketAddress());
+         }
+         closeSocket(socket);
+      }
+      
+      /** Drops this handshake without execution at closing of the server. */
+      void discard () {
+         statistics.handshakeDiscarded();
+         if (debug) {
+            System.out.println("-- HANDSHAKE DISCARDED: closing socket " 
+                  + socket.getRemoteSocketAddress());
+         }
+         closeSocket(socket);
+      }
+   } // HandshakeTask
+   
+   private static void closeSocket (Socket socket) {
+      try {
+         socket.close();
+      } catch (IOException e) {
+      }
+   }
+
    /**
     * Listener to connections which were created by this server.
     * We are only interested in events which trigger insertion or removal
@@ -736,12 +1117,12 @@ public class Server implements IServer {
    } // ClientListener
 
    /**
-    * TimerTask (scheduled at the server's Timer instance) for controlling
+    * Timer task (scheduled at the server's timer instance) for controlling
     * expiration of the socket open time for an incoming connection request.
     * The task closes the socket to the client if and only if the 
     * associated connection has not been started by the application.  
     */
-   private class SocketShutdownTask extends TimerTask {
+   private class SocketShutdownTask extends WheelTimerTask {
       private ServerConnection connection;
       
       public SocketShutdownTask (ServerConnection con) {
@@ -768,6 +1149,41 @@ public class Server implements IServer {
       
    } // ConnectionShutdownTask
 
+   /** Identifies connections which produce identical object serialisations
+    * and parcel data. Equality requires the same serialisation method, the 
+    * same class registrations in the same order and the same parcel size.
+    */
+   private static class SerialisationKey {
+      private final Class<?> type;
+      private final int method;
+      @SuppressWarnings("rawtypes")  // Serialization.getRegisteredClasses()
+      private final List<Class> classes;
+      private final int parcelSize;
+      
+      SerialisationKey (Connection con) {
+         Serialization ser = con.getSendSerialization();
+         type = ser.getClass();
+         method = ser.getMethodID();
+         classes = ser.getRegisteredClasses();
+         parcelSize = con.getParameters().getTransmissionParcelSize();
+      }
+
+      @Override
+      public boolean equals (Object obj) {
+         if (!(obj instanceof SerialisationKey)) 
+            return false;
+         SerialisationKey k = (SerialisationKey)obj;
+         return type == k.type && method == k.method && parcelSize == k.parcelSize
+                && classes.equals(k.classes);
+      }
+
+      @Override
+      public int hashCode () {
+         return ((type.hashCode() * 31 + method) * 31 + parcelSize) * 31 
+                + classes.hashCode();
+      }
+   }
+   
    /** This humble class collects error conditions coming from multiplex
     * actions on connections, mostly sending actions. It holds informations
     * on Connection and Throwable and offers feature to report them to event
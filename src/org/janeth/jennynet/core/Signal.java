@@ -1,5 +1,7 @@
 package org.janeth.jennynet.core;
 
+import java.util.UUID;
+
 import org.janeth.jennynet.util.Util;
 
 public class Signal extends TransmissionParcel {
@@ -33,8 +35,6 @@ public class Signal extends TransmissionParcel {
       this.sigType = SignalType.valueOf(serialNr & 0xFFFF);
 //      this.info = serialNr >>> 16;
       byte[] data = getData();
-      this.text = data == null ? null : 
-    	          data.length == 4 ? null : new String(data, 4, data.length-4, JennyNet.getCodingCharset());
       this.info = data == null ? 0 : Util.readInt(data, 0); 
    }
 
@@ -47,8 +47,27 @@ public class Signal extends TransmissionParcel {
    }
 
    public String getText() {
+      if (text == null) {
+         byte[] data = getData();
+         text = data == null || data.length == 4 ? null : 
+                new String(data, 4, data.length-4, JennyNet.getCodingCharset());
+      }
       return text;
    }
+
+   /** Returns the binary data of this signal following the info value.
+    * 
+    * @return byte[] signal data (empty if there is none)
+    */
+   public byte[] getPayload() {
+      byte[] data = getData();
+      if (data == null || data.length <= 4) {
+         return new byte[0];
+      }
+      byte[] payload = new byte[data.length - 4];
+      System.arraycopy(data, 4, payload, 0, payload.length);
+      return payload;
+   }
 /*
    public long getObjectID () {
       return objectID;
@@ -97,6 +116,122 @@ public class Signal extends TransmissionParcel {
       return s;
    }
    
+   /** Creates a new POOL signal which announces membership of the 
+    * sending connection in a client pool.
+    * 
+    * @param poolId UUID pool identifier
+    * @param member int member index
+    * @return Signal
+    */
+   public static Signal newPoolSignal (UUID poolId, int member) {
+      Signal s = new Signal(SignalType.POOL, 0, member, poolId.toString());
+      s.setPriority(SendPriority.High);
+      return s;
+   }
+   
+   /** Creates a new RESUME signal which requests the resumption of an
+    * interrupted file transfer (sender to receiver).
+    * 
+    * @param fileID long ID of the new file transmission
+    * @param transferId UUID transfer ID of the interrupted transfer
+    * @return Signal
+    */
+   public static Signal newResumeSignal (long fileID, UUID transferId) {
+      Signal s = new Signal(SignalType.RESUME, fileID, 0, transferId.toString());
+      s.setPriority(SendPriority.High);
+      return s;
+   }
+   
+   /** Creates a new RESUME signal which answers a resumption request
+    * with the file position from where the transfer may continue 
+    * (receiver to sender).
+    * 
+    * @param fileID long ID of the new file transmission
+    * @param offset long length of retained file data
+    * @return Signal
+    */
+   public static Signal newResumeAnswerSignal (long fileID, long offset) {
+      Signal s = new Signal(SignalType.RESUME, fileID, 1, String.valueOf(offset));
+      s.setPriority(SendPriority.High);
+      return s;
+   }
+   
+   /** Creates a new DELTA signal which requests the signature of the
+    * receiver's version of a file for a delta file transfer (sender to 
+    * receiver).
+    * 
+    * @param fileID long ID of the file transmission
+    * @param path String remote path of the file
+    * @return Signal
+    */
+   public static Signal newDeltaSignal (long fileID, String path) {
+      Signal s = new Signal(SignalType.DELTA, fileID, 0, path);
+      s.setPriority(SendPriority.High);
+      return s;
+   }
+   
+   /** Creates a new DELTA signal which answers a delta request with the
+    * signature of the receiver's version of the file (receiver to sender).
+    * An empty signature indicates that no base file is available.
+    * 
+    * @param fileID long ID of the file transmission
+    * @param signature byte[] serialised file signature (may be empty)
+    * @return Signal
+    */
+   public static Signal newDeltaAnswerSignal (long fileID, byte[] signature) {
+      Signal s = new Signal(SignalType.DELTA, fileID, 1, null);
+      byte[] data = new byte[signature.length + 4];
+      Util.writeInt(data, 0, 1);
+      System.arraycopy(signature, 0, data, 4, signature.length);
+      s.setData(data);
+      s.setPriority(SendPriority.High);
+      return s;
+   }
+   
+   /** Creates a new DEDUP signal which announces the content hash of a
+    * file transmission before its data is sent (sender to receiver).
+    * 
+    * @param fileID long ID of the file transmission
+    * @param hash String hexadecimal SHA-256 value of the file
+    * @param length long file length
+    * @param path String remote path of the file (may be null)
+    * @return Signal
+    */
+   public static Signal newDedupSignal (long fileID, String hash, long length, String path) {
+      String text = hash + ":" + length + ":" + (path == null ? "" : path);
+      Signal s = new Signal(SignalType.DEDUP, fileID, 0, text);
+      s.setPriority(SendPriority.High);
+      return s;
+   }
+   
+   /** Creates a new DEDUP signal which answers a content hash announcement
+    * or a content commit (receiver to sender). Answer codes: 1 = content
+    * found (sender may commit), 2 = content not available (file data has 
+    * to be sent), 3 = file realised from the cache (transfer complete). 
+    * 
+    * @param fileID long ID of the file transmission
+    * @param answer int answer code (1..3)
+    * @return Signal
+    */
+   public static Signal newDedupAnswerSignal (long fileID, int answer) {
+      Signal s = new Signal(SignalType.DEDUP, fileID, answer, null);
+      s.setPriority(SendPriority.High);
+      return s;
+   }
+   
+   /** Creates a new DEDUP signal which commits a file transmission to be
+    * realised from the content cache of the receiver after the receiver 
+    * has answered that it holds the content (sender to receiver).
+    * 
+    * @param fileID long ID of the file transmission
+    * @return Signal
+    */
+   public static Signal newDedupCommitSignal (long fileID) {
+      Signal s = new Signal(SignalType.DEDUP, fileID, 4, null);
+      s.setPriority(SendPriority.High);
+      return s;
+   }
+   
    public static Signal newConfirmSignal (long objectID) {
       return new Signal(SignalType.CONFIRM, objectID);
    }
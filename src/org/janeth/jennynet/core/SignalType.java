@@ -9,7 +9,11 @@ public enum SignalType {
    CONFIRM,
    FAIL,
    PING,
-   ECHO
+   ECHO,
+   POOL,
+   RESUME,
+   DELTA,
+   DEDUP
 ;
 
    public static SignalType valueOf (int ordinal) {
@@ -23,6 +27,10 @@ public enum SignalType {
       case 5 : sp = SignalType.FAIL; break;
       case 6 : sp = SignalType.PING; break;
       case 7 : sp = SignalType.ECHO; break;
+      case 8 : sp = SignalType.POOL; break;
+      case 9 : sp = SignalType.RESUME; break;
+      case 10 : sp = SignalType.DELTA; break;
+      case 11 : sp = SignalType.DEDUP; break;
       default: throw new IllegalArgumentException("undefined ordinal value: " + ordinal);
       }
       return sp;
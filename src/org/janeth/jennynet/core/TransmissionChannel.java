@@ -1,7 +1,7 @@
 package org.janeth.jennynet.core;
 
-
-enum TransmissionChannel {
+/** The logical channels of transmission parcels on a connection. */
+public enum TransmissionChannel {
    SIGNAL,
    OBJECT,
    FILE
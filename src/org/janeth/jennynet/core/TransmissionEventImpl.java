@@ -1,7 +1,12 @@
 package org.janeth.jennynet.core;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.EventObject;
+import java.util.UUID;
 
 import org.janeth.jennynet.intfa.Connection;
 import org.janeth.jennynet.intfa.TransmissionEvent;
@@ -15,6 +20,10 @@ class TransmissionEventImpl extends EventObject implements TransmissionEvent {
    private long transmittedLength, expectedLength;
    private String path;
    private File file;
+   private UUID transferId;
+   private ReceptionFrontier frontier;
+   private WritableByteChannel channel;
+   private String digest;
    
    public TransmissionEventImpl (
          Connection connection, 
@@ -208,6 +217,55 @@ class TransmissionEventImpl extends EventObject implements TransmissionEvent {
       return exception;
    }
 
+   /* (non-Javadoc)
+    * @see org.janeth.jennynet.core.TransmissionEvent#getTransferId()
+    */
+   @Override
+   public UUID getTransferId() {
+      return transferId;
+   }
+
+   protected void setTransferId(UUID transferId) {
+      this.transferId = transferId;
+   }
+
+   /* (non-Javadoc)
+    * @see org.janeth.jennynet.core.TransmissionEvent#getInputStream()
+    */
+   @Override
+   public InputStream getInputStream() throws IOException {
+      return frontier == null ? null : frontier.openStream();
+   }
+
+   protected void setFrontier(ReceptionFrontier frontier) {
+      this.frontier = frontier;
+   }
+
+   @Override
+   public WritableByteChannel getChannel() {
+      return channel;
+   }
+
+   @Override
+   public ByteBuffer getBuffer() {
+      return type == TransmissionEventType.FILE_RECEIVED && 
+             channel instanceof BufferStorage.BufferChannel ?
+             ((BufferStorage.BufferChannel)channel).getBuffer() : null;
+   }
+
+   protected void setChannel(WritableByteChannel channel) {
+      this.channel = channel;
+   }
+
+   @Override
+   public String getDigest() {
+      return digest;
+   }
+
+   protected void setDigest(String digest) {
+      this.digest = digest;
+   }
+
    protected void setException(Throwable exception) {
       this.exception = exception;
    }
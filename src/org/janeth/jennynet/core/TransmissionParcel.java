@@ -64,6 +64,36 @@ class TransmissionParcel extends JennyNetByteBuffer
       return list.toArray(new TransmissionParcel[list.size()]);
    }
 
+   /** Returns an array of OBJECT channel transmission parcels which refer
+    * to the data segments of a shared object serialisation. Parcel data is
+    * not copied; only parcel headers and CRC values are individual. 
+    *  
+    * @param serObj <code>SerialisedObject</code> shared serialisation
+    * @param objectNr long object ID
+    * @param priority <code>SendPriority</code>
+    * @return TransmissionParcel array 
+    */
+   public static TransmissionParcel[] createParcelArray (
+         SerialisedObject serObj, 
+         long objectNr, 
+         SendPriority priority ) {
+
+      int nrOfParcels = serObj.getNrOfParcels();
+      TransmissionParcel[] parcels = new TransmissionParcel[nrOfParcels];
+      for (int i = 0; i < nrOfParcels; i++) {
+         TransmissionParcel p = new TransmissionParcel(TransmissionChannel.OBJECT, 
+               objectNr, i, serObj.getSegment(i), serObj.getSegmentCrc(i));
+         p.setPriority(priority);
+         parcels[i] = p;
+      }
+
+      // set object header values on first transmission parcel
+      ObjectHeader header = parcels[0].getObjectHeader();
+      header.setTransmissionSize( serObj.getLength() );
+      header.setNrOfParcels( nrOfParcels );
+      return parcels;
+   }
+
    // parcel header data
    private ObjectHeader header;
    private TransmissionChannel channel;
@@ -72,6 +102,7 @@ class TransmissionParcel extends JennyNetByteBuffer
    private long objectID;
    private int sequencelNr;
    private int crc32;
+   private long sendRound;  // FILE parcels, not transmitted
    
    
    /** Creates a new transmission parcel for the OBJECT channel with the 
@@ -103,6 +134,37 @@ class TransmissionParcel extends JennyNetByteBuffer
    }
 
    
+   /** Creates a new transmission parcel for the given channel which
+    * refers to the given shared data segment (no copy). The parcel CRC
+    * is derived from the given CRC of the data segment. 
+    * 
+    * @param channel <code>TransmissionChannel</code> OBJECT or FILE
+    * @param objectNr long the transmission object number
+    * @param parcelNr int the parcel serial number
+    * @param segment byte[] shared data segment
+    * @param dataCrc int CRC32 value of the data segment
+    */
+   TransmissionParcel (TransmissionChannel channel, long objectNr, int parcelNr, 
+                       byte[] segment, int dataCrc) {
+      setData(segment);
+      objectID = objectNr;
+      sequencelNr = parcelNr;
+      this.channel = channel;
+      
+      // parcel 0 has extended header information
+      if (parcelNr == 0) {
+         header = new ObjectHeader(objectNr);
+      }
+
+      // extend the data CRC by the parcel's header values
+      byte[] trailer = new byte[13];
+      Util.writeInt(trailer, 0, (int)(objectID >>> 32));
+      Util.writeInt(trailer, 4, (int)objectID);
+      Util.writeInt(trailer, 8, sequencelNr);
+      trailer[12] = (byte)channel.ordinal();
+      crc32 = CRC32.extend(dataCrc, trailer, 0, trailer.length);
+   }
+
    /** Creates a new transmission parcel for the OBJECT channel 
     * with the given data buffer and header information. 
     * This fully defines the parcel.
@@ -265,6 +327,24 @@ class TransmissionParcel extends JennyNetByteBuffer
       this.timerTask = timerTask;
    }
 
+   /** Returns the send round of a FILE parcel. Parcels of concurrent file
+    * transfers with the same priority are sent in the order of their send
+    * rounds. The value is not transmitted.
+    * 
+    * @return long send round
+    */
+   public long getSendRound () {
+      return sendRound;
+   }
+
+   /** Sets the send round of a FILE parcel.
+    * 
+    * @param round long send round
+    */
+   public void setSendRound (long round) {
+      sendRound = round;
+   }
+
    /** Returns whether this parcel is set up correctly 
     * an is ready for transmission or other reception.
     * 
@@ -365,6 +445,11 @@ class TransmissionParcel extends JennyNetByteBuffer
 		if (channel.ordinal() > obj.channel.ordinal()) return +1;
 		if (priority.ordinal() > obj.priority.ordinal()) return -1;
 		if (priority.ordinal() < obj.priority.ordinal()) return +1;
+		
+		// parcels of concurrent file transfers are interleaved by round
+		if (channel == TransmissionChannel.FILE && sendRound != obj.sendRound) {
+			return sendRound < obj.sendRound ? -1 : +1;
+		}
 		if (objectID < obj.objectID) return -1;
 		if (objectID > obj.objectID) return +1;
 		if (sequencelNr < obj.sequencelNr) return -1;
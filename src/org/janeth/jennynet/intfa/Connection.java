@@ -1,12 +1,16 @@
 package org.janeth.jennynet.intfa;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Properties;
 import java.util.UUID;
 
+import org.janeth.jennynet.core.ConnectionMetrics;
 import org.janeth.jennynet.core.SendPriority;
 import org.janeth.jennynet.exception.FileInTransmissionException;
 import org.janeth.jennynet.exception.IllegalFileLengthException;
@@ -202,8 +206,9 @@ public interface Connection {
    public long sendObject (Object object, SendPriority priority);
 
    /** Transfers a file to the remote station. Files can be scheduled
-    * with a length up to 2.1 GB (Integer.MAX_VALUE). The returned file
-    * identifier number is referenced at subsequent transfer events 
+    * with a length up to Integer.MAX_VALUE times the connection's 
+    * TRANSMISSION_PARCEL_SIZE (64 TB with the default parcel size). The
+    * returned file identifier number is referenced at subsequent transfer events 
     * concerning the posted file. The
     * file related send-priority of this method is <i>Normal</i>. 
     * <p>(For details on events and handling transmission see the manual page 
@@ -224,8 +229,9 @@ public interface Connection {
    public long sendFile (File file, String remotePath) throws IOException;
 
    /** Transfers a file to the remote station. Files can be scheduled
-    * with a length up to 2.1 GB (Integer.MAX_VALUE). The returned file
-    * identifier number is referenced at subsequent transfer events 
+    * with a length up to Integer.MAX_VALUE times the connection's 
+    * TRANSMISSION_PARCEL_SIZE (64 TB with the default parcel size). The
+    * returned file identifier number is referenced at subsequent transfer events 
     * concerning the posted file. 
     * <p>(For details on events and handling transmission see the manual page 
     * for file transfers.)
@@ -246,6 +252,137 @@ public interface Connection {
     */
    public long sendFile (File file, String remotePath, SendPriority priority) throws IOException;
 
+   /** Resumes a file transfer to the remote station which was interrupted
+    * by the loss of a previous connection. The transfer ID is obtained from
+    * the transfer events of the interrupted transfer, which carry an ID if 
+    * the connection parameter RESUMABLE_TRANSFERS was set. The remote station
+    * reports the length of the data it has retained for the transfer and
+    * the transmission continues from this file position. If the remote 
+    * station has not retained data for the transfer (see connection 
+    * parameter TRANSFER_RETENTION), the file is transmitted entirely.
+    * Otherwise this method behaves like <code>sendFile()</code>.
+    * 
+    * @param file <code>File</code> the file to be sent
+    * @param remotePath String path information for the remote station
+    *                 (must be the same as in the interrupted transfer)
+    * @param priority <code>SendPriority</code> priority in the class of
+    *  				send files (ordering of send files)
+    * @param transferId UUID transfer ID of the interrupted transfer
+    * @returns long file ID number
+    * @throws FileNotFoundException if the file cannot be found or read
+    * @throws FileInTransmissionException if the file is already in 
+    *         transmission for this connection
+    * @throws IllegalFileLengthException if maximum file length is exceeded
+    * @throws IllegalStateException if the sender list was full (rejected order)
+    * @throws NullPointerException if file or transferId is null
+    * @throws IOException 
+    */
+   public long resumeFile (File file, String remotePath, SendPriority priority, 
+                           UUID transferId) throws IOException;
+
+   /** Sends a new version of a file which the remote station already has 
+    * under the given path (delta transfer). The remote station reports a 
+    * signature of its version of the file and only the differences between
+    * the versions are transmitted; the remote station reconstructs the new
+    * version from its existing file and replaces it. If the remote station 
+    * has no file under the path or the difference is not smaller than the
+    * file, the file is transmitted entirely. Otherwise this method behaves
+    * like <code>sendFile()</code>; transfer events state the transmitted 
+    * length of the difference data.
+    * 
+    * @param file <code>File</code> the file to be sent
+    * @param remotePath String path information for the remote station
+    *                 (relative path)
+    * @param priority <code>SendPriority</code> priority in the class of
+    *  				send files (ordering of send files)
+    * @returns long file ID number
+    * @throws FileNotFoundException if the file cannot be found or read
+    * @throws FileInTransmissionException if the file is already in 
+    *         transmission for this connection
+    * @throws IllegalFileLengthException if maximum file length is exceeded
+    * @throws IllegalStateException if the sender list was full (rejected order)
+    * @throws NullPointerException if file or remotePath is null
+    * @throws IOException 
+    */
+   public long sendFileDelta (File file, String remotePath, SendPriority priority) 
+		   throws IOException;
+
+   /** Sends the files of a directory and its sub-directories as a single
+    * transfer (file batch). The files are transmitted with a manifest of 
+    * their relative paths and lengths and written by the remote station
+    * directly into the directory given by the path parameter, relative to
+    * its FILE ROOT DIRECTORY (the root directory itself if the path is null).
+    * The remote station confirms the batch as a whole; there is a single
+    * set of transfer events for the batch, which refer to the directory. 
+    * If the remote station has no FILE ROOT DIRECTORY defined, the batch
+    * fails. If a batch fails, files which the remote station had completed
+    * remain in place. Batches cannot be resumed. Symbolic links in the 
+    * directory tree are not followed and are not transmitted.
+    * 
+    * @param dir <code>File</code> the directory to be sent
+    * @param remotePath String destination directory for the remote station
+    *                 (relative path), may be null
+    * @param filter <code>FileFilter</code> selection of files; applies to
+    *                 files only, may be null for all files
+    * @param priority <code>SendPriority</code> priority in the class of
+    *  				send files (ordering of send files)
+    * @returns long file ID number
+    * @throws FileNotFoundException if dir is not a readable directory
+    * @throws FileInTransmissionException if the directory is already in 
+    *         transmission for this connection
+    * @throws IllegalStateException if the sender list was full (rejected order)
+    * @throws NullPointerException if dir is null
+    * @throws IOException 
+    */
+   public long sendDirectory (File dir, String remotePath, FileFilter filter, 
+		   SendPriority priority) throws IOException;
+
+   /** Sends the data of the given stream as a file of unknown length 
+    * (stream transfer). The data is read and transmitted until the end of 
+    * the stream, which is signalled to the remote station by an end-of-stream
+    * marker instead of an announced file length. The remote station receives
+    * the data like a file: it is written to the destination given by the 
+    * path parameter and signalled with the usual file transfer events; the 
+    * expected length reported in FILE_INCOMING events is -1 (unknown).
+    * The stream is closed when the transfer ends. Stream transfers cannot be
+    * resumed and are transmitted without delta encoding or deduplication.
+    * 
+    * @param in <code>InputStream</code> source of data
+    * @param remotePath String path information for the remote station
+    *                 (relative path), may be null
+    * @param priority <code>SendPriority</code> priority in the class of
+    *  				send files (ordering of send files)
+    * @returns long file ID number
+    * @throws FileInTransmissionException if the stream is already in 
+    *         transmission for this connection
+    * @throws IllegalStateException if the sender list was full (rejected order)
+    * @throws NullPointerException if in is null
+    * @throws IOException 
+    */
+   public long sendStream (InputStream in, String remotePath, SendPriority priority) 
+		   throws IOException;
+
+   /** Sends the data of the given channel as a file of unknown length 
+    * (stream transfer). This is equivalent to <code>sendStream(InputStream,
+    * String, SendPriority)</code> with a stream reading the channel.
+    * A non-blocking channel is not supported. The channel is closed when the
+    * transfer ends.
+    * 
+    * @param channel <code>ReadableByteChannel</code> source of data
+    * @param remotePath String path information for the remote station
+    *                 (relative path), may be null
+    * @param priority <code>SendPriority</code> priority in the class of
+    *  				send files (ordering of send files)
+    * @returns long file ID number
+    * @throws FileInTransmissionException if the channel is already in 
+    *         transmission for this connection
+    * @throws IllegalStateException if the sender list was full (rejected order)
+    * @throws NullPointerException if channel is null
+    * @throws IOException 
+    */
+   public long sendStream (ReadableByteChannel channel, String remotePath, 
+		   SendPriority priority) throws IOException;
+
    /** Sends the given block of byte data over the network.
     * <p><small>A standard internal class (<i>JennyNetByteBuffer</i>) is used 
     * to represent the given block at the remote endpoint, signalling it as 
@@ -375,6 +512,16 @@ public interface Connection {
     */
    public long getTransmissionVolume ();
 
+   /** Returns the metrics of this connection: data volumes and parcel 
+    * counts per transmission channel, object counts, queue depths and loads,
+    * serialisation times, backpressure stalls and file transfers in flight.
+    * The returned instance is live and remains valid after the connection
+    * is closed.
+    *  
+    * @return <code>ConnectionMetrics</code>
+    */
+   public ConnectionMetrics getMetrics ();
+
    
    /** Returns the currently active transmission speed of this connection
     * expressed in bytes per second. A value zero indicates that transmission
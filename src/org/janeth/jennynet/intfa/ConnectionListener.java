@@ -14,6 +14,12 @@ package org.janeth.jennynet.intfa;
  * incoming channel of a connection are under charge; the outgoing channels 
  * should be unaffected. 
  * 
+ * <p>Events are executed by the threads of a pool which is shared by all
+ * connections of the layer (see <code>JennyNet.setDispatchThreads()</code>).
+ * The events of a single connection are always delivered one at a time and 
+ * in the order of their occurrence. A blocking listener occupies one thread
+ * of the shared pool for the time of its blocking.
+ * 
  *  @see Connection
  *  
  */
@@ -22,9 +28,9 @@ public interface ConnectionListener
 {
 
   /** Called when the remote end has been connected. This will be invoked
-   *  before any objects are received. This method runs in a dedicated thread
+   *  before any objects are received. This method runs in a dispatch thread
    *  and may  be delayed for any time required. However, other events of the
-   *  same type are not processed until it returns. 
+   *  same connection are not processed until it returns. 
    * 
    * @param connection <code>Connection</code> source connection
    */
@@ -314,4 +314,209 @@ public interface ConnectionParameters extends Cloneable {
     */
    public void setIdleCheckPeriod (int period);
    
-}
\ No newline at end of file
+   /** Whether the worker threads of the connection run as virtual threads.
+    * Defaults to false.
+    * 
+    * @return boolean true == virtual threads
+    */
+   public boolean isVirtualThreads ();
+   
+   /** Sets whether the worker threads of the connection run as virtual
+    * threads. This concerns object serialisation, de-serialisation,
+    * socket sending and receiving, file sending and file reception.
+    * Virtual threads are cheap in memory and allow very large numbers of
+    * connections with blocking socket and file IO. This value can only be
+    * set before a connection starts and defaults to false.
+    * <p><small>Virtual threads require a Java runtime of version 21 or
+    * higher; on older runtimes platform threads are used and this setting
+    * has no effect. Virtual threads always run with Thread.NORM_PRIORITY,
+    * hence BASE_THREAD_PRIORITY and TRANSMIT_THREAD_PRIORITY are ignored
+    * for the worker threads of the connection while they still apply to 
+    * the layer's shared event dispatch threads.</small>
+    * 
+    * @param virtual boolean true == virtual threads
+    * @throws IllegalStateException if the related Connection is connected
+    */
+   public void setVirtualThreads (boolean virtual);
+   
+   /** Returns the TRANSFER_RETENTION time of the connection. This is the
+    * time for which the reception file of an incoming file transfer is 
+    * retained after the transfer was interrupted by the loss of the 
+    * connection. Within this time the sender can resume the transfer over
+    * a new connection. Defaults to 0 (no retention).
+    * 
+    * @return int milliseconds
+    * @see Connection#resumeFile(File, String, org.janeth.jennynet.core.SendPriority, java.util.UUID)
+    */
+   public int getTransferRetention ();
+   
+   /** Sets the TRANSFER_RETENTION time of the connection. This is the
+    * time for which the reception file of an incoming file transfer is 
+    * retained after the transfer was interrupted by the loss of the 
+    * connection. Within this time the sender can resume the transfer over
+    * a new connection. Defaults to 0 (no retention).
+    * 
+    * @param time int milliseconds (0 = no retention)
+    */
+   public void setTransferRetention (int time);
+   
+   /** Whether outgoing file transfers of the connection carry a transfer
+    * ID which allows their resumption after an interruption 
+    * (RESUMABLE_TRANSFERS). Defaults to false.
+    * 
+    * @return boolean true == resumable transfers
+    * @see org.janeth.jennynet.intfa.TransmissionEvent#getTransferId()
+    */
+   public boolean isResumableTransfers ();
+   
+   /** Sets whether outgoing file transfers of the connection carry a 
+    * transfer ID which allows their resumption after an interruption 
+    * (RESUMABLE_TRANSFERS). The transfer ID is reported by the transfer 
+    * events of both sides; the remote station retains interrupted 
+    * transfers according to its TRANSFER_RETENTION parameter. 
+    * Transfers of parallel ranges, directories and streams are not 
+    * resumable. Defaults to false.
+    * 
+    * <p><small>The transfer ID extends the header of a file transfer; 
+    * remote stations must run a layer version which supports resumption.
+    * </small>
+    * 
+    * @param resumable boolean true == resumable transfers
+    * @see Connection#resumeFile(File, String, org.janeth.jennynet.core.SendPriority, java.util.UUID)
+    */
+   public void setResumableTransfers (boolean resumable);
+   
+   /** Whether outgoing file transfers of the connection announce the 
+    * content hash (SHA-256) of their file to remote before the file is
+    * transmitted (DEDUPLICATION). Defaults to false.
+    * 
+    * @return boolean true == deduplication
+    */
+   public boolean isDeduplication ();
+   
+   /** Sets whether outgoing file transfers of the connection announce the
+    * content hash (SHA-256) of their file to remote before the file is
+    * transmitted (DEDUPLICATION). If the remote station holds the content
+    * in its content cache, the file is realised from the cache and the 
+    * transfer is confirmed without transmission of file data. This 
+    * requires an extra reading of the file. Defaults to false.
+    * 
+    * <p><b>Trust boundary:</b> the content cache of the remote station is
+    * shared by all its connections. The content of a file sent with 
+    * deduplication becomes available, by its hash, to every other station
+    * which is connected to the same remote layer. On the receiving side 
+    * the exposure is controlled by <code>JennyNet.setContentCache()</code>,
+    * not by this parameter.
+    * 
+    * @param dedup boolean true == deduplication
+    * @see org.janeth.jennynet.core.JennyNet#setContentCache(org.janeth.jennynet.core.ContentCache)
+    */
+   public void setDeduplication (boolean dedup);
+   
+   /** Returns the FILE_SYNC_PERIOD of the connection, which defines the
+    * durability policy of incoming files. Defaults to -1.
+    * 
+    * @return int megabytes; -1 = no sync, 0 = sync on completion
+    */
+   public int getFileSyncPeriod ();
+   
+   /** Sets the FILE_SYNC_PERIOD of the connection, which defines the 
+    * durability policy of incoming files: with -1 file data is not
+    * synchronised with the storage device (left to the operating system);
+    * with 0 the received file is synchronised when the transfer completes;
+    * with a value n &gt; 0 the reception file is additionally synchronised 
+    * each time n megabytes have been received. Synchronisation increases
+    * crash safety at the cost of throughput. Defaults to -1. Values below
+    * -1 are corrected to -1.
+    * 
+    * @param period int megabytes; -1 = no sync, 0 = sync on completion
+    */
+   public void setFileSyncPeriod (int period);
+   
+   /** Returns the FILE_SEND_CONCURRENCY of the connection, which is the
+    * maximum number of outgoing file transfers which are active at a time.
+    * Defaults to 4.
+    * 
+    * @return int number of transfers
+    */
+   public int getFileSendConcurrency ();
+   
+   /** Sets the FILE_SEND_CONCURRENCY of the connection, which is the
+    * maximum number of outgoing file transfers which are active at a time.
+    * Further file transfers are queued and started in the order of their
+    * send priority when an active transfer has queued its last parcel. 
+    * The parcels of active transfers of equal priority are sent 
+    * interleaved. The total number of ordered file transfers remains 
+    * limited by OBJECT_QUEUE_CAPACITY. Defaults to 4. Values below 1 are
+    * corrected to 1.
+    * 
+    * @param transfers int number of transfers
+    */
+   public void setFileSendConcurrency (int transfers);
+   
+   /** Returns the RECEIVE_STORAGE of the connection, which determines the
+    * storage target of incoming file transfers, or null for TEMP files.
+    * Defaults to null.
+    * 
+    * @return <code>ReceiveStorage</code> or null
+    */
+   public ReceiveStorage getReceiveStorage ();
+   
+   /** Sets the RECEIVE_STORAGE of the connection, which determines the 
+    * storage target of incoming file transfers. With null all files are
+    * received into TEMP files (and realised at their destinations). A 
+    * storage may direct transfers into channels of its own, e.g. into
+    * memory buffers for small files (<code>BufferStorage</code>), so that
+    * they do not touch the disk. Defaults to null.
+    * 
+    * @param storage <code>ReceiveStorage</code>, may be null
+    * @see org.janeth.jennynet.core.BufferStorage
+    */
+   public void setReceiveStorage (ReceiveStorage storage);
+   
+   /** Whether outgoing file transfers of the connection transmit an 
+    * integrity digest of their data (FILE_DIGEST). Defaults to false.
+    * 
+    * @return boolean true == file digest
+    */
+   public boolean isFileDigest ();
+   
+   /** Sets whether outgoing file transfers of the connection transmit an
+    * integrity digest (SHA-256) of their data (FILE_DIGEST). The digest is
+    * computed while the data is read for sending and transmitted in a 
+    * trailing parcel of the transfer. The receiver computes the digest of
+    * arriving data and aborts the transfer if the values do not match; the
+    * digest of the file is available at the FILE_RECEIVED and 
+    * FILE_CONFIRMED events (<code>TransmissionEvent.getDigest()</code>).
+    * Defaults to false.
+    * 
+    * <p><small>The digest costs a SHA-256 pass over the data at both ends 
+    * and extends the transfer by a trailing parcel; remote stations must 
+    * run a layer version which supports digests.</small>
+    * 
+    * @param digest boolean true == file digest
+    */
+   public void setFileDigest (boolean digest);
+   
+   /** Whether outgoing file transfers of the connection send zero-filled
+    * blocks of their files as empty parcels (SPARSE_TRANSFER). 
+    * Defaults to false.
+    * 
+    * @return boolean true == sparse transfer
+    */
+   public boolean isSparseTransfer ();
+   
+   /** Sets whether outgoing file transfers of the connection send 
+    * zero-filled blocks of their files as empty parcels (SPARSE_TRANSFER).
+    * A block is the data of a parcel (TRANSMISSION_PARCEL_SIZE). The 
+    * receiver restores zero blocks without writing them, so that the 
+    * received file is sparse in these regions if the file system supports 
+    * it. This reduces the transmission volume of files with large 
+    * zero-filled regions (e.g. disk images) at the cost of testing each 
+    * block. Stream transfers are not concerned. Defaults to false.
+    * 
+    * @param sparse boolean true == sparse transfer
+    */
+   public void setSparseTransfer (boolean sparse);
+   
+}
@@ -4,8 +4,10 @@ import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.Map;
 import java.util.UUID;
 
+import org.janeth.jennynet.core.AcceptStatistics;
 import org.janeth.jennynet.core.DefaultServerListener;
 import org.janeth.jennynet.core.SendPriority;
 
@@ -59,6 +61,20 @@ import org.janeth.jennynet.core.SendPriority;
 public interface IServer {
 
    enum SignalMethod {Listener, Accept}
+
+   /** A visitor to the connections of the connection registry.
+    * 
+    * @see IServer#forEachConnection(ConnectionVisitor)
+    */
+   interface ConnectionVisitor {
+      
+      /** Called for a connection of the connection registry.
+       * 
+       * @param connection <code>ServerConnection</code>
+       * @return boolean true == continue iteration, false == stop iteration
+       */
+      boolean visit (ServerConnection connection);
+   }
    
    /** Binds the server to a port. The IP-address is
     * the <i>wildcard</i> (0.0.0.0). A port number of zero leads
@@ -176,6 +192,88 @@ public interface IServer {
     */
    public void setAcceptQueueCapacity (int capacity);
    
+   /** Sets the length of the incoming connection queue (backlog) of this
+    * server's socket. The setting becomes effective with the next 
+    * <code>bind()</code> of this server, hence servers which were created 
+    * bound use the global default value (<code>JennyNet.getSocketBacklog()
+    * </code>).
+    * 
+    * @param backlog int socket backlog (minimum 1)
+    * @throws IllegalArgumentException if value is below 1
+    * @throws IllegalStateException if server is bound
+    */
+   public void setSocketBacklog (int backlog);
+   
+   /** Returns the length of the incoming connection queue (backlog) of
+    * this server's socket. Defaults to <code>JennyNet.getSocketBacklog()
+    * </code>.
+    * 
+    * @return int socket backlog
+    */
+   public int getSocketBacklog ();
+   
+   /** Sets the number of threads which perform the layer handshake with
+    * incoming sockets. Handshakes run in parallel to the accepting of 
+    * sockets, so a slow remote endpoint does not hold up other endpoints.
+    * Sockets which wait for a handshake thread are queued up to the 
+    * length of the socket backlog; further sockets are closed immediately.
+    * This setting must be performed while the server is not yet
+    * started, otherwise an exception is thrown.
+    * 
+    * @param threads int number of handshake threads (minimum 1)
+    * @throws IllegalArgumentException if value is below 1
+    * @throws IllegalStateException if server has been started
+    */
+   public void setHandshakeThreads (int threads);
+   
+   /** Returns the number of threads which perform the layer handshake
+    * with incoming sockets. Defaults to 
+    * <code>JennyNet.DEFAULT_HANDSHAKE_THREADS</code>.
+    * 
+    * @return int number of handshake threads
+    */
+   public int getHandshakeThreads ();
+   
+   /** Sets the number of server sockets which accept connections at 
+    * this server's port, each served by its own thread. Multiple sockets 
+    * are bound with the socket option SO_REUSEPORT, whereby the operating 
+    * system distributes incoming connections among them. All accepted
+    * connections share this server's handshake threads, connection registry
+    * and listeners.
+    * <p>This setting must be performed while the server is unbound. 
+    * If SO_REUSEPORT is not supported by the Java runtime (below Java 9) 
+    * or the operating system, the value is reset to 1.
+    * 
+    * @param acceptors int number of accepting sockets (minimum 1)
+    * @throws IllegalArgumentException if value is below 1
+    * @throws IllegalStateException if server is bound
+    */
+   public void setAcceptors (int acceptors);
+   
+   /** Returns the number of server sockets which accept connections at
+    * this server's port. Defaults to 1.
+    * 
+    * @return int number of accepting sockets
+    */
+   public int getAcceptors ();
+   
+   /** Returns the counters on the acceptance of incoming connections at
+    * this server.
+    * 
+    * @return <code>AcceptStatistics</code>
+    */
+   public AcceptStatistics getAcceptStatistics ();
+   
+   /** Returns a snapshot of the metrics of this server: the values of the
+    * accept statistics, the number of connections ("connections") and the
+    * values of the connection metrics summed over all current connections.
+    * Metrics of closed connections are not included.
+    * 
+    * @return <code>Map&lt;String, Long&gt;</code> sorted by name
+    * @see org.janeth.jennynet.core.ConnectionMetrics#snapshot()
+    */
+   public Map<String, Long> getMetricsSnapshot ();
+   
    /** Sets whether this server owns the primacy to set TEMPO
     * (transmission speed) for connections. If primacy is switched on,
     * clients cannot set TEMPO on the connection.
@@ -364,6 +462,26 @@ public interface IServer {
     */
    public ServerConnection[] getConnections ();
 
+   /** Calls the given visitor for each listed open connection until the
+    * visitor returns false. The iteration works on the state of the 
+    * connection registry at the time of calling and does not allocate 
+    * memory. Modifications of the registry during the iteration do not
+    * affect the set of visited connections.
+    * 
+    * @param visitor <code>ConnectionVisitor</code>
+    * @return int number of visited connections
+    * @throws NullPointerException if parameter is null
+    */
+   public int forEachConnection (ConnectionVisitor visitor);
+
+   /** Returns the listed open connections which were announced by 
+    * their remote clients as members of the given client pool.
+    * 
+    * @param poolId UUID pool identifier
+    * @return <code>ServerConnection[]</code>, may be empty
+    */
+   public ServerConnection[] getConnectionGroup (UUID poolId);
+
    /** Removes the given connection from the registry of this server.
     * <p><small>This method tolerates parameter <b>null</b> 
     * for no-operation!</small>
@@ -0,0 +1,39 @@
+package org.janeth.jennynet.intfa;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/** Strategy which determines the storage target of incoming file transfers
+ * (RECEIVE_STORAGE parameter of a connection). For each regular incoming
+ * file transfer the storage may supply a channel which receives the data
+ * of the transfer in place of a TEMP file. If the storage returns null,
+ * the transfer is received into a TEMP file and realised at its destination
+ * as usual.
+ *
+ * <p>Data written to a storage channel does not reach the file system of
+ * the layer: there is no destination file, no reception stream and no
+ * content cache entry for the transfer. The channel is closed by the layer
+ * when the transfer is complete or aborted and is available at the transfer
+ * events with <code>TransmissionEvent.getChannel()</code>.
+ *
+ * <p>Storage channels are not used for parallel (range), delta, directory
+ * and resumed transfers.
+ *
+ * @see org.janeth.jennynet.core.BufferStorage
+ */
+public interface ReceiveStorage {
+
+   /** Returns a channel which receives the data of the given incoming file
+    * transfer, or null if the transfer shall be received into a TEMP file.
+    *
+    * @param connection <code>Connection</code> receiving connection
+    * @param fileID long file transfer ID
+    * @param path String destination path of the transfer, may be null
+    * @param length long length of the file, -1 if unknown (stream transfer)
+    * @return <code>WritableByteChannel</code> or null
+    * @throws IOException if the channel cannot be supplied; the transfer
+    *         is aborted
+    */
+   public WritableByteChannel openChannel (Connection connection, long fileID,
+         String path, long length) throws IOException;
+}
@@ -1,6 +1,7 @@
 package org.janeth.jennynet.intfa;
 
 import java.io.IOException;
+import java.util.UUID;
 
 import org.janeth.jennynet.exception.ClosedConnectionException;
 
@@ -63,6 +64,15 @@ public interface ServerConnection extends Connection {
     */
    public boolean getTempoFixed ();
    
+   /** Returns the identifier of the client pool the remote client is a
+    * member of, or null if the remote is not a pooled client. The value 
+    * is available shortly after the connection has been started.
+    * 
+    * @return UUID pool identifier or null
+    * @see IServer#getConnectionGroup(UUID)
+    */
+   public UUID getPoolId ();
+   
    /** Returns the server instance which was the source of this connection. 
     * 
     * @return Server
@@ -1,6 +1,11 @@
 package org.janeth.jennynet.intfa;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.UUID;
 
 /** Interface for a file transmission event issued by a <code>Connection</code>.
  * Transmission events are part of the <code>ConnectionListener</code> event
@@ -15,12 +20,16 @@ import java.io.File;
  * <p>     FILE_INCOMING
  * <br>A new incoming file transfer is indicated for the receiver. With 
  * getPath() the intended relative filepath can be obtained. With getFile() the 
- * temporary file is named which is buffering streamed data.
+ * temporary file is named which is buffering streamed data. With 
+ * getInputStream() the file data can be read while it is still arriving.
  *   
  * <p>     FILE_ABORTED
  * <br>A file transfer has been aborted. This is indicated at both sides of
  * the transfer. With some luck, a message about the cause
- * of the event is available. Temporary resources are erased. 
+ * of the event is available. Temporary resources are erased, unless the 
+ * transfer was interrupted by the loss of the connection and the receiving
+ * connection defines a TRANSFER_RETENTION time. In this case the transfer can
+ * be resumed by the sender with the transfer ID stated at the event.
  * 
  * <p>     FILE_RECEIVED
  * <br>Indicated to the receiver, a file transfer has been completed and is 
@@ -29,7 +38,10 @@ import java.io.File;
  * if a problem occurred with storing.
  * In this case the received file will be a TEMPORARY file only and should be 
  * moved by the application as required. Both cases can be discriminated with
- * method haveDestination().
+ * method haveDestination(). If the file was received into a channel of the
+ * connection's RECEIVE_STORAGE, getFile() returns null and the channel is
+ * available with getChannel(); data held in memory is available with 
+ * getBuffer().
  * 
  * <p>     FILE_CONFIRMED
  * <br>This is the answer available for the sender of a file indicating that 
@@ -107,9 +119,10 @@ public interface TransmissionEvent {
    public long getTransmissionLength();
 
    /** The total size of the file to be transfered.
-    * (This is known together with FILETRANSFER_INCOMING.)
+    * (This is known together with FILETRANSFER_INCOMING.) The size of a 
+    * stream transfer is unknown (-1) until the transfer is complete.
     * 
-    * @return long transmission file length in bytes
+    * @return long transmission file length in bytes, -1 if unknown
     */
    public long getExpectedLength();
 
@@ -150,6 +163,18 @@ public interface TransmissionEvent {
     */
    public long getObjectID();
 
+   /** Returns the identifier of the file transfer which persists across 
+    * connections. After an interruption of the transfer through loss of the
+    * connection, the sender can resume the transfer over a new connection 
+    * with this identifier. Available for events of regular file transfers
+    * at both sides if the sender has RESUMABLE_TRANSFERS set or the 
+    * transfer is a resumption, otherwise null.
+    * 
+    * @return UUID transfer ID or null
+    * @see Connection#resumeFile(File, String, org.janeth.jennynet.core.SendPriority, UUID)
+    */
+   public UUID getTransferId();
+
    /** If an error exception is known for the cause of a transfer abort,
     * it is shown here. Otherwise this method returns null.
     * 
@@ -157,4 +182,50 @@ public interface TransmissionEvent {
     */
    public Throwable getException();
 
+   /** Returns a new input stream which reads the data of an incoming file
+    * while it is arriving. Reading blocks at the end of data received so 
+    * far until more data arrives, so that processing of the file can 
+    * overlap with its transmission. The stream ends when the transfer is 
+    * complete and throws an IOException if the transfer is aborted. Each
+    * call returns a new stream which reads from the start of the file.
+    * The stream should be closed after use.
+    * <p>Available for FILE_INCOMING events of regular file transfers, 
+    * otherwise (parallel, delta and directory transfers, other event types)
+    * null.
+    * 
+    * @return InputStream or null
+    * @throws IOException if the transfer has failed or the file is 
+    *         inaccessible
+    */
+   public InputStream getInputStream() throws IOException;
+
+   /** Returns the channel which received the data of an incoming file 
+    * transfer from the connection's RECEIVE_STORAGE, or null if the file
+    * was received into a file. The channel is closed.
+    * 
+    * @return <code>WritableByteChannel</code> or null
+    * @see org.janeth.jennynet.intfa.ReceiveStorage
+    */
+   public WritableByteChannel getChannel();
+
+   /** Returns the received data of a file which was kept in memory by a
+    * <code>BufferStorage</code> (read-only), or null if the file was not
+    * received into memory. Available with FILE_RECEIVED events.
+    * 
+    * @return ByteBuffer or null
+    * @see org.janeth.jennynet.core.BufferStorage
+    */
+   public ByteBuffer getBuffer();
+
+   /** Returns the integrity digest (SHA-256) of the transferred file as
+    * hexadecimal string, or null if unavailable. The digest is available 
+    * with FILE_RECEIVED and FILE_CONFIRMED events of regular and stream 
+    * transfers whose sender transmitted a digest, except for delta and 
+    * resumed transfers. Senders transmit a digest only if their connection
+    * parameter FILE_DIGEST is set, which is off by default.
+    * 
+    * @return String hexadecimal SHA-256 value or null
+    */
+   public String getDigest();
+
 }
\ No newline at end of file
@@ -1,11 +1,15 @@
 package org.janeth.jennynet.test;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Properties;
 import java.util.UUID;
 
+import org.janeth.jennynet.core.ConnectionMetrics;
 import org.janeth.jennynet.core.JennyNet;
 import org.janeth.jennynet.core.SendPriority;
 import org.janeth.jennynet.core.Signal;
@@ -167,7 +171,37 @@ public class FakeConnection implements Connection {
 		   throws IOException {
 	   return sendFile(file, remotePath, SendPriority.Normal);
    }
-   
+
+   @Override
+   public long resumeFile (File file, String remotePath, SendPriority priority,
+		   UUID transferId) throws IOException {
+	   return sendFile(file, remotePath, priority);
+   }
+
+   @Override
+   public long sendFileDelta (File file, String remotePath, SendPriority priority)
+		   throws IOException {
+	   return sendFile(file, remotePath, priority);
+   }
+
+   @Override
+   public long sendDirectory (File dir, String remotePath, FileFilter filter,
+		   SendPriority priority) throws IOException {
+	   return sendFile(dir, remotePath, priority);
+   }
+
+   @Override
+   public long sendStream (InputStream in, String remotePath, SendPriority priority)
+		   throws IOException {
+	   return sendObject(null);
+   }
+
+   @Override
+   public long sendStream (ReadableByteChannel channel, String remotePath,
+		   SendPriority priority) throws IOException {
+	   return sendObject(null);
+   }
+
    @Override
    public long sendData (byte[] buffer, int start, int length, SendPriority priority) {
       return sendObject(null);
@@ -253,6 +287,11 @@ public class FakeConnection implements Connection {
 	public long getTransmissionVolume() {
 		return 0;
 	}
+
+	@Override
+	public ConnectionMetrics getMetrics() {
+		return null;
+	}
 	
 	@Override
 	public int getTransmissionSpeed() {
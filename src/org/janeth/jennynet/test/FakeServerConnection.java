@@ -2,6 +2,7 @@ package org.janeth.jennynet.test;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.UUID;
 
 import org.janeth.jennynet.core.Server;
 import org.janeth.jennynet.intfa.IServer;
@@ -45,4 +46,9 @@ public class FakeServerConnection extends FakeConnection implements ServerConnec
 		return tempoFixed;
 	}
 
+	@Override
+	public UUID getPoolId() {
+		return null;
+	}
+
 }
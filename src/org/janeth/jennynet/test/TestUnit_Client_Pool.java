@@ -0,0 +1,229 @@
+package org.janeth.jennynet.test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.janeth.jennynet.core.ClientPool;
+import org.janeth.jennynet.core.DefaultConnectionListener;
+import org.janeth.jennynet.core.SendPriority;
+import org.janeth.jennynet.core.Server;
+import org.janeth.jennynet.intfa.Connection;
+import org.janeth.jennynet.intfa.ServerConnection;
+import org.janeth.jennynet.intfa.TransmissionEvent;
+import org.janeth.jennynet.intfa.TransmissionEvent.TransmissionEventType;
+import org.janeth.jennynet.util.Util;
+import org.junit.Test;
+
+public class TestUnit_Client_Pool {
+
+   /** Collects received strings together with their receiving connection. */
+   private static class StringCollector extends DefaultConnectionListener {
+      private List<String> received = new ArrayList<String>();
+      private Map<Connection, Integer> counts = new HashMap<Connection, Integer>();
+
+      @Override
+      public synchronized void objectReceived (Connection con, long objNr, Object obj) {
+         if (obj instanceof String) {
+            received.add((String)obj);
+            Integer c = counts.get(con);
+            counts.put(con, c == null ? 1 : c + 1);
+         }
+      }
+
+      public synchronized List<String> getReceived () {
+         return new ArrayList<String>(received);
+      }
+
+      public synchronized int getNrOfSenders () {
+         return counts.size();
+      }
+
+      public synchronized int size () {
+         return received.size();
+      }
+   }
+
+   @Test
+   public void test_pool_striping () throws IOException {
+      Server sv = null;
+      ClientPool pool = null;
+      StringCollector collector = new StringCollector();
+
+      try {
+         sv = new StandardServer(new InetSocketAddress("localhost", 3048), collector);
+         sv.start();
+
+         pool = new ClientPool(3);
+         pool.connect(0, sv.getSocketAddress());
+         assertTrue("pool not connected", pool.isConnected());
+         Util.sleep(100);
+
+         // server side groups pool members
+         assertTrue("false number of server connections", sv.getConnections().length == 3);
+         ServerConnection[] group = sv.getConnectionGroup(pool.getPoolId());
+         assertTrue("false size of connection group: " + group.length, group.length == 3);
+         assertTrue("false empty connection group",
+               sv.getConnectionGroup(UUID.randomUUID()).length == 0);
+
+         // KEY-HASH striping keeps order per key
+         pool.setStriping(ClientPool.Striping.KeyHash);
+         for (int i = 0; i < 100; i++) {
+            String key = "k" + (i % 5);
+            pool.sendObject(key, key + ":" + i, SendPriority.Normal);
+         }
+         waitForSize(collector, 100, 5000);
+         assertTrue("false number of received objects", collector.size() == 100);
+         int[] last = new int[5];
+         for (String s : collector.getReceived()) {
+            int k = s.charAt(1) - '0';
+            int v = Integer.parseInt(s.substring(s.indexOf(':') + 1));
+            assertTrue("order violation for key " + k, v >= last[k]);
+            last[k] = v;
+         }
+
+         // LEAST-LOADED striping delivers everything
+         pool.setStriping(ClientPool.Striping.LeastLoaded);
+         for (int i = 0; i < 200; i++) {
+            pool.sendObject("ll-" + i);
+         }
+         waitForSize(collector, 300, 5000);
+         assertTrue("false number of received objects", collector.size() == 300);
+         assertTrue("pool did not stripe", collector.getNrOfSenders() > 1);
+
+      } finally {
+         if (pool != null) {
+            pool.close();
+         }
+         if (sv != null) {
+            sv.closeAllConnections();
+            sv.close();
+         }
+         Util.sleep(30);
+      }
+   }
+
+   /** Collects file transmission events. */
+   private static class FileEventCollector extends DefaultConnectionListener {
+      private List<TransmissionEvent> events = new ArrayList<TransmissionEvent>();
+
+      @Override
+      public synchronized void transmissionEventOccurred (TransmissionEvent evt) {
+         events.add(evt);
+      }
+
+      public synchronized int count (TransmissionEventType type) {
+         int c = 0;
+         for (TransmissionEvent evt : events) {
+            if (evt.getType() == type) c++;
+         }
+         return c;
+      }
+
+      public synchronized TransmissionEvent get (TransmissionEventType type) {
+         for (TransmissionEvent evt : events) {
+            if (evt.getType() == type) return evt;
+         }
+         return null;
+      }
+   }
+
+   @Test
+   public void test_pool_parallel_file () throws Exception {
+      Server sv = null;
+      ClientPool pool = null;
+      FileEventCollector svCollector = new FileEventCollector();
+      FileEventCollector clCollector = new FileEventCollector();
+      File tardir = new File(System.getProperty("java.io.tmpdir"), 
+            "JN-Target-" + Util.nextRand(100000));
+      tardir.mkdirs();
+
+      try {
+         sv = new StandardServer(new InetSocketAddress("localhost", 3050), svCollector);
+         sv.getParameters().setFileRootDir(tardir);
+         sv.start();
+
+         pool = new ClientPool(4);
+         pool.addListener(clCollector);
+         pool.connect(0, sv.getSocketAddress());
+         Util.sleep(100);
+
+         // parallel transfer of a multi-parcel file (odd length)
+         byte[] data = Util.randBytes(1000001);
+         File src = Util.getTempFile();
+         Util.makeFile(src, data);
+         pool.sendFileParallel(src, "parallel-1.data", SendPriority.Normal);
+         
+         long limit = System.currentTimeMillis() + 10000;
+         while ((svCollector.count(TransmissionEventType.FILE_RECEIVED) < 1 ||
+                 clCollector.count(TransmissionEventType.FILE_CONFIRMED) < 4)
+                && System.currentTimeMillis() < limit) {
+            Util.sleep(20);
+         }
+         
+         // server reports a single file, members confirm their ranges
+         assertTrue("false number of FILE-INCOMING events", 
+               svCollector.count(TransmissionEventType.FILE_INCOMING) == 1);
+         assertTrue("false number of FILE-RECEIVED events", 
+               svCollector.count(TransmissionEventType.FILE_RECEIVED) == 1);
+         assertTrue("false number of FILE-CONFIRMED events", 
+               clCollector.count(TransmissionEventType.FILE_CONFIRMED) == 4);
+         
+         TransmissionEvent evt = svCollector.get(TransmissionEventType.FILE_RECEIVED);
+         assertTrue("false file length", evt.getTransmissionLength() == data.length);
+         File target = new File(tardir, "parallel-1.data").getCanonicalFile();
+         assertTrue("false destination file", target.equals(evt.getFile()));
+         assertTrue("data integrity error", Util.equalArrays(data, Util.readFile(target)));
+         
+         // empty file is transferred as a single range
+         File empty = Util.getTempFile();
+         pool.sendFileParallel(empty, "parallel-2.data", SendPriority.High);
+         limit = System.currentTimeMillis() + 5000;
+         while (svCollector.count(TransmissionEventType.FILE_RECEIVED) < 2
+                && System.currentTimeMillis() < limit) {
+            Util.sleep(20);
+         }
+         assertTrue("empty file not received", 
+               svCollector.count(TransmissionEventType.FILE_RECEIVED) == 2);
+         assertTrue("false empty file", new File(tardir, "parallel-2.data").length() == 0);
+
+      } finally {
+         if (pool != null) {
+            pool.close();
+         }
+         if (sv != null) {
+            sv.closeAllConnections();
+            sv.close();
+         }
+         Util.sleep(30);
+      }
+   }
+
+   @Test
+   public void test_pool_connect_fail () throws IOException {
+      ClientPool pool = new ClientPool(2);
+      try {
+         pool.connect(100, new InetSocketAddress("localhost", 3049));
+         fail("exception expected: ConnectException");
+      } catch (IOException e) {
+      }
+      assertTrue("pool not closed after failure", pool.isClosed());
+      assertNull("member has pool id", pool.getMember(0).getPoolId());
+   }
+
+   private static void waitForSize (StringCollector collector, int size, long time) {
+      long limit = System.currentTimeMillis() + time;
+      while (collector.size() < size && System.currentTimeMillis() < limit) {
+         Util.sleep(20);
+      }
+   }
+}
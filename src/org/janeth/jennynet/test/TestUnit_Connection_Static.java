@@ -310,6 +310,14 @@ public class TestUnit_Connection_Static {
                e instanceof IllegalStateException);
       }
       
+      try {
+         cl1.getParameters().setVirtualThreads(true);
+         fail("fails to throw exception on setParameters()");
+      } catch (Exception e) {
+         assertTrue("false exception thrown (expected: IllegalStateException)", 
+               e instanceof IllegalStateException);
+      }
+      
       cl1.close();
    }
 
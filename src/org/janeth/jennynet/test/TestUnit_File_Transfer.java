@@ -2,17 +2,36 @@ package org.janeth.jennynet.test;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
+import org.janeth.jennynet.core.BufferStorage;
 import org.janeth.jennynet.core.Client;
+import org.janeth.jennynet.core.ContentCache;
 import org.janeth.jennynet.core.DefaultConnectionListener;
+import org.janeth.jennynet.core.JennyNet;
 import org.janeth.jennynet.core.SendPriority;
 import org.janeth.jennynet.core.Server;
 import org.janeth.jennynet.intfa.Connection;
@@ -1197,4 +1216,1133 @@ public class TestUnit_File_Transfer {
 	}
 	
 	}
+
+	@Test
+	public void resume_after_close () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener(new Object(), 1);
+		final FileReceptionListener sendListener = new FileReceptionListener();
+		receptionListener.set_release_locks_on_failure(false);
+		
+	try {
+		System.out.println("\nTEST TRANSFER RESUME AFTER CLOSE");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3051), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		sv.getParameters().setTransferRetention(10000);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		// start a slow transfer and interrupt it by closing the connection
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.getParameters().setTransmissionParcelSize(8*1024);
+		cl.getParameters().setResumableTransfers(true);
+		cl.addListener(sendListener);
+		cl.connect(100, sv.getSocketAddress());
+		cl.setTempo(50000);
+		Util.sleep(20);
+
+		int length = 300000;
+		byte[] data = Util.randBytes(length);
+		File src = Util.getTempFile(); 
+		Util.makeFile(src, data);
+		cl.sendFile(src, "resume-file-1");
+		Util.sleep(1500);
+		cl.close();
+		Util.sleep(500);
+		
+		// both sides report the abortion with the same transfer ID
+		TransmissionEventType type = TransmissionEventType.FILE_ABORTED;
+		TransmissionEvent sendEvt = sendListener.getFirstEventOf(type);
+		TransmissionEvent recEvt = receptionListener.getFirstEventOf(type);
+		assertNotNull("missing ABORTED event (client)", sendEvt);
+		assertNotNull("missing ABORTED event (server)", recEvt);
+		assertNotNull("missing transfer ID", sendEvt.getTransferId());
+		assertTrue("false transfer ID", sendEvt.getTransferId().equals(recEvt.getTransferId()));
+		long retained = recEvt.getTransmissionLength();
+		assertTrue("no data retained", retained > 0 & retained < length);
+		assertTrue("partial file not retained", recEvt.getFile().length() == retained);
+		
+		// resume transfer over a new connection
+		receptionListener.reset();
+		sendListener.reset();
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.getParameters().setTransmissionParcelSize(16*1024);
+		cl.addListener(sendListener);
+		cl.connect(100, sv.getSocketAddress());
+		cl.resumeFile(src, "resume-file-1", SendPriority.Normal, sendEvt.getTransferId());
+		
+		long limit = System.currentTimeMillis() + 10000;
+		while ((receptionListener.getReceived().size() == 0 || 
+				sendListener.countEvents(TransmissionEventType.FILE_CONFIRMED) == 0) 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		assertTrue("resumed file not received", receptionListener.getReceived().size() == 1);
+		TransmissionEvent incoming = receptionListener.getFirstEventOf(TransmissionEventType.FILE_INCOMING);
+		assertTrue("false resume offset", incoming.getTransmissionLength() == retained);
+		TransmissionEvent confirm = sendListener.getFirstEventOf(TransmissionEventType.FILE_CONFIRMED);
+		assertNotNull("missing CONFIRMED event (client)", confirm);
+		assertTrue("false sent length on resume", confirm.getTransmissionLength() == length - retained);
+		
+		File target = new File(tardir, "resume-file-1");
+		assertTrue("data integrity error", Util.equalArrays(data, Util.readFile(target)));
+		
+		// unknown transfer ID is transmitted entirely
+		receptionListener.reset();
+		sendListener.reset();
+		cl.resumeFile(src, "resume-file-2", SendPriority.Normal, UUID.randomUUID());
+		limit = System.currentTimeMillis() + 10000;
+		while (sendListener.countEvents(TransmissionEventType.FILE_CONFIRMED) == 0 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		confirm = sendListener.getFirstEventOf(TransmissionEventType.FILE_CONFIRMED);
+		assertNotNull("missing CONFIRMED event (client)", confirm);
+		assertTrue("false sent length on unknown resume", confirm.getTransmissionLength() == length);
+		target = new File(tardir, "resume-file-2");
+		assertTrue("data integrity error", Util.equalArrays(data, Util.readFile(target)));
+		
+		// regular transfers of a connection without RESUMABLE_TRANSFERS carry no ID
+		receptionListener.reset();
+		sendListener.reset();
+		cl.sendFile(src, "resume-file-3");
+		limit = System.currentTimeMillis() + 10000;
+		while (sendListener.countEvents(TransmissionEventType.FILE_CONFIRMED) == 0 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		confirm = sendListener.getFirstEventOf(TransmissionEventType.FILE_CONFIRMED);
+		assertNotNull("missing CONFIRMED event (client)", confirm);
+		assertNull("transfer ID on non-resumable transfer", confirm.getTransferId());
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test(timeout=20000)
+	public void delta_bad_signature () throws Exception {
+		System.out.println("\nTEST DELTA SIGNATURE VALIDATION");
+		
+		// FileDelta is internal to the core package
+		Class<?> delta = Class.forName("org.janeth.jennynet.core.FileDelta");
+		Class<?> signature = Class.forName("org.janeth.jennynet.core.FileDelta$Signature");
+		Constructor<?> sigConstructor = signature.getDeclaredConstructor(byte[].class);
+		sigConstructor.setAccessible(true);
+		Method sigMethod = delta.getDeclaredMethod("signature", File.class);
+		sigMethod.setAccessible(true);
+		Method encode = delta.getDeclaredMethod("encode", File.class, signature, OutputStream.class);
+		encode.setAccessible(true);
+		Method blockSizeFor = delta.getDeclaredMethod("blockSizeFor", long.class);
+		blockSizeFor.setAccessible(true);
+		
+		// the block size of large files leaves room for the encode buffer
+		int size = (Integer)blockSizeFor.invoke(null, Long.MAX_VALUE / 2);
+		assertTrue("block size overflow: " + size, 4L * size <= Integer.MAX_VALUE);
+		
+		// signatures with block sizes out of bounds are rejected
+		// (they led to an endless encoding loop)
+		int[] badSizes = new int[] {1 << 30, Integer.MAX_VALUE, 1, 0, -2048};
+		for (int blockSize : badSizes) {
+			ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bout);
+			out.writeInt(blockSize);
+			out.writeLong(1);
+			out.writeInt(1);
+			out.writeInt(0);
+			out.write(new byte[16]);
+			try {
+				sigConstructor.newInstance(bout.toByteArray());
+				fail("bad delta signature accepted, block size " + blockSize);
+			} catch (InvocationTargetException e) {
+				assertTrue("unexpected exception: " + e.getCause(), e.getCause() instanceof IOException);
+			}
+		}
+		
+		// a regular signature is accepted and encodes
+		File src = Util.getTempFile(); 
+		Util.makeFile(src, Util.randBytes(2000000));
+		Object sig = sigConstructor.newInstance(sigMethod.invoke(null, src));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encode.invoke(null, src, sig, out);
+		assertTrue("delta of identical file too large: " + out.size(), out.size() < 10000);
+		src.delete();
+	}
+
+	@Test
+	public void delta_transfer () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener(new Object(), 1);
+		final FileReceptionListener sendListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST DELTA FILE TRANSFER");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3052), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		// old version of the file exists at the receiver
+		int length = 500000;
+		byte[] oldData = Util.randBytes(length);
+		File target = new File(tardir, "delta-file");
+		Util.makeFile(target, oldData);
+		
+		// new version: insertion, modification and truncation
+		byte[] insert = Util.randBytes(1000);
+		byte[] newData = new byte[length - 5000 + insert.length];
+		System.arraycopy(oldData, 0, newData, 0, 10000);
+		System.arraycopy(insert, 0, newData, 10000, insert.length);
+		System.arraycopy(oldData, 10000, newData, 10000 + insert.length, length - 15000);
+		for (int i = 0; i < 100; i++) {
+			newData[250000 + i] ^= 0x55;
+		}
+		File src = Util.getTempFile(); 
+		Util.makeFile(src, newData);
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.addListener(sendListener);
+		cl.connect(100, sv.getSocketAddress());
+		cl.sendFileDelta(src, "delta-file", SendPriority.Normal);
+		
+		long limit = System.currentTimeMillis() + 10000;
+		while ((receptionListener.getReceived().size() == 0 || 
+				sendListener.countEvents(TransmissionEventType.FILE_CONFIRMED) == 0) 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		assertTrue("delta file not received", receptionListener.getReceived().size() == 1);
+		TransmissionEvent confirm = sendListener.getFirstEventOf(TransmissionEventType.FILE_CONFIRMED);
+		assertNotNull("missing CONFIRMED event (client)", confirm);
+		assertTrue("delta not smaller than file", confirm.getTransmissionLength() < newData.length / 10);
+		assertTrue("data integrity error", Util.equalArrays(newData, Util.readFile(target)));
+		
+		// file without base version is transmitted entirely
+		receptionListener.reset();
+		sendListener.reset();
+		cl.sendFileDelta(src, "delta-file-2", SendPriority.Normal);
+		limit = System.currentTimeMillis() + 10000;
+		while (sendListener.countEvents(TransmissionEventType.FILE_CONFIRMED) == 0 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		confirm = sendListener.getFirstEventOf(TransmissionEventType.FILE_CONFIRMED);
+		assertNotNull("missing CONFIRMED event (client)", confirm);
+		assertTrue("false sent length without base", confirm.getTransmissionLength() == newData.length);
+		assertTrue("data integrity error", 
+				Util.equalArrays(newData, Util.readFile(new File(tardir, "delta-file-2"))));
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void content_cache () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener(new Object(), 1);
+		final FileReceptionListener sendListener = new FileReceptionListener();
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		
+	try {
+		System.out.println("\nTEST CONTENT CACHE");
+		ContentCache cache = new ContentCache(new File(base, "JN-Cache-" + Util.nextRand(100000)), 
+				1000000);
+		JennyNet.setContentCache(cache);
+		sv = new StandardServer(new InetSocketAddress("localhost", 3053), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		int length = 300000;
+		byte[] data = Util.randBytes(length);
+		File src = Util.getTempFile(); 
+		Util.makeFile(src, data);
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.getParameters().setDeduplication(true);
+		cl.addListener(sendListener);
+		cl.connect(100, sv.getSocketAddress());
+		
+		// first transfer transmits the file and adds it to the cache
+		cl.sendFile(src, "dedup-1");
+		long limit = System.currentTimeMillis() + 10000;
+		while ((receptionListener.getReceived().size() == 0 || 
+				sendListener.countEvents(TransmissionEventType.FILE_CONFIRMED) == 0) 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		TransmissionEvent confirm = sendListener.getFirstEventOf(TransmissionEventType.FILE_CONFIRMED);
+		assertNotNull("missing CONFIRMED event (client)", confirm);
+		assertTrue("false sent length on cache miss", confirm.getTransmissionLength() == length);
+		assertTrue("data integrity error", 
+				Util.equalArrays(data, Util.readFile(new File(tardir, "dedup-1"))));
+		assertTrue("file not cached", cache.getEntryCount() == 1 & cache.getSize() == length);
+		assertTrue("false miss count", cache.getMissCount() == 1 & cache.getHitCount() == 0);
+		
+		// second transfer of the same content is realised from the cache
+		receptionListener.reset();
+		sendListener.reset();
+		cl.sendFile(src, "dedup-2");
+		limit = System.currentTimeMillis() + 10000;
+		while ((receptionListener.getReceived().size() == 0 || 
+				sendListener.countEvents(TransmissionEventType.FILE_CONFIRMED) == 0) 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		assertTrue("cached file not received", receptionListener.getReceived().size() == 1);
+		confirm = sendListener.getFirstEventOf(TransmissionEventType.FILE_CONFIRMED);
+		assertNotNull("missing CONFIRMED event (client)", confirm);
+		assertTrue("data sent on cache hit", confirm.getTransmissionLength() == 0);
+		assertTrue("data integrity error", 
+				Util.equalArrays(data, Util.readFile(new File(tardir, "dedup-2"))));
+		assertTrue("false hit rate", cache.getHitCount() == 1 & cache.getHitRate() == 0.5);
+		
+		// least recently used content is evicted
+		File other = Util.getTempFile(); 
+		for (int i = 0; i < 3; i++) {
+			byte[] content = Util.randBytes(400000);
+			Util.makeFile(other, content);
+			cache.store(ContentCache.hashFile(other), other);
+		}
+		assertTrue("false cache size", cache.getEntryCount() == 2 & cache.getSize() == 800000);
+		assertTrue("false eviction count", cache.getEvictionCount() == 2);
+		cache.clear();
+		
+	} finally {
+		JennyNet.setContentCache(null);
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void long_file_length () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		File src = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		final FileReceptionListener sendListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST FILE LENGTH BEYOND 2.1 GB");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3054), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		sv.start();
+		
+		// sparse file exceeding Integer.MAX_VALUE
+		long length = 3L * 1024 * 1024 * 1024 + 17;
+		src = Util.getTempFile(); 
+		RandomAccessFile raf = new RandomAccessFile(src, "rw");
+		raf.setLength(length);
+		raf.close();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.addListener(sendListener);
+		cl.connect(100, sv.getSocketAddress());
+		long fileId = cl.sendFile(src, null);
+		
+		// receiver is informed about the 64-bit file length
+		long limit = System.currentTimeMillis() + 10000;
+		while (receptionListener.countEvents(TransmissionEventType.FILE_INCOMING) == 0 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		TransmissionEvent incoming = receptionListener.getFirstEventOf(TransmissionEventType.FILE_INCOMING);
+		assertNotNull("missing INCOMING event (server)", incoming);
+		assertTrue("false expected file length", incoming.getExpectedLength() == length);
+		
+		// abort the transfer
+		cl.breakTransfer(fileId, 1);
+		limit = System.currentTimeMillis() + 5000;
+		while (sendListener.countEvents(TransmissionEventType.FILE_ABORTED) == 0 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		TransmissionEvent aborted = sendListener.getFirstEventOf(TransmissionEventType.FILE_ABORTED);
+		assertNotNull("missing ABORTED event (client)", aborted);
+		assertTrue("false expected file length", aborted.getExpectedLength() == length);
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+		if (src != null) {
+			src.delete();
+		}
+	}
+	}
+
+	@Test
+	public void shared_writer_pool () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST SHARED FILE WRITER POOL");
+		JennyNet.setFileWriterThreads(1);
+		JennyNet.setFileBufferLimit(JennyNet.MAX_TRANSMISSION_PARCEL_SIZE);
+		sv = new StandardServer(new InetSocketAddress("localhost", 3055), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.getParameters().setTransmissionParcelSize(8*1024);
+		cl.connect(100, sv.getSocketAddress());
+		
+		// many concurrent incoming files served by a single writer thread
+		int count = 10;
+		byte[][] data = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			data[i] = Util.randBytes(100000 + i * 10000);
+			File src = Util.getTempFile(); 
+			Util.makeFile(src, data[i]);
+			cl.sendFile(src, "pool-file-" + i);
+		}
+		
+		long limit = System.currentTimeMillis() + 20000;
+		while (receptionListener.getReceived().size() < count 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		assertTrue("files not received", receptionListener.getReceived().size() == count);
+		for (int i = 0; i < count; i++) {
+			File target = new File(tardir, "pool-file-" + i);
+			assertTrue("data integrity error", Util.equalArrays(data[i], Util.readFile(target)));
+		}
+		
+	} finally {
+		JennyNet.setFileWriterThreads(JennyNet.DEFAULT_FILE_WRITER_THREADS);
+		JennyNet.setFileBufferLimit(JennyNet.DEFAULT_FILE_BUFFER_LIMIT);
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void file_sync_policy () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST FILE SYNC POLICY");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3056), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		
+		// parameter default and correction
+		assertTrue("bad FILE_SYNC_PERIOD default", sv.getParameters().getFileSyncPeriod() == -1);
+		sv.getParameters().setFileSyncPeriod(-5);
+		assertTrue("bad FILE_SYNC_PERIOD correction", sv.getParameters().getFileSyncPeriod() == -1);
+		
+		// periodic synchronisation every megabyte
+		sv.getParameters().setFileSyncPeriod(1);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.connect(100, sv.getSocketAddress());
+		
+		// transfers to a destination and to a TEMP file
+		byte[] data1 = Util.randBytes(3500000);
+		byte[] data2 = Util.randBytes(1200000);
+		File src1 = Util.getTempFile(); 
+		File src2 = Util.getTempFile(); 
+		Util.makeFile(src1, data1);
+		Util.makeFile(src2, data2);
+		cl.sendFile(src1, "sync-file");
+		
+		long limit = System.currentTimeMillis() + 20000;
+		while (receptionListener.getReceived().size() < 1 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		cl.sendFile(src2, null);
+		while (receptionListener.getReceived().size() < 2 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		assertTrue("files not received", receptionListener.getReceived().size() == 2);
+		File target = new File(tardir, "sync-file");
+		assertTrue("data integrity error (1)", Util.equalArrays(data1, Util.readFile(target)));
+		File temp = receptionListener.getReceived().get(1);
+		assertTrue("bad file length (2)", temp.length() == data2.length);
+		assertTrue("data integrity error (2)", Util.equalArrays(data2, Util.readFile(temp)));
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void send_scheduler () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST FILE SEND SCHEDULER");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3057), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.getParameters().setFileSendConcurrency(0);
+		assertTrue("bad FILE_SEND_CONCURRENCY correction", cl.getParameters().getFileSendConcurrency() == 1);
+		cl.getParameters().setFileSendConcurrency(2);
+		cl.getParameters().setTransmissionParcelSize(8*1024);
+		cl.getParameters().setParcelQueueCapacity(10);
+		cl.connect(100, sv.getSocketAddress());
+		cl.setTempo(1000000);
+		
+		// many files ordered at once, only two active at a time
+		int count = 8;
+		byte[][] data = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			data[i] = Util.randBytes(300000);
+			File src = Util.getTempFile(); 
+			Util.makeFile(src, data[i]);
+			cl.sendFile(src, "sched-file-" + i, i == count-1 ? SendPriority.High : SendPriority.Normal);
+		}
+		
+		String name = "Send File Processor " + cl.getLocalAddress();
+		int maxThreads = 0;
+		long limit = System.currentTimeMillis() + 30000;
+		while (receptionListener.getReceived().size() < count 
+				&& System.currentTimeMillis() < limit) {
+			int threads = 0;
+			for (Thread t : Thread.getAllStackTraces().keySet()) {
+				if (name.equals(t.getName())) {
+					threads++;
+				}
+			}
+			maxThreads = Math.max(maxThreads, threads);
+			Util.sleep(20);
+		}
+		assertTrue("files not received", receptionListener.getReceived().size() == count);
+		assertTrue("too many send threads: " + maxThreads, maxThreads > 0 & maxThreads <= 2);
+		for (int i = 0; i < count; i++) {
+			File target = new File(tardir, "sched-file-" + i);
+			assertTrue("data integrity error", Util.equalArrays(data[i], Util.readFile(target)));
+		}
+		
+		// the high priority transfer overtakes waiting transfers
+		File last = receptionListener.getReceived().get(count-1);
+		assertFalse("priority order failure", last.getName().equals("sched-file-" + (count-1)));
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void directory_transfer () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST DIRECTORY TRANSFER (FILE BATCH)");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3058), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.connect(100, sv.getSocketAddress());
+		
+		// prepare a source directory tree of small files
+		File srcdir = new File(base, "JN-Source-" + Util.nextRand(100000));
+		int count = 300;
+		byte[][] data = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			data[i] = Util.randBytes(i * 37);
+			File f = new File(srcdir, "sub-" + (i % 7) + "/file-" + i + ".dat");
+			f.getParentFile().mkdirs();
+			Util.makeFile(f, data[i]);
+		}
+		File excluded = new File(srcdir, "excluded.tmp");
+		Util.makeFile(excluded, Util.randBytes(1000));
+		
+		// transmit the directory as a single transfer
+		cl.sendDirectory(srcdir, "batch", new FileFilter() {
+			@Override
+			public boolean accept (File f) {
+				return f.getName().endsWith(".dat");
+			}
+		}, SendPriority.Normal);
+		
+		long limit = System.currentTimeMillis() + 20000;
+		while (receptionListener.getReceived().isEmpty() 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		Util.sleep(200);
+		assertTrue("batch not received as a single transfer", receptionListener.getReceived().size() == 1);
+		File dir = new File(tardir, "batch");
+		assertTrue("bad batch event file", dir.getCanonicalFile().equals(
+				receptionListener.getReceived().get(0).getCanonicalFile()));
+		for (int i = 0; i < count; i++) {
+			File target = new File(dir, "sub-" + (i % 7) + "/file-" + i + ".dat");
+			assertTrue("missing batch file " + i, target.isFile());
+			assertTrue("data integrity error", Util.equalArrays(data[i], Util.readFile(target)));
+		}
+		assertFalse("filtered file transmitted", new File(dir, "excluded.tmp").exists());
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void directory_transfer_symlink () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST DIRECTORY TRANSFER WITH SYMBOLIC LINKS");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3066), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.connect(100, sv.getSocketAddress());
+		
+		// a source directory with a link to its own root
+		File srcdir = new File(base, "JN-Source-" + Util.nextRand(100000));
+		byte[] data = Util.randBytes(5000);
+		File f = new File(srcdir, "sub/file.dat");
+		f.getParentFile().mkdirs();
+		Util.makeFile(f, data);
+		try {
+			Files.createSymbolicLink(new File(srcdir, "sub/loop").toPath(), srcdir.toPath());
+			Files.createSymbolicLink(new File(srcdir, "link.dat").toPath(), f.toPath());
+		} catch (UnsupportedOperationException | IOException e) {
+			System.out.println("-- symbolic links not supported, test skipped");
+			return;
+		}
+		
+		cl.sendDirectory(srcdir, "batch", null, SendPriority.Normal);
+		
+		long limit = System.currentTimeMillis() + 10000;
+		while (receptionListener.getReceived().isEmpty() 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		assertTrue("batch not received", receptionListener.getReceived().size() == 1);
+		File dir = new File(tardir, "batch");
+		File target = new File(dir, "sub/file.dat");
+		assertTrue("data integrity error", Util.equalArrays(data, Util.readFile(target)));
+		assertFalse("symbolic link followed", new File(dir, "sub/loop").exists());
+		assertFalse("symbolic link transmitted", new File(dir, "link.dat").exists());
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void streaming_receive () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST STREAMING RECEIVE");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3059), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.connect(100, sv.getSocketAddress());
+		cl.setTempo(100000);
+		
+		byte[] data = Util.randBytes(600000);
+		File src = Util.getTempFile(); 
+		Util.makeFile(src, data);
+		cl.sendFile(src, "stream-file");
+		
+		// obtain the stream from the FILE_INCOMING event
+		long limit = System.currentTimeMillis() + 10000;
+		while (receptionListener.countEvents(TransmissionEventType.FILE_INCOMING) == 0 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(10);
+		}
+		TransmissionEvent incoming = receptionListener.getEvents().get(0);
+		assertTrue("no FILE INCOMING event", incoming.getType() == TransmissionEventType.FILE_INCOMING);
+		InputStream in = incoming.getInputStream();
+		assertNotNull("no incoming file stream", in);
+		
+		// read the file while it is arriving
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int len = in.read(buffer);
+		boolean overlap = receptionListener.getReceived().isEmpty();
+		while (len > -1) {
+			out.write(buffer, 0, len);
+			len = in.read(buffer);
+		}
+		in.close();
+		assertTrue("no overlap of reading and reception", overlap);
+		assertTrue("data integrity error in stream", Util.equalArrays(data, out.toByteArray()));
+		
+		// the received file is complete
+		limit = System.currentTimeMillis() + 10000;
+		while (receptionListener.getReceived().isEmpty() 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(10);
+		}
+		File target = new File(tardir, "stream-file");
+		assertTrue("data integrity error in file", Util.equalArrays(data, Util.readFile(target)));
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void stream_transfer () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST STREAM TRANSFER");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3060), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.connect(100, sv.getSocketAddress());
+		
+		// send data of unknown length from a stream and an empty channel
+		byte[] data = Util.randBytes(500000);
+		cl.sendStream(new ByteArrayInputStream(data), "stream-data", SendPriority.Normal);
+		cl.sendStream(Channels.newChannel(new ByteArrayInputStream(new byte[0])), 
+				"stream-empty", SendPriority.Normal);
+		
+		long limit = System.currentTimeMillis() + 10000;
+		while (receptionListener.getReceived().size() < 2 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(10);
+		}
+		assertTrue("stream transfers not received", receptionListener.getReceived().size() == 2);
+		
+		// the length is unknown on FILE_INCOMING
+		for (TransmissionEvent evt : receptionListener.getEvents()) {
+			if (evt.getType() == TransmissionEventType.FILE_INCOMING) {
+				assertTrue("expected length not unknown", evt.getExpectedLength() == -1);
+			}
+		}
+		
+		// control received file content
+		File target = new File(tardir, "stream-data");
+		assertTrue("data integrity error in stream transfer", 
+				Util.equalArrays(data, Util.readFile(target)));
+		target = new File(tardir, "stream-empty");
+		assertTrue("empty stream not received", target.isFile() && target.length() == 0);
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void receive_storage () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST RECEIVE STORAGE");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3061), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		sv.getParameters().setReceiveStorage(new BufferStorage(20000, false));
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.connect(100, sv.getSocketAddress());
+		
+		// a small file is kept in memory, a large file goes to disk
+		byte[] small = Util.randBytes(15000);
+		byte[] large = Util.randBytes(80000);
+		File src1 = Util.getTempFile(); 
+		Util.makeFile(src1, small);
+		File src2 = Util.getTempFile(); 
+		Util.makeFile(src2, large);
+		cl.sendFile(src1, "small.cfg");
+		cl.sendFile(src2, "large.dat");
+		
+		long limit = System.currentTimeMillis() + 10000;
+		while (receptionListener.countEvents(TransmissionEventType.FILE_RECEIVED) < 2 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(10);
+		}
+		assertTrue("files not received", 
+				receptionListener.countEvents(TransmissionEventType.FILE_RECEIVED) == 2);
+		
+		for (TransmissionEvent evt : receptionListener.getEvents()) {
+			if (evt.getType() != TransmissionEventType.FILE_RECEIVED) continue;
+			if ("small.cfg".equals(evt.getPath())) {
+				assertTrue("memory file has a file", evt.getFile() == null);
+				ByteBuffer buf = evt.getBuffer();
+				assertNotNull("memory file has no buffer", buf);
+				byte[] rece = new byte[buf.remaining()];
+				buf.get(rece);
+				assertTrue("data integrity error in memory file", Util.equalArrays(small, rece));
+			} else {
+				assertTrue("large file has a buffer", evt.getBuffer() == null);
+				assertTrue("data integrity error in large file", 
+						Util.equalArrays(large, Util.readFile(evt.getFile())));
+			}
+		}
+		assertFalse("memory file written to disk", new File(tardir, "small.cfg").exists());
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void transfer_digest () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		final FileReceptionListener sendListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST TRANSFER DIGEST");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3062), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.getParameters().setTransmissionParcelSize(16*1024);
+		assertFalse("file digest is default", cl.getParameters().isFileDigest());
+		cl.getParameters().setFileDigest(true);
+		cl.addListener(sendListener);
+		cl.connect(100, sv.getSocketAddress());
+		
+		// a file and a stream with digest
+		byte[] data = Util.randBytes(200000);
+		File src = Util.getTempFile(); 
+		Util.makeFile(src, data);
+		String hash = ContentCache.hashFile(src);
+		cl.sendFile(src, "digest-file");
+		cl.sendStream(new ByteArrayInputStream(data), "digest-stream", SendPriority.Normal);
+		
+		long limit = System.currentTimeMillis() + 10000;
+		while ((receptionListener.countEvents(TransmissionEventType.FILE_RECEIVED) < 2 ||
+				sendListener.countEvents(TransmissionEventType.FILE_CONFIRMED) < 2)
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(10);
+		}
+		assertTrue("files not received", 
+				receptionListener.countEvents(TransmissionEventType.FILE_RECEIVED) == 2);
+		assertTrue("files not confirmed", 
+				sendListener.countEvents(TransmissionEventType.FILE_CONFIRMED) == 2);
+		
+		// the digest is reported at both ends
+		for (TransmissionEvent evt : receptionListener.getEvents()) {
+			if (evt.getType() == TransmissionEventType.FILE_RECEIVED) {
+				assertTrue("false digest on FILE_RECEIVED", hash.equalsIgnoreCase(evt.getDigest()));
+				assertTrue("data integrity error", Util.equalArrays(data, Util.readFile(evt.getFile())));
+			}
+		}
+		for (TransmissionEvent evt : sendListener.getEvents()) {
+			if (evt.getType() == TransmissionEventType.FILE_CONFIRMED) {
+				assertTrue("false digest on FILE_CONFIRMED", hash.equalsIgnoreCase(evt.getDigest()));
+			}
+		}
+		
+		// without digest
+		cl.getParameters().setFileDigest(false);
+		cl.sendFile(src, "plain-file");
+		limit = System.currentTimeMillis() + 10000;
+		while (receptionListener.countEvents(TransmissionEventType.FILE_RECEIVED) < 3 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(10);
+		}
+		File target = new File(tardir, "plain-file");
+		assertTrue("data integrity error w/o digest", Util.equalArrays(data, Util.readFile(target)));
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void sparse_transfer () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST SPARSE TRANSFER");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3063), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.getParameters().setTransmissionParcelSize(16*1024);
+		cl.getParameters().setSparseTransfer(true);
+		cl.connect(100, sv.getSocketAddress());
+		
+		// a file with large zero-filled regions, ending in a zero block
+		byte[] data = new byte[1000000];
+		System.arraycopy(Util.randBytes(100000), 0, data, 0, 100000);
+		System.arraycopy(Util.randBytes(100000), 0, data, 700000, 100000);
+		File src = Util.getTempFile(); 
+		Util.makeFile(src, data);
+		long volume = cl.getTransmissionVolume();
+		cl.sendFile(src, "sparse-file");
+		
+		long limit = System.currentTimeMillis() + 10000;
+		while (receptionListener.getReceived().isEmpty() 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(10);
+		}
+		assertTrue("file not received", receptionListener.getReceived().size() == 1);
+		
+		// zero blocks were not transmitted
+		volume = cl.getTransmissionVolume() - volume;
+		assertTrue("zero blocks transmitted, volume " + volume, volume < 400000);
+		File target = new File(tardir, "sparse-file");
+		assertTrue("data integrity error in sparse file", Util.equalArrays(data, Util.readFile(target)));
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
+
+	@Test
+	public void fair_file_interleaving () throws IOException, InterruptedException {
+		Server sv = null;
+		Client cl = null;
+		final FileReceptionListener receptionListener = new FileReceptionListener();
+		
+	try {
+		System.out.println("\nTEST FAIR FILE INTERLEAVING");
+		sv = new StandardServer(new InetSocketAddress("localhost", 3065), receptionListener);
+		sv.getParameters().setAlivePeriod(0);
+		File base = new File(System.getProperty("java.io.tmpdir"));
+		File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+		tardir.mkdirs();
+		sv.getParameters().setFileRootDir(tardir);
+		sv.start();
+		
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.getParameters().setTransmissionParcelSize(8*1024);
+		cl.connect(100, sv.getSocketAddress());
+		cl.setTempo(100000);
+		
+		// a long transfer, followed by a steady flow of short transfers
+		// which demands most of the transmission speed
+		byte[] longData = Util.randBytes(80000);
+		File longSrc = Util.getTempFile(); 
+		Util.makeFile(longSrc, longData);
+		int count = 60;
+		File[] shortSrc = new File[count];
+		for (int i = 0; i < count; i++) {
+			shortSrc[i] = Util.getTempFile(); 
+			Util.makeFile(shortSrc[i], Util.randBytes(16000));
+		}
+		cl.sendFile(longSrc, "fair-long");
+		for (int i = 0; i < count; i++) {
+			cl.sendFile(shortSrc[i], "fair-short-" + i);
+			Util.sleep(170);
+		}
+		
+		long limit = System.currentTimeMillis() + 30000;
+		while (receptionListener.getReceived().size() < count + 1 
+				&& System.currentTimeMillis() < limit) {
+			Util.sleep(20);
+		}
+		List<File> received = receptionListener.getReceived();
+		assertTrue("files not received", received.size() == count + 1);
+		assertTrue("data integrity error", 
+				Util.equalArrays(longData, Util.readFile(new File(tardir, "fair-long"))));
+		
+		// the long transfer progressed while short transfers kept arriving
+		int index = -1;
+		for (int i = 0; i < received.size(); i++) {
+			if (received.get(i).getName().equals("fair-long")) {
+				index = i;
+			}
+		}
+		System.out.println("-- long transfer received as file " + index + " of " + received.size());
+		assertTrue("long transfer starved, received as " + index, index >= 0 & index <= count / 2);
+		
+	} finally {
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
 }
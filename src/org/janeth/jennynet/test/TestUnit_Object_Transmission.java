@@ -1,18 +1,28 @@
 package org.janeth.jennynet.test;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.janeth.jennynet.core.Client;
+import org.janeth.jennynet.core.ConnectionMetrics;
 import org.janeth.jennynet.core.DefaultConnectionListener;
+import org.janeth.jennynet.core.JennyNet;
+import org.janeth.jennynet.core.JennyNetByteBuffer;
 import org.janeth.jennynet.core.SendPriority;
 import org.janeth.jennynet.core.Server;
+import org.janeth.jennynet.core.TransmissionChannel;
 import org.janeth.jennynet.intfa.Connection;
 import org.janeth.jennynet.intfa.ServerConnection;
 import org.janeth.jennynet.util.CRC32;
@@ -770,4 +780,91 @@ public class TestUnit_Object_Transmission {
 			}
 		}
 	}
+
+	@Test
+	public void connection_metrics () throws Exception {
+		Server sv = null;
+		Client cl = null;
+		
+		final Object lock = new Object();
+		final RealObjectReceptionListener receptionListener = new RealObjectReceptionListener(lock, 20);
+		JennyNet.setJmxEnabled(true);
+	
+	try {
+		sv = new StandardServer(new InetSocketAddress("localhost", 3064), null);
+		sv.getParameters().setAlivePeriod(0);
+		sv.start();
+		
+		// set up a running connection
+		cl = new Client();
+		cl.getParameters().setAlivePeriod(0);
+		cl.addListener(receptionListener);
+		cl.connect(100, sv.getSocketAddress());
+		Util.sleep(20);
+		
+		Connection scon = sv.getConnections()[0];
+		ConnectionMetrics sm = scon.getMetrics();
+		ConnectionMetrics cm = cl.getMetrics();
+		assertNotNull("no server connection metrics", sm);
+		assertTrue("initial objects out not zero", sm.getObjectsOut() == 0);
+		
+		// send objects from server to client
+		synchronized (lock) {
+			for (int i = 0; i < 20; i++) {
+				scon.sendObject(new JennyNetByteBuffer(Util.randBytes(50000)));
+			}
+			lock.wait(5000);
+		}
+		assertTrue("objects not received", receptionListener.getReceived().size() == 20);
+		Util.sleep(50);
+
+		// check sender and receiver metrics
+		assertTrue("objects out", sm.getObjectsOut() == 20);
+		assertTrue("objects in", cm.getObjectsIn() == 20);
+		assertTrue("serialisation histogram", sm.getSerialisation().getCount() == 20);
+		assertTrue("deserialisation histogram", cm.getDeserialisation().getCount() == 20);
+		assertTrue("parcels out", sm.getParcelsOut(TransmissionChannel.OBJECT) >= 20);
+		assertTrue("parcels in/out mismatch", sm.getParcelsOut(TransmissionChannel.OBJECT) ==
+				cm.getParcelsIn(TransmissionChannel.OBJECT));
+		assertTrue("bytes out", sm.getBytesOut(TransmissionChannel.OBJECT) > 1000000);
+		assertTrue("bytes in/out mismatch", sm.getBytesOut(TransmissionChannel.OBJECT) ==
+				cm.getBytesIn(TransmissionChannel.OBJECT));
+		assertTrue("transmission volume", cl.getTransmissionVolume() == cm.getTransmissionVolume());
+		assertTrue("send queue load not drained", sm.getSendQueueLoad() == 0);
+		assertTrue("receive queue load not drained", cm.getReceiveQueueLoad() == 0);
+		assertTrue("delivery queue load not drained", cm.getDeliveryQueueLoad() == 0);
+		
+		Map<String, Long> snap = sm.snapshot();
+		assertTrue("snapshot objects out", snap.get("objects.out") == 20);
+		assertTrue("snapshot bytes", snap.get("bytes.out.object") == sm.getBytesOut(TransmissionChannel.OBJECT));
+		Map<String, Long> ssnap = sv.getMetricsSnapshot();
+		assertTrue("server snapshot connections", ssnap.get("connections") == 1);
+		assertTrue("server snapshot objects out", ssnap.get("objects.out") == 20);
+		assertTrue("server snapshot accepted", ssnap.get("accept.accepted") == 1);
+		
+		// check JMX exposure
+		MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("org.janeth.jennynet:type=Connection,id=" + cl.getUUID());
+		assertTrue("connection MBean not registered", mbs.isRegistered(name));
+		assertTrue("MBean objects in", (Long)mbs.getAttribute(name, "objects.in") == 20);
+		assertTrue("server MBean not registered", !mbs.queryNames(
+				new ObjectName("org.janeth.jennynet:type=Server,*"), null).isEmpty());
+		
+		cl.close();
+		Util.sleep(50);
+		assertFalse("connection MBean not removed", mbs.isRegistered(name));
+		
+	// shutdown net systems
+	} finally {
+		JennyNet.setJmxEnabled(false);
+		if (sv != null) {
+			sv.closeAllConnections();
+			sv.close();
+			Util.sleep(10);
+		}
+		if (cl != null) {
+			cl.close();
+		}
+	}
+	}
 }
@@ -9,11 +9,13 @@ import static org.junit.Assert.fail;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import org.janeth.jennynet.core.AcceptStatistics;
 import org.janeth.jennynet.core.Client;
 import org.janeth.jennynet.core.Server;
 import org.janeth.jennynet.exception.ConnectionRejectedException;
@@ -584,6 +586,179 @@ public class TestUnit_Server_Operate {
       }
    }
 
+   @Test
+   public void test_parallel_handshake () throws IOException {
+      TestServer sv1 = null;
+      Socket[] silent = new Socket[3];
+      Client cl = null;
+
+      try {
+         sv1 = new TestServer(3046);
+         sv1.setHandshakeThreads(4);
+         TestServerListener listen1 = new TestServerListener();
+         sv1.addListener(listen1);
+         sv1.start();
+
+         // settings which are not allowed after binding or start
+         try {
+            sv1.setSocketBacklog(500);
+            fail("exception expected: IllegalStateException");
+         } catch (IllegalStateException e) {
+         }
+         try {
+            sv1.setHandshakeThreads(10);
+            fail("exception expected: IllegalStateException");
+         } catch (IllegalStateException e) {
+         }
+
+         // open sockets which never perform a handshake
+         for (int i = 0; i < silent.length; i++) {
+            silent[i] = new Socket("localhost", 3046);
+         }
+         sleep(20);
+
+         // a regular client is not held up by the silent sockets
+         long stamp = System.currentTimeMillis();
+         cl = new Client();
+         cl.connect(0, sv1.getSocketAddress());
+         long time = System.currentTimeMillis() - stamp;
+         assertTrue("client connect delayed by pending handshakes: " + time, time < 400);
+         sleep(20);
+         assertTrue("client con was not added to server's list",
+               sv1.getConnections().length == 1);
+
+         // silent sockets fail by handshake deadline (CONFIRM_TIMEOUT / 2)
+         sleep(1000);
+         AcceptStatistics stats = sv1.getAcceptStatistics();
+         assertTrue("false accepted counter: " + stats, stats.getAccepted() == 4);
+         assertTrue("false verified counter: " + stats, stats.getVerified() == 1);
+         assertTrue("false failed counter: " + stats, stats.getFailed() == 3);
+         assertTrue("false pending counter: " + stats, stats.getPending() == 0);
+         assertTrue("false accept rate: " + stats, stats.getAcceptRate() >= 0);
+         for (Socket s : silent) {
+            // server handshake (16 bytes) followed by end of stream
+            s.setSoTimeout(1000);
+            byte[] buf = new byte[32];
+            int len = 0, n;
+            while ((n = s.getInputStream().read(buf, len, buf.length - len)) > 0) {
+               len += n;
+            }
+            assertTrue("silent socket not closed by server", n == -1 && len == 16);
+         }
+
+      } finally {
+         for (Socket s : silent) {
+            if (s != null) {
+               s.close();
+            }
+         }
+         if (cl != null) {
+            cl.close();
+         }
+         if (sv1 != null) {
+            sv1.closeAllConnections();
+            sv1.close();
+            sleep(20);
+         }
+      }
+   }
+
+   @Test
+   public void test_handshake_discard () throws IOException {
+      TestServer sv1 = null;
+      Socket[] silent = new Socket[3];
+
+      try {
+         sv1 = new TestServer(3068);
+         sv1.setHandshakeThreads(1);
+         sv1.addListener(new TestServerListener());
+         sv1.start();
+
+         // one handshake in progress, two waiting in the queue
+         for (int i = 0; i < silent.length; i++) {
+            silent[i] = new Socket("localhost", 3068);
+         }
+         sleep(100);
+         AcceptStatistics stats = sv1.getAcceptStatistics();
+         assertTrue("false pending counter: " + stats, stats.getPending() == 3);
+
+         // closing the server discards the queued handshakes
+         sv1.close();
+         sleep(50);
+         assertTrue("false discarded counter: " + stats, stats.getDiscarded() == 2);
+         assertTrue("discarded handshakes counted as expired: " + stats, 
+               stats.getExpired() == 0);
+
+      } finally {
+         for (Socket s : silent) {
+            if (s != null) {
+               s.close();
+            }
+         }
+         if (sv1 != null) {
+            sv1.close();
+            sleep(20);
+         }
+      }
+   }
+
+   @Test
+   public void test_multi_acceptor () throws IOException {
+      TestServer sv1 = null;
+      Client[] clients = new Client[20];
+
+      try {
+         sv1 = new TestServer();
+         sv1.setAcceptors(4);
+         assertTrue("false acceptors value", sv1.getAcceptors() == 4 || 
+               sv1.getAcceptors() == 1);
+         sv1.bind(new InetSocketAddress("localhost", 3047));
+         try {
+            sv1.setAcceptors(2);
+            fail("exception expected: IllegalStateException");
+         } catch (IllegalStateException e) {
+         }
+         TestServerListener listen1 = new TestServerListener();
+         sv1.addListener(listen1);
+         sv1.start();
+
+         // connections from all acceptors merge into the server registry
+         for (int i = 0; i < clients.length; i++) {
+            clients[i] = new Client();
+            clients[i].connect(0, sv1.getSocketAddress());
+         }
+         sleep(100);
+         assertTrue("false number of signalled connections", 
+               listen1.getAvailableCounter() == clients.length);
+         assertTrue("false number of listed connections", 
+               sv1.getConnections().length == clients.length);
+         assertTrue("false accepted counter", 
+               sv1.getAcceptStatistics().getAccepted() == clients.length);
+
+         // closing the server terminates all acceptors
+         sv1.close();
+         sleep(50);
+         assertFalse("server alive after close", sv1.isAlive());
+         try {
+            new Client().connect(0, new InetSocketAddress("localhost", 3047));
+            fail("exception expected: ConnectException");
+         } catch (ConnectException e) {
+         }
+
+      } finally {
+         for (Client cl : clients) {
+            if (cl != null) {
+               cl.close();
+            }
+         }
+         if (sv1 != null) {
+            sv1.closeAllConnections();
+            sv1.close();
+            sleep(20);
+         }
+      }
+   }
+
    @Test
    public void test_accepting_ACCEPT () {
       TestServer sv1 = null, sv2 = null, sv3 = null;
@@ -941,6 +1116,80 @@ public class TestUnit_Server_Operate {
       }
    }
 
+   @Test
+   public void test_connection_registry () throws IOException {
+      TestServer sv1 = null;
+      Client cl1 = null, cl2 = null, cl3 = null;
+
+      try {
+         sv1 = new TestServer(3067);
+         sv1.addListener(new TestServerListener());
+         sv1.start();
+
+         cl1 = new Client();
+         cl1.connect(0, sv1.getSocketAddress());
+         cl2 = new Client();
+         cl2.connect(0, sv1.getSocketAddress());
+         cl3 = new Client();
+         cl3.connect(0, sv1.getSocketAddress());
+         sleep(50);
+         assertTrue("server has not listed connections", sv1.getConnections().length == 3);
+
+         // iteration over the registry
+         final List<ServerConnection> visited = new ArrayList<ServerConnection>();
+         int h = sv1.forEachConnection(new IServer.ConnectionVisitor() {
+            @Override
+            public boolean visit (ServerConnection connection) {
+               visited.add(connection);
+               return true;
+            }
+         });
+         assertTrue("false number of visited connections", h == 3 && visited.size() == 3);
+         h = sv1.forEachConnection(new IServer.ConnectionVisitor() {
+            @Override
+            public boolean visit (ServerConnection connection) {
+               return false;
+            }
+         });
+         assertTrue("iteration was not stopped by visitor", h == 1);
+
+         // returned connection array is a copy
+         sv1.getConnections()[0] = null;
+         assertNotNull("registry modified by array", sv1.getConnections()[0]);
+
+         // registry and snapshot follow the removal of a connection
+         cl2.close();
+         sleep(50);
+         assertTrue("removed connection still listed", sv1.getConnections().length == 2);
+         visited.clear();
+         h = sv1.forEachConnection(new IServer.ConnectionVisitor() {
+            @Override
+            public boolean visit (ServerConnection connection) {
+               visited.add(connection);
+               return true;
+            }
+         });
+         assertTrue("false number of visited connections after removal", 
+               h == 2 && visited.size() == 2);
+
+      } finally {
+         if (cl1 != null) {
+            cl1.close();
+         }
+         if (cl2 != null) {
+            cl2.close();
+         }
+         if (cl3 != null) {
+            cl3.close();
+         }
+         if (sv1 != null) {
+            sv1.closeAllConnections();
+            sv1.close();
+            sleep(20);
+         }
+      }
+   }
+
    @Test
 public void test_close_all_connections () throws IOException {
    Server sv1 = null;
@@ -6,11 +6,15 @@ import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import org.janeth.jennynet.core.Client;
+import org.janeth.jennynet.core.DefaultConnectionListener;
 import org.janeth.jennynet.core.DefaultServerListener;
+import org.janeth.jennynet.core.JennyNetByteBuffer;
 import org.janeth.jennynet.core.SendPriority;
 import org.janeth.jennynet.core.Server;
 import org.janeth.jennynet.core.Signal;
@@ -18,6 +22,8 @@ import org.janeth.jennynet.core.SignalType;
 import org.janeth.jennynet.intfa.Connection;
 import org.janeth.jennynet.intfa.IServer;
 import org.janeth.jennynet.intfa.ServerConnection;
+import org.janeth.jennynet.intfa.TransmissionEvent;
+import org.janeth.jennynet.intfa.TransmissionEvent.TransmissionEventType;
 import org.janeth.jennynet.test.FakeConnection.Action;
 import org.janeth.jennynet.util.Util;
 import org.junit.Test;
@@ -435,6 +441,179 @@ public void test_multi_send_tempo () {
    }
 }
 
+@Test
+public void test_broadcast_object () throws IOException {
+   Server sv = null;
+   Client[] clients = new Client[4];
+   ObjectReceptionListener[] listeners = new ObjectReceptionListener[clients.length];
+   
+   try {
+      sv = new StandardServer(new InetSocketAddress("localhost", 3040), null);
+      sv.start();
+      
+      // set up real connections
+      for (int i = 0; i < clients.length; i++) {
+         listeners[i] = new ObjectReceptionListener();
+         clients[i] = new Client();
+         clients[i].addListener(listeners[i]);
+         clients[i].connect(100, sv.getSocketAddress());
+      }
+      sleep(100);
+      Connection[] cons = sv.getConnections(); 
+      assertTrue("server connections missing", cons.length == clients.length);
+      
+      // one connection deviates in parcel size (individual serialisation)
+      cons[0].getParameters().setTransmissionParcelSize(8*1024);
+      
+      // broadcast a multi-parcel object
+      byte[] data = Util.randBytes(100000);
+      sv.sendObjectToAll(new JennyNetByteBuffer(data), SendPriority.Normal);
+      waitForReception(listeners, 1, 5000);
+      for (ObjectReceptionListener li : listeners) {
+         assertTrue("broadcast object not received", li.getSize() == 1);
+         assertTrue("data integrity error", Util.equalArrays(data, li.getReceived().get(0)));
+      }
+      
+      // broadcast except one
+      byte[] data2 = Util.randBytes(50000);
+      sv.sendObjectToAllExcept(cons[1].getUUID(), new JennyNetByteBuffer(data2), SendPriority.High);
+      sleep(1000);
+      int count = 0;
+      for (ObjectReceptionListener li : listeners) {
+         if (li.getSize() == 2) {
+            assertTrue("data integrity error", Util.equalArrays(data2, li.getReceived().get(1)));
+            count++;
+         }
+      }
+      assertTrue("false number of receivers (except one)", count == clients.length-1);
+      
+   } finally {
+      for (Client cl : clients) {
+         if (cl != null) {
+            cl.close();
+         }
+      }
+      if (sv != null) {
+         sv.closeAllConnections();
+         sv.close();
+      }
+      sleep(30);
+   }
+}
+
+/** A connection listener collecting received files. */
+private static class FileCollector extends DefaultConnectionListener {
+   private List<File> received = new ArrayList<File>();
+
+   @Override
+   public synchronized void transmissionEventOccurred (TransmissionEvent evt) {
+      if (evt.getType() == TransmissionEventType.FILE_RECEIVED) {
+         received.add(evt.getFile());
+      }
+   }
+
+   public synchronized List<File> getReceived () {
+      return new ArrayList<File>(received);
+   }
+}
+
+@Test
+public void test_broadcast_file () throws IOException {
+   Server sv = null;
+   Client[] clients = new Client[4];
+   FileCollector[] collectors = new FileCollector[clients.length];
+   
+   try {
+      sv = new StandardServer(new InetSocketAddress("localhost", 3041), null);
+      sv.start();
+      
+      // set up real connections with individual target directories
+      File base = new File(System.getProperty("java.io.tmpdir"));
+      for (int i = 0; i < clients.length; i++) {
+         File tardir = new File(base, "JN-Target-" + Util.nextRand(100000));
+         tardir.mkdirs();
+         collectors[i] = new FileCollector();
+         clients[i] = new Client();
+         clients[i].getParameters().setFileRootDir(tardir);
+         clients[i].addListener(collectors[i]);
+         clients[i].connect(100, sv.getSocketAddress());
+      }
+      Util.sleep(100);
+      Connection[] cons = sv.getConnections(); 
+      assertTrue("server connections missing", cons.length == clients.length);
+      
+      // one connection deviates in parcel size (individual file reading)
+      cons[0].getParameters().setTransmissionParcelSize(8*1024);
+      
+      // broadcast a multi-parcel file
+      byte[] data = Util.randBytes(500000);
+      File src = Util.getTempFile();
+      Util.makeFile(src, data);
+      sv.sendFileToAll(src, "broadcast-1.data", SendPriority.Normal);
+      waitForFiles(collectors, 1, 10000);
+      for (FileCollector co : collectors) {
+         assertTrue("broadcast file not received", co.getReceived().size() == 1);
+         byte[] rece = Util.readFile(co.getReceived().get(0));
+         assertTrue("data integrity error", Util.equalArrays(data, rece));
+      }
+      
+      // broadcast except one
+      sv.sendFileToAllExcept(cons[1].getUUID(), src, "broadcast-2.data", SendPriority.Normal);
+      long limit = System.currentTimeMillis() + 10000;
+      int count;
+      do {
+         Util.sleep(50);
+         count = 0;
+         for (FileCollector co : collectors) {
+            if (co.getReceived().size() == 2) {
+               count++;
+            }
+         }
+      } while (count < clients.length-1 && System.currentTimeMillis() < limit);
+      Util.sleep(200);
+      
+      count = 0;
+      for (FileCollector co : collectors) {
+         if (co.getReceived().size() == 2) {
+            byte[] rece = Util.readFile(co.getReceived().get(1));
+            assertTrue("data integrity error", Util.equalArrays(data, rece));
+            count++;
+         }
+      }
+      assertTrue("false number of receivers (except one)", count == clients.length-1);
+      
+   } finally {
+      for (Client cl : clients) {
+         if (cl != null) {
+            cl.close();
+         }
+      }
+      if (sv != null) {
+         sv.closeAllConnections();
+         sv.close();
+      }
+      sleep(30);
+   }
+}
+
+private static void waitForFiles (FileCollector[] collectors, int size, long time) {
+   long limit = System.currentTimeMillis() + time;
+   for (FileCollector co : collectors) {
+      while (co.getReceived().size() < size && System.currentTimeMillis() < limit) {
+         sleep(20);
+      }
+   }
+}
+
+private static void waitForReception (ObjectReceptionListener[] listeners, int size, long time) {
+   long limit = System.currentTimeMillis() + time;
+   for (ObjectReceptionListener li : listeners) {
+      while (li.getSize() < size && System.currentTimeMillis() < limit) {
+         sleep(20);
+      }
+   }
+}
+
 private static void sleep (int millis) {
    try {
       Thread.sleep(millis);
@@ -0,0 +1,168 @@
+package org.janeth.jennynet.test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.janeth.jennynet.util.WheelTimer;
+import org.janeth.jennynet.util.WheelTimerTask;
+import org.junit.Test;
+
+public class TestUnit_WheelTimer {
+
+	/** A task which records the time of its execution. */
+	private static class RecordTask extends WheelTimerTask {
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicLong time = new AtomicLong();
+
+		@Override
+		public void run () {
+			time.set(System.currentTimeMillis());
+			done.countDown();
+		}
+
+		boolean await (long millis) throws InterruptedException {
+			return done.await(millis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static WheelTimer newTimer () {
+		return new WheelTimer("Test Timer", 10, 512, 2);
+	}
+
+	@Test
+	public void short_delay () throws InterruptedException {
+		WheelTimer timer = newTimer();
+		try {
+			// delay shorter than a tick
+			RecordTask task = new RecordTask();
+			long start = System.currentTimeMillis();
+			timer.schedule(task, 3);
+			assertTrue("short task not executed", task.await(1000));
+			assertTrue("short task executed early", task.time.get() - start >= 3);
+			assertTrue("short task executed late", task.time.get() - start < 200);
+			assertFalse("executed task reports cancellation", task.cancel());
+
+			// zero delay
+			task = new RecordTask();
+			timer.schedule(task, 0);
+			assertTrue("zero delay task not executed", task.await(1000));
+		} finally {
+			timer.stop();
+		}
+	}
+
+	@Test
+	public void delay_beyond_revolution () throws InterruptedException {
+		WheelTimer timer = newTimer();
+		try {
+			// one revolution of the wheel is 512 * 10 ms
+			RecordTask task = new RecordTask();
+			RecordTask near = new RecordTask();
+			long start = System.currentTimeMillis();
+			timer.schedule(task, 6000);
+			timer.schedule(near, 880);
+
+			// a task in the same bucket but of the current round
+			assertTrue("near task not executed", near.await(2000));
+			assertFalse("long task executed with round of near task", task.await(0));
+
+			assertTrue("long task not executed", task.await(8000));
+			long delay = task.time.get() - start;
+			assertTrue("long task executed early: " + delay, delay >= 6000);
+			assertTrue("long task executed late: " + delay, delay < 6500);
+		} finally {
+			timer.stop();
+		}
+	}
+
+	@Test
+	public void cancel_task () throws InterruptedException {
+		WheelTimer timer = newTimer();
+		try {
+			// cancel before execution
+			RecordTask task = new RecordTask();
+			timer.schedule(task, 200);
+			assertTrue("cancel of scheduled task fails", task.cancel());
+			assertTrue("task not cancelled", task.isCancelled());
+			assertFalse("repeated cancel succeeds", task.cancel());
+
+			// cancel from within another task
+			final RecordTask victim = new RecordTask();
+			final AtomicBoolean cancelled = new AtomicBoolean();
+			RecordTask canceller = new RecordTask() {
+				@Override
+				public void run () {
+					cancelled.set(victim.cancel());
+					super.run();
+				}
+			};
+			timer.schedule(victim, 300);
+			timer.schedule(canceller, 100);
+			assertTrue("cancelling task not executed", canceller.await(1000));
+			assertTrue("cancel from task fails", cancelled.get());
+
+			assertFalse("cancelled task executed", task.await(500));
+			assertFalse("task cancelled by task executed", victim.await(0));
+
+			// a cancelled task cannot be scheduled
+			try {
+				timer.schedule(task, 10);
+				assertTrue("cancelled task re-scheduled", false);
+			} catch (IllegalStateException e) {
+			}
+
+			// cancel a periodic task
+			final AtomicLong count = new AtomicLong();
+			WheelTimerTask periodic = new WheelTimerTask() {
+				@Override
+				public void run () {
+					count.incrementAndGet();
+				}
+			};
+			timer.schedule(periodic, 20, 50);
+			Thread.sleep(300);
+			assertTrue("periodic task not repeated", count.get() > 2);
+			assertTrue("cancel of periodic task fails", periodic.cancel());
+			Thread.sleep(100);
+			long value = count.get();
+			Thread.sleep(300);
+			assertTrue("cancelled periodic task executed", count.get() == value);
+		} finally {
+			timer.stop();
+		}
+	}
+
+	@Test
+	public void task_exception () throws InterruptedException {
+		WheelTimer timer = newTimer();
+		try {
+			final CountDownLatch thrown = new CountDownLatch(2);
+			for (int i = 0; i < 2; i++) {
+				timer.schedule(new WheelTimerTask() {
+					@Override
+					public void run () {
+						thrown.countDown();
+						throw new IllegalStateException("test exception in timer task");
+					}
+				}, 20);
+			}
+			RecordTask task = new RecordTask();
+			timer.schedule(task, 100);
+			assertTrue("throwing tasks not executed", thrown.await(1000, TimeUnit.MILLISECONDS));
+			assertTrue("task after exception not executed", task.await(1000));
+
+			// the timer continues operation
+			assertFalse("timer terminated", timer.isTerminated());
+			task = new RecordTask();
+			timer.schedule(task, 50);
+			assertTrue("task scheduled after exception not executed", task.await(1000));
+		} finally {
+			timer.stop();
+		}
+	}
+}
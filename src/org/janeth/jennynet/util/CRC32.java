@@ -66,6 +66,37 @@ public class CRC32 extends java.util.zip.CRC32
 
 // ******** STATIC FUNCTIONS *************
 
+   private static final int[] TABLE = new int[256];
+   
+   static {
+      for (int n = 0; n < 256; n++) {
+         int c = n;
+         for (int k = 0; k < 8; k++) {
+            c = (c & 1) != 0 ? 0xEDB88320 ^ (c >>> 1) : c >>> 1;
+         }
+         TABLE[n] = c;
+      }
+   }
+
+   /** Returns the CRC32 of a data sequence which is continued by the
+    * given bytes, where the CRC32 of the original sequence is given.
+    * This allows to checksum a shared data block only once and extend 
+    * the value for varying trailing data.
+    * 
+    * @param crc int CRC32 value of the original data sequence (0 for empty)
+    * @param buffer byte[] continuing data
+    * @param off int offset in buffer
+    * @param len int data length
+    * @return int CRC32 value of the continued sequence
+    */
+   public static int extend (int crc, byte[] buffer, int off, int len) {
+      int c = ~crc;
+      for (int i = off; i < off + len; i++) {
+         c = TABLE[(c ^ buffer[i]) & 0xFF] ^ (c >>> 8);
+      }
+      return ~c;
+   }
+
    /** Returns an array of 4 bytes containing the CRC32 over
     * parameter data buffer.
     *  
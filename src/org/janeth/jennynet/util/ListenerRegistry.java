@@ -0,0 +1,114 @@
+package org.janeth.jennynet.util;
+
+import java.util.Arrays;
+
+/** A set of event listeners which is optimised for event dispatching.
+ * The registered elements are held in an immutable array (snapshot) which
+ * is replaced as a whole on each modification. Dispatching threads read
+ * the current snapshot without locking and without allocating memory,
+ * while modifications are serialised among themselves.
+ *
+ * <p>The array returned by <code>getSnapshot()</code> is shared and
+ * must not be modified by the caller.
+ *
+ * @param <E> listener type
+ */
+public class ListenerRegistry<E> {
+   private volatile E[] snapshot;
+
+   /** Creates a new empty listener registry.
+    *
+    * @param empty E[] an empty array of the listener type
+    * @throws IllegalArgumentException if the array is not empty
+    */
+   public ListenerRegistry (E[] empty) {
+      if (empty.length != 0)
+         throw new IllegalArgumentException("array must be empty");
+      snapshot = empty;
+   }
+
+   /** Adds a listener to this registry if it is not already contained.
+    *
+    * @param e E listener
+    * @return boolean true if the registry was modified
+    */
+   public synchronized boolean add (E e) {
+      if (e == null)
+         throw new NullPointerException();
+
+      E[] current = snapshot;
+      if (indexOf(current, e) > -1) {
+         return false;
+      }
+      E[] next = Arrays.copyOf(current, current.length + 1);
+      next[current.length] = e;
+      snapshot = next;
+      return true;
+   }
+
+   /** Removes a listener from this registry.
+    *
+    * @param o Object listener
+    * @return boolean true if the registry was modified
+    */
+   public synchronized boolean remove (Object o) {
+      E[] current = snapshot;
+      int index = indexOf(current, o);
+      if (index < 0) {
+         return false;
+      }
+      E[] next = Arrays.copyOf(current, current.length - 1);
+      System.arraycopy(current, index + 1, next, index, next.length - index);
+      snapshot = next;
+      return true;
+   }
+
+   /** Removes all listeners from this registry.
+    */
+   public synchronized void clear () {
+      snapshot = Arrays.copyOf(snapshot, 0);
+   }
+
+   /** Whether the given listener is contained in this registry.
+    *
+    * @param o Object listener
+    * @return boolean
+    */
+   public boolean contains (Object o) {
+      return indexOf(snapshot, o) > -1;
+   }
+
+   /** Returns the number of listeners in this registry.
+    *
+    * @return int
+    */
+   public int size () {
+      return snapshot.length;
+   }
+
+   /** Returns the current immutable snapshot of registered listeners.
+    * The returned array is shared and must not be modified!
+    *
+    * @return E[] array of listeners (never null)
+    */
+   public E[] getSnapshot () {
+      return snapshot;
+   }
+
+   /** Returns a modifiable copy of the current set of listeners.
+    *
+    * @return E[] array of listeners
+    */
+   public E[] toArray () {
+      return snapshot.clone();
+   }
+
+   private static int indexOf (Object[] array, Object o) {
+      for (int i = 0; i < array.length; i++) {
+         if (array[i].equals(o)) {
+            return i;
+         }
+      }
+      return -1;
+   }
+}
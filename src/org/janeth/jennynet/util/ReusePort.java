@@ -0,0 +1,78 @@
+package org.janeth.jennynet.util;
+
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.util.Set;
+
+/** Access to the socket option SO_REUSEPORT which allows multiple server
+ * sockets to bind to the same port, whereby the operating system
+ * distributes incoming connections among the sockets (Linux).
+ *
+ * <p>The option is available with Java runtimes of version 9 or higher and
+ * only on operating systems which support it. It is accessed via reflection
+ * so that the layer remains operational on older runtimes.
+ */
+public final class ReusePort {
+
+   private static final SocketOption<?> option;
+   private static final Method setOption;
+   private static final Method supportedOptions;
+
+   static {
+      SocketOption<?> opt = null;
+      Method set = null, supported = null;
+      try {
+         opt = (SocketOption<?>)StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+         set = ServerSocket.class.getMethod("setOption", SocketOption.class, Object.class);
+         supported = ServerSocket.class.getMethod("supportedOptions");
+      } catch (Throwable e) {
+         // runtime does not support the option
+         opt = null;
+      }
+      option = opt;
+      setOption = set;
+      supportedOptions = supported;
+   }
+
+   private ReusePort () {
+   }
+
+   /** Whether the running Java runtime and operating system support
+    * the SO_REUSEPORT option on server sockets.
+    *
+    * @return boolean true == option available
+    */
+   public static boolean isSupported () {
+      if (option == null) return false;
+      try {
+         ServerSocket socket = new ServerSocket();
+         try {
+            return ((Set<?>)supportedOptions.invoke(socket)).contains(option);
+         } finally {
+            socket.close();
+         }
+      } catch (Exception e) {
+         return false;
+      }
+   }
+
+   /** Enables the SO_REUSEPORT option on the given unbound server socket.
+    *
+    * @param socket <code>ServerSocket</code>
+    * @return boolean true == option enabled, false == option not supported
+    */
+   public static boolean enable (ServerSocket socket) {
+      if (option == null) return false;
+      try {
+         if (!((Set<?>)supportedOptions.invoke(socket)).contains(option)) {
+            return false;
+         }
+         setOption.invoke(socket, option, Boolean.TRUE);
+         return true;
+      } catch (Exception e) {
+         return false;
+      }
+   }
+}
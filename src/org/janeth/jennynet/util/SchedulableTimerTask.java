@@ -1,13 +1,10 @@
 package org.janeth.jennynet.util;
 
-import java.util.Timer;
-import java.util.TimerTask;
-
-/** A java.util.TimerTask that can be scheduled at a Timer with pre-defined
- * delay and period parameters.
+/** A timer task that can be scheduled at a <code>WheelTimer</code> with
+ * pre-defined delay and period parameters.
  * 
  */
-public abstract class SchedulableTimerTask extends TimerTask {
+public abstract class SchedulableTimerTask extends WheelTimerTask {
    private final int delay;
    private final int period;
 //   private String text;
@@ -37,9 +34,9 @@ public abstract class SchedulableTimerTask extends TimerTask {
    /** Schedules this timer-task according to its defined scheduling
     * parameters at the given timer instance.
     * 
-    * @param timer java.util.Timer
+    * @param timer <code>WheelTimer</code>
     */
-   public void schedule (Timer timer) {
+   public void schedule (WheelTimer timer) {
       if (period > 0) {
          timer.schedule(this, delay, period);
       } else { 
@@ -0,0 +1,147 @@
+package org.janeth.jennynet.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** An executor which runs its tasks strictly one at a time and in the order
+ * of their submission, without owning a thread and without locking.
+ *
+ * <p>If a base executor is given, tasks are executed by threads of the base
+ * executor. At any time at most one drain job of this executor is present
+ * in the base executor, so a single base executor (e.g. a thread pool) can
+ * serve any number of serial executors while each of them preserves its
+ * task order. A drain job executes a limited batch of tasks and then
+ * re-submits itself, so that a busy serial executor does not monopolise
+ * a thread of the base executor.
+ *
+ * <p>If no base executor is given, a submitting thread queues its task and
+ * then attempts to become the draining thread of this executor. If no other
+ * thread is draining, the submitting thread executes all queued tasks,
+ * including its own, before it returns. Otherwise it returns immediately and
+ * its task is executed by the thread currently draining.
+ *
+ * <p>In both modes, tasks submitted from within a running task are executed
+ * after the running task has returned. Throwables from tasks are caught,
+ * printed to console and do not disturb the execution of subsequent tasks.
+ */
+public class SerialExecutor implements Executor {
+   /** Default number of tasks executed by a single drain job on the base executor. */
+   public static final int DEFAULT_BATCH_SIZE = 32;
+
+   private final Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>();
+   private final AtomicBoolean draining = new AtomicBoolean();
+   private final Executor base;
+   private final int batchSize;
+
+   private final Runnable drainJob = new Runnable() {
+      @Override
+      public void run() {
+         try {
+            Runnable task;
+            for (int i = 0; i < batchSize && (task = queue.poll()) != null; i++) {
+               runTask(task);
+            }
+         } finally {
+            draining.set(false);
+         }
+
+         // continue with remaining or meanwhile queued tasks
+         schedule();
+      }
+   };
+
+   /** Creates a serial executor which executes tasks in submitting threads.
+    */
+   public SerialExecutor () {
+      this(null, DEFAULT_BATCH_SIZE);
+   }
+
+   /** Creates a serial executor which executes tasks in threads of the
+    * given base executor.
+    *
+    * @param base Executor base executor; null for execution in submitting
+    *        threads
+    * @param batchSize int maximum number of tasks executed in a single job
+    *        of the base executor (minimum 1)
+    */
+   public SerialExecutor (Executor base, int batchSize) {
+      this.base = base;
+      this.batchSize = Math.max(1, batchSize);
+   }
+
+   @Override
+   public void execute (Runnable task) {
+      if (task == null)
+         throw new NullPointerException();
+
+      queue.offer(task);
+      schedule();
+   }
+
+   /** Whether this executor has no tasks waiting for execution.
+    *
+    * @return boolean
+    */
+   public boolean isEmpty () {
+      return queue.isEmpty();
+   }
+
+   /** Removes all tasks which are waiting for execution.
+    */
+   public void clear () {
+      queue.clear();
+   }
+
+   /** Returns the executor on which tasks of this serial executor
+    * are executed.
+    *
+    * @return Executor or null if tasks are executed by submitting threads
+    */
+   public Executor getBaseExecutor () {
+      return base;
+   }
+
+   /** Arranges for the execution of queued tasks if no other thread is
+    * currently draining this executor. We re-check the queue after releasing
+    * the drain marker because a task may have been queued by a thread
+    * which failed to obtain the marker just before its release.
+    */
+   private void schedule () {
+      if (base == null) {
+         drainHere();
+
+      } else if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+         try {
+            base.execute(drainJob);
+         } catch (RejectedExecutionException e) {
+            draining.set(false);
+            throw e;
+         }
+      }
+   }
+
+   private void drainHere () {
+      while (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+         try {
+            Runnable task;
+            while ((task = queue.poll()) != null) {
+               runTask(task);
+            }
+         } finally {
+            draining.set(false);
+         }
+      }
+   }
+
+   private static void runTask (Runnable task) {
+      try {
+         task.run();
+      } catch (Throwable e) {
+         System.out.println("********  UNCAUGHT APPLICATION EXCEPTION  ******** : \n" + e);
+         e.printStackTrace();
+      }
+   }
+}
@@ -249,6 +249,23 @@ public class Util {
       return true;
    }
 
+   /** Whether the given section of a byte array consists of zero bytes
+    * only.
+    * 
+    * @param a byte[] data
+    * @param off int start offset
+    * @param len int length of section
+    * @return <b>true</b> if and only if all bytes in the section are zero
+    */
+   public static boolean isZero ( byte[] a, int off, int len )
+   {
+      int end = off + len;
+      for ( int i = off; i < end; i++ )
+         if ( a[i] != 0 )
+            return false;
+      return true;
+   }
+
    /** Lets the current thread sleep for the given amount of 
     * milliseconds. If interrupted, the thread continues without
     * notice and with possibly less amount of time idled.
@@ -0,0 +1,320 @@
+package org.janeth.jennynet.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A timer service based on a hashed timing wheel. Scheduling and
+ * cancelling of tasks are O(1) operations which do not lock, so the timer
+ * scales to a very large number of scheduled tasks.
+ *
+ * <p>A single ticker thread advances the wheel by one bucket per tick and
+ * hands expired tasks to a small pool of worker threads for execution.
+ * Hence a slow task does not delay the execution of other tasks, as long
+ * as there are less slow tasks than worker threads. Execution times are
+ * accurate to the tick duration. Periodic tasks run with fixed delay
+ * (like <code>java.util.Timer.schedule()</code>) and a periodic task never
+ * runs concurrently with itself.
+ *
+ * <p>All threads of the timer are daemon threads. Throwables from tasks are
+ * printed to console and do not disturb the operation of the timer.
+ */
+public class WheelTimer {
+
+   private final String name;
+   private final long tickNanos;
+   private final int mask;
+   private final Bucket[] wheel;
+   private final long startTime;
+   private final Queue<WheelTimerTask> pending = new ConcurrentLinkedQueue<WheelTimerTask>();
+   private final Queue<WheelTimerTask> cancellations = new ConcurrentLinkedQueue<WheelTimerTask>();
+   private final ThreadPoolExecutor workers;
+   private final Thread ticker;
+   private volatile boolean terminated;
+
+   /** Creates and starts a new timing wheel.
+    *
+    * @param name String name of the timer (thread names)
+    * @param tickDuration int duration of a tick in milliseconds (minimum 1)
+    * @param wheelSize int number of buckets of the wheel; rounded up to
+    *        a power of two
+    * @param threads int number of worker threads (minimum 1)
+    * @throws IllegalArgumentException if a parameter is out of range
+    */
+   public WheelTimer (String name, int tickDuration, int wheelSize, int threads) {
+      if (tickDuration < 1)
+         throw new IllegalArgumentException("illegal tick duration: " + tickDuration);
+      if (wheelSize < 1 | wheelSize > 0x40000000)
+         throw new IllegalArgumentException("illegal wheel size: " + wheelSize);
+      if (threads < 1)
+         throw new IllegalArgumentException("illegal thread number; minimum = 1");
+
+      int size = 1;
+      while (size < wheelSize) {
+         size <<= 1;
+      }
+      this.name = name;
+      tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+      mask = size - 1;
+      wheel = new Bucket[size];
+      for (int i = 0; i < size; i++) {
+         wheel[i] = new Bucket();
+      }
+
+      workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new WorkerFactory());
+      workers.allowCoreThreadTimeOut(true);
+
+      startTime = System.nanoTime();
+      ticker = new Thread(new Ticker(), name);
+      ticker.setDaemon(true);
+      ticker.setPriority(Thread.MAX_PRIORITY);
+      ticker.start();
+   }
+
+   /** Schedules the given task for one-time execution after the given delay.
+    *
+    * @param task <code>WheelTimerTask</code>
+    * @param delay long milliseconds
+    * @throws IllegalArgumentException if delay is negative
+    * @throws IllegalStateException if the task was already scheduled or
+    *         cancelled or this timer is terminated
+    */
+   public void schedule (WheelTimerTask task, long delay) {
+      schedule(task, delay, 0);
+   }
+
+   /** Schedules the given task for repeated fixed-delay execution,
+    * beginning after the given delay. Subsequent executions take place
+    * at intervals separated by the specified period, measured from the
+    * start of the previous execution.
+    *
+    * @param task <code>WheelTimerTask</code>
+    * @param delay long milliseconds before first execution
+    * @param period long milliseconds between executions; 0 for one-time
+    *        execution
+    * @throws IllegalArgumentException if delay or period are negative
+    * @throws IllegalStateException if the task was already scheduled or
+    *         cancelled or this timer is terminated
+    */
+   public void schedule (WheelTimerTask task, long delay, long period) {
+      if (delay < 0)
+         throw new IllegalArgumentException("negative delay");
+      if (period < 0)
+         throw new IllegalArgumentException("negative period");
+      if (terminated)
+         throw new IllegalStateException("timer terminated");
+      if (!task.state.compareAndSet(WheelTimerTask.VIRGIN, WheelTimerTask.SCHEDULED))
+         throw new IllegalStateException("task already scheduled or cancelled");
+
+      task.timer = this;
+      task.period = TimeUnit.MILLISECONDS.toNanos(period);
+      task.deadline = now() + TimeUnit.MILLISECONDS.toNanos(delay);
+      pending.add(task);
+   }
+
+   /** Terminates this timer. Scheduled tasks are discarded, a currently
+    * running task completes.
+    */
+   public void stop () {
+      terminated = true;
+      ticker.interrupt();
+      workers.shutdown();
+   }
+
+   /** Whether this timer has been terminated.
+    *
+    * @return boolean
+    */
+   public boolean isTerminated () {
+      return terminated;
+   }
+
+   /** Returns the name of this timer.
+    *
+    * @return String
+    */
+   public String getName () {
+      return name;
+   }
+
+   /** Called by a task which has been cancelled while scheduled. */
+   void cancelled (WheelTimerTask task) {
+      cancellations.add(task);
+   }
+
+   private long now () {
+      return System.nanoTime() - startTime;
+   }
+
+   /** Moves newly scheduled tasks into the buckets of the wheel.
+    *
+    * @param tick long current tick
+    */
+   private void transferPending (long tick) {
+      WheelTimerTask task;
+      while ((task = pending.poll()) != null) {
+         if (task.state.get() != WheelTimerTask.SCHEDULED) {
+            continue;
+         }
+
+         long calculated = task.deadline / tickNanos;
+         task.remainingRounds = (calculated - tick) / wheel.length;
+
+         // tasks of the past are executed with the current tick
+         long ticks = Math.max(calculated, tick);
+         wheel[(int)(ticks & mask)].add(task);
+      }
+   }
+
+   private void removeCancelled () {
+      WheelTimerTask task;
+      while ((task = cancellations.poll()) != null) {
+         if (task.bucket != null) {
+            task.bucket.remove(task);
+         }
+      }
+   }
+
+   private void execute (final WheelTimerTask task) {
+      if (task.period == 0 &&
+          !task.state.compareAndSet(WheelTimerTask.SCHEDULED, WheelTimerTask.EXECUTED)) {
+         return;
+      }
+
+      try {
+         workers.execute(new Runnable() {
+            @Override
+            public void run() {
+               long start = now();
+               try {
+                  task.run();
+               } catch (Throwable e) {
+                  System.out.println("********  UNCAUGHT TIMER-TASK EXCEPTION  ******** : \n" + e);
+                  e.printStackTrace();
+               }
+
+               // re-schedule periodic task
+               if (task.period > 0 && task.state.get() == WheelTimerTask.SCHEDULED
+                   && !terminated) {
+                  task.deadline = start + task.period;
+                  pending.add(task);
+               }
+            }
+         });
+      } catch (RejectedExecutionException e) {
+         // timer terminated
+      }
+   }
+
+   /** A doubly linked list of tasks. Only accessed by the ticker thread. */
+   final class Bucket {
+      private WheelTimerTask head, tail;
+
+      void add (WheelTimerTask task) {
+         task.bucket = this;
+         if (head == null) {
+            head = tail = task;
+         } else {
+            tail.next = task;
+            task.prev = tail;
+            tail = task;
+         }
+      }
+
+      WheelTimerTask remove (WheelTimerTask task) {
+         WheelTimerTask next = task.next;
+         if (task.prev != null) {
+            task.prev.next = next;
+         }
+         if (task.next != null) {
+            task.next.prev = task.prev;
+         }
+         if (task == head) {
+            if (task == tail) {
+               tail = null;
+               head = null;
+            } else {
+               head = next;
+            }
+         } else if (task == tail) {
+            tail = task.prev;
+         }
+         task.prev = null;
+         task.next = null;
+         task.bucket = null;
+         return next;
+      }
+
+      /** Executes all tasks of this bucket which are due in the current
+       * round and counts down the rounds of the remaining tasks.
+       */
+      void expire () {
+         WheelTimerTask task = head;
+         while (task != null) {
+            if (task.remainingRounds <= 0) {
+               WheelTimerTask next = remove(task);
+               if (task.state.get() == WheelTimerTask.SCHEDULED) {
+                  execute(task);
+               }
+               task = next;
+            } else {
+               task.remainingRounds--;
+               task = task.next;
+            }
+         }
+      }
+   }
+
+   private class Ticker implements Runnable {
+      private long tick;
+
+      @Override
+      public void run () {
+         while (!terminated) {
+            if (!waitForNextTick()) break;
+
+            removeCancelled();
+            transferPending(tick);
+            wheel[(int)(tick & mask)].expire();
+            tick++;
+         }
+      }
+
+      /** Sleeps until the start of the next tick.
+       *
+       * @return boolean false if the timer was terminated
+       */
+      private boolean waitForNextTick () {
+         long deadline = tickNanos * (tick + 1);
+         while (true) {
+            long sleepMillis = (deadline - now() + 999999) / 1000000;
+            if (sleepMillis <= 0) {
+               return true;
+            }
+            try {
+               Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+               if (terminated) return false;
+            }
+         }
+      }
+   }
+
+   private class WorkerFactory implements ThreadFactory {
+      private final AtomicInteger counter = new AtomicInteger();
+
+      @Override
+      public Thread newThread (Runnable r) {
+         Thread t = new Thread(r, name + " Worker-" + counter.incrementAndGet());
+         t.setDaemon(true);
+         t.setPriority(Thread.NORM_PRIORITY);
+         return t;
+      }
+   }
+}
@@ -0,0 +1,73 @@
+package org.janeth.jennynet.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A task that can be scheduled for one-time or repeated execution
+ * at a <code>WheelTimer</code>. Like a <code>java.util.TimerTask</code>
+ * an instance can only be scheduled once; a cancelled task cannot be
+ * re-scheduled.
+ *
+ * @see WheelTimer
+ */
+public abstract class WheelTimerTask implements Runnable {
+   static final int VIRGIN = 0;
+   static final int SCHEDULED = 1;
+   static final int EXECUTED = 2;
+   static final int CANCELLED = 3;
+
+   final AtomicInteger state = new AtomicInteger(VIRGIN);
+   volatile WheelTimer timer;
+
+   // scheduling values (owned by the timer)
+   long deadline;
+   long period;
+   long remainingRounds;
+
+   // bucket list linkage (owned by the ticker thread)
+   WheelTimer.Bucket bucket;
+   WheelTimerTask next, prev;
+
+   protected WheelTimerTask () {
+   }
+
+   /** Cancels this timer task. If the task has been scheduled for one-time
+    * execution and has not yet run, or has not yet been scheduled, it will
+    * never run. If the task has been scheduled for repeated execution, it
+    * will never run again. (If the task is running when this call occurs,
+    * the task will run to completion, but will never run again.)
+    *
+    * @return boolean true if this task was prevented from one or more
+    *         scheduled executions
+    */
+   public boolean cancel () {
+      int s;
+      do {
+         s = state.get();
+         if (s == CANCELLED || s == EXECUTED) {
+            return false;
+         }
+      } while (!state.compareAndSet(s, CANCELLED));
+
+      WheelTimer t = timer;
+      if (s == SCHEDULED && t != null) {
+         t.cancelled(this);
+      }
+      return s == SCHEDULED;
+   }
+
+   /** Whether this task has been cancelled.
+    *
+    * @return boolean
+    */
+   public boolean isCancelled () {
+      return state.get() == CANCELLED;
+   }
+
+   /** Whether this task is periodic.
+    *
+    * @return boolean
+    */
+   public boolean isPeriodic () {
+      return period > 0;
+   }
+}
@@ -0,0 +1,78 @@
+package org.janeth.jennynet.util;
+
+import java.lang.reflect.Method;
+
+/** Factory for the worker threads of the network layer. Threads can be
+ * created as platform threads or as virtual threads, where the latter
+ * are only available on a Java runtime of version 21 or higher.
+ *
+ * <p>Virtual threads are accessed via reflection so that the layer
+ * remains operational on older runtimes. If virtual threads are requested
+ * but not supported by the runtime, platform threads are created instead.
+ *
+ * <p>Virtual threads are always daemon threads and always run with
+ * <code>Thread.NORM_PRIORITY</code>; priority settings on them are ignored.
+ */
+public final class WorkerThreads {
+
+   private static final Object virtualBuilder;
+   private static final Method builderName;
+   private static final Method builderUnstarted;
+
+   static {
+      Object builder = null;
+      Method name = null, unstarted = null;
+      try {
+         Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+         builder = Thread.class.getMethod("ofVirtual").invoke(null);
+         name = builderType.getMethod("name", String.class);
+         unstarted = builderType.getMethod("unstarted", Runnable.class);
+      } catch (Throwable e) {
+         // runtime does not support virtual threads
+         builder = null;
+      }
+      virtualBuilder = builder;
+      builderName = name;
+      builderUnstarted = unstarted;
+   }
+
+   private WorkerThreads () {
+   }
+
+   /** Whether the running Java runtime supports virtual threads.
+    *
+    * @return boolean true == virtual threads available (JDK 21+)
+    */
+   public static boolean isVirtualSupported () {
+      return virtualBuilder != null;
+   }
+
+   /** Creates a new unstarted daemon worker thread.
+    *
+    * @param name String thread name
+    * @param task Runnable thread task
+    * @param virtual boolean whether a virtual thread is requested;
+    *        ignored if the runtime does not support virtual threads
+    * @param priority int thread priority; ignored for virtual threads
+    * @return Thread unstarted thread
+    * @throws IllegalArgumentException if priority is out of range
+    */
+   public static Thread create (String name, Runnable task, boolean virtual, int priority) {
+      if (virtual && virtualBuilder != null) {
+         try {
+            // the builder is not thread-safe
+            synchronized (virtualBuilder) {
+               builderName.invoke(virtualBuilder, name);
+               return (Thread)builderUnstarted.invoke(virtualBuilder, task);
+            }
+         } catch (Exception e) {
+            e.printStackTrace();
+         }
+      }
+
+      Thread t = new Thread(task, name);
+      t.setDaemon(true);
+      t.setPriority(priority);
+      return t;
+   }
+}